@@ -0,0 +1,83 @@
+package com.qualifygym.carrito.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.qualifygym.datossinteticos.DatosSinteticos;
+
+/**
+ * Genera los carritos abiertos del perfil "semilla" (ver application-semilla.properties y DatosSinteticos):
+ * una parte de los usuarios sintéticos tiene ítems en el carrito, con el precio actual del producto.
+ *
+ * Inserta por batch JDBC de al menos semilla.tamano-lote ítems, con los carritos completos de cada
+ * usuario en la misma transacción. Si se interrumpe, al volver a iniciar continúa después del
+ * último usuario con carrito sintético guardado.
+ */
+@Component
+@Profile("semilla")
+public class GeneradorDatos {
+
+    private static final String SQL_INSERTAR = "insert into items_carrito (usuario_id, producto_id, cantidad, precio_unitario) "
+            + "values (?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${semilla.random:42}")
+    private long semilla;
+
+    @Value("${semilla.id-base:1000000}")
+    private long idBase;
+
+    @Value("${semilla.usuarios:500000}")
+    private long usuarios;
+
+    @Value("${semilla.productos:1000000}")
+    private long productos;
+
+    @Value("${semilla.ordenes:5000000}")
+    private long ordenes;
+
+    @Value("${semilla.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void generar() {
+        DatosSinteticos datos = new DatosSinteticos(semilla, idBase, usuarios, productos, ordenes);
+        Long ultimoUsuario = jdbcTemplate.queryForObject("select max(usuario_id) from items_carrito where usuario_id > ?",
+                Long.class, idBase);
+        long desde = ultimoUsuario != null ? ultimoUsuario - idBase + 1 : 1;
+        if (desde > usuarios) {
+            System.out.println("ℹ Carritos sintéticos ya generados. No se cargaron nuevos datos.");
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        long items = 0;
+        List<Object[]> lote = new ArrayList<>(tamanoLote + 4);
+        for (long n = desde; n <= usuarios; n++) {
+            for (DatosSinteticos.DatosItem item : datos.carrito(n)) {
+                lote.add(new Object[] { idBase + n, item.productoId(), item.cantidad(), item.precioUnitario() });
+            }
+            if (lote.size() >= tamanoLote || (n == usuarios && !lote.isEmpty())) {
+                transactionTemplate.executeWithoutResult(estado -> jdbcTemplate.batchUpdate(SQL_INSERTAR, lote));
+                items += lote.size();
+                lote.clear();
+            }
+        }
+        System.out.println("Carritos sintéticos creados: " + items + " ítems en "
+                + (System.currentTimeMillis() - inicio) / 1000 + " s");
+    }
+}
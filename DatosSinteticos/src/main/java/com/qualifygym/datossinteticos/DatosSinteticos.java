@@ -0,0 +1,223 @@
+package com.qualifygym.datossinteticos;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Modelo de los datos sintéticos del perfil "semilla", para pruebas de carga.
+ *
+ * Cada entidad se calcula solo a partir de la semilla y su número (de 1 a la cantidad pedida),
+ * sin estado ni consultas: cada microservicio genera su parte por separado y las referencias
+ * coinciden entre servicios (la orden N tiene el mismo usuario, productos y total en Ordenes y en
+ * Pagos, y sus precios son los de Productos). Los ids son id-base + N, lejos de los datos normales.
+ *
+ * Está en un módulo compartido para que todos los microservicios usen exactamente el mismo modelo.
+ */
+public final class DatosSinteticos {
+
+    public record DatosUsuario(long id, String username, String email, String phone, String rol, String address) {
+    }
+
+    public record DatosProducto(long id, String nombre, String descripcion, double precio, String categoria,
+            int stock) {
+    }
+
+    public record DatosItem(long productoId, int cantidad, double precioUnitario, double subtotal) {
+    }
+
+    public record DatosOrden(long id, long usuarioId, double total, String estado, LocalDateTime fechaCreacion,
+            LocalDateTime fechaActualizacion, String direccionEnvio, List<DatosItem> items) {
+    }
+
+    public record DatosPago(long id, long ordenId, long usuarioId, double monto, String metodoPago, String estado,
+            LocalDateTime fechaPago) {
+    }
+
+    // Sal por entidad: la misma semilla y número dan secuencias distintas para cada una
+    private static final long USUARIO = 1;
+    private static final long PRODUCTO = 2;
+    private static final long ORDEN = 3;
+    private static final long PAGO = 4;
+    private static final long CARRITO = 5;
+
+    private static final String[] NOMBRES = { "camila", "sofia", "valentina", "isidora", "martina", "catalina",
+            "benjamin", "vicente", "matias", "agustin", "tomas", "joaquin", "javiera", "fernanda", "diego", "felipe" };
+    private static final String[] APELLIDOS = { "gonzalez", "munoz", "rojas", "diaz", "perez", "soto", "contreras",
+            "silva", "martinez", "sepulveda", "morales", "rodriguez", "lopez", "fuentes", "hernandez", "torres" };
+    private static final String[] DOMINIOS = { "gmail.com", "hotmail.com", "outlook.com", "yahoo.com" };
+    private static final double[] PESO_DOMINIOS = { 0.55, 0.20, 0.15, 0.10 };
+    private static final String[] ROLES = { "Usuario", "Entrenador" };
+    private static final double[] PESO_ROLES = { 0.97, 0.03 };
+    private static final String[] CALLES = { "Av. Providencia", "Los Leones", "Av. Matta", "San Diego", "Irarrázaval",
+            "Av. Grecia", "Gran Avenida", "Pajaritos" };
+    private static final String[] COMUNAS = { "Santiago", "Providencia", "Ñuñoa", "Maipú", "La Florida", "Las Condes",
+            "Puente Alto", "Viña del Mar" };
+
+    private static final String[] CATEGORIAS = { "supplement", "accessory", "equipment", "apparel" };
+    private static final double[] PESO_CATEGORIAS = { 0.40, 0.35, 0.15, 0.10 };
+    // Mediana del precio por categoría (CLP): el precio sigue una log-normal alrededor de ella
+    private static final double[] PRECIO_MEDIANO = { 25000, 15000, 90000, 20000 };
+    private static final String[][] TIPOS = {
+            { "Proteína Whey", "Creatina", "Pre-entreno", "BCAA", "Multivitamínico", "Colágeno", "Glutamina", "Omega 3" },
+            { "Cinturón de pesas", "Banda de resistencia", "Guantes", "Muñequeras", "Shaker", "Cuerda para saltar",
+                    "Rodilleras", "Straps" },
+            { "Set de pesas", "Mancuerna", "Kettlebell", "Barra olímpica", "Banco ajustable", "Disco",
+                    "Rueda abdominal", "Step" },
+            { "Polera técnica", "Short deportivo", "Calzas", "Polerón", "Zapatillas de entrenamiento", "Jockey",
+                    "Top deportivo", "Calcetines" } };
+    private static final String[] MARCAS = { "Atlas", "Titan", "Vortex", "Andes", "Pulse", "Forja", "Nova", "Kraken",
+            "Orion", "Cumbre" };
+
+    private static final double[] PESO_ITEMS = { 0.45, 0.25, 0.15, 0.10, 0.05 };
+    private static final double[] PESO_CANTIDAD = { 0.70, 0.20, 0.10 };
+    private static final String[] ESTADOS_ORDEN = { "completada", "procesando", "pendiente", "cancelada" };
+    private static final double[] PESO_ESTADOS_ORDEN = { 0.75, 0.08, 0.07, 0.10 };
+    private static final String[] METODOS_PAGO = { "Tarjeta", "Transferencia", "Débito" };
+    private static final double[] PESO_METODOS_PAGO = { 0.55, 0.25, 0.20 };
+    private static final double FRACCION_CON_CARRITO = 0.15;
+
+    // Las órdenes se reparten en dos años, con fecha creciente según el número
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final long MINUTOS_HISTORIA = 2L * 365 * 24 * 60;
+
+    private final long semilla;
+    private final long idBase;
+    private final long usuarios;
+    private final long productos;
+    private final long ordenes;
+
+    public DatosSinteticos(long semilla, long idBase, long usuarios, long productos, long ordenes) {
+        if (usuarios <= 0 || productos <= 0 || ordenes < 0) {
+            throw new IllegalArgumentException("Se requieren usuarios y productos mayores a 0");
+        }
+        this.semilla = semilla;
+        this.idBase = idBase;
+        this.usuarios = usuarios;
+        this.productos = productos;
+        this.ordenes = ordenes;
+    }
+
+    public long idBase() {
+        return idBase;
+    }
+
+    public long usuarios() {
+        return usuarios;
+    }
+
+    public long productos() {
+        return productos;
+    }
+
+    public long ordenes() {
+        return ordenes;
+    }
+
+    public DatosUsuario usuario(long n) {
+        SplittableRandom r = aleatorio(USUARIO, n);
+        String username = NOMBRES[r.nextInt(NOMBRES.length)] + "." + APELLIDOS[r.nextInt(APELLIDOS.length)] + n;
+        String email = username + "@" + DOMINIOS[elegir(r, PESO_DOMINIOS)];
+        String phone = "9" + (10_000_000 + r.nextInt(90_000_000));
+        String rol = ROLES[elegir(r, PESO_ROLES)];
+        String address = r.nextDouble() < 0.7 ? direccion(r) : null;
+        return new DatosUsuario(idBase + n, username, email, phone, rol, address);
+    }
+
+    public DatosProducto producto(long n) {
+        SplittableRandom r = aleatorio(PRODUCTO, n);
+        int categoria = elegir(r, PESO_CATEGORIAS);
+        String tipo = TIPOS[categoria][r.nextInt(TIPOS[categoria].length)];
+        String marca = MARCAS[r.nextInt(MARCAS.length)];
+        double precio = Math.max(990, Math.round(PRECIO_MEDIANO[categoria] * Math.exp(0.6 * r.nextGaussian()) / 10) * 10);
+        double u = r.nextDouble();
+        int stock = u < 0.08 ? 0 : u < 0.20 ? 1 + r.nextInt(5) : 6 + r.nextInt(295);
+        return new DatosProducto(idBase + n, tipo + " " + marca + " " + n,
+                tipo + " marca " + marca + ". Producto generado para pruebas de carga.",
+                precio, CATEGORIAS[categoria], stock);
+    }
+
+    public DatosOrden orden(long n) {
+        SplittableRandom r = aleatorio(ORDEN, n);
+        // Pocos usuarios hacen muchas compras y pocos productos se llevan la mayoría de las ventas
+        long usuario = sesgado(r, usuarios, 2);
+        int cantidadItems = 1 + elegir(r, PESO_ITEMS);
+        List<DatosItem> items = new ArrayList<>(cantidadItems);
+        double total = 0;
+        for (int i = 0; i < cantidadItems; i++) {
+            long producto = sesgado(r, productos, 3);
+            int cantidad = 1 + elegir(r, PESO_CANTIDAD);
+            double precio = producto(producto).precio();
+            items.add(new DatosItem(idBase + producto, cantidad, precio, precio * cantidad));
+            total += precio * cantidad;
+        }
+        String estado = ESTADOS_ORDEN[elegir(r, PESO_ESTADOS_ORDEN)];
+        LocalDateTime creacion = INICIO.plusMinutes(n * MINUTOS_HISTORIA / Math.max(ordenes, 1) + r.nextInt(60));
+        LocalDateTime actualizacion = "pendiente".equals(estado) ? creacion : creacion.plusHours(1 + r.nextInt(72));
+        String direccionUsuario = usuario(usuario).address();
+        String direccionEnvio = direccionUsuario != null ? direccionUsuario : direccion(r);
+        return new DatosOrden(idBase + n, idBase + usuario, total, estado, creacion, actualizacion, direccionEnvio,
+                items);
+    }
+
+    /**
+     * Pago de la orden N (uno por orden, con el mismo id sintético)
+     */
+    public DatosPago pago(long n) {
+        DatosOrden orden = orden(n);
+        SplittableRandom r = aleatorio(PAGO, n);
+        String estado = switch (orden.estado()) {
+            case "cancelada" -> "fallido";
+            case "pendiente" -> "pendiente";
+            default -> "completado";
+        };
+        return new DatosPago(idBase + n, orden.id(), orden.usuarioId(), orden.total(),
+                METODOS_PAGO[elegir(r, PESO_METODOS_PAGO)], estado, orden.fechaCreacion().plusMinutes(1 + r.nextInt(30)));
+    }
+
+    /**
+     * Ítems del carrito abierto del usuario N; vacío si el usuario no tiene carrito
+     */
+    public List<DatosItem> carrito(long n) {
+        SplittableRandom r = aleatorio(CARRITO, n);
+        if (r.nextDouble() >= FRACCION_CON_CARRITO) {
+            return List.of();
+        }
+        int cantidadItems = 1 + r.nextInt(4);
+        List<DatosItem> items = new ArrayList<>(cantidadItems);
+        for (int i = 0; i < cantidadItems; i++) {
+            long producto = sesgado(r, productos, 3);
+            int cantidad = 1 + elegir(r, PESO_CANTIDAD);
+            double precio = producto(producto).precio();
+            items.add(new DatosItem(idBase + producto, cantidad, precio, precio * cantidad));
+        }
+        return items;
+    }
+
+    private SplittableRandom aleatorio(long entidad, long n) {
+        // SplittableRandom mezcla el estado al generar: semillas consecutivas dan secuencias independientes
+        return new SplittableRandom(semilla * 0x9E3779B97F4A7C15L + entidad * 0xBF58476D1CE4E5B9L + n);
+    }
+
+    // Número entre 1 y total, con los números bajos más frecuentes (ley de potencia)
+    private static long sesgado(SplittableRandom r, long total, double exponente) {
+        return 1 + Math.min(total - 1, (long) (total * Math.pow(r.nextDouble(), exponente)));
+    }
+
+    private static int elegir(SplittableRandom r, double[] pesos) {
+        double u = r.nextDouble();
+        for (int i = 0; i < pesos.length - 1; i++) {
+            u -= pesos[i];
+            if (u < 0) {
+                return i;
+            }
+        }
+        return pesos.length - 1;
+    }
+
+    private static String direccion(SplittableRandom r) {
+        return CALLES[r.nextInt(CALLES.length)] + " " + (1 + r.nextInt(4999)) + ", "
+                + COMUNAS[r.nextInt(COMUNAS.length)];
+    }
+}
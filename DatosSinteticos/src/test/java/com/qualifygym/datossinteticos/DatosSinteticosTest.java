@@ -0,0 +1,91 @@
+package com.qualifygym.datossinteticos;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests unitarios para DatosSinteticos
+ *
+ * Verifican que los datos dependen solo de la semilla y que las referencias entre entidades
+ * (usuario, productos, pago) coinciden, que es lo que permite generar cada servicio por separado.
+ */
+class DatosSinteticosTest {
+
+    private static final long ID_BASE = 1_000_000;
+
+    private final DatosSinteticos datos = new DatosSinteticos(42, ID_BASE, 1_000, 5_000, 20_000);
+
+    /**
+     * Test: Misma semilla, mismos datos
+     * Verifica que dos generadores con la misma semilla producen la misma orden y otra semilla no
+     */
+    @Test
+    void orden_conLaMismaSemilla_debeSerDeterminista() {
+        // Arrange
+        DatosSinteticos otro = new DatosSinteticos(42, ID_BASE, 1_000, 5_000, 20_000);
+        DatosSinteticos otraSemilla = new DatosSinteticos(7, ID_BASE, 1_000, 5_000, 20_000);
+
+        // Act & Assert
+        for (long n = 1; n <= 100; n++) {
+            assertEquals(datos.orden(n), otro.orden(n));
+            assertEquals(datos.usuario(n), otro.usuario(n));
+        }
+        assertNotEquals(datos.orden(1), otraSemilla.orden(1));
+    }
+
+    /**
+     * Test: Referencias entre servicios
+     * Verifica que los ítems usan el precio del producto generado, que los ids están en el rango
+     * sintético y que el pago coincide con su orden
+     */
+    @Test
+    void orden_debeReferenciarUsuariosYProductosGenerados() {
+        for (long n = 1; n <= 500; n++) {
+            // Act
+            DatosSinteticos.DatosOrden orden = datos.orden(n);
+            DatosSinteticos.DatosPago pago = datos.pago(n);
+
+            // Assert
+            assertEquals(ID_BASE + n, orden.id());
+            assertTrue(orden.usuarioId() > ID_BASE && orden.usuarioId() <= ID_BASE + datos.usuarios());
+            assertFalse(orden.items().isEmpty());
+            double total = 0;
+            for (DatosSinteticos.DatosItem item : orden.items()) {
+                long producto = item.productoId() - ID_BASE;
+                assertTrue(producto >= 1 && producto <= datos.productos());
+                assertEquals(datos.producto(producto).precio(), item.precioUnitario());
+                total += item.subtotal();
+            }
+            assertEquals(total, orden.total(), 0.001);
+            assertEquals(orden.id(), pago.ordenId());
+            assertEquals(orden.usuarioId(), pago.usuarioId());
+            assertEquals(orden.total(), pago.monto());
+        }
+    }
+
+    /**
+     * Test: Productos populares
+     * Verifica que el 1% de productos con números más bajos concentra una parte grande de las ventas
+     */
+    @Test
+    void orden_debeConcentrarVentasEnPocosProductos() {
+        // Arrange
+        long itemsTotales = 0;
+        long itemsPopulares = 0;
+
+        // Act
+        for (long n = 1; n <= 20_000; n++) {
+            for (DatosSinteticos.DatosItem item : datos.orden(n).items()) {
+                itemsTotales++;
+                if (item.productoId() - ID_BASE <= datos.productos() / 100) {
+                    itemsPopulares++;
+                }
+            }
+        }
+
+        // Assert: con exponente 3, P(top 1%) = 0.01^(1/3) ≈ 0.215
+        double fraccion = (double) itemsPopulares / itemsTotales;
+        assertTrue(fraccion > 0.18 && fraccion < 0.25, "Fracción de ventas del 1% más popular: " + fraccion);
+    }
+}
@@ -0,0 +1,92 @@
+package com.qualifygym.ordenes.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.qualifygym.datossinteticos.DatosSinteticos;
+
+/**
+ * Genera las órdenes sintéticas del perfil "semilla" (ver application-semilla.properties y DatosSinteticos).
+ *
+ * Cada lote de semilla.tamano-lote órdenes se guarda con sus ítems en una transacción, con un batch
+ * JDBC por tabla. Si se interrumpe, al volver a iniciar continúa después de la última orden
+ * sintética guardada. Usuarios y productos se referencian por id, como en el resto del servicio.
+ */
+@Component
+@Profile("semilla")
+public class GeneradorDatos {
+
+    private static final String SQL_ORDEN = "insert into ordenes (id, usuario_id, total, estado, fecha_creacion, "
+            + "fecha_actualizacion, direccion_envio) values (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_ITEM = "insert into items_orden (orden_id, producto_id, cantidad, precio_unitario, subtotal) "
+            + "values (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${semilla.random:42}")
+    private long semilla;
+
+    @Value("${semilla.id-base:1000000}")
+    private long idBase;
+
+    @Value("${semilla.usuarios:500000}")
+    private long usuarios;
+
+    @Value("${semilla.productos:1000000}")
+    private long productos;
+
+    @Value("${semilla.ordenes:5000000}")
+    private long ordenes;
+
+    @Value("${semilla.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void generar() {
+        DatosSinteticos datos = new DatosSinteticos(semilla, idBase, usuarios, productos, ordenes);
+        Long ultimoId = jdbcTemplate.queryForObject("select max(id) from ordenes where id > ?", Long.class, idBase);
+        long desde = ultimoId != null ? ultimoId - idBase + 1 : 1;
+        if (desde > ordenes) {
+            System.out.println("ℹ Órdenes sintéticas ya generadas. No se cargaron nuevos datos.");
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        List<Object[]> loteOrdenes = new ArrayList<>(tamanoLote);
+        List<Object[]> loteItems = new ArrayList<>(tamanoLote * 2);
+        for (long n = desde; n <= ordenes; n++) {
+            DatosSinteticos.DatosOrden o = datos.orden(n);
+            loteOrdenes.add(new Object[] { o.id(), o.usuarioId(), o.total(), o.estado(), o.fechaCreacion(),
+                    o.fechaActualizacion(), o.direccionEnvio() });
+            for (DatosSinteticos.DatosItem item : o.items()) {
+                loteItems.add(new Object[] { o.id(), item.productoId(), item.cantidad(), item.precioUnitario(),
+                        item.subtotal() });
+            }
+            if (loteOrdenes.size() == tamanoLote || n == ordenes) {
+                transactionTemplate.executeWithoutResult(estado -> {
+                    jdbcTemplate.batchUpdate(SQL_ORDEN, loteOrdenes);
+                    jdbcTemplate.batchUpdate(SQL_ITEM, loteItems);
+                });
+                loteOrdenes.clear();
+                loteItems.clear();
+                if (n % 100_000 < tamanoLote || n == ordenes) {
+                    System.out.println("Órdenes sintéticas: " + n + " de " + ordenes);
+                }
+            }
+        }
+        System.out.println("Órdenes sintéticas creadas en " + (System.currentTimeMillis() - inicio) / 1000 + " s");
+    }
+}
@@ -0,0 +1,81 @@
+package com.qualifygym.pagos.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.qualifygym.datossinteticos.DatosSinteticos;
+
+/**
+ * Genera los pagos sintéticos del perfil "semilla" (ver application-semilla.properties y DatosSinteticos):
+ * uno por orden sintética, con el monto, usuario y fecha de esa orden.
+ *
+ * Inserta por batch JDBC de semilla.tamano-lote filas, una transacción por lote. Si se interrumpe,
+ * al volver a iniciar continúa después del último pago sintético guardado.
+ */
+@Component
+@Profile("semilla")
+public class GeneradorDatos {
+
+    private static final String SQL_INSERTAR = "insert into pagos (id, orden_id, usuario_id, monto, metodo_pago, estado, fecha_pago) "
+            + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${semilla.random:42}")
+    private long semilla;
+
+    @Value("${semilla.id-base:1000000}")
+    private long idBase;
+
+    @Value("${semilla.usuarios:500000}")
+    private long usuarios;
+
+    @Value("${semilla.productos:1000000}")
+    private long productos;
+
+    @Value("${semilla.ordenes:5000000}")
+    private long ordenes;
+
+    @Value("${semilla.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void generar() {
+        DatosSinteticos datos = new DatosSinteticos(semilla, idBase, usuarios, productos, ordenes);
+        Long ultimoId = jdbcTemplate.queryForObject("select max(id) from pagos where id > ?", Long.class, idBase);
+        long desde = ultimoId != null ? ultimoId - idBase + 1 : 1;
+        if (desde > ordenes) {
+            System.out.println("ℹ Pagos sintéticos ya generados. No se cargaron nuevos datos.");
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        List<Object[]> lote = new ArrayList<>(tamanoLote);
+        for (long n = desde; n <= ordenes; n++) {
+            DatosSinteticos.DatosPago p = datos.pago(n);
+            lote.add(new Object[] { p.id(), p.ordenId(), p.usuarioId(), p.monto(), p.metodoPago(), p.estado(),
+                    p.fechaPago() });
+            if (lote.size() == tamanoLote || n == ordenes) {
+                transactionTemplate.executeWithoutResult(estado -> jdbcTemplate.batchUpdate(SQL_INSERTAR, lote));
+                lote.clear();
+                if (n % 100_000 < tamanoLote || n == ordenes) {
+                    System.out.println("Pagos sintéticos: " + n + " de " + ordenes);
+                }
+            }
+        }
+        System.out.println("Pagos sintéticos creados en " + (System.currentTimeMillis() - inicio) / 1000 + " s");
+    }
+}
@@ -0,0 +1,112 @@
+package com.qualifygym.productos.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.qualifygym.datossinteticos.DatosSinteticos;
+import com.qualifygym.productos.service.CacheCatalogo;
+import com.qualifygym.productos.service.IndiceAutocompletado;
+import com.qualifygym.productos.service.IndiceFiltros;
+import com.qualifygym.productos.service.IndiceTrigramas;
+import com.qualifygym.productos.service.NormalizadorTexto;
+
+/**
+ * Genera el catálogo sintético del perfil "semilla" (ver application-semilla.properties y DatosSinteticos).
+ *
+ * Inserta por batch JDBC de semilla.tamano-lote filas, con sus palabras de búsqueda (productos_tokens),
+ * una transacción por lote. Si se interrumpe,
+ * al volver a iniciar continúa después del último producto sintético guardado. Al terminar
+ * reconstruye los índices en memoria y vacía la caché del catálogo.
+ */
+@Component
+@Profile("semilla")
+public class GeneradorDatos {
+
+    private static final String SQL_INSERTAR = "insert into productos (id, nombre, descripcion, precio, categoria, stock, version) "
+            + "values (?, ?, ?, ?, ?, ?, 0)";
+    private static final String SQL_INSERTAR_TOKEN = "insert into productos_tokens (token, producto_id) values (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IndiceTrigramas indiceTrigramas;
+
+    @Autowired
+    private IndiceFiltros indiceFiltros;
+
+    @Autowired
+    private IndiceAutocompletado indiceAutocompletado;
+
+    @Autowired
+    private CacheCatalogo cacheCatalogo;
+
+    @Value("${semilla.random:42}")
+    private long semilla;
+
+    @Value("${semilla.id-base:1000000}")
+    private long idBase;
+
+    @Value("${semilla.usuarios:500000}")
+    private long usuarios;
+
+    @Value("${semilla.productos:1000000}")
+    private long productos;
+
+    @Value("${semilla.ordenes:5000000}")
+    private long ordenes;
+
+    @Value("${semilla.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void generar() {
+        DatosSinteticos datos = new DatosSinteticos(semilla, idBase, usuarios, productos, ordenes);
+        Long ultimoId = jdbcTemplate.queryForObject("select max(id) from productos where id > ?", Long.class, idBase);
+        long desde = ultimoId != null ? ultimoId - idBase + 1 : 1;
+        if (desde > productos) {
+            System.out.println("ℹ Productos sintéticos ya generados. No se cargaron nuevos datos.");
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        List<Object[]> lote = new ArrayList<>(tamanoLote);
+        List<Object[]> tokens = new ArrayList<>();
+        for (long n = desde; n <= productos; n++) {
+            DatosSinteticos.DatosProducto p = datos.producto(n);
+            lote.add(new Object[] { p.id(), p.nombre(), p.descripcion(), p.precio(), p.categoria(), p.stock() });
+            for (String palabra : NormalizadorTexto.palabras(p.nombre())) {
+                tokens.add(new Object[] { palabra, p.id() });
+            }
+            if (lote.size() == tamanoLote || n == productos) {
+                transactionTemplate.executeWithoutResult(estado -> {
+                    jdbcTemplate.batchUpdate(SQL_INSERTAR, lote);
+                    jdbcTemplate.batchUpdate(SQL_INSERTAR_TOKEN, tokens);
+                });
+                lote.clear();
+                tokens.clear();
+                if (n % 100_000 < tamanoLote || n == productos) {
+                    System.out.println("Productos sintéticos: " + n + " de " + productos);
+                }
+            }
+        }
+        System.out.println("Productos sintéticos creados en " + (System.currentTimeMillis() - inicio) / 1000 + " s");
+
+        indiceTrigramas.reconstruir();
+        indiceFiltros.reconstruir();
+        indiceAutocompletado.reconstruir();
+        cacheCatalogo.invalidar();
+    }
+}
@@ -6,12 +6,13 @@ import org.springframework.context.annotation.Configuration;
 
 import com.qualifygym.productos.model.Producto;
 import com.qualifygym.productos.repository.ProductoRepository;
+import com.qualifygym.productos.service.ProductoService;
 
 @Configuration
 public class LoadDatabase {
 
     @Bean
-    CommandLineRunner initDatabase(ProductoRepository productoRepo) {
+    CommandLineRunner initDatabase(ProductoRepository productoRepo, ProductoService productoService) {
         return args -> {
             // Crear productos iniciales solo si no existen
             if (productoRepo.count() == 0) {
@@ -76,6 +77,12 @@ public class LoadDatabase {
             } else {
                 System.out.println("ℹ Productos ya existen. No se cargaron nuevos datos.");
             }
+
+            // Palabras de búsqueda de los productos precargados y de los guardados antes de productos_tokens
+            int completados = productoService.completarTokensBusqueda();
+            if (completados > 0) {
+                System.out.println("Palabras de búsqueda completadas para " + completados + " productos");
+            }
         };
     }
 }
@@ -1,22 +1,41 @@
 package com.qualifygym.productos.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qualifygym.productos.model.CambioProducto;
+import com.qualifygym.productos.model.LoteProductos;
 import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ResincronizacionProductos;
+import com.qualifygym.productos.model.ResultadoFiltro;
+import com.qualifygym.productos.model.Sugerencia;
+import com.qualifygym.productos.service.DifusorCambios;
+import com.qualifygym.productos.service.ImportacionProductosService;
 import com.qualifygym.productos.service.ProductoService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -25,6 +44,8 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import reactor.core.publisher.Flux;
 
 @RestController
 @RequestMapping("/api/v1/productos")
@@ -34,44 +55,140 @@ public class ProductoController {
     @Autowired
     private ProductoService productoService;
 
-    @Operation(summary = "Obtener todos los productos", description = "Retorna una lista de todos los productos")
+    @Autowired
+    private ImportacionProductosService importacionProductosService;
+
+    @Autowired
+    private DifusorCambios difusorCambios;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Operation(summary = "Obtener todos los productos", description = "Retorna una lista de todos los productos. Con orden, direccion, cursor o limite retorna una página ({productos, siguienteCursor}) con paginación por keyset: para la página siguiente se envía el siguienteCursor recibido")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de productos obtenida exitosamente", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Producto.class))),
-            @ApiResponse(responseCode = "204", description = "No hay productos", content = @Content)
+            @ApiResponse(responseCode = "204", description = "No hay productos", content = @Content),
+            @ApiResponse(responseCode = "304", description = "El catálogo no cambió (If-None-Match)", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Orden, dirección, límite o cursor inválido", content = @Content)
     })
     @GetMapping
-    public ResponseEntity<List<Producto>> getProductos() {
+    public ResponseEntity<?> getProductos(
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String direccion,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etagCatalogo();
+        if (coincideEtag(ifNoneMatch, etag)) {
+            return noModificado(etag);
+        }
+        if (orden != null || direccion != null || cursor != null || limite != null) {
+            return pagina(etag, null, orden, direccion, cursor, limite);
+        }
         List<Producto> productos = productoService.obtenerTodos();
-        return productos.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(productos);
+        return productos.isEmpty() ? ResponseEntity.noContent().build() : conEtag(etag).body(productos);
     }
 
     @Operation(summary = "Obtener producto por ID", description = "Retorna un producto específico por su ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Producto encontrado", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Producto.class))),
+            @ApiResponse(responseCode = "304", description = "El producto no cambió (If-None-Match)", content = @Content),
             @ApiResponse(responseCode = "404", description = "Producto no encontrado", content = @Content)
     })
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductoPorId(@PathVariable Long id) {
+    public ResponseEntity<?> getProductoPorId(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            // La versión indexada en memoria basta para revalidar: un ETag vigente responde 304 sin
+            // cargar el producto. Un id que no está indexado sigue de largo y responde 404
+            OptionalLong version = productoService.versionIndexada(id);
+            if (version.isPresent()) {
+                String etag = etagProducto(id, version.getAsLong());
+                if (coincideEtag(ifNoneMatch, etag)) {
+                    return noModificado(etag);
+                }
+            }
+        }
+        Producto producto;
         try {
-            Producto producto = productoService.obtenerPorId(id);
-            return ResponseEntity.ok(producto);
+            producto = productoService.obtenerPorId(id);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
         }
+        String etag = etagProducto(producto.getId(), producto.getVersion());
+        if (coincideEtag(ifNoneMatch, etag)) {
+            return noModificado(etag);
+        }
+        return conEtag(etag).body(producto);
+    }
+
+    @Operation(summary = "Obtener varios productos por ID", description = "Retorna los productos pedidos en el mismo orden, con una sola consulta, y la lista de ids que no existen. Ejemplo: ?ids=3,1,7")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Productos encontrados y ids inexistentes", content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoteProductos.class))),
+            @ApiResponse(responseCode = "304", description = "El catálogo no cambió (If-None-Match)", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Sin ids o demasiados ids", content = @Content)
+    })
+    @GetMapping("/batch")
+    public ResponseEntity<?> getProductosPorIds(@RequestParam List<Long> ids,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etagCatalogo();
+        if (coincideEtag(ifNoneMatch, etag)) {
+            return noModificado(etag);
+        }
+        try {
+            return conEtag(etag).body(productoService.obtenerPorIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Obtener varios productos por ID (POST)", description = "Igual que GET /batch, para listas de ids demasiado largas para la URL")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Productos encontrados y ids inexistentes", content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoteProductos.class))),
+            @ApiResponse(responseCode = "400", description = "Sin ids, demasiados ids o ids inválidos", content = @Content)
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<?> postProductosPorIds(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Ids de los productos", required = true, content = @Content(mediaType = "application/json", examples = @io.swagger.v3.oas.annotations.media.ExampleObject(name = "EjemploLote", value = "{\"ids\": [3, 1, 7]}"))) @RequestBody Map<String, Object> datos) {
+        try {
+            if (!(datos.get("ids") instanceof List<?> valores)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Se requiere la lista ids"));
+            }
+            List<Long> ids = valores.stream().map(valor -> Long.valueOf(String.valueOf(valor))).toList();
+            return ResponseEntity.ok(productoService.obtenerPorIds(ids));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Formato de número inválido: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
-    @Operation(summary = "Buscar productos por categoría", description = "Retorna productos filtrados por categoría")
+    @Operation(summary = "Buscar productos por categoría", description = "Retorna productos filtrados por categoría. Acepta la misma paginación por keyset que el listado completo")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Productos encontrados", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Producto.class))),
-            @ApiResponse(responseCode = "204", description = "No hay productos en esta categoría", content = @Content)
+            @ApiResponse(responseCode = "204", description = "No hay productos en esta categoría", content = @Content),
+            @ApiResponse(responseCode = "304", description = "El catálogo no cambió (If-None-Match)", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Orden, dirección, límite o cursor inválido", content = @Content)
     })
     @GetMapping("/categoria/{categoria}")
-    public ResponseEntity<List<Producto>> getProductosPorCategoria(@PathVariable String categoria) {
+    public ResponseEntity<?> getProductosPorCategoria(@PathVariable String categoria,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String direccion,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etagCatalogo();
+        if (coincideEtag(ifNoneMatch, etag)) {
+            return noModificado(etag);
+        }
+        if (orden != null || direccion != null || cursor != null || limite != null) {
+            return pagina(etag, categoria, orden, direccion, cursor, limite);
+        }
         List<Producto> productos = productoService.obtenerPorCategoria(categoria);
-        return productos.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(productos);
+        return productos.isEmpty() ? ResponseEntity.noContent().build() : conEtag(etag).body(productos);
     }
 
-    @Operation(summary = "Buscar productos por nombre", description = "Retorna productos que coincidan con el nombre")
+    @Operation(summary = "Buscar productos por nombre", description = "Retorna productos cuyo nombre o descripción contiene el texto, sin distinguir mayúsculas ni tildes, ordenados por relevancia. Si no hay ninguno, tolera errores de tipeo en el nombre (\"cretina\" encuentra \"Creatina\")")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Productos encontrados", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Producto.class))),
             @ApiResponse(responseCode = "204", description = "No hay productos con ese nombre", content = @Content)
@@ -82,6 +199,72 @@ public class ProductoController {
         return productos.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(productos);
     }
 
+    @Operation(summary = "Autocompletar nombres de productos", description = "Sugiere productos con una palabra del nombre que empieza con el texto, sin distinguir mayúsculas ni tildes, del más vendido al menos vendido. Se responde desde un índice en memoria, pensado para llamarse en cada tecla")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sugerencias (lista vacía si no hay)", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Sugerencia.class))),
+            @ApiResponse(responseCode = "400", description = "Límite fuera de rango", content = @Content),
+            @ApiResponse(responseCode = "503", description = "El índice de autocompletado se está construyendo", content = @Content)
+    })
+    @GetMapping("/autocompletar")
+    public ResponseEntity<?> autocompletarProductos(@RequestParam String q,
+            @RequestParam(defaultValue = "10") int limite) {
+        try {
+            return ResponseEntity.ok(productoService.autocompletar(q, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Filtrar productos", description = "Combina categoría (una o varias), rango de precio, disponibilidad y términos del nombre. Retorna una página de productos, el total y los conteos por faceta (categorias, stock y precios), cada faceta calculada con los demás filtros aplicados")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resultado del filtro con facetas", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResultadoFiltro.class))),
+            @ApiResponse(responseCode = "304", description = "El catálogo no cambió (If-None-Match)", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Página o rango de precio inválido", content = @Content),
+            @ApiResponse(responseCode = "503", description = "El índice de filtros se está construyendo", content = @Content)
+    })
+    @GetMapping("/filtrar")
+    public ResponseEntity<?> filtrarProductos(
+            @RequestParam(required = false) List<String> categoria,
+            @RequestParam(required = false) Double precioMin,
+            @RequestParam(required = false) Double precioMax,
+            @RequestParam(defaultValue = "false") boolean enStock,
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "20") int tamano,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etagCatalogo();
+        if (coincideEtag(ifNoneMatch, etag)) {
+            return noModificado(etag);
+        }
+        try {
+            ResultadoFiltro resultado = productoService.filtrar(categoria, precioMin, precioMax, enStock, q, pagina, tamano);
+            return conEtag(etag).body(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Eventos de stock y precio", description = "Flujo Server-Sent Events (text/event-stream) con un evento 'cambio' cada vez que cambia el stock o el precio de un producto. Con ids se reciben solo los cambios de esos productos. Un evento 'resync' indica que se deben volver a consultar los productos seguidos (se descartaron cambios por un cliente lento, o una actualización masiva cambió una categoría). Cada productos.eventos.heartbeat-s segundos se envía un comentario para mantener la conexión")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Flujo de eventos", content = @Content(mediaType = "text/event-stream", schema = @Schema(oneOf = { CambioProducto.class, ResincronizacionProductos.class }))),
+            @ApiResponse(responseCode = "503", description = "Se alcanzó el máximo de clientes conectados", content = @Content)
+    })
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> eventosProductos(@RequestParam(required = false) List<Long> ids) {
+        try {
+            return difusorCambios.suscribir(ids)
+                    .onErrorMap(IllegalStateException.class,
+                            e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
+        } catch (IllegalStateException e) {
+            // El cuerpo JSON no aplica a un flujo SSE: solo se informa el estado
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
     @Operation(summary = "Crear producto", description = "Crea un nuevo producto")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Producto creado exitosamente", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Producto.class))),
@@ -111,10 +294,52 @@ public class ProductoController {
         }
     }
 
+    @Operation(summary = "Importar productos", description = "Carga masiva desde CSV (text/csv, con encabezado nombre,descripcion,precio,categoria,stock[,imagen]) o NDJSON (application/x-ndjson, un objeto por línea). Los productos cuyo nombre ya existe se actualizan y el resto se crean. El archivo se procesa en lotes: las filas inválidas (o cuyo stock quedaría por debajo de las unidades reservadas) se informan en rechazos sin detener la importación. Responde en NDJSON con el avance de esta importación después de cada lote y un resumen final")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Eventos 'progreso' y 'resumen' con {procesadas, creadas, actualizadas, rechazadas}; el resumen agrega los rechazos", content = @Content(mediaType = "application/x-ndjson")),
+            @ApiResponse(responseCode = "400", description = "Formato no soportado o faltan columnas en el encabezado", content = @Content)
+    })
+    @PostMapping(value = "/importar", consumes = { "text/csv", "application/x-ndjson" })
+    public void importarProductos(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream archivo, HttpServletResponse response) throws IOException {
+        String formato = contentType.toLowerCase().startsWith("text/csv")
+                ? ImportacionProductosService.CSV
+                : ImportacionProductosService.NDJSON;
+        try {
+            // Cada evento se escribe y se envía de inmediato para informar el avance
+            importacionProductosService.importar(archivo, formato, evento -> {
+                try {
+                    if (!response.isCommitted()) {
+                        response.setStatus(HttpStatus.OK.value());
+                        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+                        response.setCharacterEncoding("UTF-8");
+                    }
+                    OutputStream salida = response.getOutputStream();
+                    salida.write(objectMapper.writeValueAsBytes(evento));
+                    salida.write('\n');
+                    salida.flush();
+                } catch (IOException e) {
+                    throw new RuntimeException("Cliente desconectado durante la importación", e);
+                }
+            });
+        } catch (IllegalArgumentException | IOException e) {
+            // El encabezado se valida antes del primer evento: si no se envió nada todavía se responde 400
+            if (response.isCommitted()) {
+                throw e;
+            }
+            String mensaje = e instanceof IOException ? "Error al leer el archivo: " + e.getMessage() : e.getMessage();
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getOutputStream().write(objectMapper.writeValueAsBytes(Map.of("error", mensaje)));
+        }
+    }
+
     @Operation(summary = "Actualizar producto", description = "Actualiza un producto existente")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Producto actualizado exitosamente", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Producto.class))),
             @ApiResponse(responseCode = "404", description = "Producto no encontrado", content = @Content),
+            @ApiResponse(responseCode = "409", description = "El producto fue modificado por otra operación (reintentar) o el stock quedaría por debajo de las unidades reservadas", content = @Content),
             @ApiResponse(responseCode = "400", description = "Datos inválidos", content = @Content)
     })
     @PutMapping("/{id}")
@@ -131,6 +356,11 @@ public class ProductoController {
             Producto producto = productoService.actualizarProducto(id, nombre, descripcion, precio, categoria, imagen,
                     stock);
             return ResponseEntity.ok(producto);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "El producto fue modificado por otra operación, intente nuevamente"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
@@ -141,13 +371,17 @@ public class ProductoController {
     @Operation(summary = "Eliminar producto", description = "Elimina un producto")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Producto eliminado exitosamente"),
-            @ApiResponse(responseCode = "404", description = "Producto no encontrado")
+            @ApiResponse(responseCode = "404", description = "Producto no encontrado"),
+            @ApiResponse(responseCode = "409", description = "El producto fue modificado por otra operación, reintentar")
     })
     @DeleteMapping("/{id}")
     public ResponseEntity<?> eliminarProducto(@PathVariable Long id) {
         try {
             productoService.eliminarProducto(id);
             return ResponseEntity.noContent().build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "El producto fue modificado por otra operación, intente nuevamente"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error al eliminar producto: " + e.getMessage()));
@@ -158,6 +392,7 @@ public class ProductoController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Stock actualizado exitosamente", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Producto.class))),
             @ApiResponse(responseCode = "404", description = "Producto no encontrado", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Stock insuficiente para restar esa cantidad sin tomar unidades reservadas", content = @Content),
             @ApiResponse(responseCode = "400", description = "Datos inválidos", content = @Content)
     })
     @PutMapping("/{id}/stock")
@@ -168,10 +403,85 @@ public class ProductoController {
             productoService.actualizarStock(id, cantidad);
             Producto producto = productoService.obtenerPorId(id);
             return ResponseEntity.ok(producto);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+
+    @Operation(summary = "Actualizar productos de una categoría", description = "Ajusta el precio (porcentajePrecio, -10 = 10% de descuento, o montoPrecio a sumar) o el stock (cantidadStock a sumar o restar) de todos los productos de la categoría con un solo UPDATE en una transacción. Se indica un solo ajuste por llamada. Los productos cuyo precio o stock quedaría negativo no se modifican")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cantidad de productos actualizados: {\"actualizados\": n}", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "400", description = "Falta el ajuste, se indicó más de uno o no es válido", content = @Content)
+    })
+    @PutMapping("/categoria/{categoria}")
+    public ResponseEntity<?> actualizarCategoria(@PathVariable String categoria,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Un solo ajuste: porcentajePrecio, montoPrecio o cantidadStock", required = true, content = @Content(mediaType = "application/json", examples = @io.swagger.v3.oas.annotations.media.ExampleObject(name = "EjemploDescuento", value = "{\"porcentajePrecio\": -15}"))) @RequestBody Map<String, Object> datos) {
+        try {
+            Double porcentajePrecio = datos.get("porcentajePrecio") != null ? Double.valueOf(datos.get("porcentajePrecio").toString()) : null;
+            Double montoPrecio = datos.get("montoPrecio") != null ? Double.valueOf(datos.get("montoPrecio").toString()) : null;
+            Integer cantidadStock = datos.get("cantidadStock") != null ? Integer.valueOf(datos.get("cantidadStock").toString()) : null;
+
+            int actualizados = productoService.actualizarCategoria(categoria, porcentajePrecio, montoPrecio, cantidadStock);
+            return ResponseEntity.ok(Map.of("actualizados", actualizados));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Formato de número inválido: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Listado paginado; sin parámetros de paginación los endpoints siguen retornando la lista completa
+    private ResponseEntity<?> pagina(String etag, String categoria, String orden, String direccion, String cursor,
+            Integer limite) {
+        try {
+            return conEtag(etag).body(productoService.obtenerPagina(categoria, orden, direccion, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ETag fuerte a partir de la versión del catálogo, que cambia con cualquier escritura.
+    // Se lee antes de consultar: si hay una escritura en medio, el cliente recibe datos más
+    // nuevos que su ETag y en la siguiente consulta vuelve a descargar, nunca al revés.
+    private String etagCatalogo() {
+        return "\"" + productoService.versionCatalogo() + "\"";
+    }
+
+    // ETag de un solo producto (id + versión): solo cambia cuando se modifica ese producto
+    private static String etagProducto(Long id, Long version) {
+        return "\"" + id + "-" + (version != null ? version : 0) + "\"";
+    }
+
+    // If-None-Match puede traer varios ETags separados por coma, débiles (W/) o "*"
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String valor : ifNoneMatch.split(",")) {
+            String candidato = valor.trim();
+            if (candidato.startsWith("W/")) {
+                candidato = candidato.substring(2);
+            }
+            if (candidato.equals(etag) || candidato.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity.BodyBuilder conEtag(String etag) {
+        // no-cache: el cliente puede guardar la respuesta pero debe revalidarla con If-None-Match
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag);
+    }
+
+    private static <T> ResponseEntity<T> noModificado(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .build();
+    }
 }
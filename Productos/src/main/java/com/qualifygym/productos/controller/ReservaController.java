@@ -0,0 +1,106 @@
+package com.qualifygym.productos.controller;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.qualifygym.productos.model.ReservaStock;
+import com.qualifygym.productos.service.ReservaStockService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/v1/reservas")
+@Tag(name = "Reservas", description = "API para retener stock durante el checkout")
+public class ReservaController {
+
+    @Autowired
+    private ReservaStockService reservaStockService;
+
+    @Operation(summary = "Reservar stock", description = "Retiene unidades de un producto por un tiempo limitado (productos.reservas.ttl-s). El stock se descuenta recién al confirmar")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Reserva creada", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservaStock.class))),
+            @ApiResponse(responseCode = "400", description = "Datos inválidos", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Producto no encontrado", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Stock disponible insuficiente", content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<?> reservar(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Producto y cantidad a reservar", required = true, content = @Content(mediaType = "application/json", examples = @io.swagger.v3.oas.annotations.media.ExampleObject(name = "EjemploReserva", value = "{\"productoId\": 3, \"cantidad\": 2}"))) @RequestBody Map<String, Object> datos) {
+        try {
+            Long productoId = datos.get("productoId") != null ? Long.valueOf(datos.get("productoId").toString()) : null;
+            Integer cantidad = datos.get("cantidad") != null ? Integer.valueOf(datos.get("cantidad").toString()) : null;
+            ReservaStock reserva = reservaStockService.reservar(productoId, cantidad);
+            return ResponseEntity.status(HttpStatus.CREATED).body(reserva);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Obtener reserva", description = "Retorna una reserva y su estado")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reserva encontrada", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservaStock.class))),
+            @ApiResponse(responseCode = "404", description = "Reserva no encontrada", content = @Content)
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<?> obtenerReserva(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(reservaStockService.obtenerPorId(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Confirmar reserva", description = "Descuenta del stock las unidades reservadas. Se llama al completar el pago")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reserva confirmada", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservaStock.class))),
+            @ApiResponse(responseCode = "404", description = "Reserva no encontrada", content = @Content),
+            @ApiResponse(responseCode = "409", description = "La reserva venció, ya fue confirmada o liberada, o el stock ya no alcanza", content = @Content)
+    })
+    @PostMapping("/{id}/confirmar")
+    public ResponseEntity<?> confirmarReserva(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(reservaStockService.confirmar(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Liberar reserva", description = "Devuelve las unidades reservadas sin descontar stock")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Reserva liberada"),
+            @ApiResponse(responseCode = "404", description = "Reserva no encontrada"),
+            @ApiResponse(responseCode = "409", description = "La reserva ya no está activa")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> liberarReserva(@PathVariable Long id) {
+        try {
+            reservaStockService.liberar(id);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
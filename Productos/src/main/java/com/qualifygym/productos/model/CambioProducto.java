@@ -0,0 +1,18 @@
+package com.qualifygym.productos.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Cambio de stock o precio de un producto, enviado a los clientes de GET /api/v1/productos/eventos.
+ * La versión crece con cada escritura del producto: un cliente puede descartar un cambio con una
+ * versión menor a la que ya tiene.
+ */
+@Schema(description = "Cambio de stock o precio de un producto")
+public record CambioProducto(
+        @Schema(description = "Identificador del producto", example = "1") Long id,
+        @Schema(description = "Versión del producto después del cambio", example = "8") Long version,
+        @Schema(description = "Stock después del cambio", example = "12") Integer stock,
+        @Schema(description = "Variación del stock; null si el stock no cambió", example = "-3") Integer variacionStock,
+        @Schema(description = "Precio después del cambio", example = "29990.0") Double precio,
+        @Schema(description = "Precio anterior; null si el precio no cambió", example = "31990.0") Double precioAnterior) {
+}
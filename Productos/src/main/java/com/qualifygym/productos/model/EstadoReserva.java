@@ -0,0 +1,11 @@
+package com.qualifygym.productos.model;
+
+/**
+ * Estados de una reserva de stock. Solo una reserva ACTIVA retiene stock; los demás estados son finales.
+ */
+public enum EstadoReserva {
+    ACTIVA,
+    CONFIRMADA,
+    LIBERADA,
+    EXPIRADA
+}
@@ -0,0 +1,10 @@
+package com.qualifygym.productos.model;
+
+import java.util.List;
+
+/**
+ * Resultado de una consulta de varios productos por id: los encontrados, en el orden pedido,
+ * y los ids que no existen.
+ */
+public record LoteProductos(List<Producto> productos, List<Long> noEncontrados) {
+}
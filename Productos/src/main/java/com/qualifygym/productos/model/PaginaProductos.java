@@ -0,0 +1,9 @@
+package com.qualifygym.productos.model;
+
+import java.util.List;
+
+/**
+ * Una página del listado de productos y el cursor para pedir la siguiente (null si es la última)
+ */
+public record PaginaProductos(List<Producto> productos, String siguienteCursor) {
+}
@@ -1,18 +1,33 @@
 package com.qualifygym.productos.model;
 
+import org.hibernate.annotations.ColumnDefault;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "productos")
+// Índices compuestos para la paginación por keyset: cada orden (id, precio, nombre) termina en id
+// para ser estable, con y sin filtro de categoría; (categoria, id) sirve también a las actualizaciones
+// masivas por categoría. Las palabras del nombre para la búsqueda por prefijo están en productos_tokens.
+@Table(name = "productos", indexes = {
+        @Index(name = "idx_productos_categoria_id", columnList = "categoria, id"),
+        @Index(name = "idx_productos_categoria_precio_id", columnList = "categoria, precio, id"),
+        @Index(name = "idx_productos_categoria_nombre_id", columnList = "categoria, nombre, id"),
+        @Index(name = "idx_productos_precio_id", columnList = "precio, id"),
+        @Index(name = "idx_productos_nombre_id", columnList = "nombre, id")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -47,5 +62,27 @@ public class Producto {
     @Column(nullable = false)
     @Schema(description = "Cantidad disponible en stock", example = "100")
     private Integer stock;
+
+    // Unidades vendidas (reservas confirmadas): peso de popularidad para el autocompletado
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long vendidos = 0L;
+
+    // Bloqueo optimista: una edición o baja basada en una lectura desactualizada falla en vez de
+    // pisar cambios ajenos. El ajuste de stock (UPDATE directo) también la incrementa.
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * Copia campo a campo, desacoplada de la sesión de Hibernate (la usa la caché del catálogo)
+     */
+    public Producto copia() {
+        return new Producto(id, nombre, descripcion, precio, categoria, imagen, stock, vendidos,
+                version);
+    }
 }
 
@@ -0,0 +1,8 @@
+package com.qualifygym.productos.model;
+
+/**
+ * Proyección con los atributos filtrables de un producto, para construir el índice de filtros
+ * sin cargar las entidades completas.
+ */
+public record ProductoAtributos(Long id, String nombre, String categoria, Double precio, Integer stock, Long version) {
+}
@@ -0,0 +1,8 @@
+package com.qualifygym.productos.model;
+
+/**
+ * Proyección con el nombre y las unidades vendidas de un producto, para construir el índice de
+ * autocompletado sin cargar las entidades completas.
+ */
+public record ProductoPopularidad(Long id, String nombre, Long vendidos) {
+}
@@ -0,0 +1,8 @@
+package com.qualifygym.productos.model;
+
+/**
+ * Proyección con los campos de texto de un producto, para construir los índices de búsqueda
+ * sin cargar las entidades completas.
+ */
+public record ProductoTexto(Long id, String nombre, String descripcion) {
+}
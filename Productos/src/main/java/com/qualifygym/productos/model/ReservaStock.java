@@ -0,0 +1,56 @@
+package com.qualifygym.productos.model;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "reservas_stock", indexes = {
+        @Index(name = "idx_reservas_estado_expira", columnList = "estado, expira_en"),
+        @Index(name = "idx_reservas_producto", columnList = "producto_id")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Reserva temporal de stock de un producto durante el checkout")
+public class ReservaStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Schema(description = "Identificador único de la reserva", example = "1")
+    private Long id;
+
+    // Sin relación JPA: la reserva no debe cargar ni bloquear la fila del producto
+    @Column(name = "producto_id", nullable = false)
+    @Schema(description = "ID del producto reservado", example = "3")
+    private Long productoId;
+
+    @Column(nullable = false)
+    @Schema(description = "Unidades reservadas", example = "2")
+    private Integer cantidad;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Schema(description = "Estado de la reserva", example = "ACTIVA")
+    private EstadoReserva estado;
+
+    @Column(name = "creada_en", nullable = false)
+    @Schema(description = "Momento de creación de la reserva")
+    private Instant creadaEn;
+
+    @Column(name = "expira_en", nullable = false)
+    @Schema(description = "Momento en que la reserva vence si no se confirma")
+    private Instant expiraEn;
+}
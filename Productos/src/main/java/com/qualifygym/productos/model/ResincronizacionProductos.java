@@ -0,0 +1,19 @@
+package com.qualifygym.productos.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Aviso a un cliente de GET /api/v1/productos/eventos de que debe volver a consultar los productos
+ * que sigue porque no recibió cada cambio por separado: se descartaron cambios porque su buffer
+ * estaba lleno, una actualización masiva cambió una categoría completa o una importación
+ * actualizó productos existentes.
+ */
+@Schema(description = "Aviso para volver a consultar los productos seguidos")
+public record ResincronizacionProductos(
+        @Schema(description = "Motivo: 'desborde' (se descartaron cambios), 'categoria' (actualización masiva) o 'importacion'", example = "categoria") String motivo,
+        @Schema(description = "Categoría actualizada; null si el aviso aplica a todos los productos", example = "supplement") String categoria) {
+
+    public static final String DESBORDE = "desborde";
+    public static final String CATEGORIA = "categoria";
+    public static final String IMPORTACION = "importacion";
+}
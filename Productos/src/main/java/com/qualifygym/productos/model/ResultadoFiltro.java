@@ -0,0 +1,11 @@
+package com.qualifygym.productos.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de filtrar el catálogo: total de coincidencias, la página pedida y los conteos
+ * por faceta (categorias, stock y precios), cada uno calculado con los demás filtros aplicados.
+ */
+public record ResultadoFiltro(int total, List<Producto> productos, Map<String, Map<String, Integer>> facetas) {
+}
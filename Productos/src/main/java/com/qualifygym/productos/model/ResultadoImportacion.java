@@ -0,0 +1,14 @@
+package com.qualifygym.productos.model;
+
+import java.util.List;
+
+/**
+ * Resumen de una importación masiva: filas procesadas, creadas, actualizadas y rechazadas,
+ * con el detalle de los primeros rechazos (línea del archivo y motivo).
+ */
+public record ResultadoImportacion(long procesadas, long creadas, long actualizadas, long rechazadas,
+        List<Rechazo> rechazos) {
+
+    public record Rechazo(long linea, String motivo) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.qualifygym.productos.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Sugerencia de GET /api/v1/productos/autocompletar: solo el id y el nombre, para responder
+ * desde memoria sin consultar la base de datos.
+ */
+@Schema(description = "Producto sugerido al escribir en el buscador")
+public record Sugerencia(
+        @Schema(description = "Identificador del producto", example = "1") Long id,
+        @Schema(description = "Nombre del producto", example = "Proteína Whey") String nombre) {
+}
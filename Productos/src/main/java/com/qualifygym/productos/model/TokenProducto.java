@@ -0,0 +1,80 @@
+package com.qualifygym.productos.model;
+
+import java.io.Serializable;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Una palabra del nombre normalizado de un producto ("Cinturón de Pesas" tiene "cinturon", "de" y
+ * "pesas"). La clave primaria (token, producto_id) es el índice de la búsqueda por prefijo de palabra:
+ * "pes" se resuelve como un rango de esa clave. La mantienen ProductoService, la importación y la semilla.
+ * Las palabras se insertan o se borran, nunca se actualizan: una creada con el constructor es nueva para
+ * save/saveAll, que la insertan sin leerla antes (con la clave asignada, Spring Data haría un merge).
+ */
+@Entity
+@Table(name = "productos_tokens", indexes = {
+        @Index(name = "idx_productos_tokens_producto", columnList = "producto_id")
+})
+@IdClass(TokenProducto.Clave.class)
+@Data
+@NoArgsConstructor
+public class TokenProducto implements Persistable<TokenProducto.Clave> {
+
+    @Id
+    @Column(length = 200)
+    private String token;
+
+    // Sin relación JPA, como en ReservaStock: la palabra no carga la fila del producto
+    @Id
+    @Column(name = "producto_id")
+    private Long productoId;
+
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean nueva = true;
+
+    public TokenProducto(String token, Long productoId) {
+        this.token = token;
+        this.productoId = productoId;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marcarGuardada() {
+        nueva = false;
+    }
+
+    @Override
+    public Clave getId() {
+        return new Clave(token, productoId);
+    }
+
+    @Override
+    public boolean isNew() {
+        return nueva;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Clave implements Serializable {
+        private String token;
+        private Long productoId;
+    }
+}
@@ -1,17 +1,124 @@
 package com.qualifygym.productos.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoAtributos;
+import com.qualifygym.productos.model.ProductoPopularidad;
+import com.qualifygym.productos.model.ProductoTexto;
+
+import jakarta.persistence.LockModeType;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Long> {
     List<Producto> findByCategoria(String categoria);
-    List<Producto> findByNombreContainingIgnoreCase(String nombre);
     Optional<Producto> findByNombre(String nombre);
+    List<Producto> findByNombreIn(Collection<String> nombres);
+
+    // Con SELECT ... FOR UPDATE, para la importación: el stock leído no cambia hasta el commit del lote
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new com.qualifygym.productos.model.ProductoAtributos(p.id, p.nombre, p.categoria, p.precio, p.stock, p.version) "
+            + "from Producto p where p.nombre in :nombres order by p.id")
+    List<ProductoAtributos> bloquearAtributosPorNombres(@Param("nombres") Collection<String> nombres);
+
+    // Paginación por keyset: la posición guarda los valores del orden (y el id) del último producto
+    // de la página anterior, así una página profunda cuesta lo mismo que la primera
+    Window<Producto> findBy(ScrollPosition posicion, Sort orden, Limit limite);
+    Window<Producto> findByCategoria(String categoria, ScrollPosition posicion, Sort orden, Limit limite);
+
+    // Carga del índice de búsqueda por lotes (keyset sobre el id), solo los campos de texto
+    @Query("select new com.qualifygym.productos.model.ProductoTexto(p.id, p.nombre, p.descripcion) "
+            + "from Producto p where p.id > :cursor order by p.id")
+    List<ProductoTexto> findTextosDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    // Carga del índice de filtros por lotes (keyset sobre el id), solo los atributos filtrables
+    @Query("select new com.qualifygym.productos.model.ProductoAtributos(p.id, p.nombre, p.categoria, p.precio, p.stock, p.version) "
+            + "from Producto p where p.id > :cursor order by p.id")
+    List<ProductoAtributos> findAtributosDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    // Carga del índice de autocompletado por lotes (keyset sobre el id): nombre y unidades vendidas
+    @Query("select new com.qualifygym.productos.model.ProductoPopularidad(p.id, p.nombre, p.vendidos) "
+            + "from Producto p where p.id > :cursor order by p.id")
+    List<ProductoPopularidad> findPopularidadDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    @Query("select new com.qualifygym.productos.model.ProductoAtributos(p.id, p.nombre, p.categoria, p.precio, p.stock, p.version) "
+            + "from Producto p where p.id = :id")
+    Optional<ProductoAtributos> findAtributosById(@Param("id") Long id);
+
+    // Atributos de una categoría por lotes (keyset sobre el id), para releerla después de una actualización masiva
+    @Query("select new com.qualifygym.productos.model.ProductoAtributos(p.id, p.nombre, p.categoria, p.precio, p.stock, p.version) "
+            + "from Producto p where p.categoria = :categoria and p.id > :cursor order by p.id")
+    List<ProductoAtributos> findAtributosPorCategoriaDesde(@Param("categoria") String categoria,
+            @Param("cursor") Long cursor, Pageable pagina);
+
+    // Igual que la anterior pero con SELECT ... FOR UPDATE: antes de una actualización masiva, para que
+    // nadie cambie esas filas entre la lectura, el UPDATE y la relectura de la misma transacción
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new com.qualifygym.productos.model.ProductoAtributos(p.id, p.nombre, p.categoria, p.precio, p.stock, p.version) "
+            + "from Producto p where p.categoria = :categoria and p.id > :cursor order by p.id")
+    List<ProductoAtributos> bloquearAtributosPorCategoriaDesde(@Param("categoria") String categoria,
+            @Param("cursor") Long cursor, Pageable pagina);
+
+    // Productos sin palabras en productos_tokens (guardados antes de existir la tabla o insertados sin
+    // pasar por este servicio), por lotes de ids crecientes para completarlas
+    @Query("select new com.qualifygym.productos.model.ProductoTexto(p.id, p.nombre, p.descripcion) "
+            + "from Producto p where p.id > :cursor "
+            + "and not exists (select t from TokenProducto t where t.productoId = p.id) order by p.id")
+    List<ProductoTexto> findSinTokensDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    // Lectura simple del stock (sin bloquear la fila), para reservar
+    @Query("select p.stock from Producto p where p.id = :id")
+    Optional<Integer> findStockById(@Param("id") Long id);
+
+    // Ajuste atómico de stock: un solo UPDATE condicional, sin leer antes el producto.
+    // Retorna 0 si el producto no existe o si el stock quedaría por debajo de :minimo
+    // (las unidades reservadas por otros checkouts, o 0).
+    // Es un ajuste de inventario, no una venta: no suma a vendidos
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("update Producto p set p.stock = p.stock + :cantidad, p.version = p.version + 1 "
+            + "where p.id = :id and p.stock + :cantidad >= :minimo")
+    int ajustarStock(@Param("id") Long id, @Param("cantidad") int cantidad, @Param("minimo") int minimo);
+
+    // Venta (reserva confirmada): descuenta las unidades del stock y las suma a vendidos
+    // (popularidad del producto), con el mismo UPDATE condicional que ajustarStock
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("update Producto p set p.stock = p.stock - :cantidad, p.vendidos = p.vendidos + :cantidad, "
+            + "p.version = p.version + 1 "
+            + "where p.id = :id and p.stock - :cantidad >= :minimo")
+    int venderStock(@Param("id") Long id, @Param("cantidad") int cantidad, @Param("minimo") int minimo);
+
+    // Actualizaciones masivas por categoría: un solo UPDATE sobre el conjunto, sin cargar las entidades.
+    // Las filas cuyo precio o stock quedaría negativo no se modifican; retornan la cantidad de filas cambiadas.
+    // Precio nuevo = precio * factor + monto, redondeado a 2 decimales
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Producto p set p.precio = round(p.precio * :factor + :monto, 2), p.version = p.version + 1 "
+            + "where p.categoria = :categoria and p.precio * :factor + :monto >= 0")
+    int ajustarPrecioPorCategoria(@Param("categoria") String categoria, @Param("factor") double factor,
+            @Param("monto") double monto);
+
+    // Es un ajuste de inventario, no una venta: no suma a vendidos. Excluidos son los productos cuyo
+    // stock no cubriría lo reservado por los checkouts en curso (nunca vacío: el llamador agrega un id 0)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Producto p set p.stock = p.stock + :cantidad, p.version = p.version + 1 "
+            + "where p.categoria = :categoria and p.stock + :cantidad >= 0 and p.id not in :excluidos")
+    int ajustarStockPorCategoria(@Param("categoria") String categoria, @Param("cantidad") int cantidad,
+            @Param("excluidos") Collection<Long> excluidos);
 }
 
@@ -0,0 +1,40 @@
+package com.qualifygym.productos.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.qualifygym.productos.model.EstadoReserva;
+import com.qualifygym.productos.model.ReservaStock;
+
+@Repository
+public interface ReservaStockRepository extends JpaRepository<ReservaStock, Long> {
+    List<ReservaStock> findByEstado(EstadoReserva estado);
+
+    // Reservas vencidas para el barrido, las más antiguas primero
+    @Query("select r from ReservaStock r where r.estado = com.qualifygym.productos.model.EstadoReserva.ACTIVA "
+            + "and r.expiraEn <= :ahora order by r.expiraEn")
+    List<ReservaStock> findVencidas(@Param("ahora") Instant ahora, Pageable pagina);
+
+    // Confirmación condicional: solo si sigue activa y no venció
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("update ReservaStock r set r.estado = com.qualifygym.productos.model.EstadoReserva.CONFIRMADA "
+            + "where r.id = :id and r.estado = com.qualifygym.productos.model.EstadoReserva.ACTIVA and r.expiraEn > :ahora")
+    int confirmarSiActiva(@Param("id") Long id, @Param("ahora") Instant ahora);
+
+    // Pasa a un estado final solo las reservas que siguen activas (liberación y barrido por lotes)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("update ReservaStock r set r.estado = :nuevo "
+            + "where r.id in :ids and r.estado = com.qualifygym.productos.model.EstadoReserva.ACTIVA")
+    int finalizarActivas(@Param("ids") Collection<Long> ids, @Param("nuevo") EstadoReserva nuevo);
+}
@@ -0,0 +1,28 @@
+package com.qualifygym.productos.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.qualifygym.productos.model.TokenProducto;
+
+@Repository
+public interface TokenProductoRepository extends JpaRepository<TokenProducto, TokenProducto.Clave> {
+
+    // Palabras que empiezan con el prefijo, por lotes (keyset sobre token y producto): un rango de la
+    // clave primaria (token, producto_id), sin escanear la tabla
+    @Query("select t from TokenProducto t where t.token like concat(:prefijo, '%') "
+            + "and (t.token > :token or (t.token = :token and t.productoId > :productoId)) "
+            + "order by t.token, t.productoId")
+    List<TokenProducto> findPorPrefijoDesde(@Param("prefijo") String prefijo, @Param("token") String token,
+            @Param("productoId") Long productoId, Pageable pagina);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from TokenProducto t where t.productoId = :productoId")
+    int eliminarPorProducto(@Param("productoId") Long productoId);
+}
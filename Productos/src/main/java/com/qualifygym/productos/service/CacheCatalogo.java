@@ -0,0 +1,172 @@
+package com.qualifygym.productos.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Caché en memoria de las lecturas del catálogo (listado completo, por id y por categoría).
+ *
+ * El catálogo tiene una versión que crece con cada escritura (alta, edición, baja o cambio de
+ * stock). Cada entrada guarda la versión con la que se leyó y solo se usa si sigue siendo la
+ * actual: así una lectura que empezó antes de una escritura no deja en la caché datos viejos.
+ * La versión parte del reloj al iniciar, para que no se repita entre reinicios.
+ *
+ * La capacidad es fija: un LinkedHashMap en orden de acceso descarta la entrada usada hace más tiempo.
+ *
+ * Un mismo valor se entrega a todas las lecturas que aciertan, así que no debe modificarse: quien
+ * cachea objetos mutables guarda una copia propia y entrega copias (ver ProductoService).
+ */
+@Service
+public class CacheCatalogo {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${productos.cache.max-entradas:1000}")
+    private int maxEntradas;
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private Map<String, Entrada> entradas;
+    private Counter aciertos;
+    private Counter fallos;
+    private Counter desalojos;
+    private Counter invalidaciones;
+
+    private record Entrada(long version, Object valor) {
+    }
+
+    @PostConstruct
+    void init() {
+        entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                if (size() > maxEntradas) {
+                    desalojos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        aciertos = Counter.builder("productos.cache.consultas")
+                .tag("resultado", "acierto")
+                .description("Lecturas del catálogo resueltas por la caché")
+                .register(meterRegistry);
+        fallos = Counter.builder("productos.cache.consultas")
+                .tag("resultado", "fallo")
+                .description("Lecturas del catálogo que fueron a la base de datos")
+                .register(meterRegistry);
+        desalojos = Counter.builder("productos.cache.desalojos")
+                .description("Entradas descartadas por falta de capacidad")
+                .register(meterRegistry);
+        invalidaciones = Counter.builder("productos.cache.invalidaciones")
+                .description("Escrituras que invalidaron la caché del catálogo")
+                .register(meterRegistry);
+        Gauge.builder("productos.cache.entradas", this, CacheCatalogo::tamano)
+                .description("Entradas en la caché del catálogo")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Versión actual del catálogo
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Retorna el valor cacheado para la clave, o lo carga y lo guarda si no está o es de otra versión
+     * @param clave - Clave de la lectura (por ejemplo "categoria:supplement")
+     * @param cargar - Lectura a la base de datos
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T obtener(String clave, Supplier<T> cargar) {
+        long vigente = version.get();
+        synchronized (this) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada != null && entrada.version() == vigente) {
+                aciertos.increment();
+                return (T) entrada.valor();
+            }
+        }
+        fallos.increment();
+        T valor = cargar.get();
+        synchronized (this) {
+            // Si hubo una escritura mientras se leía, el valor puede estar desactualizado
+            if (valor != null && version.get() == vigente) {
+                entradas.put(clave, new Entrada(vigente, valor));
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Versión de obtener para varias claves: las que faltan se cargan todas juntas con una sola lectura
+     * @param claves - Claves a leer
+     * @param cargarFaltantes - Lectura a la base de datos de las claves que no están en la caché;
+     *                        las claves sin valor (por ejemplo, un id inexistente) se omiten del resultado
+     * @return Valores encontrados por clave
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> obtenerVarios(Collection<String> claves,
+            Function<List<String>, Map<String, T>> cargarFaltantes) {
+        long vigente = version.get();
+        Map<String, T> valores = new HashMap<>();
+        List<String> faltantes = new ArrayList<>();
+        synchronized (this) {
+            for (String clave : claves) {
+                Entrada entrada = entradas.get(clave);
+                if (entrada != null && entrada.version() == vigente) {
+                    valores.put(clave, (T) entrada.valor());
+                } else {
+                    faltantes.add(clave);
+                }
+            }
+        }
+        aciertos.increment(valores.size());
+        if (faltantes.isEmpty()) {
+            return valores;
+        }
+        fallos.increment(faltantes.size());
+        Map<String, T> cargados = cargarFaltantes.apply(faltantes);
+        synchronized (this) {
+            if (version.get() == vigente) {
+                cargados.forEach((clave, valor) -> entradas.put(clave, new Entrada(vigente, valor)));
+            }
+        }
+        valores.putAll(cargados);
+        return valores;
+    }
+
+    /**
+     * Sube la versión y vacía la caché (después del commit si hay una transacción activa)
+     */
+    public void invalidar() {
+        TrasCommit.ejecutar(() -> {
+            synchronized (this) {
+                version.incrementAndGet();
+                entradas.clear();
+            }
+            invalidaciones.increment();
+        });
+    }
+
+    public synchronized int tamano() {
+        return entradas.size();
+    }
+}
@@ -0,0 +1,76 @@
+package com.qualifygym.productos.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import com.qualifygym.productos.model.Producto;
+
+/**
+ * Cursor opaco de la paginación del listado. Guarda el orden pedido y los valores de orden (y el id)
+ * del último producto entregado; al decodificarlo se verifica que la siguiente petición use el mismo
+ * orden, porque la posición no tiene sentido con otro.
+ */
+final class CursorProductos {
+
+    static final Set<String> CAMPOS = Set.of("id", "precio", "nombre");
+
+    private CursorProductos() {
+    }
+
+    /**
+     * Orden estable: el campo pedido y luego el id, en la misma dirección
+     */
+    static Sort orden(String campo, Sort.Direction direccion) {
+        Sort porId = Sort.by(direccion, "id");
+        return campo.equals("id") ? porId : Sort.by(direccion, campo).and(porId);
+    }
+
+    static String codificar(String campo, Sort.Direction direccion, Producto ultimo) {
+        String valor = switch (campo) {
+            case "precio" -> String.valueOf(ultimo.getPrecio());
+            case "nombre" -> ultimo.getNombre();
+            default -> "";
+        };
+        // El valor va al final: un nombre puede contener el separador
+        String texto = campo + "|" + direccion.name() + "|" + ultimo.getId() + "|" + valor;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return La posición después del producto del cursor, o el inicio si no hay cursor
+     * @throws IllegalArgumentException si el cursor está mal formado o es de otro orden
+     */
+    static ScrollPosition decodificar(String cursor, String campo, Sort.Direction direccion) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        String[] partes;
+        try {
+            partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        if (partes.length != 4) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        if (!partes[0].equals(campo) || !partes[1].equals(direccion.name())) {
+            throw new IllegalArgumentException("El cursor corresponde a otro orden: " + partes[0] + " " + partes[1]);
+        }
+        try {
+            Long id = Long.valueOf(partes[2]);
+            Map<String, Object> claves = switch (campo) {
+                case "precio" -> Map.of("precio", Double.valueOf(partes[3]), "id", id);
+                case "nombre" -> Map.of("nombre", partes[3], "id", id);
+                default -> Map.of("id", id);
+            };
+            return ScrollPosition.forward(claves);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.qualifygym.productos.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+
+import com.qualifygym.productos.model.CambioProducto;
+import com.qualifygym.productos.model.ResincronizacionProductos;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Difunde los cambios de stock y precio a los clientes conectados por Server-Sent Events.
+ *
+ * Un sink multicast "best effort" entrega cada cambio a todos los suscriptores sin esperar a
+ * ninguno: quien publica (el ajuste de stock o la edición) nunca se bloquea. Cada suscriptor
+ * tiene su propio buffer de productos.eventos.buffer cambios; si un cliente lento lo llena se
+ * descartan sus cambios más viejos, sin frenar a los demás ni hacer crecer la memoria, y antes
+ * del siguiente evento que sí recibe se le envía un evento "resync" para que vuelva a consultar
+ * los productos que sigue (los cambios descartados pueden ser de productos que no vuelven a cambiar).
+ *
+ * El cupo de clientes se toma al suscribirse al flujo y se devuelve al terminar, así un flujo
+ * creado que nunca se suscribe no ocupa lugar.
+ */
+@Service
+public class DifusorCambios {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${productos.eventos.max-suscriptores:1000}")
+    private int maxSuscriptores;
+
+    @Value("${productos.eventos.buffer:256}")
+    private int tamanoBuffer;
+
+    @Value("${productos.eventos.heartbeat-s:15}")
+    private long heartbeatSegundos;
+
+    // Emite CambioProducto o ResincronizacionProductos
+    private final Sinks.Many<Object> sink = Sinks.many().multicast().directBestEffort();
+    private static final String MAXIMO_ALCANZADO = "Se alcanzó el máximo de clientes conectados a los eventos";
+
+    private final AtomicInteger suscriptores = new AtomicInteger();
+    private Counter publicados;
+    private Counter descartados;
+
+    @PostConstruct
+    void init() {
+        publicados = Counter.builder("productos.eventos.publicados")
+                .description("Cambios de stock o precio publicados")
+                .register(meterRegistry);
+        descartados = Counter.builder("productos.eventos.descartados")
+                .description("Cambios descartados porque el buffer de un cliente lento estaba lleno")
+                .register(meterRegistry);
+        Gauge.builder("productos.eventos.suscriptores", suscriptores, AtomicInteger::get)
+                .description("Clientes conectados al flujo de eventos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publica un cambio a los clientes conectados. Sin clientes no hace nada
+     */
+    public synchronized void publicar(CambioProducto cambio) {
+        // El sink no admite emisiones concurrentes: synchronized las ordena
+        sink.tryEmitNext(cambio);
+        publicados.increment();
+    }
+
+    /**
+     * Publica un aviso "resync" a todos los clientes conectados, en vez de un cambio por producto
+     * (por ejemplo, después de una actualización masiva de una categoría)
+     */
+    public synchronized void publicar(ResincronizacionProductos resincronizacion) {
+        sink.tryEmitNext(resincronizacion);
+        publicados.increment();
+    }
+
+    /**
+     * Flujo de eventos para un cliente SSE, con un comentario cada productos.eventos.heartbeat-s
+     * segundos para que los proxies no corten la conexión inactiva y se detecten los clientes que se fueron
+     * @param ids - Productos a seguir; null o vacío para todos
+     * @throws IllegalStateException si ya hay productos.eventos.max-suscriptores clientes conectados
+     *         (si el máximo se alcanza entre esta llamada y la suscripción, el flujo termina con ese error)
+     */
+    public Flux<ServerSentEvent<Object>> suscribir(Collection<Long> ids) {
+        // Rechazo inmediato en el caso común; el cupo se toma recién al suscribirse
+        if (suscriptores.get() >= maxSuscriptores) {
+            throw new IllegalStateException(MAXIMO_ALCANZADO);
+        }
+        Set<Long> filtro = ids == null || ids.isEmpty() ? null : Set.copyOf(ids);
+        return Flux.defer(() -> {
+            if (suscriptores.incrementAndGet() > maxSuscriptores) {
+                suscriptores.decrementAndGet();
+                return Flux.error(new IllegalStateException(MAXIMO_ALCANZADO));
+            }
+            return eventos(filtro).doFinally(senal -> suscriptores.decrementAndGet());
+        });
+    }
+
+    private Flux<ServerSentEvent<Object>> eventos(Set<Long> filtro) {
+        AtomicBoolean perdidos = new AtomicBoolean();
+        Flux<ServerSentEvent<Object>> cambios = sink.asFlux()
+                .filter(evento -> filtro == null || !(evento instanceof CambioProducto cambio)
+                        || filtro.contains(cambio.id()))
+                .onBackpressureBuffer(tamanoBuffer, evento -> {
+                    descartados.increment();
+                    perdidos.set(true);
+                }, BufferOverflowStrategy.DROP_OLDEST)
+                // prefetch 1: no se pide más de un evento del buffer por vez
+                .concatMapIterable(evento -> perdidos.getAndSet(false)
+                        ? List.of(sse(new ResincronizacionProductos(ResincronizacionProductos.DESBORDE, null)), sse(evento))
+                        : List.of(sse(evento)), 1);
+        // Un cliente que no lee no debe cortar el flujo: sin demanda, el interval falla al emitir
+        // (OverflowException); los latidos que no se pueden entregar se descartan
+        Flux<ServerSentEvent<Object>> latidos = Flux.interval(Duration.ofSeconds(heartbeatSegundos))
+                .onBackpressureDrop()
+                .map(i -> ServerSentEvent.builder().comment("ping").build());
+        // prefetch 1: el merge no acumula su propia cola además del buffer del cliente
+        return Flux.merge(1, cambios, latidos);
+    }
+
+    private static ServerSentEvent<Object> sse(Object evento) {
+        return ServerSentEvent.builder(evento)
+                .event(evento instanceof ResincronizacionProductos ? "resync" : "cambio")
+                .build();
+    }
+
+    public int suscriptores() {
+        return suscriptores.get();
+    }
+}
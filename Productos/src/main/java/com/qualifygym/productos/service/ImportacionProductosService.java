@@ -0,0 +1,456 @@
+package com.qualifygym.productos.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoAtributos;
+import com.qualifygym.productos.model.ResincronizacionProductos;
+import com.qualifygym.productos.model.ResultadoImportacion;
+import com.qualifygym.productos.repository.ProductoRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Importación masiva de productos desde CSV o NDJSON, con alta o actualización por nombre.
+ *
+ * El archivo se lee registro por registro y se guarda en lotes de productos.importacion.tamano-lote
+ * filas: por lote, una consulta bloquea (SELECT ... FOR UPDATE) los productos que ya existen con esos
+ * nombres y luego un batch JDBC de UPDATE y otro de INSERT, en su propia transacción. Con id IDENTITY
+ * Hibernate no agrupa los INSERT, por eso se usa JdbcTemplate. La memoria depende del tamaño del lote,
+ * no del archivo: de los rechazos solo se guarda el detalle de los primeros productos.importacion.max-rechazos.
+ *
+ * Como en ProductoService, el stock importado no puede quedar por debajo de las unidades reservadas
+ * por los checkouts en curso (LibroReservas): esas filas se rechazan, y lo descontado queda retenido
+ * hasta que termina la transacción del lote. Después de cada lote se actualizan los índices y la
+ * caché, y si se actualizaron productos existentes se publica un evento "resync" en /eventos. Es un
+ * ajuste de inventario, no una venta: las unidades vendidas no cambian.
+ *
+ * El avance de cada importación se informa como eventos (un Map por evento: uno por lote y el
+ * resumen final) para que el controlador los envíe al cliente a medida que ocurren. La métrica
+ * productos.importacion.filas (tag resultado) suma las filas de todas las importaciones.
+ */
+@Service
+public class ImportacionProductosService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final List<String> COLUMNAS_REQUERIDAS = List.of("nombre", "descripcion", "precio", "categoria", "stock");
+
+    private static final String SQL_INSERTAR = "insert into productos (nombre, descripcion, precio, categoria, imagen, stock, version) "
+            + "values (?, ?, ?, ?, ?, ?, 0)";
+    private static final String SQL_INSERTAR_TOKEN = "insert into productos_tokens (token, producto_id) values (?, ?)";
+    private static final String SQL_ACTUALIZAR = "update productos set descripcion = ?, precio = ?, categoria = ?, "
+            + "imagen = coalesce(?, imagen), stock = ?, version = version + 1 where id = ?";
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IndiceTrigramas indiceTrigramas;
+
+    @Autowired
+    private IndiceFiltros indiceFiltros;
+
+    @Autowired
+    private IndiceAutocompletado indiceAutocompletado;
+
+    @Autowired
+    private CacheCatalogo cacheCatalogo;
+
+    @Autowired
+    private LibroReservas libroReservas;
+
+    @Autowired
+    private DifusorCambios difusorCambios;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${productos.importacion.tamano-lote:500}")
+    private int tamanoLote;
+
+    @Value("${productos.importacion.max-rechazos:100}")
+    private int maxRechazos;
+
+    // Largo máximo de un registro CSV o una línea NDJSON: los campos suman hasta 1850 caracteres, el
+    // resto queda para comillas, escapes y claves JSON. Uno más largo se rechaza sin acumularlo en memoria
+    @Value("${productos.importacion.max-largo-registro:8192}")
+    private int maxLargoRegistro;
+
+    private Counter filasCreadas;
+    private Counter filasActualizadas;
+    private Counter filasRechazadas;
+
+    private record Fila(long linea, String nombre, String descripcion, Double precio, String categoria,
+            String imagen, Integer stock) {
+    }
+
+    /**
+     * Contadores de una importación en curso
+     */
+    private final class Progreso {
+        private long procesadas;
+        private long creadas;
+        private long actualizadas;
+        private long rechazadas;
+        private final List<ResultadoImportacion.Rechazo> rechazos = new ArrayList<>();
+        private final List<Fila> lote = new ArrayList<>();
+        private final Consumer<Map<String, Object>> eventos;
+
+        Progreso(Consumer<Map<String, Object>> eventos) {
+            this.eventos = eventos;
+        }
+
+        void rechazar(long linea, String motivo) {
+            procesadas++;
+            rechazadas++;
+            filasRechazadas.increment();
+            if (rechazos.size() < maxRechazos) {
+                rechazos.add(new ResultadoImportacion.Rechazo(linea, motivo));
+            }
+        }
+
+        ResultadoImportacion resultado() {
+            return new ResultadoImportacion(procesadas, creadas, actualizadas, rechazadas, List.copyOf(rechazos));
+        }
+
+        void informar(String tipo) {
+            Map<String, Object> evento = new LinkedHashMap<>();
+            evento.put("tipo", tipo);
+            evento.put("procesadas", procesadas);
+            evento.put("creadas", creadas);
+            evento.put("actualizadas", actualizadas);
+            evento.put("rechazadas", rechazadas);
+            if ("resumen".equals(tipo)) {
+                evento.put("rechazos", List.copyOf(rechazos));
+            }
+            eventos.accept(evento);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        filasCreadas = Counter.builder("productos.importacion.filas").tag("resultado", "creada")
+                .description("Filas importadas que crearon un producto")
+                .register(meterRegistry);
+        filasActualizadas = Counter.builder("productos.importacion.filas").tag("resultado", "actualizada")
+                .description("Filas importadas que actualizaron un producto existente")
+                .register(meterRegistry);
+        filasRechazadas = Counter.builder("productos.importacion.filas").tag("resultado", "rechazada")
+                .description("Filas importadas rechazadas por datos inválidos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Importa productos: los que tienen un nombre ya existente se actualizan, el resto se crean.
+     * Si un nombre se repite en el archivo, queda la última fila.
+     * @param entrada - Contenido del archivo, en UTF-8
+     * @param formato - CSV (con encabezado: nombre, descripcion, precio, categoria, stock y opcionalmente imagen)
+     *                o NDJSON (un objeto JSON con esos campos por línea)
+     * @param eventos - Recibe un evento "progreso" después de cada lote completo y el "resumen" final,
+     *                con los contadores de esta importación
+     * @return Resumen de la importación
+     * @throws IllegalArgumentException si el formato no es válido o al CSV le faltan columnas (antes del primer evento)
+     */
+    public ResultadoImportacion importar(InputStream entrada, String formato, Consumer<Map<String, Object>> eventos)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        Progreso progreso = new Progreso(eventos);
+        if (CSV.equals(formato)) {
+            importarCsv(reader, progreso);
+        } else if (NDJSON.equals(formato)) {
+            importarNdjson(reader, progreso);
+        } else {
+            throw new IllegalArgumentException("Formato no soportado: " + formato);
+        }
+        guardarLote(progreso);
+        progreso.informar("resumen");
+        return progreso.resultado();
+    }
+
+    private void importarCsv(BufferedReader reader, Progreso progreso) throws IOException {
+        LectorCsv lector = new LectorCsv(reader, maxLargoRegistro);
+        List<String> encabezado = lector.leer();
+        if (encabezado == null) {
+            return;
+        }
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < encabezado.size(); i++) {
+            // El primer campo puede traer la marca BOM de UTF-8
+            columnas.put(encabezado.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> faltantes = COLUMNAS_REQUERIDAS.stream().filter(c -> !columnas.containsKey(c)).toList();
+        if (!faltantes.isEmpty()) {
+            throw new IllegalArgumentException("Faltan columnas en el encabezado: " + String.join(", ", faltantes));
+        }
+
+        while (true) {
+            List<String> registro;
+            try {
+                registro = lector.leer();
+            } catch (IllegalArgumentException e) {
+                progreso.rechazar(lector.lineaRegistro(), e.getMessage());
+                continue;
+            }
+            if (registro == null) {
+                break;
+            }
+            if (registro.stream().allMatch(String::isBlank)) {
+                continue;
+            }
+            Map<String, String> campos = new HashMap<>();
+            for (Map.Entry<String, Integer> columna : columnas.entrySet()) {
+                if (columna.getValue() < registro.size()) {
+                    campos.put(columna.getKey(), registro.get(columna.getValue()));
+                }
+            }
+            agregar(lector.lineaRegistro(), campos, progreso);
+        }
+    }
+
+    private void importarNdjson(BufferedReader reader, Progreso progreso) throws IOException {
+        LectorLineas lector = new LectorLineas(reader, maxLargoRegistro);
+        while (true) {
+            String texto;
+            try {
+                texto = lector.leer();
+            } catch (IllegalArgumentException e) {
+                progreso.rechazar(lector.linea(), e.getMessage());
+                continue;
+            }
+            if (texto == null) {
+                break;
+            }
+            long linea = lector.linea();
+            if (texto.isBlank()) {
+                continue;
+            }
+            JsonNode nodo;
+            try {
+                nodo = objectMapper.readTree(texto);
+            } catch (JsonProcessingException e) {
+                progreso.rechazar(linea, "JSON inválido: " + e.getOriginalMessage());
+                continue;
+            }
+            if (!nodo.isObject()) {
+                progreso.rechazar(linea, "Se esperaba un objeto JSON");
+                continue;
+            }
+            Map<String, String> campos = new HashMap<>();
+            nodo.fields().forEachRemaining(campo -> {
+                if (!campo.getValue().isNull()) {
+                    campos.put(campo.getKey().toLowerCase(Locale.ROOT), campo.getValue().asText());
+                }
+            });
+            agregar(linea, campos, progreso);
+        }
+    }
+
+    // Valida la fila y la agrega al lote; guarda el lote cuando se llena
+    private void agregar(long linea, Map<String, String> campos, Progreso progreso) {
+        Fila fila;
+        try {
+            fila = validar(linea, campos);
+        } catch (IllegalArgumentException e) {
+            progreso.rechazar(linea, e.getMessage());
+            return;
+        }
+        progreso.lote.add(fila);
+        if (progreso.lote.size() >= tamanoLote) {
+            guardarLote(progreso);
+            progreso.informar("progreso");
+        }
+    }
+
+    private static Fila validar(long linea, Map<String, String> campos) {
+        String nombre = texto(campos, "nombre", 200, true);
+        String descripcion = texto(campos, "descripcion", 1000, true);
+        String categoria = texto(campos, "categoria", 50, true);
+        String imagen = texto(campos, "imagen", 500, false);
+        Double precio;
+        Integer stock;
+        try {
+            precio = Double.valueOf(texto(campos, "precio", 50, true));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("precio inválido: " + campos.get("precio"));
+        }
+        try {
+            stock = Integer.valueOf(texto(campos, "stock", 50, true));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("stock inválido: " + campos.get("stock"));
+        }
+        if (precio.isNaN() || precio.isInfinite() || precio < 0) {
+            throw new IllegalArgumentException("precio debe ser un número mayor o igual a 0");
+        }
+        if (stock < 0) {
+            throw new IllegalArgumentException("stock no puede ser negativo");
+        }
+        return new Fila(linea, nombre, descripcion, precio, categoria, imagen, stock);
+    }
+
+    private static String texto(Map<String, String> campos, String campo, int largoMaximo, boolean requerido) {
+        String valor = campos.get(campo);
+        valor = valor != null ? valor.trim() : null;
+        if (valor == null || valor.isEmpty()) {
+            if (requerido) {
+                throw new IllegalArgumentException("Falta el campo " + campo);
+            }
+            return null;
+        }
+        if (valor.length() > largoMaximo) {
+            throw new IllegalArgumentException(campo + " supera " + largoMaximo + " caracteres");
+        }
+        return valor;
+    }
+
+    /**
+     * Guarda el lote actual en una transacción (batch de UPDATE para los nombres existentes y de
+     * INSERT para los nuevos, con sus palabras de búsqueda) y luego actualiza los índices en memoria y la caché. Solo los productos
+     * cuyo stock baja pasan por el libro de reservas: se retienen sus unidades (solo sus franjas, de a
+     * una) después de bloquear las filas y antes del UPDATE, sin tener ninguna franja tomada mientras
+     * se espera a la base de datos
+     */
+    private void guardarLote(Progreso progreso) {
+        if (progreso.lote.isEmpty()) {
+            return;
+        }
+        Map<String, Fila> porNombre = new LinkedHashMap<>();
+        for (Fila fila : progreso.lote) {
+            porNombre.put(fila.nombre(), fila);
+        }
+        int repetidas = progreso.lote.size() - porNombre.size();
+        progreso.lote.clear();
+
+        List<Object[]> actualizaciones = new ArrayList<>();
+        List<Object[]> altas = new ArrayList<>();
+        List<ResultadoImportacion.Rechazo> sinStock = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(estado -> {
+                // Ordenados por id: si un nombre está repetido en la tabla se actualiza el de menor id
+                Map<String, ProductoAtributos> existentes = new HashMap<>();
+                for (ProductoAtributos actual : productoRepository.bloquearAtributosPorNombres(porNombre.keySet())) {
+                    existentes.putIfAbsent(actual.nombre(), actual);
+                }
+                Map<Long, Integer> descuentos = new HashMap<>();
+                Map<Long, Integer> stockNuevo = new HashMap<>();
+                for (Fila f : porNombre.values()) {
+                    ProductoAtributos actual = existentes.get(f.nombre());
+                    int descuento = actual != null && actual.stock() != null ? actual.stock() - f.stock() : 0;
+                    if (descuento > 0) {
+                        descuentos.put(actual.id(), descuento);
+                        stockNuevo.put(actual.id(), f.stock());
+                    }
+                }
+                // Un stock que baja no puede quedar por debajo de lo reservado por los checkouts en curso
+                Map<Long, Integer> reservadasSinStock = new HashMap<>();
+                Set<Long> retenidos = libroReservas.retener(descuentos, (id, reservado) -> {
+                    if (stockNuevo.get(id) >= reservado) {
+                        return true;
+                    }
+                    reservadasSinStock.put(id, reservado);
+                    return false;
+                });
+                TrasCommit.alTerminar(() -> retenidos.forEach(id -> libroReservas.liberar(id, descuentos.get(id))));
+
+                for (Fila f : porNombre.values()) {
+                    ProductoAtributos actual = existentes.get(f.nombre());
+                    if (actual == null) {
+                        altas.add(new Object[] { f.nombre(), f.descripcion(), f.precio(), f.categoria(), f.imagen(),
+                                f.stock() });
+                        continue;
+                    }
+                    Integer reservadas = reservadasSinStock.get(actual.id());
+                    if (reservadas != null) {
+                        sinStock.add(new ResultadoImportacion.Rechazo(f.linea(),
+                                "stock menor que las unidades reservadas (" + reservadas + ")"));
+                        continue;
+                    }
+                    actualizaciones.add(new Object[] { f.descripcion(), f.precio(), f.categoria(), f.imagen(), f.stock(),
+                            actual.id() });
+                }
+                if (!actualizaciones.isEmpty()) {
+                    jdbcTemplate.batchUpdate(SQL_ACTUALIZAR, actualizaciones);
+                }
+                if (!altas.isEmpty()) {
+                    jdbcTemplate.batchUpdate(SQL_INSERTAR, altas);
+                    // Palabras de búsqueda de los nuevos: el batch no retorna los ids, se releen por nombre (nadie
+                    // más pudo insertar esos nombres, bloqueados desde la primera lectura). Las actualizaciones
+                    // no cambian el nombre, así que sus palabras siguen siendo las mismas
+                    List<Object[]> tokens = new ArrayList<>();
+                    for (ProductoAtributos nuevo : productoRepository.bloquearAtributosPorNombres(
+                            porNombre.keySet().stream().filter(nombre -> !existentes.containsKey(nombre)).toList())) {
+                        for (String palabra : NormalizadorTexto.palabras(nuevo.nombre())) {
+                            tokens.add(new Object[] { palabra, nuevo.id() });
+                        }
+                    }
+                    jdbcTemplate.batchUpdate(SQL_INSERTAR_TOKEN, tokens);
+                }
+                if (!actualizaciones.isEmpty()) {
+                    // Un solo aviso por lote, como en la actualización masiva por categoría
+                    TrasCommit.ejecutar(() -> difusorCambios.publicar(
+                            new ResincronizacionProductos(ResincronizacionProductos.IMPORTACION, null)));
+                }
+            });
+        } catch (DataAccessException e) {
+            String motivo = "Error al guardar el lote: " + e.getMostSpecificCause().getMessage();
+            for (Fila f : porNombre.values()) {
+                progreso.rechazar(f.linea(), motivo);
+            }
+            progreso.rechazadas += repetidas;
+            progreso.procesadas += repetidas;
+            filasRechazadas.increment(repetidas);
+            return;
+        }
+
+        for (ResultadoImportacion.Rechazo rechazo : sinStock) {
+            progreso.rechazar(rechazo.linea(), rechazo.motivo());
+        }
+        progreso.procesadas += porNombre.size() - sinStock.size() + repetidas;
+        progreso.creadas += altas.size();
+        progreso.actualizadas += actualizaciones.size() + repetidas;
+        filasCreadas.increment(altas.size());
+        filasActualizadas.increment(actualizaciones.size() + repetidas);
+
+        // Los ids de las altas los genera la base de datos: se releen para los índices
+        for (Producto producto : productoRepository.findByNombreIn(porNombre.keySet())) {
+            indiceTrigramas.indexar(producto);
+            indiceFiltros.indexar(producto);
+            indiceAutocompletado.indexar(producto);
+        }
+        cacheCatalogo.invalidar();
+    }
+}
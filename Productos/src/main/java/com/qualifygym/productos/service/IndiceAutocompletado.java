@@ -0,0 +1,585 @@
+package com.qualifygym.productos.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoPopularidad;
+import com.qualifygym.productos.model.Sugerencia;
+import com.qualifygym.productos.repository.ProductoRepository;
+
+/**
+ * Trie de prefijos (radix, con las cadenas de un solo hijo comprimidas en un tramo) sobre los
+ * nombres normalizados de los productos, para sugerir productos mientras se escribe.
+ *
+ * Cada producto entra con una clave por palabra de su nombre ("proteina whey" y "whey"), así
+ * también se sugiere al escribir una palabra del medio. Cada nodo guarda los mejores productos de
+ * su subárbol (más vendidos primero, luego el nombre más corto): sugerir es bajar por el prefijo
+ * y copiar esa lista, sin recorrer el subárbol ni consultar la base de datos.
+ *
+ * Se construye al iniciar y se actualiza después del commit en cada alta, edición, baja o venta,
+ * recalculando solo los nodos del camino de las claves que cambiaron.
+ */
+@Service
+public class IndiceAutocompletado {
+
+    private static final int TAMANO_LOTE = 10_000;
+    // Palabras del nombre desde las que se puede empezar a escribir
+    private static final int MAX_PALABRAS = 8;
+    private static final int[] SIN_ORDINALES = new int[0];
+    private static final Nodo[] SIN_HIJOS = new Nodo[0];
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Value("${productos.autocompletado.max-sugerencias:10}")
+    private int maxSugerencias;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean construido;
+
+    private Nodo raiz = new Nodo("");
+    private long[] ids = new long[1024];
+    private String[] nombres = new String[1024];
+    private long[] vendidos = new long[1024];
+    private int siguienteOrdinal;
+    private int[] libres = new int[64];
+    private int cantidadLibres;
+    private final Map<Long, Integer> ordinales = new HashMap<>();
+
+    private static final class Nodo {
+        // Tramo de la clave entre el padre y este nodo
+        String etiqueta;
+        // Ordenados por el primer carácter de la etiqueta (distinto en cada hijo)
+        Nodo[] hijos = SIN_HIJOS;
+        // Productos cuya clave termina en este nodo
+        int[] terminales = SIN_ORDINALES;
+        // Los mejores productos del subárbol, del mejor al peor; se reemplaza, nunca se modifica
+        int[] mejores = SIN_ORDINALES;
+
+        Nodo(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        reconstruir();
+    }
+
+    /**
+     * Recarga el trie completo desde la base de datos, por lotes de ids crecientes. Las claves se
+     * insertan sin calcular las listas de mejores, que se calculan al final en un solo recorrido
+     */
+    public void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            limpiar();
+            long cursor = 0;
+            List<ProductoPopularidad> lote;
+            do {
+                lote = productoRepository.findPopularidadDesde(cursor, PageRequest.of(0, TAMANO_LOTE));
+                for (ProductoPopularidad p : lote) {
+                    int ordinal = nuevoOrdinal(p.id(), p.nombre(), p.vendidos());
+                    for (String clave : claves(p.nombre())) {
+                        insertar(clave, ordinal, null);
+                    }
+                    cursor = p.id();
+                }
+            } while (lote.size() == TAMANO_LOTE);
+            calcularSubarbol(raiz);
+            construido = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexa un producto creado o editado (después del commit si hay una transacción activa).
+     * Si el nombre no cambió y las ventas no crecieron (la mayoría de las ediciones) no toca el trie
+     */
+    public void indexar(Producto producto) {
+        Long id = producto.getId();
+        String nombre = producto.getNombre();
+        long unidades = producto.getVendidos() != null ? producto.getVendidos() : 0;
+        TrasCommit.ejecutar(() -> {
+            lock.writeLock().lock();
+            try {
+                agregarSinLock(id, nombre, unidades);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Quita un producto eliminado (después del commit si hay una transacción activa)
+     */
+    public void eliminar(Long id) {
+        TrasCommit.ejecutar(() -> {
+            lock.writeLock().lock();
+            try {
+                quitarSinLock(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Suma unidades vendidas a un producto y lo sube en las sugerencias (después del commit si hay
+     * una transacción activa)
+     */
+    public void sumarVendidos(Long id, long unidades) {
+        TrasCommit.ejecutar(() -> {
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinales.get(id);
+                if (ordinal != null && unidades > 0) {
+                    vendidos[ordinal] += unidades;
+                    recalcularClaves(ordinal);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public boolean construido() {
+        return construido;
+    }
+
+    public int maxSugerencias() {
+        return maxSugerencias;
+    }
+
+    /**
+     * Productos cuyo nombre tiene una palabra que empieza con el texto (sin distinguir mayúsculas
+     * ni tildes), del más vendido al menos vendido
+     * @param texto - Lo escrito hasta ahora; las palabras anteriores a la última deben estar completas
+     * @param limite - Máximo de sugerencias (a lo sumo productos.autocompletado.max-sugerencias)
+     */
+    public List<Sugerencia> sugerir(String texto, int limite) {
+        String prefijo = NormalizadorTexto.normalizar(texto);
+        if (prefijo.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Nodo nodo = raiz;
+            int posicion = 0;
+            while (posicion < prefijo.length()) {
+                int i = buscarHijo(nodo, prefijo.charAt(posicion));
+                if (i < 0) {
+                    return List.of();
+                }
+                Nodo hijo = nodo.hijos[i];
+                int comun = prefijoComun(hijo.etiqueta, prefijo, posicion);
+                // El prefijo puede terminar en medio de la etiqueta, pero no diferir de ella
+                if (comun < hijo.etiqueta.length() && posicion + comun < prefijo.length()) {
+                    return List.of();
+                }
+                nodo = hijo;
+                posicion += comun;
+            }
+            int n = Math.min(limite, nodo.mejores.length);
+            List<Sugerencia> sugerencias = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                int ordinal = nodo.mejores[k];
+                sugerencias.add(new Sugerencia(ids[ordinal], nombres[ordinal]));
+            }
+            return sugerencias;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return ordinales.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de nodos del trie (sin la raíz), para verificar que las bajas no dejan nodos vacíos
+     */
+    int nodos() {
+        lock.readLock().lock();
+        try {
+            return contarNodos(raiz) - 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void agregarSinLock(Long id, String nombre, long unidades) {
+        if (id == null) {
+            return;
+        }
+        Integer ordinal = ordinales.get(id);
+        if (ordinal != null && nombre != null && nombre.equals(nombres[ordinal])) {
+            // Las ventas solo crecen: una lectura anterior a una venta ya aplicada no las baja
+            if (unidades > vendidos[ordinal]) {
+                vendidos[ordinal] = unidades;
+                recalcularClaves(ordinal);
+            }
+            return;
+        }
+        if (ordinal != null) {
+            unidades = Math.max(unidades, vendidos[ordinal]);
+            quitarSinLock(id);
+        }
+        int nuevo = nuevoOrdinal(id, nombre, unidades);
+        for (String clave : claves(nombre)) {
+            List<Nodo> camino = new ArrayList<>();
+            insertar(clave, nuevo, camino);
+            recalcular(camino);
+        }
+    }
+
+    private void quitarSinLock(Long id) {
+        Integer ordinal = ordinales.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        for (String clave : claves(nombres[ordinal])) {
+            quitar(clave, ordinal);
+        }
+        nombres[ordinal] = null;
+        vendidos[ordinal] = 0;
+        if (cantidadLibres == libres.length) {
+            libres = Arrays.copyOf(libres, cantidadLibres * 2);
+        }
+        libres[cantidadLibres++] = ordinal;
+    }
+
+    private int nuevoOrdinal(Long id, String nombre, Long unidades) {
+        int ordinal;
+        if (cantidadLibres > 0) {
+            ordinal = libres[--cantidadLibres];
+        } else {
+            ordinal = siguienteOrdinal++;
+            if (ordinal == ids.length) {
+                int capacidad = ordinal + (ordinal >> 1);
+                ids = Arrays.copyOf(ids, capacidad);
+                nombres = Arrays.copyOf(nombres, capacidad);
+                vendidos = Arrays.copyOf(vendidos, capacidad);
+            }
+        }
+        ids[ordinal] = id;
+        nombres[ordinal] = nombre;
+        vendidos[ordinal] = unidades != null ? unidades : 0;
+        ordinales.put(id, ordinal);
+        return ordinal;
+    }
+
+    /**
+     * Claves de un nombre: el nombre normalizado desde el inicio de cada palabra, sin repetidas
+     */
+    static Set<String> claves(String nombre) {
+        String normalizado = NormalizadorTexto.normalizar(nombre);
+        Set<String> claves = new LinkedHashSet<>();
+        if (normalizado.isEmpty()) {
+            return claves;
+        }
+        claves.add(normalizado);
+        int desde = normalizado.indexOf(' ');
+        while (desde >= 0 && claves.size() < MAX_PALABRAS) {
+            claves.add(normalizado.substring(desde + 1));
+            desde = normalizado.indexOf(' ', desde + 1);
+        }
+        return claves;
+    }
+
+    /**
+     * Inserta una clave, dividiendo el nodo cuya etiqueta coincide solo en parte.
+     * Si se pasa un camino, agrega a él los nodos recorridos desde la raíz
+     */
+    private void insertar(String clave, int ordinal, List<Nodo> camino) {
+        Nodo nodo = raiz;
+        if (camino != null) {
+            camino.add(raiz);
+        }
+        int posicion = 0;
+        while (posicion < clave.length()) {
+            int i = buscarHijo(nodo, clave.charAt(posicion));
+            Nodo hijo;
+            if (i < 0) {
+                hijo = new Nodo(clave.substring(posicion));
+                nodo.hijos = insertarEn(nodo.hijos, -i - 1, hijo);
+            } else {
+                hijo = nodo.hijos[i];
+                int comun = prefijoComun(hijo.etiqueta, clave, posicion);
+                if (comun < hijo.etiqueta.length()) {
+                    Nodo intermedio = new Nodo(hijo.etiqueta.substring(0, comun));
+                    hijo.etiqueta = hijo.etiqueta.substring(comun);
+                    intermedio.hijos = new Nodo[] { hijo };
+                    intermedio.mejores = hijo.mejores;
+                    nodo.hijos[i] = intermedio;
+                    hijo = intermedio;
+                }
+            }
+            posicion += hijo.etiqueta.length();
+            nodo = hijo;
+            if (camino != null) {
+                camino.add(nodo);
+            }
+        }
+        for (int t : nodo.terminales) {
+            if (t == ordinal) {
+                return;
+            }
+        }
+        nodo.terminales = Arrays.copyOf(nodo.terminales, nodo.terminales.length + 1);
+        nodo.terminales[nodo.terminales.length - 1] = ordinal;
+    }
+
+    /**
+     * Quita una clave: borra los nodos que quedan vacíos, une al nodo sin productos propios con su
+     * único hijo (para que el trie siga comprimido) y recalcula los mejores del camino
+     */
+    private void quitar(String clave, int ordinal) {
+        List<Nodo> camino = new ArrayList<>();
+        camino.add(raiz);
+        Nodo nodo = raiz;
+        int posicion = 0;
+        while (posicion < clave.length()) {
+            int i = buscarHijo(nodo, clave.charAt(posicion));
+            if (i < 0 || !clave.startsWith(nodo.hijos[i].etiqueta, posicion)) {
+                return;
+            }
+            nodo = nodo.hijos[i];
+            posicion += nodo.etiqueta.length();
+            camino.add(nodo);
+        }
+        int[] terminales = nodo.terminales;
+        int posicionTerminal = -1;
+        for (int k = 0; k < terminales.length; k++) {
+            if (terminales[k] == ordinal) {
+                posicionTerminal = k;
+            }
+        }
+        if (posicionTerminal < 0) {
+            return;
+        }
+        int[] restantes = new int[terminales.length - 1];
+        System.arraycopy(terminales, 0, restantes, 0, posicionTerminal);
+        System.arraycopy(terminales, posicionTerminal + 1, restantes, posicionTerminal, restantes.length - posicionTerminal);
+        nodo.terminales = restantes.length == 0 ? SIN_ORDINALES : restantes;
+
+        List<Nodo> vigentes = new ArrayList<>(camino.size());
+        vigentes.add(raiz);
+        boolean[] descartado = new boolean[camino.size()];
+        for (int k = camino.size() - 1; k > 0; k--) {
+            Nodo actual = camino.get(k);
+            if (actual.terminales.length > 0 || actual.hijos.length > 1) {
+                continue;
+            }
+            Nodo padre = camino.get(k - 1);
+            int i = buscarHijo(padre, actual.etiqueta.charAt(0));
+            if (actual.hijos.length == 0) {
+                padre.hijos = quitarEn(padre.hijos, i);
+            } else {
+                Nodo unico = actual.hijos[0];
+                unico.etiqueta = actual.etiqueta + unico.etiqueta;
+                padre.hijos[i] = unico;
+            }
+            descartado[k] = true;
+        }
+        for (int k = 1; k < camino.size(); k++) {
+            if (!descartado[k]) {
+                vigentes.add(camino.get(k));
+            }
+        }
+        recalcular(vigentes);
+    }
+
+    /**
+     * Recalcula los mejores de los caminos de todas las claves de un producto cuyas ventas crecieron.
+     * Subiendo por el camino, si la lista de un nodo no cambió y el producto no está en ella, los
+     * ancestros tampoco cambian: un producto poco vendido solo toca los nodos cercanos a su hoja
+     */
+    private void recalcularClaves(int ordinal) {
+        for (String clave : claves(nombres[ordinal])) {
+            List<Nodo> camino = new ArrayList<>();
+            Nodo nodo = raiz;
+            camino.add(raiz);
+            int posicion = 0;
+            while (posicion < clave.length()) {
+                int i = buscarHijo(nodo, clave.charAt(posicion));
+                if (i < 0) {
+                    break;
+                }
+                nodo = nodo.hijos[i];
+                posicion += nodo.etiqueta.length();
+                camino.add(nodo);
+            }
+            for (int k = camino.size() - 1; k >= 0; k--) {
+                Nodo actual = camino.get(k);
+                int[] anteriores = actual.mejores;
+                actual.mejores = mejores(actual);
+                if (Arrays.equals(anteriores, actual.mejores) && !contiene(actual.mejores, ordinal)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean contiene(int[] ordinales, int ordinal) {
+        for (int o : ordinales) {
+            if (o == ordinal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Del nodo más profundo a la raíz: cada nodo usa las listas ya recalculadas de sus hijos
+    private void recalcular(List<Nodo> camino) {
+        for (int k = camino.size() - 1; k >= 0; k--) {
+            Nodo nodo = camino.get(k);
+            nodo.mejores = mejores(nodo);
+        }
+    }
+
+    private void calcularSubarbol(Nodo nodo) {
+        for (Nodo hijo : nodo.hijos) {
+            calcularSubarbol(hijo);
+        }
+        nodo.mejores = mejores(nodo);
+    }
+
+    /**
+     * Mejores del nodo: sus propios productos y los mejores de cada hijo. Como las listas de los
+     * hijos están ordenadas, de cada una se toma solo hasta el primero que no entra
+     */
+    private int[] mejores(Nodo nodo) {
+        int[] mejores = new int[maxSugerencias];
+        int n = 0;
+        for (int t : nodo.terminales) {
+            n = ofrecer(mejores, n, t);
+        }
+        for (Nodo hijo : nodo.hijos) {
+            for (int candidato : hijo.mejores) {
+                if (n == mejores.length && comparar(candidato, mejores[n - 1]) >= 0) {
+                    break;
+                }
+                n = ofrecer(mejores, n, candidato);
+            }
+        }
+        return n == mejores.length ? mejores : Arrays.copyOf(mejores, n);
+    }
+
+    // Inserta en orden en la lista de los mejores (sin repetir: un producto puede llegar por dos claves)
+    private int ofrecer(int[] mejores, int n, int candidato) {
+        for (int k = 0; k < n; k++) {
+            if (mejores[k] == candidato) {
+                return n;
+            }
+        }
+        if (n == mejores.length) {
+            if (n == 0 || comparar(candidato, mejores[n - 1]) >= 0) {
+                return n;
+            }
+            n--;
+        }
+        int k = n;
+        while (k > 0 && comparar(candidato, mejores[k - 1]) < 0) {
+            mejores[k] = mejores[k - 1];
+            k--;
+        }
+        mejores[k] = candidato;
+        return n + 1;
+    }
+
+    // Negativo si a va antes que b: más vendido, luego nombre más corto, luego menor id
+    private int comparar(int a, int b) {
+        int c = Long.compare(vendidos[b], vendidos[a]);
+        if (c == 0) {
+            c = Integer.compare(nombres[a].length(), nombres[b].length());
+        }
+        return c != 0 ? c : Long.compare(ids[a], ids[b]);
+    }
+
+    // Índice del hijo cuya etiqueta empieza con c, o -(punto de inserción) - 1
+    private static int buscarHijo(Nodo nodo, char c) {
+        Nodo[] hijos = nodo.hijos;
+        int bajo = 0;
+        int alto = hijos.length - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            char primero = hijos[medio].etiqueta.charAt(0);
+            if (primero < c) {
+                bajo = medio + 1;
+            } else if (primero > c) {
+                alto = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -bajo - 1;
+    }
+
+    private static int prefijoComun(String etiqueta, String texto, int desde) {
+        int n = Math.min(etiqueta.length(), texto.length() - desde);
+        int i = 0;
+        while (i < n && etiqueta.charAt(i) == texto.charAt(desde + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Nodo[] insertarEn(Nodo[] hijos, int posicion, Nodo hijo) {
+        Nodo[] nuevos = new Nodo[hijos.length + 1];
+        System.arraycopy(hijos, 0, nuevos, 0, posicion);
+        nuevos[posicion] = hijo;
+        System.arraycopy(hijos, posicion, nuevos, posicion + 1, hijos.length - posicion);
+        return nuevos;
+    }
+
+    private static Nodo[] quitarEn(Nodo[] hijos, int posicion) {
+        if (hijos.length == 1) {
+            return SIN_HIJOS;
+        }
+        Nodo[] nuevos = new Nodo[hijos.length - 1];
+        System.arraycopy(hijos, 0, nuevos, 0, posicion);
+        System.arraycopy(hijos, posicion + 1, nuevos, posicion, nuevos.length - posicion);
+        return nuevos;
+    }
+
+    private static int contarNodos(Nodo nodo) {
+        int n = 1;
+        for (Nodo hijo : nodo.hijos) {
+            n += contarNodos(hijo);
+        }
+        return n;
+    }
+
+    private void limpiar() {
+        int capacidad = Math.max(1024, ordinales.size() + (ordinales.size() >> 2));
+        raiz = new Nodo("");
+        ids = new long[capacidad];
+        nombres = new String[capacidad];
+        vendidos = new long[capacidad];
+        ordinales.clear();
+        siguienteOrdinal = 0;
+        cantidadLibres = 0;
+    }
+}
@@ -0,0 +1,521 @@
+package com.qualifygym.productos.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoAtributos;
+import com.qualifygym.productos.repository.ProductoRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Índice en memoria de los atributos filtrables del catálogo (categoría, precio, stock y nombre).
+ *
+ * Cada producto recibe un ordinal y sus atributos se guardan en arreglos por columna. Además hay
+ * un BitSet por categoría, por tramo de stock (agotado, bajo, disponible) y por rango de precio:
+ * combinar filtros es hacer AND/OR de bitsets, y cada faceta se cuenta con la cardinalidad de una
+ * intersección. Los ordinales son densos, así que cada bitset ocupa un bit por producto.
+ *
+ * Se construye al iniciar y se actualiza después del commit en cada escritura. Una edición mueve
+ * el ordinal de bitset sin cambiarlo; una baja lo libera y, cuando los eliminados superan un cuarto
+ * del índice, se compacta desde las columnas que ya están en memoria.
+ */
+@Service
+public class IndiceFiltros {
+
+    static final String[] TRAMOS_STOCK = { "agotado", "bajo", "disponible" };
+    private static final int TAMANO_LOTE = 10_000;
+    private static final int MIN_ELIMINADOS_COMPACTAR = 1024;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Value("${productos.filtros.rangos-precio:10,25,50,100}")
+    private double[] limitesPrecio;
+
+    @Value("${productos.filtros.stock-bajo:5}")
+    private int stockBajo;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean construido;
+
+    private long[] ids = new long[1024];
+    private String[] nombres = new String[1024];
+    private String[] categorias = new String[1024];
+    private double[] precios = new double[1024];
+    private int[] stocks = new int[1024];
+    private long[] versiones = new long[1024];
+    private BitSet vivos = new BitSet();
+    private int siguienteOrdinal;
+    private int eliminados;
+    private final Map<Long, Integer> ordinales = new HashMap<>();
+    private final Map<String, BitSet> porCategoria = new TreeMap<>();
+    private BitSet[] porTramoStock;
+    private BitSet[] porRangoPrecio;
+    private String[] etiquetasPrecio;
+
+    /**
+     * Ids de una página de resultados, el total de coincidencias y los conteos por faceta
+     */
+    public record Resultado(int total, List<Long> ids, Map<String, Map<String, Integer>> facetas) {
+    }
+
+    @PostConstruct
+    void init() {
+        limitesPrecio = limitesPrecio.clone();
+        Arrays.sort(limitesPrecio);
+        etiquetasPrecio = new String[limitesPrecio.length + 1];
+        for (int k = 0; k < etiquetasPrecio.length; k++) {
+            String desde = k == 0 ? "0" : formatear(limitesPrecio[k - 1]);
+            etiquetasPrecio[k] = k == limitesPrecio.length ? desde + "+" : desde + "-" + formatear(limitesPrecio[k]);
+        }
+        limpiar();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        reconstruir();
+    }
+
+    /**
+     * Recarga el índice completo desde la base de datos, por lotes de ids crecientes
+     */
+    public void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            limpiar();
+            long cursor = 0;
+            List<ProductoAtributos> lote;
+            do {
+                lote = productoRepository.findAtributosDesde(cursor, PageRequest.of(0, TAMANO_LOTE));
+                for (ProductoAtributos p : lote) {
+                    agregarSinLock(p.id(), p.nombre(), p.categoria(), p.precio(), p.stock(), p.version());
+                    cursor = p.id();
+                }
+            } while (lote.size() == TAMANO_LOTE);
+            construido = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexa un producto creado o editado (después del commit si hay una transacción activa).
+     * Los atributos se leen al aplicar el cambio, cuando la versión ya quedó incrementada; si llega
+     * una versión más vieja que la indexada (dos commits que terminan en otro orden) se ignora.
+     */
+    public void indexar(Producto producto) {
+        TrasCommit.ejecutar(() -> {
+            lock.writeLock().lock();
+            try {
+                agregarSinLock(producto.getId(), producto.getNombre(), producto.getCategoria(),
+                        producto.getPrecio(), producto.getStock(), producto.getVersion());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Indexa los atributos leídos después de un cambio de stock (después del commit si hay una transacción activa)
+     */
+    public void indexar(ProductoAtributos atributos) {
+        TrasCommit.ejecutar(() -> {
+            lock.writeLock().lock();
+            try {
+                agregarSinLock(atributos.id(), atributos.nombre(), atributos.categoria(), atributos.precio(),
+                        atributos.stock(), atributos.version());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Indexa un lote de atributos leídos después de una actualización masiva, tomando el lock una
+     * sola vez (después del commit si hay una transacción activa)
+     */
+    public void indexarTodos(List<ProductoAtributos> lote) {
+        TrasCommit.ejecutar(() -> {
+            lock.writeLock().lock();
+            try {
+                for (ProductoAtributos atributos : lote) {
+                    agregarSinLock(atributos.id(), atributos.nombre(), atributos.categoria(), atributos.precio(),
+                            atributos.stock(), atributos.version());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Quita un producto eliminado (después del commit si hay una transacción activa)
+     */
+    public void eliminar(Long id) {
+        TrasCommit.ejecutar(() -> {
+            lock.writeLock().lock();
+            try {
+                quitarSinLock(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public boolean construido() {
+        return construido;
+    }
+
+    /**
+     * Filtra el catálogo combinando todos los criterios (los que son null no filtran)
+     * @param categorias - Categorías aceptadas (cualquiera de ellas)
+     * @param precioMin - Precio mínimo, inclusive
+     * @param precioMax - Precio máximo, inclusive
+     * @param soloConStock - true para excluir los productos agotados
+     * @param texto - Términos que deben aparecer todos en el nombre (sin distinguir mayúsculas ni tildes)
+     * @param desde - Cantidad de resultados a saltar
+     * @param limite - Máximo de ids a retornar
+     * @return La página de ids, en orden de ordinal, el total y las facetas. Cada faceta se cuenta con
+     *         los demás filtros aplicados pero sin el propio, para mostrar a qué se puede cambiar.
+     */
+    public Resultado filtrar(Collection<String> categorias, Double precioMin, Double precioMax,
+            boolean soloConStock, String texto, long desde, int limite) {
+        String[] terminos = terminos(texto);
+        lock.readLock().lock();
+        try {
+            BitSet c = filtroCategorias(categorias);
+            BitSet p = filtroPrecio(precioMin, precioMax);
+            BitSet s = soloConStock ? union(porTramoStock[1], porTramoStock[2]) : null;
+
+            // Los términos se verifican contra la columna de nombres, solo en los ordinales que
+            // alguna faceta o el resultado pueden necesitar
+            BitSet t = null;
+            if (terminos.length > 0) {
+                BitSet candidatos = interseccion(p, s);
+                candidatos.or(interseccion(c, p));
+                candidatos.or(interseccion(c, s));
+                t = conTerminos(candidatos, terminos);
+            }
+
+            BitSet resultado = interseccion(t, c, p, s);
+            Map<String, Map<String, Integer>> facetas = new LinkedHashMap<>();
+            facetas.put("categorias", contar(interseccion(t, p, s), porCategoria, true));
+            facetas.put("stock", contar(interseccion(t, c, p), TRAMOS_STOCK, porTramoStock));
+            facetas.put("precios", contar(interseccion(t, c, s), etiquetasPrecio, porRangoPrecio));
+
+            List<Long> pagina = new ArrayList<>(Math.max(0, Math.min(limite, resultado.cardinality())));
+            long saltados = 0;
+            for (int ordinal = resultado.nextSetBit(0); ordinal >= 0 && pagina.size() < limite;
+                    ordinal = resultado.nextSetBit(ordinal + 1)) {
+                if (saltados++ >= desde) {
+                    pagina.add(ids[ordinal]);
+                }
+            }
+            return new Resultado(resultado.cardinality(), pagina, facetas);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Versión indexada de un producto (la misma columna @Version de la entidad; 0 si no tenía)
+     * @return La versión, o vacío si el índice no está construido o el producto no está indexado
+     */
+    public OptionalLong version(Long id) {
+        if (!construido) {
+            return OptionalLong.empty();
+        }
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinales.get(id);
+            return ordinal != null ? OptionalLong.of(versiones[ordinal]) : OptionalLong.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return ordinales.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // null = sin filtro de categoría
+    private BitSet filtroCategorias(Collection<String> filtro) {
+        if (filtro == null || filtro.isEmpty()) {
+            return null;
+        }
+        BitSet bits = new BitSet();
+        for (String categoria : filtro) {
+            BitSet deCategoria = porCategoria.get(clave(categoria));
+            if (deCategoria != null) {
+                bits.or(deCategoria);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Rangos completamente dentro de [min, max] se suman con OR; en los de los bordes se
+     * revisa la columna de precios, ordinal por ordinal
+     */
+    private BitSet filtroPrecio(Double precioMin, Double precioMax) {
+        if (precioMin == null && precioMax == null) {
+            return null;
+        }
+        double min = precioMin != null ? precioMin : Double.NEGATIVE_INFINITY;
+        double max = precioMax != null ? precioMax : Double.POSITIVE_INFINITY;
+        BitSet bits = new BitSet();
+        for (int k = 0; k < porRangoPrecio.length; k++) {
+            double desde = k == 0 ? Double.NEGATIVE_INFINITY : limitesPrecio[k - 1];
+            double hasta = k == limitesPrecio.length ? Double.POSITIVE_INFINITY : limitesPrecio[k];
+            if (hasta <= min || desde > max) {
+                continue;
+            }
+            BitSet rango = porRangoPrecio[k];
+            if (desde >= min && hasta <= max) {
+                bits.or(rango);
+            } else {
+                for (int ordinal = rango.nextSetBit(0); ordinal >= 0; ordinal = rango.nextSetBit(ordinal + 1)) {
+                    if (precios[ordinal] >= min && precios[ordinal] <= max) {
+                        bits.set(ordinal);
+                    }
+                }
+            }
+        }
+        return bits;
+    }
+
+    private BitSet conTerminos(BitSet candidatos, String[] terminos) {
+        BitSet bits = new BitSet();
+        for (int ordinal = candidatos.nextSetBit(0); ordinal >= 0; ordinal = candidatos.nextSetBit(ordinal + 1)) {
+            boolean todos = true;
+            for (String termino : terminos) {
+                if (!nombres[ordinal].contains(termino)) {
+                    todos = false;
+                    break;
+                }
+            }
+            if (todos) {
+                bits.set(ordinal);
+            }
+        }
+        return bits;
+    }
+
+    // Intersección de los vivos con los filtros que no son null
+    private BitSet interseccion(BitSet... filtros) {
+        BitSet bits = (BitSet) vivos.clone();
+        for (BitSet filtro : filtros) {
+            if (filtro != null) {
+                bits.and(filtro);
+            }
+        }
+        return bits;
+    }
+
+    private static BitSet union(BitSet a, BitSet b) {
+        BitSet bits = (BitSet) a.clone();
+        bits.or(b);
+        return bits;
+    }
+
+    private static Map<String, Integer> contar(BitSet base, Map<String, BitSet> grupos, boolean omitirCeros) {
+        Map<String, Integer> conteos = new LinkedHashMap<>();
+        for (Map.Entry<String, BitSet> grupo : grupos.entrySet()) {
+            int cantidad = cardinalidadInterseccion(base, grupo.getValue());
+            if (cantidad > 0 || !omitirCeros) {
+                conteos.put(grupo.getKey(), cantidad);
+            }
+        }
+        return conteos;
+    }
+
+    private static Map<String, Integer> contar(BitSet base, String[] etiquetas, BitSet[] grupos) {
+        Map<String, Integer> conteos = new LinkedHashMap<>();
+        for (int k = 0; k < grupos.length; k++) {
+            conteos.put(etiquetas[k], cardinalidadInterseccion(base, grupos[k]));
+        }
+        return conteos;
+    }
+
+    private static int cardinalidadInterseccion(BitSet a, BitSet b) {
+        BitSet bits = (BitSet) b.clone();
+        bits.and(a);
+        return bits.cardinality();
+    }
+
+    private void agregarSinLock(Long id, String nombre, String categoria, Double precio, Integer stock, Long version) {
+        if (id == null) {
+            return;
+        }
+        long nuevaVersion = version != null ? version : 0;
+        Integer ordinal = ordinales.get(id);
+        if (ordinal != null) {
+            if (nuevaVersion < versiones[ordinal]) {
+                return;
+            }
+            quitarDeBitsets(ordinal);
+        } else {
+            ordinal = siguienteOrdinal++;
+            if (ordinal == ids.length) {
+                crecer(ordinal + (ordinal >> 1));
+            }
+            ids[ordinal] = id;
+            ordinales.put(id, ordinal);
+            vivos.set(ordinal);
+        }
+        nombres[ordinal] = NormalizadorTexto.normalizar(nombre);
+        categorias[ordinal] = clave(categoria);
+        precios[ordinal] = precio != null ? precio : 0;
+        stocks[ordinal] = stock != null ? stock : 0;
+        versiones[ordinal] = nuevaVersion;
+        porCategoria.computeIfAbsent(categorias[ordinal], k -> new BitSet()).set(ordinal);
+        porTramoStock[tramoStock(stocks[ordinal])].set(ordinal);
+        porRangoPrecio[rangoPrecio(precios[ordinal])].set(ordinal);
+    }
+
+    private void quitarSinLock(Long id) {
+        Integer ordinal = ordinales.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        quitarDeBitsets(ordinal);
+        vivos.clear(ordinal);
+        nombres[ordinal] = null;
+        categorias[ordinal] = null;
+        eliminados++;
+        if (eliminados >= MIN_ELIMINADOS_COMPACTAR && eliminados > ordinales.size() / 4) {
+            compactar();
+        }
+    }
+
+    private void quitarDeBitsets(int ordinal) {
+        BitSet deCategoria = porCategoria.get(categorias[ordinal]);
+        deCategoria.clear(ordinal);
+        if (deCategoria.isEmpty()) {
+            porCategoria.remove(categorias[ordinal]);
+        }
+        porTramoStock[tramoStock(stocks[ordinal])].clear(ordinal);
+        porRangoPrecio[rangoPrecio(precios[ordinal])].clear(ordinal);
+    }
+
+    /**
+     * Reasigna ordinales consecutivos a los productos vivos y reconstruye los bitsets,
+     * sin volver a consultar la base de datos
+     */
+    private void compactar() {
+        int n = ordinales.size();
+        long[] idsVivos = new long[n];
+        String[] nombresVivos = new String[n];
+        String[] categoriasVivas = new String[n];
+        double[] preciosVivos = new double[n];
+        int[] stocksVivos = new int[n];
+        long[] versionesVivas = new long[n];
+        int i = 0;
+        for (int ordinal = vivos.nextSetBit(0); ordinal >= 0; ordinal = vivos.nextSetBit(ordinal + 1)) {
+            idsVivos[i] = ids[ordinal];
+            nombresVivos[i] = nombres[ordinal];
+            categoriasVivas[i] = categorias[ordinal];
+            preciosVivos[i] = precios[ordinal];
+            stocksVivos[i] = stocks[ordinal];
+            versionesVivas[i] = versiones[ordinal];
+            i++;
+        }
+        limpiar();
+        for (i = 0; i < n; i++) {
+            ids[i] = idsVivos[i];
+            nombres[i] = nombresVivos[i];
+            categorias[i] = categoriasVivas[i];
+            precios[i] = preciosVivos[i];
+            stocks[i] = stocksVivos[i];
+            versiones[i] = versionesVivas[i];
+            porCategoria.computeIfAbsent(categorias[i], k -> new BitSet()).set(i);
+            porTramoStock[tramoStock(stocks[i])].set(i);
+            porRangoPrecio[rangoPrecio(precios[i])].set(i);
+            vivos.set(i);
+            ordinales.put(ids[i], i);
+        }
+        siguienteOrdinal = n;
+    }
+
+    private void limpiar() {
+        crecer(Math.max(1024, ordinales.size() + (ordinales.size() >> 2)));
+        vivos = new BitSet();
+        ordinales.clear();
+        porCategoria.clear();
+        porTramoStock = nuevosBitsets(TRAMOS_STOCK.length);
+        porRangoPrecio = nuevosBitsets(limitesPrecio.length + 1);
+        siguienteOrdinal = 0;
+        eliminados = 0;
+    }
+
+    private void crecer(int capacidad) {
+        ids = Arrays.copyOf(ids, capacidad);
+        nombres = Arrays.copyOf(nombres, capacidad);
+        categorias = Arrays.copyOf(categorias, capacidad);
+        precios = Arrays.copyOf(precios, capacidad);
+        stocks = Arrays.copyOf(stocks, capacidad);
+        versiones = Arrays.copyOf(versiones, capacidad);
+    }
+
+    private static BitSet[] nuevosBitsets(int cantidad) {
+        BitSet[] bitsets = new BitSet[cantidad];
+        for (int k = 0; k < cantidad; k++) {
+            bitsets[k] = new BitSet();
+        }
+        return bitsets;
+    }
+
+    private int tramoStock(int stock) {
+        if (stock <= 0) {
+            return 0;
+        }
+        return stock <= stockBajo ? 1 : 2;
+    }
+
+    // Rango k = [limitesPrecio[k-1], limitesPrecio[k]); el primero incluye todo lo menor al primer límite
+    private int rangoPrecio(double precio) {
+        int k = 0;
+        while (k < limitesPrecio.length && precio >= limitesPrecio[k]) {
+            k++;
+        }
+        return k;
+    }
+
+    private static String clave(String categoria) {
+        return categoria == null ? "" : categoria.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String[] terminos(String texto) {
+        String normalizado = NormalizadorTexto.normalizar(texto);
+        return normalizado.isEmpty() ? new String[0] : normalizado.split(" ");
+    }
+
+    private static String formatear(double limite) {
+        return limite == Math.rint(limite) ? String.valueOf((long) limite) : String.valueOf(limite);
+    }
+}
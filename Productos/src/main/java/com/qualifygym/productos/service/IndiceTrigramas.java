@@ -0,0 +1,702 @@
+package com.qualifygym.productos.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoTexto;
+import com.qualifygym.productos.repository.ProductoRepository;
+
+/**
+ * Índice invertido de trigramas sobre el nombre y la descripción de los productos.
+ *
+ * Cada producto recibe un ordinal (int) y cada trigrama de su texto normalizado guarda la lista
+ * de ordinales que lo contienen. Como los ordinales se asignan en orden creciente, las listas
+ * quedan ordenadas y una búsqueda es la intersección de las listas de los trigramas de la
+ * consulta, seguida de una verificación de que el texto realmente contiene la consulta.
+ * Nombre y descripción tienen listas separadas para rankear primero las coincidencias en el nombre.
+ *
+ * Para la búsqueda tolerante a errores de tipeo se guarda además el vocabulario de palabras de los
+ * nombres: cada palabra con sus trigramas (con bordes, para filtrar candidatas) y la lista de
+ * ordinales de los productos cuyo nombre la contiene.
+ *
+ * Se construye al iniciar y se actualiza después del commit en cada alta, edición o baja.
+ * Una baja solo marca el ordinal como eliminado; cuando los eliminados superan un cuarto del
+ * índice se compacta, reconstruyendo las listas desde los textos que ya están en memoria.
+ */
+@Service
+public class IndiceTrigramas {
+
+    // Alfabeto del texto normalizado: espacio, a-z y 0-9
+    private static final int ALFABETO = 37;
+    private static final int TRIGRAMAS = ALFABETO * ALFABETO * ALFABETO;
+    private static final int TAMANO_LOTE = 10_000;
+    private static final int MIN_ELIMINADOS_COMPACTAR = 1024;
+    // Palabras del vocabulario que se prueban como corrección de cada palabra de la consulta
+    private static final int MAX_CORRECCIONES = 16;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Value("${productos.busqueda.max-resultados:100}")
+    private int maxResultados;
+
+    @Value("${productos.busqueda.indexar-descripcion:true}")
+    private boolean indexarDescripcion;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean construido;
+
+    private long[] ids = new long[1024];
+    private String[] nombres = new String[1024];
+    private String[] descripciones = new String[1024];
+    // Largo de cada nombre normalizado, para puntuar la búsqueda aproximada sin leer los String
+    private int[] largosNombres = new int[1024];
+    private BitSet vivos = new BitSet();
+    private int siguienteOrdinal;
+    private int eliminados;
+    private final Map<Long, Integer> ordinales = new HashMap<>();
+    private Postings postingsNombre = new Postings();
+    private Postings postingsDescripcion = new Postings();
+    private final Map<String, Integer> palabras = new HashMap<>();
+    private String[] vocabulario = new String[1024];
+    private Postings trigramasPalabras = new Postings();
+    private Postings ordinalesPorPalabra = new Postings(1024);
+
+    /**
+     * Listas de ordinales por trigrama (o por palabra), en arreglos de int que crecen según se necesita
+     */
+    private static final class Postings {
+        private int[][] listas;
+        private int[] largos;
+
+        Postings() {
+            this(TRIGRAMAS);
+        }
+
+        Postings(int capacidad) {
+            listas = new int[capacidad][];
+            largos = new int[capacidad];
+        }
+
+        void agregar(int trigrama, int ordinal) {
+            if (trigrama >= listas.length) {
+                int capacidad = Math.max(trigrama + 1, listas.length + (listas.length >> 1));
+                listas = Arrays.copyOf(listas, capacidad);
+                largos = Arrays.copyOf(largos, capacidad);
+            }
+            int[] lista = listas[trigrama];
+            int largo = largos[trigrama];
+            if (lista == null) {
+                lista = listas[trigrama] = new int[4];
+            } else if (largo == lista.length) {
+                lista = listas[trigrama] = Arrays.copyOf(lista, largo + (largo >> 1) + 1);
+            }
+            lista[largo] = ordinal;
+            largos[trigrama] = largo + 1;
+        }
+    }
+
+    private record Coincidencia(long id, double puntaje) {
+    }
+
+    // Palabra del vocabulario parecida a una de la consulta, con su similitud (1 = igual)
+    private record Correccion(int palabra, double similitud) {
+    }
+
+    // Ordinales ordenados de los nombres que contienen alguna corrección de una palabra de la consulta
+    private record Candidatos(int[] ordinales, double[] similitudes) {
+    }
+
+    // La peor coincidencia queda al tope del heap: menor puntaje y, a igual puntaje, mayor id
+    private static final Comparator<Coincidencia> PEOR_PRIMERO = Comparator
+            .comparingDouble(Coincidencia::puntaje)
+            .thenComparing(Comparator.comparingLong(Coincidencia::id).reversed());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        reconstruir();
+    }
+
+    /**
+     * Recarga el índice completo desde la base de datos, por lotes de ids crecientes
+     */
+    public void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            limpiar();
+            long cursor = 0;
+            List<ProductoTexto> lote;
+            do {
+                lote = productoRepository.findTextosDesde(cursor, PageRequest.of(0, TAMANO_LOTE));
+                for (ProductoTexto texto : lote) {
+                    agregarSinLock(texto.id(), texto.nombre(), texto.descripcion());
+                    cursor = texto.id();
+                }
+            } while (lote.size() == TAMANO_LOTE);
+            construido = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexa un producto creado o editado (después del commit si hay una transacción activa)
+     */
+    public void indexar(Producto producto) {
+        Long id = producto.getId();
+        String nombre = producto.getNombre();
+        String descripcion = producto.getDescripcion();
+        TrasCommit.ejecutar(() -> {
+            lock.writeLock().lock();
+            try {
+                agregarSinLock(id, nombre, descripcion);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Quita un producto eliminado (después del commit si hay una transacción activa)
+     */
+    public void eliminar(Long id) {
+        TrasCommit.ejecutar(() -> {
+            lock.writeLock().lock();
+            try {
+                quitarSinLock(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Indica si la consulta se puede resolver con el índice: hace falta al menos un trigrama
+     * (3 caracteres después de normalizar) y que el índice ya esté construido
+     */
+    public boolean admite(String texto) {
+        return construido && NormalizadorTexto.normalizar(texto).length() >= 3;
+    }
+
+    public List<Long> buscar(String texto) {
+        return buscar(texto, maxResultados);
+    }
+
+    /**
+     * Busca productos cuyo nombre o descripción contiene el texto (sin distinguir mayúsculas ni tildes)
+     * @param texto - Texto a buscar
+     * @param limite - Máximo de resultados
+     * @return Ids de los productos, del más relevante al menos relevante
+     */
+    public List<Long> buscar(String texto, int limite) {
+        String consulta = NormalizadorTexto.normalizar(texto);
+        int[] trigramas = trigramas(consulta);
+        if (trigramas.length == 0 || limite <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Coincidencia> mejores = new PriorityQueue<>(limite + 1, PEOR_PRIMERO);
+        lock.readLock().lock();
+        try {
+            for (int ordinal : intersectar(postingsNombre, trigramas)) {
+                if (!vivos.get(ordinal)) {
+                    continue;
+                }
+                int posicion = nombres[ordinal].indexOf(consulta);
+                if (posicion >= 0) {
+                    ofrecer(mejores, limite, new Coincidencia(ids[ordinal],
+                            3 + puntaje(nombres[ordinal], consulta, posicion)));
+                }
+            }
+            if (indexarDescripcion) {
+                for (int ordinal : intersectar(postingsDescripcion, trigramas)) {
+                    // Los que coinciden en el nombre ya se contaron con más puntaje
+                    if (!vivos.get(ordinal) || nombres[ordinal].contains(consulta)) {
+                        continue;
+                    }
+                    int posicion = descripciones[ordinal].indexOf(consulta);
+                    if (posicion >= 0) {
+                        ofrecer(mejores, limite, new Coincidencia(ids[ordinal],
+                                1 + puntaje(descripciones[ordinal], consulta, posicion)));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Coincidencia> ordenadas = new ArrayList<>(mejores);
+        ordenadas.sort(PEOR_PRIMERO.reversed());
+        List<Long> resultado = new ArrayList<>(ordenadas.size());
+        for (Coincidencia c : ordenadas) {
+            resultado.add(c.id());
+        }
+        return resultado;
+    }
+
+    public List<Long> buscarAproximado(String texto) {
+        return buscarAproximado(texto, maxResultados);
+    }
+
+    /**
+     * Busca productos cuyo nombre tiene, para cada palabra de la consulta, una palabra a distancia
+     * de edición acotada: ninguna para palabras de menos de 4 letras, 1 hasta 6 letras y 2 desde 7
+     * (inserción, borrado, reemplazo o intercambio de dos letras vecinas). "cretina" encuentra
+     * "Creatina" y "protien", "Proteína". Para que no recorra todo el vocabulario, solo se mide la
+     * distancia a las palabras que comparten suficientes trigramas con la de la consulta.
+     * @param texto - Texto a buscar, posiblemente con errores de tipeo
+     * @param limite - Máximo de resultados
+     * @return Ids de los productos, del más parecido al menos parecido
+     */
+    public List<Long> buscarAproximado(String texto, int limite) {
+        String consulta = NormalizadorTexto.normalizar(texto);
+        if (consulta.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        String[] terminos = Arrays.stream(consulta.split(" ")).distinct().toArray(String[]::new);
+        PriorityQueue<Coincidencia> mejores = new PriorityQueue<>(limite + 1, PEOR_PRIMERO);
+        lock.readLock().lock();
+        try {
+            Candidatos[] porTermino = new Candidatos[terminos.length];
+            for (int t = 0; t < terminos.length; t++) {
+                porTermino[t] = candidatos(corregir(terminos[t]));
+                if (porTermino[t].ordinales().length == 0) {
+                    return List.of();
+                }
+            }
+            // Todas las palabras deben coincidir: se intersecta empezando por la lista más corta
+            Arrays.sort(porTermino, Comparator.comparingInt(c -> c.ordinales().length));
+            Candidatos resultado = porTermino[0];
+            for (int t = 1; t < porTermino.length && resultado.ordinales().length > 0; t++) {
+                resultado = intersectar(resultado, porTermino[t]);
+            }
+            int[] ordinalesResultado = resultado.ordinales();
+            for (int i = 0; i < ordinalesResultado.length; i++) {
+                int ordinal = ordinalesResultado[i];
+                if (!vivos.get(ordinal)) {
+                    continue;
+                }
+                // La similitud manda; la cobertura del nombre solo desempata similitudes parecidas
+                double cobertura = Math.min(1.0, (double) consulta.length() / largosNombres[ordinal]);
+                ofrecer(mejores, limite, new Coincidencia(ids[ordinal],
+                        resultado.similitudes()[i] / terminos.length + 0.1 * cobertura));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Coincidencia> ordenadas = new ArrayList<>(mejores);
+        ordenadas.sort(PEOR_PRIMERO.reversed());
+        List<Long> resultado = new ArrayList<>(ordenadas.size());
+        for (Coincidencia c : ordenadas) {
+            resultado.add(c.id());
+        }
+        return resultado;
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return ordinales.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bonificación (menor a 2) por coincidir al inicio del campo o de una palabra, y por
+     * cubrir una mayor parte del campo: "creatina" rankea antes "Creatina" que "Creatina Monohidrato"
+     */
+    private static double puntaje(String campo, String consulta, int posicion) {
+        double puntaje = (double) consulta.length() / campo.length();
+        if (posicion == 0) {
+            puntaje += 0.9;
+        } else if (campo.charAt(posicion - 1) == ' ') {
+            puntaje += 0.5;
+        }
+        return puntaje;
+    }
+
+    /**
+     * Palabras del vocabulario a distancia acotada de la palabra dada, de la más parecida a la menos.
+     * Una edición cambia a lo sumo 4 de los trigramas con bordes de la palabra, así que una palabra
+     * a distancia k comparte al menos (trigramas - 4k) con ella: las que comparten menos no se miden.
+     * Las listas de palabras de cada trigrama se juntan y ordenan; cada palabra queda repetida
+     * tantas veces como trigramas comparte, sin recorrer todo el vocabulario.
+     */
+    private List<Correccion> corregir(String palabra) {
+        int largo = palabra.length();
+        int maxDistancia = largo < 4 ? 0 : largo < 7 ? 1 : 2;
+        List<Correccion> correcciones = new ArrayList<>();
+        if (maxDistancia == 0) {
+            Integer exacta = palabras.get(palabra);
+            if (exacta != null) {
+                correcciones.add(new Correccion(exacta, 1.0));
+            }
+            return correcciones;
+        }
+        int[] trigramasPalabra = trigramas(" " + palabra + " ");
+        int minimoComun = Math.max(1, trigramasPalabra.length - 4 * maxDistancia);
+        int total = 0;
+        for (int trigrama : trigramasPalabra) {
+            total += trigramasPalabras.largos[trigrama];
+        }
+        int[] apariciones = new int[total];
+        int n = 0;
+        for (int trigrama : trigramasPalabra) {
+            int largoLista = trigramasPalabras.largos[trigrama];
+            if (largoLista > 0) {
+                System.arraycopy(trigramasPalabras.listas[trigrama], 0, apariciones, n, largoLista);
+                n += largoLista;
+            }
+        }
+        Arrays.sort(apariciones);
+        int i = 0;
+        while (i < total) {
+            int p = apariciones[i];
+            int inicio = i;
+            while (i < total && apariciones[i] == p) {
+                i++;
+            }
+            if (i - inicio < minimoComun) {
+                continue;
+            }
+            String candidata = vocabulario[p];
+            int d = distancia(palabra, candidata, maxDistancia);
+            if (d <= maxDistancia) {
+                correcciones.add(new Correccion(p, 1.0 - (double) d / Math.max(largo, candidata.length())));
+            }
+        }
+        correcciones.sort(Comparator.comparingDouble(Correccion::similitud).reversed());
+        return correcciones.size() > MAX_CORRECCIONES ? correcciones.subList(0, MAX_CORRECCIONES) : correcciones;
+    }
+
+    /**
+     * Unión de las listas de ordinales de las correcciones de una palabra; si un nombre contiene
+     * varias, se queda con la similitud mayor
+     */
+    private Candidatos candidatos(List<Correccion> correcciones) {
+        Candidatos union = new Candidatos(new int[0], new double[0]);
+        // De la lista más corta a la más larga, para copiar la unión acumulada lo menos posible
+        List<Correccion> porLargo = new ArrayList<>(correcciones);
+        porLargo.sort(Comparator.comparingInt(c -> ordinalesPorPalabra.largos[c.palabra()]));
+        for (Correccion c : porLargo) {
+            int largo = ordinalesPorPalabra.largos[c.palabra()];
+            int[] lista = ordinalesPorPalabra.listas[c.palabra()];
+            int[] ordinales = union.ordinales();
+            double[] similitudes = union.similitudes();
+            int[] nuevos = new int[ordinales.length + largo];
+            double[] nuevasSimilitudes = new double[nuevos.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < ordinales.length || j < largo) {
+                if (j == largo || (i < ordinales.length && ordinales[i] < lista[j])) {
+                    nuevos[n] = ordinales[i];
+                    nuevasSimilitudes[n++] = similitudes[i++];
+                } else if (i == ordinales.length || lista[j] < ordinales[i]) {
+                    nuevos[n] = lista[j++];
+                    nuevasSimilitudes[n++] = c.similitud();
+                } else {
+                    nuevos[n] = ordinales[i];
+                    nuevasSimilitudes[n++] = Math.max(similitudes[i++], c.similitud());
+                    j++;
+                }
+            }
+            union = new Candidatos(Arrays.copyOf(nuevos, n), Arrays.copyOf(nuevasSimilitudes, n));
+        }
+        return union;
+    }
+
+    // Ordinales presentes en ambas listas, sumando las similitudes (búsqueda exponencial en la segunda)
+    private static Candidatos intersectar(Candidatos a, Candidatos b) {
+        int[] ordinales = new int[a.ordinales().length];
+        double[] similitudes = new double[ordinales.length];
+        int n = 0;
+        int desde = 0;
+        int largoB = b.ordinales().length;
+        for (int i = 0; i < a.ordinales().length && desde < largoB; i++) {
+            desde = buscarDesde(b.ordinales(), desde, largoB, a.ordinales()[i]);
+            if (desde < largoB && b.ordinales()[desde] == a.ordinales()[i]) {
+                ordinales[n] = a.ordinales()[i];
+                similitudes[n++] = a.similitudes()[i] + b.similitudes()[desde];
+                desde++;
+            }
+        }
+        return new Candidatos(Arrays.copyOf(ordinales, n), Arrays.copyOf(similitudes, n));
+    }
+
+    /**
+     * Distancia de edición con intercambio de letras vecinas (Damerau restringida), acotada:
+     * deja de calcular y retorna maximo + 1 en cuanto ya no puede quedar dentro del máximo
+     */
+    static int distancia(String a, String b, int maximo) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maximo) {
+            return maximo + 1;
+        }
+        int[] antePenultima = new int[m + 1];
+        int[] anterior = new int[m + 1];
+        int[] actual = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            anterior[j] = j;
+        }
+        int minimoAnterior = 0;
+        for (int i = 1; i <= n; i++) {
+            actual[0] = i;
+            int minimoFila = i;
+            for (int j = 1; j <= m; j++) {
+                int costo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(anterior[j] + 1, actual[j - 1] + 1), anterior[j - 1] + costo);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, antePenultima[j - 2] + 1);
+                }
+                actual[j] = d;
+                minimoFila = Math.min(minimoFila, d);
+            }
+            // El intercambio mira dos filas atrás: se corta solo si ambas ya superan el máximo
+            if (minimoFila > maximo && minimoAnterior > maximo) {
+                return maximo + 1;
+            }
+            minimoAnterior = minimoFila;
+            int[] libre = antePenultima;
+            antePenultima = anterior;
+            anterior = actual;
+            actual = libre;
+        }
+        return Math.min(anterior[m], maximo + 1);
+    }
+
+    private static void ofrecer(PriorityQueue<Coincidencia> mejores, int limite, Coincidencia coincidencia) {
+        if (mejores.size() < limite) {
+            mejores.add(coincidencia);
+        } else if (PEOR_PRIMERO.compare(coincidencia, mejores.peek()) > 0) {
+            mejores.poll();
+            mejores.add(coincidencia);
+        }
+    }
+
+    private void agregarSinLock(Long id, String nombre, String descripcion) {
+        if (id == null) {
+            return;
+        }
+        quitarSinLock(id);
+        int ordinal = siguienteOrdinal++;
+        if (ordinal == ids.length) {
+            int capacidad = ordinal + (ordinal >> 1);
+            ids = Arrays.copyOf(ids, capacidad);
+            nombres = Arrays.copyOf(nombres, capacidad);
+            descripciones = Arrays.copyOf(descripciones, capacidad);
+            largosNombres = Arrays.copyOf(largosNombres, capacidad);
+        }
+        ids[ordinal] = id;
+        nombres[ordinal] = NormalizadorTexto.normalizar(nombre);
+        descripciones[ordinal] = indexarDescripcion ? NormalizadorTexto.normalizar(descripcion) : "";
+        largosNombres[ordinal] = nombres[ordinal].length();
+        for (int trigrama : trigramas(nombres[ordinal])) {
+            postingsNombre.agregar(trigrama, ordinal);
+        }
+        for (int trigrama : trigramas(descripciones[ordinal])) {
+            postingsDescripcion.agregar(trigrama, ordinal);
+        }
+        indexarPalabras(ordinal);
+        vivos.set(ordinal);
+        ordinales.put(id, ordinal);
+    }
+
+    /**
+     * Agrega el ordinal a la lista de cada palabra distinta de su nombre; una palabra nueva entra
+     * al vocabulario con sus trigramas con bordes (" whey " tiene " wh", "whe", "hey" y "ey ")
+     */
+    private void indexarPalabras(int ordinal) {
+        if (nombres[ordinal].isEmpty()) {
+            return;
+        }
+        for (String palabra : new LinkedHashSet<>(Arrays.asList(nombres[ordinal].split(" ")))) {
+            Integer indice = palabras.get(palabra);
+            if (indice == null) {
+                indice = palabras.size();
+                if (indice == vocabulario.length) {
+                    vocabulario = Arrays.copyOf(vocabulario, indice + (indice >> 1));
+                }
+                vocabulario[indice] = palabra;
+                palabras.put(palabra, indice);
+                for (int trigrama : trigramas(" " + palabra + " ")) {
+                    trigramasPalabras.agregar(trigrama, indice);
+                }
+            }
+            ordinalesPorPalabra.agregar(indice, ordinal);
+        }
+    }
+
+    private void quitarSinLock(Long id) {
+        Integer ordinal = ordinales.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        vivos.clear(ordinal);
+        nombres[ordinal] = null;
+        descripciones[ordinal] = null;
+        eliminados++;
+        if (eliminados >= MIN_ELIMINADOS_COMPACTAR && eliminados > ordinales.size() / 4) {
+            compactar();
+        }
+    }
+
+    /**
+     * Reasigna ordinales consecutivos a los productos vivos y reconstruye las listas,
+     * sin volver a consultar la base de datos
+     */
+    private void compactar() {
+        long[] idsVivos = new long[ordinales.size()];
+        String[] nombresVivos = new String[idsVivos.length];
+        String[] descripcionesVivas = new String[idsVivos.length];
+        int n = 0;
+        for (int ordinal = vivos.nextSetBit(0); ordinal >= 0; ordinal = vivos.nextSetBit(ordinal + 1)) {
+            idsVivos[n] = ids[ordinal];
+            nombresVivos[n] = nombres[ordinal];
+            descripcionesVivas[n] = descripciones[ordinal];
+            n++;
+        }
+        limpiar();
+        for (int i = 0; i < n; i++) {
+            ids[i] = idsVivos[i];
+            nombres[i] = nombresVivos[i];
+            descripciones[i] = descripcionesVivas[i];
+            largosNombres[i] = nombres[i].length();
+            for (int trigrama : trigramas(nombres[i])) {
+                postingsNombre.agregar(trigrama, i);
+            }
+            for (int trigrama : trigramas(descripciones[i])) {
+                postingsDescripcion.agregar(trigrama, i);
+            }
+            indexarPalabras(i);
+            vivos.set(i);
+            ordinales.put(ids[i], i);
+        }
+        siguienteOrdinal = n;
+    }
+
+    private void limpiar() {
+        int capacidad = Math.max(1024, ordinales.size() + (ordinales.size() >> 2));
+        ids = new long[capacidad];
+        nombres = new String[capacidad];
+        descripciones = new String[capacidad];
+        largosNombres = new int[capacidad];
+        vivos = new BitSet();
+        ordinales.clear();
+        siguienteOrdinal = 0;
+        eliminados = 0;
+        postingsNombre = new Postings();
+        postingsDescripcion = new Postings();
+        palabras.clear();
+        vocabulario = new String[1024];
+        trigramasPalabras = new Postings();
+        ordinalesPorPalabra = new Postings(1024);
+    }
+
+    /**
+     * Intersección de las listas de todos los trigramas, empezando por la más corta.
+     * Cada elemento de la lista acumulada se busca en la siguiente con búsqueda exponencial,
+     * así una lista corta contra una muy larga no recorre la larga completa.
+     */
+    private static int[] intersectar(Postings postings, int[] trigramas) {
+        Integer[] orden = new Integer[trigramas.length];
+        for (int i = 0; i < orden.length; i++) {
+            orden[i] = trigramas[i];
+        }
+        Arrays.sort(orden, Comparator.comparingInt(t -> postings.largos[t]));
+        int primero = orden[0];
+        int largo = postings.largos[primero];
+        if (largo == 0) {
+            return new int[0];
+        }
+        int[] resultado = Arrays.copyOf(postings.listas[primero], largo);
+        for (int k = 1; k < orden.length && largo > 0; k++) {
+            int[] lista = postings.listas[orden[k]];
+            int largoLista = postings.largos[orden[k]];
+            int n = 0;
+            int desde = 0;
+            for (int i = 0; i < largo && desde < largoLista; i++) {
+                desde = buscarDesde(lista, desde, largoLista, resultado[i]);
+                if (desde < largoLista && lista[desde] == resultado[i]) {
+                    resultado[n++] = resultado[i];
+                    desde++;
+                }
+            }
+            largo = n;
+        }
+        return largo == resultado.length ? resultado : Arrays.copyOf(resultado, largo);
+    }
+
+    // Primer índice >= desde con lista[indice] >= valor (o largo si no hay)
+    private static int buscarDesde(int[] lista, int desde, int largo, int valor) {
+        int paso = 1;
+        int alto = desde;
+        while (alto < largo && lista[alto] < valor) {
+            desde = alto + 1;
+            alto += paso;
+            paso <<= 1;
+        }
+        alto = Math.min(alto, largo);
+        int bajo = desde;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (lista[medio] < valor) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    /**
+     * Trigramas distintos de un texto normalizado, codificados como int en base 37
+     */
+    static int[] trigramas(String texto) {
+        if (texto == null || texto.length() < 3) {
+            return new int[0];
+        }
+        int[] codigos = new int[texto.length() - 2];
+        for (int i = 0; i < codigos.length; i++) {
+            codigos[i] = (codigo(texto.charAt(i)) * ALFABETO + codigo(texto.charAt(i + 1))) * ALFABETO
+                    + codigo(texto.charAt(i + 2));
+        }
+        Arrays.sort(codigos);
+        int distintos = 0;
+        for (int i = 0; i < codigos.length; i++) {
+            if (i == 0 || codigos[i] != codigos[i - 1]) {
+                codigos[distintos++] = codigos[i];
+            }
+        }
+        return Arrays.copyOf(codigos, distintos);
+    }
+
+    private static int codigo(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return 0;
+    }
+}
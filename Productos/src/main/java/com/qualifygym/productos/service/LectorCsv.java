@@ -0,0 +1,99 @@
+package com.qualifygym.productos.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de CSV (RFC 4180) que entrega un registro a la vez, sin cargar el archivo en memoria.
+ * Acepta campos entre comillas con comas, saltos de línea y comillas escapadas ("").
+ * Un registro de más de largoMaximo caracteres no se acumula: se descarta hasta el siguiente salto de
+ * línea (aunque esté entre comillas) y la lectura sigue desde ahí.
+ */
+final class LectorCsv {
+
+    private final Reader reader;
+    private final int largoMaximo;
+    private long linea = 1;
+    private long lineaRegistro;
+
+    LectorCsv(Reader reader, int largoMaximo) {
+        this.reader = reader;
+        this.largoMaximo = largoMaximo;
+    }
+
+    /**
+     * @return Los campos del siguiente registro, o null al final del archivo
+     * @throws IllegalArgumentException si el registro supera largoMaximo caracteres (ya descartado)
+     */
+    List<String> leer() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        lineaRegistro = linea;
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        int largo = 0;
+        while (true) {
+            if (++largo > largoMaximo) {
+                descartarLinea(c);
+                throw new IllegalArgumentException("registro supera " + largoMaximo + " caracteres");
+            }
+            if (entreComillas) {
+                if (c == -1) {
+                    // Comillas sin cerrar al final del archivo: se entrega lo leído
+                    campos.add(campo.toString());
+                    return campos;
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c == '"') {
+                        campo.append('"');
+                        c = reader.read();
+                    } else {
+                        entreComillas = false;
+                    }
+                    continue;
+                }
+                if (c == '\n') {
+                    linea++;
+                }
+                campo.append((char) c);
+            } else if (c == '"' && campo.length() == 0) {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                if (c == '\n') {
+                    linea++;
+                }
+                campos.add(campo.toString());
+                return campos;
+            } else if (c != '\r') {
+                campo.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    // Descarta desde c hasta el siguiente salto de línea inclusive
+    private void descartarLinea(int c) throws IOException {
+        while (c != '\n' && c != -1) {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            linea++;
+        }
+    }
+
+    /**
+     * Línea del archivo en la que empezó el último registro leído (desde 1)
+     */
+    long lineaRegistro() {
+        return lineaRegistro;
+    }
+}
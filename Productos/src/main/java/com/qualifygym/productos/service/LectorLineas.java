@@ -0,0 +1,55 @@
+package com.qualifygym.productos.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Lector de líneas con largo máximo (para NDJSON): a diferencia de BufferedReader.readLine, una línea
+ * de más de largoMaximo caracteres no se acumula, se descarta hasta el siguiente salto de línea.
+ */
+final class LectorLineas {
+
+    private final Reader reader;
+    private final int largoMaximo;
+    private long linea;
+
+    LectorLineas(Reader reader, int largoMaximo) {
+        this.reader = reader;
+        this.largoMaximo = largoMaximo;
+    }
+
+    /**
+     * @return La siguiente línea sin el salto de línea (\n o \r\n), o null al final del archivo
+     * @throws IllegalArgumentException si la línea supera largoMaximo caracteres (ya descartada)
+     */
+    String leer() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        linea++;
+        // Queda en null cuando la línea se pasa del largo (admite el \r final de un \r\n)
+        StringBuilder texto = new StringBuilder();
+        while (c != '\n' && c != -1) {
+            if (texto != null && texto.length() >= largoMaximo && !(c == '\r' && texto.length() == largoMaximo)) {
+                texto = null;
+            }
+            if (texto != null) {
+                texto.append((char) c);
+            }
+            c = reader.read();
+        }
+        if (texto == null) {
+            throw new IllegalArgumentException("línea supera " + largoMaximo + " caracteres");
+        }
+        int fin = texto.length();
+        return fin > 0 && texto.charAt(fin - 1) == '\r' ? texto.substring(0, fin - 1) : texto.toString();
+    }
+
+    /**
+     * Número de la última línea leída (desde 1)
+     */
+    long linea() {
+        return linea;
+    }
+}
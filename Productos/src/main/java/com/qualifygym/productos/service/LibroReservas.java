@@ -0,0 +1,192 @@
+package com.qualifygym.productos.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.qualifygym.productos.model.ReservaStock;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Unidades reservadas por producto, en memoria, repartidas en franjas con su propio lock.
+ *
+ * Reservar compara el stock con lo ya reservado dentro del lock de la franja del producto,
+ * así dos reservas concurrentes del mismo producto no pueden tomar la misma unidad, y
+ * reservas de productos distintos casi nunca se esperan entre sí. La tabla reservas_stock
+ * es la copia durable: al iniciar se vuelve a cargar desde las reservas activas.
+ *
+ * Los descuentos directos de stock retienen sus unidades bajo el lock de la franja (retener), para
+ * que no tomen unidades que ya están reservadas por otros checkouts; el UPDATE se hace después,
+ * sin el lock. La importación y el ajuste masivo por categoría retienen varios productos a la vez, de a
+ * una franja (retener con un mapa).
+ */
+@Service
+public class LibroReservas {
+
+    @Value("${productos.reservas.franjas:64}")
+    private int cantidadFranjas;
+
+    private Franja[] franjas;
+
+    private static final class Franja {
+        private final Map<Long, Integer> reservado = new HashMap<>();
+    }
+
+    @PostConstruct
+    void init() {
+        franjas = new Franja[cantidadFranjas];
+        for (int i = 0; i < franjas.length; i++) {
+            franjas[i] = new Franja();
+        }
+    }
+
+    /**
+     * Reserva unidades si el stock disponible (stock menos lo reservado) alcanza
+     * @param stock - Lectura del stock actual; se hace dentro del lock para que una confirmación
+     *              concurrente (que baja el stock y luego libera la reserva) no se cuente dos veces
+     * @return true si se reservó
+     */
+    public boolean reservar(Long productoId, int cantidad, IntSupplier stock) {
+        Franja franja = franja(productoId);
+        synchronized (franja) {
+            int reservado = franja.reservado.getOrDefault(productoId, 0);
+            if (stock.getAsInt() - reservado < cantidad) {
+                return false;
+            }
+            franja.reservado.put(productoId, reservado + cantidad);
+            return true;
+        }
+    }
+
+    /**
+     * Retiene las unidades de un descuento de stock sin tomar las reservadas por otros. La verificación
+     * y la retención se hacen bajo el lock de la franja del producto; el llamador ejecuta el UPDATE
+     * después, ya sin el lock, así ninguna reserva de la franja espera a la base de datos. Desde la
+     * retención las reservas nuevas dejan de contar esas unidades, aunque hasta el commit todavía lean
+     * el stock anterior. Las unidades que no venían de una reserva propia (cantidad - reservadasPropias)
+     * quedan retenidas hasta que el llamador las libere: al terminar su transacción, o de inmediato si
+     * el UPDATE falla.
+     * @param cantidad - Unidades a descontar
+     * @param reservadasPropias - Unidades de esa cantidad que ya estaban reservadas por quien descuenta
+     * @param admite - Recibe el mínimo de stock que debe quedar (lo reservado por otros) y
+     *               retorna false si el stock no alcanza
+     * @return El mínimo verificado, para repetirlo como condición del UPDATE, o vacío si no se retuvo
+     */
+    public OptionalInt retener(Long productoId, int cantidad, int reservadasPropias, IntPredicate admite) {
+        Franja franja = franja(productoId);
+        synchronized (franja) {
+            int reservado = franja.reservado.getOrDefault(productoId, 0);
+            int minimo = Math.max(0, reservado - reservadasPropias);
+            if (!admite.test(minimo)) {
+                return OptionalInt.empty();
+            }
+            int retenidas = cantidad - reservadasPropias;
+            if (retenidas > 0) {
+                franja.reservado.put(productoId, reservado + retenidas);
+            }
+            return OptionalInt.of(minimo);
+        }
+    }
+
+    /**
+     * Versión de retener para varios productos. Solo se toman las franjas de esos productos, en orden
+     * de índice y de a una (nunca dos a la vez), y ninguna mientras se espera a la base de datos: el
+     * llamador bloquea y lee las filas antes y ejecuta el UPDATE después, excluyendo los no retenidos.
+     * Cada producto retenido queda con su descuento retenido hasta que el llamador lo libere.
+     * @param descuentos - Unidades a descontar por producto
+     * @param admite - Recibe el id y lo reservado para ese producto y retorna false si el stock no alcanza
+     * @return Los productos retenidos
+     */
+    public Set<Long> retener(Map<Long, Integer> descuentos, BiPredicate<Long, Integer> admite) {
+        Map<Integer, List<Long>> porFranja = new TreeMap<>();
+        for (Long productoId : descuentos.keySet()) {
+            porFranja.computeIfAbsent(indice(productoId), i -> new ArrayList<>()).add(productoId);
+        }
+        Set<Long> retenidos = new HashSet<>();
+        porFranja.forEach((indice, productos) -> {
+            Franja franja = franjas[indice];
+            synchronized (franja) {
+                for (Long productoId : productos) {
+                    int reservado = franja.reservado.getOrDefault(productoId, 0);
+                    if (admite.test(productoId, reservado)) {
+                        franja.reservado.put(productoId, reservado + descuentos.get(productoId));
+                        retenidos.add(productoId);
+                    }
+                }
+            }
+        });
+        return retenidos;
+    }
+
+    /**
+     * Devuelve unidades reservadas (reserva confirmada, liberada o expirada)
+     */
+    public void liberar(Long productoId, int cantidad) {
+        Franja franja = franja(productoId);
+        synchronized (franja) {
+            int restante = franja.reservado.getOrDefault(productoId, 0) - cantidad;
+            if (restante > 0) {
+                franja.reservado.put(productoId, restante);
+            } else {
+                franja.reservado.remove(productoId);
+            }
+        }
+    }
+
+    public int reservado(Long productoId) {
+        Franja franja = franja(productoId);
+        synchronized (franja) {
+            return franja.reservado.getOrDefault(productoId, 0);
+        }
+    }
+
+    /**
+     * Reemplaza el contenido con las reservas activas guardadas
+     */
+    public void cargar(Collection<ReservaStock> activas) {
+        for (Franja franja : franjas) {
+            synchronized (franja) {
+                franja.reservado.clear();
+            }
+        }
+        for (ReservaStock reserva : activas) {
+            Franja franja = franja(reserva.getProductoId());
+            synchronized (franja) {
+                franja.reservado.merge(reserva.getProductoId(), reserva.getCantidad(), Integer::sum);
+            }
+        }
+    }
+
+    public long totalReservado() {
+        long total = 0;
+        for (Franja franja : franjas) {
+            synchronized (franja) {
+                for (int cantidad : franja.reservado.values()) {
+                    total += cantidad;
+                }
+            }
+        }
+        return total;
+    }
+
+    private Franja franja(Long productoId) {
+        return franjas[indice(productoId)];
+    }
+
+    private int indice(Long productoId) {
+        return Math.floorMod(Long.hashCode(productoId), franjas.length);
+    }
+}
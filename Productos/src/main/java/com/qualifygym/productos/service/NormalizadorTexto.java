@@ -0,0 +1,49 @@
+package com.qualifygym.productos.service;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Normaliza texto para búsquedas: minúsculas, sin tildes ni diéresis, y todo lo que no sea
+ * letra (a-z) o dígito se convierte en un espacio. "Proteína  Whey-2kg" queda "proteina whey 2kg".
+ */
+public final class NormalizadorTexto {
+
+    private NormalizadorTexto() {
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return "";
+        }
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(descompuesto.length());
+        boolean espacioPendiente = false;
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            c = Character.toLowerCase(c);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (espacioPendiente && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                espacioPendiente = false;
+                sb.append(c);
+            } else {
+                espacioPendiente = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Palabras distintas del texto normalizado, las que se guardan en productos_tokens
+     */
+    public static List<String> palabras(String texto) {
+        String normalizado = normalizar(texto);
+        return normalizado.isEmpty() ? List.of() : Arrays.stream(normalizado.split(" ")).distinct().toList();
+    }
+}
@@ -1,13 +1,44 @@
 package com.qualifygym.productos.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 
+import com.qualifygym.productos.model.CambioProducto;
+import com.qualifygym.productos.model.LoteProductos;
+import com.qualifygym.productos.model.PaginaProductos;
 import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoAtributos;
+import com.qualifygym.productos.model.ProductoTexto;
+import com.qualifygym.productos.model.ResincronizacionProductos;
+import com.qualifygym.productos.model.ResultadoFiltro;
+import com.qualifygym.productos.model.Sugerencia;
+import com.qualifygym.productos.model.TokenProducto;
 import com.qualifygym.productos.repository.ProductoRepository;
+import com.qualifygym.productos.repository.TokenProductoRepository;
 
 import jakarta.transaction.Transactional;
 
@@ -15,24 +46,301 @@ import jakarta.transaction.Transactional;
 @Transactional
 public class ProductoService {
 
+    private static final int MAX_TAMANO_PAGINA = 100;
+    private static final int TAMANO_PAGINA_POR_DEFECTO = 20;
+    private static final int TAMANO_LOTE_TOKENS = 1000;
+    private static final int TAMANO_LOTE_CATEGORIA = 10_000;
+
     @Autowired
     private ProductoRepository productoRepository;
 
+    @Autowired
+    private TokenProductoRepository tokenProductoRepository;
+
+    @Autowired
+    private IndiceTrigramas indiceTrigramas;
+
+    @Autowired
+    private CacheCatalogo cacheCatalogo;
+
+    @Autowired
+    private IndiceFiltros indiceFiltros;
+
+    @Autowired
+    private DifusorCambios difusorCambios;
+
+    @Autowired
+    private IndiceAutocompletado indiceAutocompletado;
+
+    @Autowired
+    private LibroReservas libroReservas;
+
+    @Value("${productos.batch.max-ids:500}")
+    private int maxIdsPorLote;
+
+    @Value("${productos.busqueda.max-resultados:100}")
+    private int maxResultadosBusqueda;
+
+    /**
+     * Ids y versiones de los productos de una categoría leídos (y bloqueados) antes de una
+     * actualización masiva, en arreglos ordenados por id (se leen por keyset), para reconocer
+     * después cuáles modificó el UPDATE
+     */
+    private static final class EstadoPrevio {
+        private long[] ids = new long[1024];
+        private long[] versiones = new long[1024];
+        private int tamano;
+
+        void agregar(ProductoAtributos atributos) {
+            if (tamano == ids.length) {
+                int capacidad = tamano + (tamano >> 1);
+                ids = Arrays.copyOf(ids, capacidad);
+                versiones = Arrays.copyOf(versiones, capacidad);
+            }
+            ids[tamano] = atributos.id();
+            versiones[tamano] = version(atributos);
+            tamano++;
+        }
+
+        // Un producto que no estaba en la lectura previa se toma como cambiado: reindexarlo no cuesta nada
+        boolean cambio(ProductoAtributos despues) {
+            int i = Arrays.binarySearch(ids, 0, tamano, despues.id());
+            return i < 0 || versiones[i] != version(despues);
+        }
+
+        private static long version(ProductoAtributos atributos) {
+            return atributos.version() != null ? atributos.version() : -1;
+        }
+    }
+
+    // Las lecturas cacheadas guardan copias propias de los productos (no las entidades de la sesión)
+    // y entregan otra copia en cada acierto: quien modifique lo que recibe no cambia lo que ven los demás
+
     public List<Producto> obtenerTodos() {
-        return productoRepository.findAll();
+        return copias(cacheCatalogo.obtener("todos", () -> copias(productoRepository.findAll())));
     }
 
     public Producto obtenerPorId(Long id) {
-        return productoRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Producto no encontrado ID: " + id));
+        return cacheCatalogo.obtener("id:" + id, () -> productoRepository.findById(id)
+                .map(Producto::copia)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado ID: " + id)))
+                .copia();
+    }
+
+    /**
+     * Obtiene varios productos por id con una sola consulta (findAllById) para los que no están en la caché
+     * @param ids - Ids pedidos; los repetidos se devuelven una sola vez
+     * @return Los productos en el orden pedido y los ids que no existen
+     * @throws IllegalArgumentException si no hay ids o superan productos.batch.max-ids
+     */
+    public LoteProductos obtenerPorIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Se requiere al menos un id");
+        }
+        LinkedHashSet<Long> unicos = new LinkedHashSet<>(ids);
+        unicos.remove(null);
+        if (unicos.isEmpty()) {
+            throw new IllegalArgumentException("Se requiere al menos un id");
+        }
+        if (unicos.size() > maxIdsPorLote) {
+            throw new IllegalArgumentException("Se permiten como máximo " + maxIdsPorLote + " ids por consulta");
+        }
+
+        // Misma clave que obtenerPorId: el lote aprovecha lo que ya está en caché y viceversa
+        Map<String, Producto> porClave = cacheCatalogo.obtenerVarios(
+                unicos.stream().map(id -> "id:" + id).toList(),
+                faltantes -> productoRepository.findAllById(faltantes.stream()
+                        .map(clave -> Long.valueOf(clave.substring(3)))
+                        .toList())
+                        .stream()
+                        .collect(Collectors.toMap(p -> "id:" + p.getId(), Producto::copia)));
+
+        List<Producto> productos = new ArrayList<>(unicos.size());
+        List<Long> noEncontrados = new ArrayList<>();
+        for (Long id : unicos) {
+            Producto producto = porClave.get("id:" + id);
+            if (producto != null) {
+                productos.add(producto.copia());
+            } else {
+                noEncontrados.add(id);
+            }
+        }
+        return new LoteProductos(productos, noEncontrados);
     }
 
     public List<Producto> obtenerPorCategoria(String categoria) {
-        return productoRepository.findByCategoria(categoria);
+        return copias(cacheCatalogo.obtener("categoria:" + categoria,
+                () -> copias(productoRepository.findByCategoria(categoria))));
+    }
+
+    private static List<Producto> copias(List<Producto> productos) {
+        return productos.stream().map(Producto::copia).toList();
     }
 
+    /**
+     * Página del listado (todo el catálogo o una categoría) con paginación por keyset
+     * @param categoria - Categoría a listar, o null para todo el catálogo
+     * @param orden - id, precio o nombre (id por defecto); siempre desempata por id
+     * @param direccion - asc (por defecto) o desc
+     * @param cursor - siguienteCursor de la página anterior, o null para la primera
+     * @param limite - Productos por página (20 por defecto, máximo 100)
+     * @throws IllegalArgumentException si el orden, la dirección, el límite o el cursor no son válidos
+     */
+    public PaginaProductos obtenerPagina(String categoria, String orden, String direccion, String cursor, Integer limite) {
+        String campo = orden != null ? orden : "id";
+        if (!CursorProductos.CAMPOS.contains(campo)) {
+            throw new IllegalArgumentException("Orden inválido: use id, precio o nombre");
+        }
+        Sort.Direction sentido = Sort.Direction.fromOptionalString(direccion != null ? direccion : "asc")
+                .orElseThrow(() -> new IllegalArgumentException("Dirección inválida: use asc o desc"));
+        int tamano = limite != null ? limite : TAMANO_PAGINA_POR_DEFECTO;
+        if (tamano <= 0 || tamano > MAX_TAMANO_PAGINA) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_TAMANO_PAGINA);
+        }
+        ScrollPosition posicion = CursorProductos.decodificar(cursor, campo, sentido);
+
+        String clave = "pagina:" + Objects.toString(categoria, "") + ":" + campo + ":" + sentido + ":"
+                + Objects.toString(cursor, "") + ":" + tamano;
+        PaginaProductos pagina = cacheCatalogo.obtener(clave, () -> {
+            Sort sort = CursorProductos.orden(campo, sentido);
+            Window<Producto> ventana = categoria == null
+                    ? productoRepository.findBy(posicion, sort, Limit.of(tamano))
+                    : productoRepository.findByCategoria(categoria, posicion, sort, Limit.of(tamano));
+            List<Producto> productos = copias(ventana.getContent());
+            String siguiente = ventana.hasNext() && !productos.isEmpty()
+                    ? CursorProductos.codificar(campo, sentido, productos.get(productos.size() - 1))
+                    : null;
+            return new PaginaProductos(productos, siguiente);
+        });
+        return new PaginaProductos(copias(pagina.productos()), pagina.siguienteCursor());
+    }
+
+    /**
+     * Versión de un producto según el índice de filtros, sin ir a la caché ni a la base de datos
+     * @return La versión, o vacío si el producto no está indexado (o el índice aún se construye)
+     */
+    public OptionalLong versionIndexada(Long id) {
+        return indiceFiltros.version(id);
+    }
+
+    /**
+     * Versión del catálogo: cambia con cada alta, edición, baja o cambio de stock
+     */
+    public long versionCatalogo() {
+        return cacheCatalogo.version();
+    }
+
+    /**
+     * Busca productos por nombre o descripción, ordenados por relevancia
+     * (primero las coincidencias en el nombre, luego las de la descripción).
+     * Si el texto exacto no aparece en ningún producto, tolera errores de tipeo en el nombre
+     * ("cretina" encuentra "Creatina"), ordenando por parecido
+     */
     public List<Producto> buscarPorNombre(String nombre) {
-        return productoRepository.findByNombreContainingIgnoreCase(nombre);
+        if (!indiceTrigramas.admite(nombre)) {
+            // Menos de 3 caracteres (o índice aún en construcción): nombres con palabras que empiezan con
+            // las de la consulta, por rango sobre productos_tokens, así "pesas cint" encuentra "Cinturón de Pesas"
+            List<String> palabras = NormalizadorTexto.palabras(nombre);
+            return palabras.isEmpty() ? List.of() : buscarPorPalabras(palabras);
+        }
+        List<Long> ids = indiceTrigramas.buscar(nombre);
+        if (ids.isEmpty()) {
+            ids = indiceTrigramas.buscarAproximado(nombre);
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Producto> porId = productoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Producto::getId, Function.identity()));
+        return ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+    }
+
+    // Recorre por rango de productos_tokens la palabra más larga de la consulta (la más selectiva) y se
+    // queda con los productos cuyo nombre tiene también palabras que empiezan con cada una de las demás,
+    // en orden de palabra y de id
+    private List<Producto> buscarPorPalabras(List<String> palabras) {
+        String guia = palabras.stream().max(Comparator.comparingInt(String::length)).orElseThrow();
+        Map<Long, Producto> encontrados = new LinkedHashMap<>();
+        String token = "";
+        long productoId = 0;
+        List<TokenProducto> lote;
+        do {
+            lote = tokenProductoRepository.findPorPrefijoDesde(guia, token, productoId,
+                    PageRequest.of(0, maxResultadosBusqueda));
+            if (lote.isEmpty()) {
+                break;
+            }
+            List<Long> ids = lote.stream().map(TokenProducto::getProductoId)
+                    .filter(id -> !encontrados.containsKey(id)).distinct().toList();
+            Map<Long, Producto> porId = productoRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Producto::getId, Function.identity()));
+            for (Long id : ids) {
+                Producto producto = porId.get(id);
+                if (producto != null && contienePalabras(producto.getNombre(), palabras)) {
+                    encontrados.put(id, producto);
+                    if (encontrados.size() == maxResultadosBusqueda) {
+                        break;
+                    }
+                }
+            }
+            TokenProducto ultimo = lote.get(lote.size() - 1);
+            token = ultimo.getToken();
+            productoId = ultimo.getProductoId();
+        } while (lote.size() == maxResultadosBusqueda && encontrados.size() < maxResultadosBusqueda);
+        return List.copyOf(encontrados.values());
+    }
+
+    private static boolean contienePalabras(String nombre, List<String> palabras) {
+        List<String> delNombre = NormalizadorTexto.palabras(nombre);
+        return palabras.stream().allMatch(palabra -> delNombre.stream().anyMatch(p -> p.startsWith(palabra)));
+    }
+
+    // Guarda en productos_tokens las palabras del nombre del producto, reemplazando las anteriores si las tenía
+    private void guardarTokens(Producto producto, boolean reemplazar) {
+        if (reemplazar) {
+            tokenProductoRepository.eliminarPorProducto(producto.getId());
+        }
+        tokenProductoRepository.saveAll(NormalizadorTexto.palabras(producto.getNombre()).stream()
+                .map(palabra -> new TokenProducto(palabra, producto.getId())).toList());
+    }
+
+    /**
+     * Sugerencias para lo escrito en el buscador, desde el trie de autocompletado (sin consultar la base de datos)
+     * @throws IllegalArgumentException si el límite no está entre 1 y productos.autocompletado.max-sugerencias
+     * @throws IllegalStateException si el índice aún se está construyendo
+     */
+    public List<Sugerencia> autocompletar(String texto, int limite) {
+        if (limite <= 0 || limite > indiceAutocompletado.maxSugerencias()) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + indiceAutocompletado.maxSugerencias());
+        }
+        if (!indiceAutocompletado.construido()) {
+            throw new IllegalStateException("El índice de autocompletado aún se está construyendo");
+        }
+        return indiceAutocompletado.sugerir(texto, limite);
+    }
+
+    /**
+     * Filtra el catálogo combinando categoría, rango de precio, disponibilidad y términos del nombre,
+     * con conteos por faceta. Se resuelve con IndiceFiltros; solo la página pedida se lee de la
+     * base de datos (o de la caché)
+     * @throws IllegalArgumentException si la página o el rango de precio no son válidos
+     * @throws IllegalStateException si el índice aún se está construyendo
+     */
+    public ResultadoFiltro filtrar(List<String> categorias, Double precioMin, Double precioMax,
+            boolean soloConStock, String texto, int pagina, int tamano) {
+        if (pagina < 0 || tamano <= 0 || tamano > MAX_TAMANO_PAGINA) {
+            throw new IllegalArgumentException("La página debe ser >= 0 y el tamaño entre 1 y " + MAX_TAMANO_PAGINA);
+        }
+        if (precioMin != null && precioMax != null && precioMin > precioMax) {
+            throw new IllegalArgumentException("El precio mínimo no puede ser mayor que el máximo");
+        }
+        if (!indiceFiltros.construido()) {
+            throw new IllegalStateException("El índice de filtros aún se está construyendo");
+        }
+        IndiceFiltros.Resultado resultado = indiceFiltros.filtrar(categorias, precioMin, precioMax,
+                soloConStock, texto, (long) pagina * tamano, tamano);
+        List<Producto> productos = resultado.ids().isEmpty() ? List.of() : obtenerPorIds(resultado.ids()).productos();
+        return new ResultadoFiltro(resultado.total(), productos, resultado.facetas());
     }
 
     public Producto crearProducto(String nombre, String descripcion, Double precio, String categoria, String imagen, Integer stock) {
@@ -43,12 +351,21 @@ public class ProductoService {
         producto.setCategoria(categoria);
         producto.setImagen(imagen);
         producto.setStock(stock);
-        return productoRepository.save(producto);
+        Producto guardado = productoRepository.save(producto);
+        guardarTokens(guardado, false);
+        indiceTrigramas.indexar(guardado);
+        indiceFiltros.indexar(guardado);
+        indiceAutocompletado.indexar(guardado);
+        cacheCatalogo.invalidar();
+        return guardado;
     }
 
     public Producto actualizarProducto(Long id, String nombre, String descripcion, Double precio, String categoria, String imagen, Integer stock) {
         Producto producto = productoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado ID: " + id));
+        String nombreAnterior = producto.getNombre();
+        Double precioAnterior = producto.getPrecio();
+        Integer stockAnterior = producto.getStock();
 
         if (nombre != null && !nombre.trim().isEmpty()) {
             producto.setNombre(nombre);
@@ -69,18 +386,262 @@ public class ProductoService {
             producto.setStock(stock);
         }
 
-        return productoRepository.save(producto);
+        Producto guardado;
+        int descuento = stock != null && stockAnterior != null ? stockAnterior - stock : 0;
+        if (descuento > 0) {
+            // Bajar el stock no puede dejar menos unidades que las reservadas por los checkouts en curso:
+            // se verifica y se retiene bajo el lock de la franja, y se guarda después de soltarlo
+            if (libroReservas.retener(id, descuento, 0, minimo -> stock >= minimo).isEmpty()) {
+                throw new IllegalStateException("El stock no puede quedar por debajo de las unidades reservadas del producto ID: " + id);
+            }
+            try {
+                productoRepository.saveAndFlush(producto);
+            } catch (RuntimeException e) {
+                libroReservas.liberar(id, descuento);
+                throw e;
+            }
+            TrasCommit.alTerminar(() -> libroReservas.liberar(id, descuento));
+            guardado = producto;
+        } else {
+            guardado = productoRepository.save(producto);
+        }
+        if (!Objects.equals(nombreAnterior, guardado.getNombre())) {
+            guardarTokens(guardado, true);
+        }
+        indiceTrigramas.indexar(guardado);
+        indiceFiltros.indexar(guardado);
+        indiceAutocompletado.indexar(guardado);
+        cacheCatalogo.invalidar();
+        boolean cambioPrecio = !Objects.equals(precioAnterior, guardado.getPrecio());
+        boolean cambioStock = !Objects.equals(stockAnterior, guardado.getStock());
+        if (cambioPrecio || cambioStock) {
+            // Después del commit, cuando la versión ya se incrementó
+            TrasCommit.ejecutar(() -> difusorCambios.publicar(new CambioProducto(id, guardado.getVersion(),
+                    guardado.getStock(), cambioStock ? guardado.getStock() - stockAnterior : null,
+                    guardado.getPrecio(), cambioPrecio ? precioAnterior : null)));
+        }
+        return guardado;
+    }
+
+    /**
+     * Ajusta el precio (en porcentaje o en un monto fijo) o el stock de todos los productos de una
+     * categoría con un solo UPDATE, en una transacción, en vez de una edición por producto. Las filas
+     * de la categoría se bloquean (SELECT ... FOR UPDATE) antes del UPDATE, así la relectura posterior
+     * reconoce exactamente las que cambió. Los productos cuyo precio o stock quedaría negativo, o cuyo
+     * stock no cubriría lo reservado por los checkouts en curso, no se modifican. Después del commit se
+     * actualiza el índice de filtros con los productos cambiados y se publica un solo evento "resync"
+     * de la categoría a los clientes de /eventos; la caché se invalida una sola vez. Los índices de
+     * búsqueda y de autocompletado no cambian: el nombre no se modifica y el ajuste de stock no cuenta como venta
+     * @param categoria - Categoría a actualizar
+     * @param porcentajePrecio - Variación porcentual del precio (-10 = 10% de descuento)
+     * @param montoPrecio - Monto a sumar (o restar, si es negativo) al precio
+     * @param cantidadStock - Unidades a sumar (o restar, si es negativa) al stock
+     * @return Cantidad de productos actualizados
+     * @throws IllegalArgumentException si falta la categoría, no se indica exactamente un ajuste o el ajuste no es válido
+     */
+    public int actualizarCategoria(String categoria, Double porcentajePrecio, Double montoPrecio, Integer cantidadStock) {
+        if (categoria == null || categoria.isBlank()) {
+            throw new IllegalArgumentException("La categoría es requerida");
+        }
+        if (Stream.of(porcentajePrecio, montoPrecio, cantidadStock).filter(Objects::nonNull).count() != 1) {
+            throw new IllegalArgumentException("Indique uno y solo uno de porcentajePrecio, montoPrecio o cantidadStock");
+        }
+        if (porcentajePrecio != null && (!Double.isFinite(porcentajePrecio) || porcentajePrecio <= -100 || porcentajePrecio == 0)) {
+            throw new IllegalArgumentException("porcentajePrecio debe ser mayor que -100 y distinto de 0");
+        }
+        if (montoPrecio != null && (!Double.isFinite(montoPrecio) || montoPrecio == 0)) {
+            throw new IllegalArgumentException("montoPrecio debe ser un número distinto de 0");
+        }
+        if (cantidadStock != null && cantidadStock == 0) {
+            throw new IllegalArgumentException("cantidadStock debe ser distinto de 0");
+        }
+
+        int actualizados;
+        if (cantidadStock == null) {
+            double factor = porcentajePrecio != null ? 1 + porcentajePrecio / 100 : 1;
+            double monto = montoPrecio != null ? montoPrecio : 0;
+            actualizados = ajustarCategoria(categoria, lote -> List.of(),
+                    excluidos -> productoRepository.ajustarPrecioPorCategoria(categoria, factor, monto),
+                    indiceFiltros::indexarTodos);
+        } else if (cantidadStock > 0) {
+            actualizados = ajustarCategoria(categoria, lote -> List.of(),
+                    excluidos -> productoRepository.ajustarStockPorCategoria(categoria, cantidadStock, excluidos),
+                    indiceFiltros::indexarTodos);
+        } else {
+            // Un descuento no puede dejar menos stock que lo reservado: por cada lote bloqueado se retienen
+            // sus unidades en el libro (solo las franjas de esos productos, de a una), y lo descontado queda
+            // retenido hasta que termine la transacción. Los que no se pueden retener se excluyen del UPDATE
+            actualizados = ajustarCategoria(categoria,
+                    lote -> retenerDescuento(lote, -cantidadStock),
+                    excluidos -> productoRepository.ajustarStockPorCategoria(categoria, cantidadStock, excluidos),
+                    indiceFiltros::indexarTodos);
+        }
+        if (actualizados == 0) {
+            return 0;
+        }
+        // Un solo aviso por categoría: los clientes vuelven a leer el listado en vez de recibir un evento por producto
+        TrasCommit.ejecutar(() -> difusorCambios.publicar(
+                new ResincronizacionProductos(ResincronizacionProductos.CATEGORIA, categoria)));
+        cacheCatalogo.invalidar();
+        return actualizados;
+    }
+
+    // Retiene el descuento de los productos del lote que lo admiten (el UPDATE ya descarta los que
+    // quedarían negativos) hasta que termine la transacción; retorna los que no cubrirían lo reservado
+    private List<Long> retenerDescuento(List<ProductoAtributos> lote, int descuento) {
+        Map<Long, Integer> descuentos = new HashMap<>();
+        Map<Long, Integer> stockNuevo = new HashMap<>();
+        for (ProductoAtributos atributos : lote) {
+            if (atributos.stock() != null && atributos.stock() >= descuento) {
+                descuentos.put(atributos.id(), descuento);
+                stockNuevo.put(atributos.id(), atributos.stock() - descuento);
+            }
+        }
+        Set<Long> retenidos = libroReservas.retener(descuentos, (id, reservado) -> stockNuevo.get(id) >= reservado);
+        TrasCommit.alTerminar(() -> retenidos.forEach(id -> libroReservas.liberar(id, descuento)));
+        return descuentos.keySet().stream().filter(id -> !retenidos.contains(id)).sorted().toList();
+    }
+
+    /**
+     * Bloquea las filas de la categoría, ejecuta el UPDATE y las relee en la misma transacción (ya ven
+     * el UPDATE): los cambiados son los que subieron de versión
+     * @param excluir - Recibe cada lote bloqueado y retorna los productos que el UPDATE no debe tocar
+     * @param actualizacion - Ejecuta el UPDATE con los ids excluidos y retorna las filas cambiadas
+     * @param cambiados - Recibe los productos cambiados, por lotes
+     */
+    private int ajustarCategoria(String categoria, Function<List<ProductoAtributos>, List<Long>> excluir,
+            ToIntFunction<List<Long>> actualizacion, Consumer<List<ProductoAtributos>> cambiados) {
+        EstadoPrevio previo = new EstadoPrevio();
+        List<Long> excluidos = new ArrayList<>();
+        recorrerCategoria(categoria, true, lote -> {
+            lote.forEach(previo::agregar);
+            excluidos.addAll(excluir.apply(lote));
+        });
+        // NOT IN con una lista vacía no es SQL válido en todas las bases: 0 no es un id generado
+        if (excluidos.isEmpty()) {
+            excluidos.add(0L);
+        }
+        int actualizados = actualizacion.applyAsInt(excluidos);
+        if (actualizados > 0) {
+            recorrerCategoria(categoria, false, lote -> cambiados.accept(lote.stream().filter(previo::cambio).toList()));
+        }
+        return actualizados;
+    }
+
+    // Atributos de una categoría por lotes de ids crecientes, opcionalmente bloqueando las filas
+    private void recorrerCategoria(String categoria, boolean bloquear, Consumer<List<ProductoAtributos>> accion) {
+        long cursor = 0;
+        List<ProductoAtributos> lote;
+        do {
+            PageRequest pagina = PageRequest.of(0, TAMANO_LOTE_CATEGORIA);
+            lote = bloquear
+                    ? productoRepository.bloquearAtributosPorCategoriaDesde(categoria, cursor, pagina)
+                    : productoRepository.findAtributosPorCategoriaDesde(categoria, cursor, pagina);
+            if (!lote.isEmpty()) {
+                accion.accept(lote);
+                cursor = lote.get(lote.size() - 1).id();
+            }
+        } while (lote.size() == TAMANO_LOTE_CATEGORIA);
+    }
+
+    /**
+     * Completa las palabras en productos_tokens de los productos que no las tienen (guardados antes de
+     * que existiera la tabla o insertados sin pasar por este servicio), por lotes de ids crecientes
+     * @return Cantidad de productos completados
+     */
+    public int completarTokensBusqueda() {
+        int total = 0;
+        long cursor = 0;
+        List<ProductoTexto> lote;
+        do {
+            lote = productoRepository.findSinTokensDesde(cursor, PageRequest.of(0, TAMANO_LOTE_TOKENS));
+            List<TokenProducto> tokens = new ArrayList<>();
+            for (ProductoTexto texto : lote) {
+                NormalizadorTexto.palabras(texto.nombre()).forEach(palabra -> tokens.add(new TokenProducto(palabra, texto.id())));
+                cursor = texto.id();
+            }
+            tokenProductoRepository.saveAll(tokens);
+            total += lote.size();
+        } while (lote.size() == TAMANO_LOTE_TOKENS);
+        return total;
     }
 
     public void eliminarProducto(Long id) {
+        tokenProductoRepository.eliminarPorProducto(id);
         productoRepository.deleteById(id);
+        indiceTrigramas.eliminar(id);
+        indiceFiltros.eliminar(id);
+        indiceAutocompletado.eliminar(id);
+        cacheCatalogo.invalidar();
     }
 
+    /**
+     * Suma (o resta, si es negativa) una cantidad al stock con un solo UPDATE condicional:
+     * dos ajustes concurrentes no se pisan y el stock nunca queda por debajo de las unidades
+     * reservadas por los checkouts en curso (LibroReservas)
+     * @throws IllegalStateException si no hay stock disponible suficiente
+     */
     public void actualizarStock(Long id, Integer cantidad) {
-        Producto producto = productoRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Producto no encontrado ID: " + id));
-        producto.setStock(producto.getStock() + cantidad);
-        productoRepository.save(producto);
+        ajustarStock(id, cantidad, 0, false);
+    }
+
+    /**
+     * Descuenta del stock las unidades de una reserva que se confirma y las cuenta como vendidas.
+     * Esas unidades ya están reservadas, así que solo se verifica que el stock cubra las reservas
+     * de los demás
+     * @throws IllegalStateException si no hay stock suficiente
+     */
+    public void confirmarStock(Long id, int cantidad) {
+        ajustarStock(id, -cantidad, cantidad, true);
+    }
+
+    private void ajustarStock(Long id, int cantidad, int reservadasPropias, boolean venta) {
+        boolean ajustado;
+        if (cantidad >= 0) {
+            ajustado = productoRepository.ajustarStock(id, cantidad, 0) > 0;
+        } else {
+            // Lo reservado por otros se lee y las unidades se retienen bajo el lock de la franja; el UPDATE
+            // corre después de soltarlo y verifica ese mínimo contra el stock de la fila
+            int minimo = libroReservas.retener(id, -cantidad, reservadasPropias, m -> true).getAsInt();
+            int retenidas = -cantidad - reservadasPropias;
+            try {
+                ajustado = (venta
+                        ? productoRepository.venderStock(id, -cantidad, minimo)
+                        : productoRepository.ajustarStock(id, cantidad, minimo)) > 0;
+            } catch (RuntimeException e) {
+                liberarRetenidas(id, retenidas);
+                throw e;
+            }
+            if (!ajustado) {
+                liberarRetenidas(id, retenidas);
+            } else if (retenidas > 0) {
+                TrasCommit.alTerminar(() -> libroReservas.liberar(id, retenidas));
+            }
+        }
+        if (!ajustado) {
+            if (!productoRepository.existsById(id)) {
+                throw new RuntimeException("Producto no encontrado ID: " + id);
+            }
+            throw new IllegalStateException("Stock insuficiente para el producto ID: " + id);
+        }
+        // El UPDATE no carga la entidad: se releen los atributos para mover el producto de tramo de stock
+        productoRepository.findAtributosById(id).ifPresent(atributos -> {
+            indiceFiltros.indexar(atributos);
+            TrasCommit.ejecutar(() -> difusorCambios.publicar(new CambioProducto(id, atributos.version(),
+                    atributos.stock(), cantidad, atributos.precio(), null)));
+        });
+        if (venta) {
+            // Solo las ventas suben el producto en el autocompletado, no los ajustes de inventario
+            indiceAutocompletado.sumarVendidos(id, -cantidad);
+        }
+        cacheCatalogo.invalidar();
+    }
+
+    // Compensa una retención cuyo UPDATE no se hizo
+    private void liberarRetenidas(Long id, int retenidas) {
+        if (retenidas > 0) {
+            libroReservas.liberar(id, retenidas);
+        }
     }
 }
 
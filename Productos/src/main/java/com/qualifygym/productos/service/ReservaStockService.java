@@ -0,0 +1,172 @@
+package com.qualifygym.productos.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.qualifygym.productos.model.EstadoReserva;
+import com.qualifygym.productos.model.ReservaStock;
+import com.qualifygym.productos.repository.ProductoRepository;
+import com.qualifygym.productos.repository.ReservaStockRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+
+/**
+ * Reservas de stock con vencimiento para el checkout.
+ *
+ * Reservar no modifica la tabla productos: el stock disponible es el stock guardado menos lo
+ * reservado en LibroReservas, y la reserva se guarda en reservas_stock. Solo al confirmar se
+ * descuenta el stock, con el UPDATE condicional de ProductoService.confirmarStock. Una reserva
+ * que no se confirma ni libera a tiempo la devuelve el barrido periódico, por lotes.
+ *
+ * El libro de reservas vive en memoria: con varias instancias cada una vería solo sus reservas.
+ */
+@Service
+public class ReservaStockService {
+
+    @Autowired
+    private ReservaStockRepository reservaStockRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private LibroReservas libroReservas;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${productos.reservas.ttl-s:900}")
+    private long ttlSegundos;
+
+    @Value("${productos.reservas.lote-barrido:500}")
+    private int loteBarrido;
+
+    private Counter rechazadas;
+    private Counter expiradas;
+
+    @PostConstruct
+    void init() {
+        rechazadas = Counter.builder("productos.reservas.rechazadas")
+                .description("Reservas rechazadas por stock insuficiente")
+                .register(meterRegistry);
+        expiradas = Counter.builder("productos.reservas.expiradas")
+                .description("Reservas devueltas por el barrido al vencer")
+                .register(meterRegistry);
+        Gauge.builder("productos.reservas.unidades", libroReservas, LibroReservas::totalReservado)
+                .description("Unidades retenidas por reservas activas")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        libroReservas.cargar(reservaStockRepository.findByEstado(EstadoReserva.ACTIVA));
+    }
+
+    /**
+     * Retiene stock de un producto durante productos.reservas.ttl-s segundos
+     * @throws IllegalArgumentException si la cantidad no es positiva
+     * @throws IllegalStateException si no hay stock disponible suficiente
+     */
+    public ReservaStock reservar(Long productoId, Integer cantidad) {
+        if (productoId == null || cantidad == null || cantidad <= 0) {
+            throw new IllegalArgumentException("Se requiere productoId y una cantidad mayor a 0");
+        }
+        boolean reservado = libroReservas.reservar(productoId, cantidad,
+                () -> productoRepository.findStockById(productoId)
+                        .orElseThrow(() -> new RuntimeException("Producto no encontrado ID: " + productoId)));
+        if (!reservado) {
+            rechazadas.increment();
+            throw new IllegalStateException("Stock insuficiente para el producto ID: " + productoId);
+        }
+
+        Instant ahora = Instant.now();
+        ReservaStock reserva = new ReservaStock(null, productoId, cantidad, EstadoReserva.ACTIVA, ahora,
+                ahora.plusSeconds(ttlSegundos));
+        try {
+            return reservaStockRepository.save(reserva);
+        } catch (RuntimeException e) {
+            libroReservas.liberar(productoId, cantidad);
+            throw e;
+        }
+    }
+
+    public ReservaStock obtenerPorId(Long id) {
+        return reservaStockRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada ID: " + id));
+    }
+
+    /**
+     * Confirma una reserva activa y descuenta el stock del producto, en una sola transacción
+     * @throws IllegalStateException si la reserva ya no está activa (o venció) o el stock ya no alcanza
+     */
+    @Transactional
+    public ReservaStock confirmar(Long id) {
+        ReservaStock reserva = obtenerPorId(id);
+        if (reservaStockRepository.confirmarSiActiva(id, Instant.now()) == 0) {
+            throw new IllegalStateException("La reserva no está activa o ya venció ID: " + id);
+        }
+        productoService.confirmarStock(reserva.getProductoId(), reserva.getCantidad());
+        // El stock ya quedó descontado: la retención en memoria se suelta después del commit
+        TrasCommit.ejecutar(() -> libroReservas.liberar(reserva.getProductoId(), reserva.getCantidad()));
+        reserva.setEstado(EstadoReserva.CONFIRMADA);
+        return reserva;
+    }
+
+    /**
+     * Libera una reserva activa sin descontar stock (por ejemplo, el pago falló o se vació el carrito)
+     * @throws IllegalStateException si la reserva ya no está activa
+     */
+    public void liberar(Long id) {
+        ReservaStock reserva = obtenerPorId(id);
+        if (reservaStockRepository.finalizarActivas(List.of(id), EstadoReserva.LIBERADA) == 0) {
+            throw new IllegalStateException("La reserva no está activa ID: " + id);
+        }
+        libroReservas.liberar(reserva.getProductoId(), reserva.getCantidad());
+    }
+
+    /**
+     * Marca como expiradas las reservas vencidas y devuelve sus unidades, por lotes.
+     * Solo toca reservas_stock, nunca la tabla productos.
+     */
+    @Scheduled(fixedDelayString = "${productos.reservas.barrido-ms:5000}")
+    public void expirarVencidas() {
+        List<ReservaStock> lote;
+        do {
+            lote = reservaStockRepository.findVencidas(Instant.now(), PageRequest.of(0, loteBarrido));
+            if (lote.isEmpty()) {
+                return;
+            }
+            List<Long> ids = lote.stream().map(ReservaStock::getId).toList();
+            List<ReservaStock> vencidas = lote;
+            if (reservaStockRepository.finalizarActivas(ids, EstadoReserva.EXPIRADA) < ids.size()) {
+                // Alguna se confirmó o liberó entre la consulta y el UPDATE: solo devolver las que expiraron
+                Set<Long> expiradasIds = reservaStockRepository.findAllById(ids).stream()
+                        .filter(r -> r.getEstado() == EstadoReserva.EXPIRADA)
+                        .map(ReservaStock::getId)
+                        .collect(Collectors.toSet());
+                vencidas = lote.stream().filter(r -> expiradasIds.contains(r.getId())).toList();
+            }
+            for (ReservaStock reserva : vencidas) {
+                libroReservas.liberar(reserva.getProductoId(), reserva.getCantidad());
+            }
+            expiradas.increment(vencidas.size());
+        } while (lote.size() == loteBarrido);
+    }
+}
@@ -0,0 +1,45 @@
+package com.qualifygym.productos.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Ejecuta cambios a estructuras en memoria solo cuando la transacción actual hace commit,
+ * para que un rollback no deje índices o cachés con datos que nunca se guardaron.
+ * Sin transacción activa la acción se ejecuta de inmediato.
+ */
+final class TrasCommit {
+
+    private TrasCommit() {
+    }
+
+    static void ejecutar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * Ejecuta la acción cuando la transacción actual termina, con commit o con rollback
+     * (por ejemplo, para soltar una retención que solo debe durar mientras la transacción está abierta)
+     */
+    static void alTerminar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
@@ -3,8 +3,16 @@ package com.qualifygym.productos.controller;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.mockito.Mockito.*;
+import static org.hamcrest.Matchers.containsString;
 
+import com.qualifygym.productos.model.CambioProducto;
+import com.qualifygym.productos.model.LoteProductos;
+import com.qualifygym.productos.model.PaginaProductos;
 import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ResultadoFiltro;
+import com.qualifygym.productos.model.Sugerencia;
+import com.qualifygym.productos.service.DifusorCambios;
+import com.qualifygym.productos.service.ImportacionProductosService;
 import com.qualifygym.productos.service.ProductoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,10 +21,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import reactor.core.publisher.Flux;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -35,6 +51,12 @@ class ProductoControllerTest {
     @MockBean
     private ProductoService productoService;
 
+    @MockBean
+    private ImportacionProductosService importacionProductosService;
+
+    @MockBean
+    private DifusorCambios difusorCambios;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -84,6 +106,104 @@ class ProductoControllerTest {
         verify(productoService, times(1)).obtenerTodos();
     }
 
+    @Test
+    void getProductos_deberiaIncluirEtagDeLaVersionDelCatalogo() throws Exception {
+        // Arrange
+        when(productoService.versionCatalogo()).thenReturn(7L);
+        when(productoService.obtenerTodos()).thenReturn(List.of(productoTest));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos"))
+               .andExpect(status().isOk())
+               .andExpect(header().string("ETag", "\"7\""))
+               .andExpect(header().string("Cache-Control", "no-cache"));
+    }
+
+    @Test
+    void getProductos_conEtagVigente_deberiaRetornarStatus304SinConsultar() throws Exception {
+        // Arrange
+        when(productoService.versionCatalogo()).thenReturn(7L);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos")
+               .header("If-None-Match", "W/\"6\", \"7\""))
+               .andExpect(status().isNotModified())
+               .andExpect(header().string("ETag", "\"7\""))
+               .andExpect(content().string(""));
+
+        verify(productoService, never()).obtenerTodos();
+    }
+
+    @Test
+    void getProductoPorId_conEtagAnterior_deberiaRetornarProducto() throws Exception {
+        // Arrange
+        productoTest.setVersion(8L);
+        when(productoService.obtenerPorId(1L)).thenReturn(productoTest);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/{id}", 1L)
+               .header("If-None-Match", "\"1-7\""))
+               .andExpect(status().isOk())
+               .andExpect(header().string("ETag", "\"1-8\""))
+               .andExpect(jsonPath("$.id").value(1L));
+    }
+
+    @Test
+    void getProductoPorId_conEtagVigente_deberiaRetornarStatus304() throws Exception {
+        // Arrange
+        productoTest.setVersion(8L);
+        when(productoService.obtenerPorId(1L)).thenReturn(productoTest);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/{id}", 1L)
+               .header("If-None-Match", "\"1-8\""))
+               .andExpect(status().isNotModified())
+               .andExpect(header().string("ETag", "\"1-8\""))
+               .andExpect(content().string(""));
+    }
+
+    @Test
+    void getProductoPorId_conEtagVigenteEnIndice_deberiaRetornar304SinCargarProducto() throws Exception {
+        // Arrange
+        when(productoService.versionIndexada(1L)).thenReturn(OptionalLong.of(8L));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/{id}", 1L)
+               .header("If-None-Match", "\"1-8\""))
+               .andExpect(status().isNotModified())
+               .andExpect(header().string("ETag", "\"1-8\""));
+
+        verify(productoService, never()).obtenerPorId(anyLong());
+    }
+
+    @Test
+    void getProductoPorId_conEtagAnteriorAlIndice_deberiaCargarProducto() throws Exception {
+        // Arrange
+        productoTest.setVersion(9L);
+        when(productoService.versionIndexada(1L)).thenReturn(OptionalLong.of(9L));
+        when(productoService.obtenerPorId(1L)).thenReturn(productoTest);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/{id}", 1L)
+               .header("If-None-Match", "\"1-8\""))
+               .andExpect(status().isOk())
+               .andExpect(header().string("ETag", "\"1-9\""));
+    }
+
+    @Test
+    void getProductoPorId_conIdInexistenteYEtag_deberiaRetornarStatus404() throws Exception {
+        // Arrange: el ETag del catálogo ya no aplica a la consulta por id
+        when(productoService.versionCatalogo()).thenReturn(7L);
+        when(productoService.obtenerPorId(999L))
+            .thenThrow(new RuntimeException("Producto no encontrado ID: 999"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/{id}", 999L)
+               .header("If-None-Match", "\"7\", *"))
+               .andExpect(status().isNotFound())
+               .andExpect(jsonPath("$.error").exists());
+    }
+
     @Test
     void getProductoPorId_conIdExistente_deberiaRetornarProductoYStatus200() throws Exception {
         // Arrange
@@ -254,6 +374,103 @@ class ProductoControllerTest {
         verify(productoService, times(1)).actualizarProducto(eq(id), anyString(), isNull(), isNull(), isNull(), isNull(), isNull());
     }
 
+    @Test
+    void getProductosPorIds_deberiaRetornarProductosEIdsInexistentes() throws Exception {
+        // Arrange
+        when(productoService.obtenerPorIds(List.of(1L, 9L)))
+            .thenReturn(new LoteProductos(List.of(productoTest), List.of(9L)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/batch").param("ids", "1,9"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.productos[0].id").value(1L))
+               .andExpect(jsonPath("$.noEncontrados[0]").value(9L));
+    }
+
+    @Test
+    void postProductosPorIds_sinListaDeIds_deberiaRetornarStatus400() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/productos/batch")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"ids\": \"1,2\"}"))
+               .andExpect(status().isBadRequest())
+               .andExpect(jsonPath("$.error").exists());
+
+        verify(productoService, never()).obtenerPorIds(any());
+    }
+
+    @Test
+    void filtrarProductos_deberiaRetornarProductosYFacetas() throws Exception {
+        // Arrange
+        when(productoService.filtrar(List.of("supplement", "accessory"), 10.0, 50.0, true, "whey", 0, 20))
+            .thenReturn(new ResultadoFiltro(1, List.of(productoTest),
+                Map.of("categorias", Map.of("supplement", 1, "accessory", 0))));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/filtrar")
+               .param("categoria", "supplement", "accessory")
+               .param("precioMin", "10")
+               .param("precioMax", "50")
+               .param("enStock", "true")
+               .param("q", "whey"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.total").value(1))
+               .andExpect(jsonPath("$.productos[0].id").value(1L))
+               .andExpect(jsonPath("$.facetas.categorias.supplement").value(1));
+    }
+
+    @Test
+    void autocompletarProductos_deberiaRetornarSugerencias() throws Exception {
+        // Arrange
+        when(productoService.autocompletar("prot", 10))
+            .thenReturn(List.of(new Sugerencia(1L, "Proteína Whey"), new Sugerencia(4L, "Barra Proteica")));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/autocompletar").param("q", "prot"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$[0].id").value(1L))
+               .andExpect(jsonPath("$[1].nombre").value("Barra Proteica"));
+    }
+
+    @Test
+    void autocompletarProductos_conLimiteInvalido_deberiaRetornarStatus400() throws Exception {
+        // Arrange
+        when(productoService.autocompletar("prot", 50))
+            .thenThrow(new IllegalArgumentException("El límite debe estar entre 1 y 10"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/autocompletar").param("q", "prot").param("limite", "50"))
+               .andExpect(status().isBadRequest())
+               .andExpect(jsonPath("$.error").value("El límite debe estar entre 1 y 10"));
+    }
+
+    @Test
+    void getProductos_conLimite_deberiaRetornarPaginaConCursor() throws Exception {
+        // Arrange
+        when(productoService.obtenerPagina(null, "precio", null, null, 1))
+            .thenReturn(new PaginaProductos(List.of(productoTest), "cHJlY2lvfEFTQ3wxfDI5Ljk5"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos").param("orden", "precio").param("limite", "1"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.productos[0].id").value(1L))
+               .andExpect(jsonPath("$.siguienteCursor").value("cHJlY2lvfEFTQ3wxfDI5Ljk5"));
+
+        verify(productoService, never()).obtenerTodos();
+    }
+
+    @Test
+    void getProductosPorCategoria_conCursorInvalido_deberiaRetornarStatus400() throws Exception {
+        // Arrange
+        when(productoService.obtenerPagina("supplement", null, null, "xyz", null))
+            .thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/categoria/supplement").param("cursor", "xyz"))
+               .andExpect(status().isBadRequest())
+               .andExpect(jsonPath("$.error").value("Cursor inválido"));
+    }
+
     @Test
     void eliminarProducto_conIdValido_deberiaRetornarStatus204() throws Exception {
         // Arrange
@@ -290,5 +507,129 @@ class ProductoControllerTest {
         verify(productoService, times(1)).actualizarStock(id, 10);
         verify(productoService, times(1)).obtenerPorId(id);
     }
-}
 
+    @Test
+    void actualizarStock_conStockInsuficiente_deberiaRetornarStatus409() throws Exception {
+        // Arrange
+        Long id = 1L;
+        doThrow(new IllegalStateException("Stock insuficiente para el producto ID: " + id))
+            .when(productoService).actualizarStock(id, -500);
+
+        // Act & Assert
+        mockMvc.perform(put("/api/v1/productos/{id}/stock", id)
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"cantidad\": -500}"))
+               .andExpect(status().isConflict())
+               .andExpect(jsonPath("$.error").value("Stock insuficiente para el producto ID: 1"));
+
+        verify(productoService, never()).obtenerPorId(id);
+    }
+
+    @Test
+    void actualizarCategoria_conPorcentaje_deberiaRetornarCantidadActualizada() throws Exception {
+        // Arrange
+        when(productoService.actualizarCategoria("supplement", -15.0, null, null)).thenReturn(42);
+
+        // Act & Assert
+        mockMvc.perform(put("/api/v1/productos/categoria/{categoria}", "supplement")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"porcentajePrecio\": -15}"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.actualizados").value(42));
+    }
+
+    @Test
+    void actualizarCategoria_conDosAjustes_deberiaRetornarStatus400() throws Exception {
+        // Arrange
+        when(productoService.actualizarCategoria("supplement", -15.0, null, 10))
+            .thenThrow(new IllegalArgumentException("Indique uno y solo uno de porcentajePrecio, montoPrecio o cantidadStock"));
+
+        // Act & Assert
+        mockMvc.perform(put("/api/v1/productos/categoria/{categoria}", "supplement")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"porcentajePrecio\": -15, \"cantidadStock\": 10}"))
+               .andExpect(status().isBadRequest())
+               .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void actualizarProducto_modificadoConcurrentemente_deberiaRetornarStatus409() throws Exception {
+        // Arrange
+        Long id = 1L;
+        when(productoService.actualizarProducto(eq(id), any(), any(), any(), any(), any(), any()))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Producto.class, id));
+
+        // Act & Assert
+        mockMvc.perform(put("/api/v1/productos/{id}", id)
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"precio\": 95.0}"))
+               .andExpect(status().isConflict())
+               .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void importarProductos_conCsv_deberiaRetornarEventosNdjson() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            Consumer<Map<String, Object>> eventos = invocation.getArgument(2);
+            eventos.accept(Map.of("tipo", "progreso", "procesadas", 2));
+            eventos.accept(Map.of("tipo", "resumen", "creadas", 1));
+            return null;
+        }).when(importacionProductosService).importar(any(), eq(ImportacionProductosService.CSV), any());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/productos/importar")
+               .contentType("text/csv")
+               .content("nombre,descripcion,precio,categoria,stock\nCuerda,Cuerda de saltar,5,accessory,10\nGuantes,Guantes,abc,accessory,8\n"))
+               .andExpect(status().isOk())
+               .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+               .andExpect(content().string(containsString("\"tipo\":\"progreso\"")))
+               .andExpect(content().string(containsString("\"tipo\":\"resumen\"")));
+    }
+
+    @Test
+    void importarProductos_sinColumnasRequeridas_deberiaRetornarStatus400() throws Exception {
+        // Arrange
+        when(importacionProductosService.importar(any(), eq(ImportacionProductosService.CSV), any()))
+            .thenThrow(new IllegalArgumentException("Faltan columnas en el encabezado: stock"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/productos/importar")
+               .contentType("text/csv")
+               .content("nombre,descripcion,precio,categoria\n"))
+               .andExpect(status().isBadRequest())
+               .andExpect(jsonPath("$.error").value("Faltan columnas en el encabezado: stock"));
+    }
+
+    @Test
+    void eventosProductos_deberiaEnviarCambiosComoSse() throws Exception {
+        // Arrange
+        CambioProducto cambio = new CambioProducto(1L, 4L, 95, -5, 29.99, null);
+        when(difusorCambios.suscribir(List.of(1L)))
+            .thenReturn(Flux.just(ServerSentEvent.<Object>builder(cambio).event("cambio").build()));
+
+        // Act
+        MvcResult resultado = mockMvc.perform(get("/api/v1/productos/eventos").param("ids", "1")
+               .accept(MediaType.TEXT_EVENT_STREAM))
+               .andExpect(request().asyncStarted())
+               .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(resultado))
+               .andExpect(status().isOk())
+               .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+               .andExpect(content().string(containsString("event:cambio")))
+               .andExpect(content().string(containsString("\"stock\":95")));
+    }
+
+    @Test
+    void eventosProductos_conDemasiadosClientes_deberiaRetornarStatus503() throws Exception {
+        // Arrange
+        when(difusorCambios.suscribir(any()))
+            .thenThrow(new IllegalStateException("Se alcanzó el máximo de clientes conectados a los eventos"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/productos/eventos").accept(MediaType.TEXT_EVENT_STREAM))
+               .andExpect(status().isServiceUnavailable());
+    }
+}
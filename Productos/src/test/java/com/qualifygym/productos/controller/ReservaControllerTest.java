@@ -0,0 +1,86 @@
+package com.qualifygym.productos.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.qualifygym.productos.model.EstadoReserva;
+import com.qualifygym.productos.model.ReservaStock;
+import com.qualifygym.productos.service.ReservaStockService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+/**
+ * Tests de integración para ReservaController
+ *
+ * Verifican los códigos de estado de reservar, confirmar y liberar.
+ */
+@WebMvcTest(ReservaController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class ReservaControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ReservaStockService reservaStockService;
+
+    @Test
+    void reservar_conStockDisponible_deberiaRetornarStatus201() throws Exception {
+        // Arrange
+        Instant ahora = Instant.now();
+        when(reservaStockService.reservar(3L, 2))
+                .thenReturn(new ReservaStock(10L, 3L, 2, EstadoReserva.ACTIVA, ahora, ahora.plusSeconds(900)));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/reservas")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"productoId\": 3, \"cantidad\": 2}"))
+               .andExpect(status().isCreated())
+               .andExpect(jsonPath("$.id").value(10L))
+               .andExpect(jsonPath("$.estado").value("ACTIVA"));
+    }
+
+    @Test
+    void reservar_conStockInsuficiente_deberiaRetornarStatus409() throws Exception {
+        // Arrange
+        when(reservaStockService.reservar(3L, 50))
+                .thenThrow(new IllegalStateException("Stock insuficiente para el producto ID: 3"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/reservas")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("{\"productoId\": 3, \"cantidad\": 50}"))
+               .andExpect(status().isConflict())
+               .andExpect(jsonPath("$.error").value("Stock insuficiente para el producto ID: 3"));
+    }
+
+    @Test
+    void confirmarReserva_vencida_deberiaRetornarStatus409() throws Exception {
+        // Arrange
+        when(reservaStockService.confirmar(10L))
+                .thenThrow(new IllegalStateException("La reserva no está activa o ya venció ID: 10"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/reservas/10/confirmar"))
+               .andExpect(status().isConflict());
+    }
+
+    @Test
+    void liberarReserva_inexistente_deberiaRetornarStatus404() throws Exception {
+        // Arrange
+        doThrow(new RuntimeException("Reserva no encontrada ID: 99")).when(reservaStockService).liberar(99L);
+
+        // Act & Assert
+        mockMvc.perform(delete("/api/v1/reservas/99"))
+               .andExpect(status().isNotFound())
+               .andExpect(jsonPath("$.error").value("Reserva no encontrada ID: 99"));
+    }
+}
@@ -0,0 +1,141 @@
+package com.qualifygym.productos.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoAtributos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+/**
+ * Tests de las actualizaciones masivas por categoría contra una base de datos H2 en memoria
+ *
+ * Verifican que un solo UPDATE cambia solo la categoría pedida, redondea el precio, incrementa
+ * la versión y no toca las filas cuyo precio o stock quedaría negativo.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class ProductoRepositoryActualizacionMasivaTest {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private Producto whey;
+    private Producto barra;
+    private Producto mancuerna;
+
+    private Producto guardarProducto(String nombre, String categoria, double precio, int stock) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setDescripcion("Descripción de " + nombre);
+        producto.setPrecio(precio);
+        producto.setCategoria(categoria);
+        producto.setStock(stock);
+        return productoRepository.save(producto);
+    }
+
+    @BeforeEach
+    void setUp() {
+        whey = guardarProducto("Proteína Whey", "supplement", 29.99, 30);
+        barra = guardarProducto("Barra Proteica", "supplement", 5.0, 10);
+        mancuerna = guardarProducto("Mancuerna 10kg", "accessory", 19.99, 50);
+    }
+
+    private Producto leer(Producto producto) {
+        return productoRepository.findById(producto.getId()).orElseThrow();
+    }
+
+    /**
+     * Test: Descuento porcentual
+     * Verifica que se cambia toda la categoría, con el precio redondeado a 2 decimales y la versión incrementada
+     */
+    @Test
+    void ajustarPrecioPorCategoria_conPorcentaje_debeActualizarSoloLaCategoria() {
+        // Arrange
+        Long versionWhey = whey.getVersion();
+
+        // Act
+        int actualizados = productoRepository.ajustarPrecioPorCategoria("supplement", 0.85, 0);
+
+        // Assert
+        assertEquals(2, actualizados);
+        assertEquals(25.49, leer(whey).getPrecio());
+        assertEquals(4.25, leer(barra).getPrecio());
+        assertEquals(versionWhey + 1, leer(whey).getVersion());
+        assertEquals(19.99, leer(mancuerna).getPrecio());
+    }
+
+    /**
+     * Test: Ajustes que dejarían valores negativos
+     * Verifica que esas filas no se modifican (ni su versión) y no cuentan como actualizadas
+     */
+    @Test
+    void ajustesPorCategoria_conResultadoNegativo_noDebenModificarEsasFilas() {
+        // Arrange
+        Long versionBarra = barra.getVersion();
+
+        // Act
+        int precios = productoRepository.ajustarPrecioPorCategoria("supplement", 1, -10);
+        int stocks = productoRepository.ajustarStockPorCategoria("supplement", -20, List.of(0L));
+
+        // Assert
+        assertEquals(1, precios);
+        assertEquals(1, stocks);
+        Producto wheyLeido = leer(whey);
+        assertEquals(19.99, wheyLeido.getPrecio());
+        assertEquals(10, wheyLeido.getStock());
+        // Un ajuste de inventario no es una venta
+        assertEquals(0L, wheyLeido.getVendidos());
+        Producto barraLeida = leer(barra);
+        assertEquals(5.0, barraLeida.getPrecio());
+        assertEquals(10, barraLeida.getStock());
+        assertEquals(versionBarra, barraLeida.getVersion());
+    }
+
+    /**
+     * Test: Productos excluidos del ajuste de stock
+     * Verifica que el UPDATE no toca los ids excluidos (los que no cubrirían lo reservado)
+     */
+    @Test
+    void ajustarStockPorCategoria_conExcluidos_noDebeModificarlos() {
+        // Act
+        int stocks = productoRepository.ajustarStockPorCategoria("supplement", -5, List.of(barra.getId()));
+
+        // Assert
+        assertEquals(1, stocks);
+        assertEquals(25, leer(whey).getStock());
+        assertEquals(10, leer(barra).getStock());
+    }
+
+    /**
+     * Test: Lectura bloqueante de una categoría
+     * Verifica que lee los mismos lotes que la lectura sin bloqueo
+     */
+    @Test
+    void bloquearAtributosPorCategoriaDesde_debePaginarPorId() {
+        List<ProductoAtributos> lote = productoRepository.bloquearAtributosPorCategoriaDesde("supplement", 0L,
+                PageRequest.of(0, 10));
+
+        assertEquals(List.of(whey.getId(), barra.getId()), lote.stream().map(ProductoAtributos::id).toList());
+    }
+
+    /**
+     * Test: Lectura por lotes de una categoría
+     * Verifica el orden por id y que el cursor continúa después del último id leído
+     */
+    @Test
+    void findAtributosPorCategoriaDesde_debePaginarPorId() {
+        List<ProductoAtributos> primera = productoRepository.findAtributosPorCategoriaDesde("supplement", 0L,
+                PageRequest.of(0, 1));
+        List<ProductoAtributos> segunda = productoRepository.findAtributosPorCategoriaDesde("supplement",
+                primera.get(0).id(), PageRequest.of(0, 10));
+
+        assertEquals(List.of(whey.getId()), primera.stream().map(ProductoAtributos::id).toList());
+        assertEquals(List.of(barra.getId()), segunda.stream().map(ProductoAtributos::id).toList());
+    }
+}
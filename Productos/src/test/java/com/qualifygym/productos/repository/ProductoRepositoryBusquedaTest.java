@@ -0,0 +1,97 @@
+package com.qualifygym.productos.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.TokenProducto;
+import com.qualifygym.productos.service.NormalizadorTexto;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+/**
+ * Tests de la búsqueda por palabras (productos_tokens) contra una base de datos H2 en memoria
+ *
+ * Verifican que el prefijo normalizado encuentra las palabras de nombres con tildes y mayúsculas,
+ * que el recorrido por lotes continúa después del último token, y que se detectan los productos
+ * sin palabras para completarlas.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class ProductoRepositoryBusquedaTest {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private TokenProductoRepository tokenProductoRepository;
+
+    private Producto cinturon;
+    private Producto cinta;
+
+    private Producto guardarProducto(String nombre, boolean conTokens) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setDescripcion("Descripción de " + nombre);
+        producto.setPrecio(19.99);
+        producto.setCategoria("accessory");
+        producto.setStock(10);
+        Producto guardado = productoRepository.save(producto);
+        if (conTokens) {
+            tokenProductoRepository.saveAll(NormalizadorTexto.palabras(nombre).stream()
+                    .map(palabra -> new TokenProducto(palabra, guardado.getId())).toList());
+        }
+        return guardado;
+    }
+
+    @BeforeEach
+    void setUp() {
+        cinturon = guardarProducto("Cinturón de Pesas", true);
+        cinta = guardarProducto("CINTA para muñecas", true);
+        guardarProducto("Proteína Whey", true);
+    }
+
+    /**
+     * Test: Prefijo de palabra sin tildes ni mayúsculas
+     * Verifica que "cint" encuentra las palabras de ambos productos en orden de token y que el
+     * siguiente lote empieza después del último token leído
+     */
+    @Test
+    void findPorPrefijoDesde_debeRecorrerElRangoDelPrefijo() {
+        List<TokenProducto> cint = tokenProductoRepository.findPorPrefijoDesde("cint", "", 0L, PageRequest.of(0, 10));
+        List<TokenProducto> primero = tokenProductoRepository.findPorPrefijoDesde("cint", "", 0L, PageRequest.of(0, 1));
+        List<TokenProducto> segundo = tokenProductoRepository.findPorPrefijoDesde("cint",
+                primero.get(0).getToken(), primero.get(0).getProductoId(), PageRequest.of(0, 1));
+
+        assertEquals(List.of("cinta", "cinturon"), cint.stream().map(TokenProducto::getToken).toList());
+        assertEquals(List.of(cinta.getId(), cinturon.getId()), cint.stream().map(TokenProducto::getProductoId).toList());
+        assertEquals(cinta.getId(), primero.get(0).getProductoId());
+        assertEquals(List.of(cinturon.getId()), segundo.stream().map(TokenProducto::getProductoId).toList());
+        assertEquals(List.of(cinturon.getId()), tokenProductoRepository.findPorPrefijoDesde(
+                NormalizadorTexto.normalizar("Pesás"), "", 0L, PageRequest.of(0, 10))
+                .stream().map(TokenProducto::getProductoId).toList());
+    }
+
+    /**
+     * Test: Completar palabras faltantes
+     * Verifica que se listan solo los productos sin palabras y que al eliminarlas vuelve a listarse
+     */
+    @Test
+    void findSinTokensDesde_debeListarLosProductosSinPalabras() {
+        // Arrange
+        Producto sinTokens = guardarProducto("Multivitamínico diario", false);
+
+        // Act & Assert
+        assertEquals(List.of(sinTokens.getId()), productoRepository.findSinTokensDesde(0L, PageRequest.of(0, 10))
+                .stream().map(t -> t.id()).toList());
+        assertTrue(productoRepository.findSinTokensDesde(sinTokens.getId(), PageRequest.of(0, 10)).isEmpty());
+
+        assertEquals(3, tokenProductoRepository.eliminarPorProducto(cinturon.getId()));
+        assertEquals(List.of(cinturon.getId(), sinTokens.getId()), productoRepository.findSinTokensDesde(0L, PageRequest.of(0, 10))
+                .stream().map(t -> t.id()).toList());
+    }
+}
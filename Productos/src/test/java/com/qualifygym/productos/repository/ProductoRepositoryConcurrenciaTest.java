@@ -0,0 +1,175 @@
+package com.qualifygym.productos.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.qualifygym.productos.model.Producto;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Tests de concurrencia del ajuste de stock contra una base de datos H2 en memoria
+ *
+ * Muchos hilos ajustan el stock del mismo producto a la vez, cada uno en su propia
+ * transacción: no se debe perder ningún ajuste ni quedar stock negativo.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductoRepositoryConcurrenciaTest {
+
+    private static final int HILOS = 32;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @AfterEach
+    void tearDown() {
+        productoRepository.deleteAll();
+    }
+
+    private Producto guardarProducto(int stock) {
+        Producto producto = new Producto();
+        producto.setNombre("Mancuerna 10kg");
+        producto.setDescripcion("Mancuerna de hierro");
+        producto.setPrecio(19.99);
+        producto.setCategoria("accessory");
+        producto.setStock(stock);
+        return productoRepository.save(producto);
+    }
+
+    // Ejecuta la tarea en todos los hilos a la vez y espera a que terminen
+    private void enParalelo(int porHilo, IntConsumer tarea) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            futuros.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < porHilo; i++) {
+                    tarea.accept(hilo * porHilo + i);
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Test: Más compras que stock
+     * Exactamente tantos descuentos como unidades deben tener éxito y el stock debe quedar en 0
+     */
+    @Test
+    void ajustarStock_conMasDescuentosQueStock_noDebeQuedarNegativo() throws Exception {
+        // Arrange
+        Long id = guardarProducto(1000).getId();
+        AtomicInteger exitosos = new AtomicInteger();
+
+        // Act: 32 hilos x 50 = 1600 intentos de descontar 1
+        enParalelo(50, i -> exitosos.addAndGet(productoRepository.ajustarStock(id, -1, 0)));
+
+        // Assert
+        assertEquals(1000, exitosos.get());
+        assertEquals(0, productoRepository.findById(id).orElseThrow().getStock());
+    }
+
+    /**
+     * Test: Sumas y restas mezcladas
+     * El stock final debe ser el inicial más la suma de todos los ajustes
+     */
+    @Test
+    void ajustarStock_conAjustesMezclados_noDebePerderActualizaciones() throws Exception {
+        // Arrange
+        Long id = guardarProducto(10_000).getId();
+        AtomicInteger total = new AtomicInteger();
+
+        // Act: 32 hilos x 100 ajustes alternando +3 y -2
+        enParalelo(100, i -> {
+            int cantidad = i % 2 == 0 ? 3 : -2;
+            assertEquals(1, productoRepository.ajustarStock(id, cantidad, 0));
+            total.addAndGet(cantidad);
+        });
+
+        // Assert
+        Producto producto = productoRepository.findById(id).orElseThrow();
+        assertEquals(10_000 + total.get(), producto.getStock());
+        // Cada ajuste incrementa la versión
+        assertEquals(HILOS * 100L, producto.getVersion());
+        // Un ajuste de inventario no es una venta
+        assertEquals(0L, producto.getVendidos());
+    }
+
+    /**
+     * Test: Ventas concurrentes
+     * Cada venta descuenta el stock y suma las mismas unidades a vendidos, sin tomar las reservadas
+     */
+    @Test
+    void venderStock_concurrente_debeSumarVendidos() throws Exception {
+        // Arrange: 1000 unidades, 100 reservadas por otros checkouts
+        Long id = guardarProducto(1000).getId();
+        AtomicInteger exitosos = new AtomicInteger();
+
+        // Act: 32 hilos x 50 = 1600 ventas de 1
+        enParalelo(50, i -> exitosos.addAndGet(productoRepository.venderStock(id, 1, 100)));
+
+        // Assert
+        Producto producto = productoRepository.findById(id).orElseThrow();
+        assertEquals(900, exitosos.get());
+        assertEquals(100, producto.getStock());
+        assertEquals(900L, producto.getVendidos());
+    }
+
+    /**
+     * Test: Descuento con unidades reservadas por otros checkouts
+     * El stock no debe quedar por debajo del mínimo indicado (lo reservado)
+     */
+    @Test
+    void ajustarStock_conMinimoReservado_noDebeTomarUnidadesReservadas() {
+        // Arrange: 5 unidades, 3 reservadas
+        Long id = guardarProducto(5).getId();
+
+        // Act
+        int excedido = productoRepository.ajustarStock(id, -4, 3);
+        int disponible = productoRepository.ajustarStock(id, -2, 3);
+
+        // Assert
+        assertEquals(0, excedido);
+        assertEquals(1, disponible);
+        assertEquals(3, productoRepository.findById(id).orElseThrow().getStock());
+    }
+
+    /**
+     * Test: Edición basada en una lectura desactualizada
+     * Después de un ajuste de stock, guardar la copia vieja debe fallar en vez de pisar el stock
+     */
+    @Test
+    void save_conVersionDesactualizada_debeLanzarExcepcion() {
+        // Arrange
+        Producto leido = guardarProducto(10);
+        productoRepository.ajustarStock(leido.getId(), -3, 0);
+
+        // Act & Assert
+        leido.setPrecio(24.99);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productoRepository.save(leido));
+        assertEquals(7, productoRepository.findById(leido.getId()).orElseThrow().getStock());
+    }
+}
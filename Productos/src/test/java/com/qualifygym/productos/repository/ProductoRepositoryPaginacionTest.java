@@ -0,0 +1,103 @@
+package com.qualifygym.productos.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.qualifygym.productos.model.Producto;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Tests de la paginación por keyset contra una base de datos H2 en memoria
+ *
+ * Recorren el listado página por página, con precios y nombres repetidos, y verifican que
+ * no se repite ni se salta ningún producto respecto del orden completo.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class ProductoRepositoryPaginacionTest {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private List<Producto> guardados;
+
+    @BeforeEach
+    void setUp() {
+        guardados = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Producto producto = new Producto();
+            producto.setNombre("Producto " + (char) ('A' + i % 7));
+            producto.setDescripcion("Descripción " + i);
+            producto.setPrecio(10.0 + (i % 4) * 5);
+            producto.setCategoria(i % 3 == 0 ? "accessory" : "supplement");
+            producto.setStock(10);
+            guardados.add(productoRepository.save(producto));
+        }
+    }
+
+    // Recorre todas las páginas armando cada posición desde el último producto de la anterior
+    private List<Long> recorrer(Function<ScrollPosition, Window<Producto>> pagina,
+            Function<Producto, Map<String, Object>> claves) {
+        List<Long> ids = new ArrayList<>();
+        ScrollPosition posicion = ScrollPosition.keyset();
+        Window<Producto> ventana;
+        do {
+            ventana = pagina.apply(posicion);
+            assertTrue(ventana.size() <= 7);
+            ventana.forEach(p -> ids.add(p.getId()));
+            if (!ventana.isEmpty()) {
+                posicion = ScrollPosition.forward(claves.apply(ventana.getContent().get(ventana.size() - 1)));
+            }
+        } while (ventana.hasNext());
+        return ids;
+    }
+
+    /**
+     * Test: Todo el catálogo por precio ascendente
+     */
+    @Test
+    void findBy_porPrecio_debeRecorrerTodoSinRepetir() {
+        Sort orden = Sort.by("precio").and(Sort.by("id"));
+
+        List<Long> ids = recorrer(
+                posicion -> productoRepository.findBy(posicion, orden, Limit.of(7)),
+                p -> Map.of("precio", p.getPrecio(), "id", p.getId()));
+
+        List<Long> esperado = guardados.stream()
+                .sorted(Comparator.comparing(Producto::getPrecio).thenComparing(Producto::getId))
+                .map(Producto::getId)
+                .toList();
+        assertEquals(esperado, ids);
+    }
+
+    /**
+     * Test: Una categoría por nombre descendente
+     */
+    @Test
+    void findByCategoria_porNombreDescendente_debeRecorrerLaCategoria() {
+        Sort orden = Sort.by(Sort.Direction.DESC, "nombre").and(Sort.by(Sort.Direction.DESC, "id"));
+
+        List<Long> ids = recorrer(
+                posicion -> productoRepository.findByCategoria("supplement", posicion, orden, Limit.of(7)),
+                p -> Map.of("nombre", p.getNombre(), "id", p.getId()));
+
+        List<Long> esperado = guardados.stream()
+                .filter(p -> p.getCategoria().equals("supplement"))
+                .sorted(Comparator.comparing(Producto::getNombre).thenComparing(Producto::getId).reversed())
+                .map(Producto::getId)
+                .toList();
+        assertEquals(esperado, ids);
+    }
+}
@@ -0,0 +1,101 @@
+package com.qualifygym.productos.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests unitarios para CacheCatalogo
+ *
+ * Verifican aciertos y fallos, el descarte por capacidad y que una escritura
+ * invalida las entradas leídas con la versión anterior.
+ */
+class CacheCatalogoTest {
+
+    private CacheCatalogo cache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new CacheCatalogo();
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cache, "maxEntradas", 2);
+        cache.init();
+    }
+
+    private double consultas(String resultado) {
+        return meterRegistry.get("productos.cache.consultas").tag("resultado", resultado).counter().count();
+    }
+
+    /**
+     * Test: Lecturas repetidas
+     * Verifica que solo la primera carga desde la base de datos
+     */
+    @Test
+    void obtener_dosVeces_debeCargarUnaVez() {
+        AtomicInteger cargas = new AtomicInteger();
+
+        cache.obtener("id:1", cargas::incrementAndGet);
+        Object segundo = cache.obtener("id:1", cargas::incrementAndGet);
+
+        assertEquals(1, segundo);
+        assertEquals(1, cargas.get());
+        assertEquals(1.0, consultas("acierto"));
+        assertEquals(1.0, consultas("fallo"));
+    }
+
+    /**
+     * Test: Invalidación
+     * Verifica que la versión sube y que la siguiente lectura vuelve a cargar
+     */
+    @Test
+    void invalidar_debeSubirVersionYRecargar() {
+        AtomicInteger cargas = new AtomicInteger();
+        long versionInicial = cache.version();
+        cache.obtener("todos", cargas::incrementAndGet);
+
+        cache.invalidar();
+        cache.obtener("todos", cargas::incrementAndGet);
+
+        assertTrue(cache.version() > versionInicial);
+        assertEquals(2, cargas.get());
+    }
+
+    /**
+     * Test: Escritura durante una lectura
+     * El valor leído con la versión anterior no debe quedar en la caché
+     */
+    @Test
+    void obtener_conInvalidacionDuranteLaCarga_noDebeGuardarValor() {
+        cache.obtener("todos", () -> {
+            cache.invalidar();
+            return "viejo";
+        });
+
+        assertEquals("nuevo", cache.obtener("todos", () -> "nuevo"));
+    }
+
+    /**
+     * Test: Capacidad
+     * Verifica que se descarta la entrada usada hace más tiempo
+     */
+    @Test
+    void obtener_sobreCapacidad_debeDescartarLaMenosUsada() {
+        cache.obtener("a", () -> "a");
+        cache.obtener("b", () -> "b");
+        cache.obtener("a", () -> "a");
+        cache.obtener("c", () -> "c");
+
+        assertEquals(2, cache.tamano());
+        assertEquals(1.0, meterRegistry.get("productos.cache.desalojos").counter().count());
+        assertEquals("a", cache.obtener("a", () -> "a2"));
+        assertEquals("b2", cache.obtener("b", () -> "b2"));
+    }
+}
@@ -0,0 +1,183 @@
+package com.qualifygym.productos.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.qualifygym.productos.model.CambioProducto;
+import com.qualifygym.productos.model.ResincronizacionProductos;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import org.reactivestreams.Subscription;
+
+import reactor.core.publisher.BaseSubscriber;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests unitarios para DifusorCambios
+ *
+ * Verifican el filtro por producto, el límite de clientes (que solo cuenta flujos suscritos) y
+ * que un cliente lento pierde sus cambios más viejos, con un aviso "resync", en vez de acumular
+ * memoria o frenar la publicación.
+ */
+class DifusorCambiosTest {
+
+    private DifusorCambios difusor;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        difusor = new DifusorCambios();
+        ReflectionTestUtils.setField(difusor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(difusor, "maxSuscriptores", 2);
+        ReflectionTestUtils.setField(difusor, "tamanoBuffer", 2);
+        // Sin latidos durante los tests
+        ReflectionTestUtils.setField(difusor, "heartbeatSegundos", 3600L);
+        difusor.init();
+    }
+
+    private static CambioProducto cambio(long id, int stock) {
+        return new CambioProducto(id, 1L, stock, -1, 19.99, null);
+    }
+
+    /**
+     * Test: Suscripción a algunos productos
+     * Verifica que el cliente recibe solo los cambios de los productos pedidos, como eventos "cambio"
+     */
+    @Test
+    void suscribir_conIds_debeRecibirSoloEsosProductos() {
+        StepVerifier.create(difusor.suscribir(List.of(1L)))
+                .then(() -> {
+                    difusor.publicar(cambio(2L, 5));
+                    difusor.publicar(cambio(1L, 9));
+                })
+                .assertNext(evento -> {
+                    assertEquals("cambio", evento.event());
+                    CambioProducto cambio = (CambioProducto) evento.data();
+                    assertEquals(1L, cambio.id());
+                    assertEquals(9, cambio.stock());
+                })
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, difusor.suscriptores());
+    }
+
+    /**
+     * Test: Límite de clientes
+     * Verifica que se rechaza un cliente sobre el máximo y que al desconectarse libera su lugar
+     */
+    @Test
+    void suscribir_sobreElMaximo_debeLanzarExcepcion() {
+        var primero = difusor.suscribir(null).subscribe();
+        var segundo = difusor.suscribir(null).subscribe();
+
+        assertThrows(IllegalStateException.class, () -> difusor.suscribir(null));
+
+        primero.dispose();
+        assertEquals(1, difusor.suscriptores());
+        difusor.suscribir(null).subscribe().dispose();
+        segundo.dispose();
+        assertEquals(0, difusor.suscriptores());
+    }
+
+    /**
+     * Test: Flujo creado que nunca se suscribe
+     * Verifica que no ocupa un lugar de cliente
+     */
+    @Test
+    void suscribir_sinSuscribirse_noDebeOcuparCupo() {
+        difusor.suscribir(null);
+        difusor.suscribir(null);
+        difusor.suscribir(null);
+
+        assertEquals(0, difusor.suscriptores());
+        difusor.suscribir(null).subscribe().dispose();
+    }
+
+    /**
+     * Test: Aviso de resincronización
+     * Verifica que llega como evento "resync" también a los clientes que siguen solo algunos productos
+     */
+    @Test
+    void publicar_resincronizacion_debeLlegarATodos() {
+        StepVerifier.create(difusor.suscribir(List.of(1L)))
+                .then(() -> difusor.publicar(new ResincronizacionProductos(ResincronizacionProductos.CATEGORIA, "supplement")))
+                .assertNext(evento -> {
+                    assertEquals("resync", evento.event());
+                    assertEquals("supplement", ((ResincronizacionProductos) evento.data()).categoria());
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    /**
+     * Test: Cliente lento
+     * Con buffer de 2, un cliente que no lee pierde los cambios más viejos, recibe un aviso
+     * "resync" y después los últimos cambios
+     */
+    @Test
+    void publicar_conClienteLento_debeDescartarLosMasViejos() {
+        // Arrange: un cliente que todavía no pidió ningún evento
+        List<CambioProducto> recibidos = new ArrayList<>();
+        List<String> tipos = new ArrayList<>();
+        BaseSubscriber<ServerSentEvent<Object>> lento = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+
+            @Override
+            protected void hookOnNext(ServerSentEvent<Object> evento) {
+                tipos.add(evento.event());
+                if (evento.data() instanceof CambioProducto cambio) {
+                    recibidos.add(cambio);
+                }
+            }
+        };
+        difusor.suscribir(null).subscribe(lento);
+
+        // Act
+        for (int i = 1; i <= 10; i++) {
+            difusor.publicar(cambio(1L, i));
+        }
+        lento.request(Long.MAX_VALUE);
+        lento.dispose();
+
+        // Assert: a lo sumo el buffer más los elementos que esperan en el concatMap y en el merge
+        assertTrue(recibidos.size() <= 4, "Recibidos: " + recibidos.size());
+        assertEquals(10, recibidos.get(recibidos.size() - 1).stock());
+        double descartados = meterRegistry.get("productos.eventos.descartados").counter().count();
+        assertEquals(10 - recibidos.size(), descartados);
+        // El aviso llega una sola vez, justo antes de los cambios posteriores al hueco
+        assertEquals(1, tipos.stream().filter("resync"::equals).count());
+        assertTrue(tipos.indexOf("resync") < tipos.size() - 1);
+    }
+
+    /**
+     * Test: Latidos para un cliente que no lee
+     * Verifica que los latidos sin demanda se descartan en vez de terminar el flujo con error
+     */
+    @Test
+    void suscribir_conClienteSinDemanda_debeDescartarLatidos() {
+        ReflectionTestUtils.setField(difusor, "heartbeatSegundos", 1L);
+
+        StepVerifier.withVirtualTime(() -> difusor.suscribir(null), 0)
+                .thenAwait(Duration.ofSeconds(5))
+                .thenRequest(1)
+                .assertNext(evento -> assertEquals("ping", evento.comment()))
+                .thenRequest(1)
+                .thenAwait(Duration.ofSeconds(1))
+                .assertNext(evento -> assertEquals("ping", evento.comment()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,319 @@
+package com.qualifygym.productos.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ResincronizacionProductos;
+import com.qualifygym.productos.model.ResultadoImportacion;
+import com.qualifygym.productos.model.TokenProducto;
+import com.qualifygym.productos.repository.ProductoRepository;
+import com.qualifygym.productos.repository.TokenProductoRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests de ImportacionProductosService contra una base de datos H2 en memoria
+ *
+ * Con lotes de 2 filas, para que cada archivo se guarde en varios batches. El libro de reservas
+ * es el real, para verificar que el stock importado respeta las unidades reservadas.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({ ImportacionProductosService.class, LibroReservas.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImportacionProductosServiceTest {
+
+    @TestConfiguration
+    static class Configuracion {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+    }
+
+    @Autowired
+    private ImportacionProductosService importacionProductosService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private TokenProductoRepository tokenProductoRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LibroReservas libroReservas;
+
+    @MockBean
+    private IndiceTrigramas indiceTrigramas;
+
+    @MockBean
+    private IndiceFiltros indiceFiltros;
+
+    @MockBean
+    private IndiceAutocompletado indiceAutocompletado;
+
+    @MockBean
+    private CacheCatalogo cacheCatalogo;
+
+    @MockBean
+    private DifusorCambios difusorCambios;
+
+    private final List<Map<String, Object>> eventos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(importacionProductosService, "tamanoLote", 2);
+        ReflectionTestUtils.setField(importacionProductosService, "maxLargoRegistro", 8192);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenProductoRepository.deleteAll();
+        productoRepository.deleteAll();
+        libroReservas.cargar(List.of());
+    }
+
+    private static InputStream archivo(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Producto guardarProducto(String nombre, int stock) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setDescripcion("Descripción original");
+        producto.setPrecio(10.0);
+        producto.setCategoria("accessory");
+        producto.setImagen("https://example.com/original.jpg");
+        producto.setStock(stock);
+        return productoRepository.save(producto);
+    }
+
+    /**
+     * Test: Importar CSV con productos nuevos y existentes
+     * Verifica que actualiza por nombre (conservando la imagen si no viene), crea los nuevos,
+     * respeta campos entre comillas y rechaza las filas inválidas con su línea
+     */
+    @Test
+    void importar_csv_debeCrearActualizarYRechazar() throws Exception {
+        // Arrange
+        Producto existente = guardarProducto("Mancuerna 10kg", 5);
+        String csv = "\uFEFFNombre,Descripcion,Precio,Categoria,Stock,Imagen\r\n"
+                + "Mancuerna 10kg,Mancuerna de hierro,19.99,accessory,40,\r\n"
+                + "Proteína Whey,\"Sabor chocolate, 2kg\",89.99,supplement,50,https://example.com/whey.jpg\r\n"
+                + "Creatina,Monohidrato,abc,supplement,10,\r\n"
+                + "\r\n"
+                + "Banda elástica,\"Resistencia \"\"media\"\"\",9.5,accessory,-1,\r\n"
+                + "Creatina,Monohidrato 300g,24.99,supplement,30,\r\n";
+        // El registro de métricas se comparte entre los tests de la clase
+        double creadasAntes = meterRegistry.get("productos.importacion.filas").tag("resultado", "creada").counter().count();
+
+        // Act
+        ResultadoImportacion resultado = importacionProductosService.importar(archivo(csv), ImportacionProductosService.CSV, eventos::add);
+
+        // Assert
+        assertEquals(5, resultado.procesadas());
+        assertEquals(2, resultado.creadas());
+        assertEquals(1, resultado.actualizadas());
+        assertEquals(2, resultado.rechazadas());
+        assertEquals(4, resultado.rechazos().get(0).linea());
+        assertEquals(6, resultado.rechazos().get(1).linea());
+        assertEquals(3, productoRepository.count());
+
+        Producto actualizado = productoRepository.findById(existente.getId()).orElseThrow();
+        assertEquals("Mancuerna de hierro", actualizado.getDescripcion());
+        assertEquals(40, actualizado.getStock());
+        assertEquals("https://example.com/original.jpg", actualizado.getImagen());
+        assertEquals(existente.getVersion() + 1, actualizado.getVersion());
+        assertEquals("Sabor chocolate, 2kg", productoRepository.findByNombre("Proteína Whey").orElseThrow().getDescripcion());
+        // Palabras de búsqueda de los productos creados (las del existente no cambian: se actualiza por nombre)
+        Long proteina = productoRepository.findByNombre("Proteína Whey").orElseThrow().getId();
+        assertEquals(List.of(proteina), tokenProductoRepository.findPorPrefijoDesde("whe", "", 0L, PageRequest.of(0, 10))
+                .stream().map(TokenProducto::getProductoId).toList());
+        assertEquals(3, tokenProductoRepository.count());
+        assertEquals(24.99, productoRepository.findByNombre("Creatina").orElseThrow().getPrecio());
+
+        verify(indiceTrigramas, times(3)).indexar(any(Producto.class));
+        verify(indiceFiltros, times(3)).indexar(any(Producto.class));
+        verify(indiceAutocompletado, times(3)).indexar(any(Producto.class));
+        verify(cacheCatalogo, atLeastOnce()).invalidar();
+        assertEquals(creadasAntes + 2, meterRegistry.get("productos.importacion.filas").tag("resultado", "creada").counter().count());
+        // Solo el primer lote actualiza un producto existente
+        verify(difusorCambios, times(1)).publicar(
+                new ResincronizacionProductos(ResincronizacionProductos.IMPORTACION, null));
+        // Un evento por el único lote completo (las 2 primeras filas válidas) y el resumen con los contadores de esta importación
+        assertEquals(List.of("progreso", "resumen"), eventos.stream().map(e -> e.get("tipo")).toList());
+        assertEquals(2L, eventos.get(0).get("procesadas"));
+        assertEquals(2L, eventos.get(1).get("creadas"));
+        assertEquals(resultado.rechazos(), eventos.get(1).get("rechazos"));
+    }
+
+    /**
+     * Test: Importar stock de productos con unidades reservadas
+     * Verifica que rechaza la fila que dejaría menos stock que lo reservado, aplica la que lo cubre
+     * y libera la retención de lo descontado al terminar la transacción del lote
+     */
+    @Test
+    void importar_conStockReservado_noDebeDejarMenosQueLoReservado() throws Exception {
+        // Arrange: de cada producto hay 8 unidades reservadas
+        Producto mancuerna = guardarProducto("Mancuerna 10kg", 20);
+        Producto barra = guardarProducto("Barra olímpica", 20);
+        assertTrue(libroReservas.reservar(mancuerna.getId(), 8, () -> 20));
+        assertTrue(libroReservas.reservar(barra.getId(), 8, () -> 20));
+        String csv = "nombre,descripcion,precio,categoria,stock\n"
+                + "Mancuerna 10kg,Mancuerna de hierro,19.99,accessory,5\n"
+                + "Barra olímpica,Barra de 20kg,149.99,accessory,8\n";
+
+        // Act
+        ResultadoImportacion resultado = importacionProductosService.importar(archivo(csv), ImportacionProductosService.CSV, eventos::add);
+
+        // Assert
+        assertEquals(1, resultado.actualizadas());
+        assertEquals(1, resultado.rechazadas());
+        assertEquals(2, resultado.rechazos().get(0).linea());
+        assertEquals("stock menor que las unidades reservadas (8)", resultado.rechazos().get(0).motivo());
+        assertEquals(20, productoRepository.findById(mancuerna.getId()).orElseThrow().getStock());
+        assertEquals(8, productoRepository.findById(barra.getId()).orElseThrow().getStock());
+        // Un ajuste de inventario no es una venta
+        assertEquals(0L, productoRepository.findById(barra.getId()).orElseThrow().getVendidos());
+        assertEquals(8, libroReservas.reservado(mancuerna.getId()));
+        assertEquals(8, libroReservas.reservado(barra.getId()));
+    }
+
+    /**
+     * Test: Importar NDJSON con un nombre repetido y una línea malformada
+     * Verifica que queda la última fila del nombre repetido y la línea inválida se rechaza sin detener la importación
+     */
+    @Test
+    void importar_ndjson_debeQuedarseConLaUltimaFilaYRechazarJsonInvalido() throws Exception {
+        // Arrange
+        String ndjson = "{\"nombre\": \"Cuerda\", \"descripcion\": \"Cuerda de saltar\", \"precio\": 5, \"categoria\": \"accessory\", \"stock\": 10}\n"
+                + "{\"nombre\": \"Cuerda\", \"descripcion\": \"Cuerda de saltar con rodamientos\", \"precio\": 7.5, \"categoria\": \"accessory\", \"stock\": 12}\n"
+                + "{\"nombre\": \"Guantes\", \n"
+                + "{\"nombre\": \"Guantes\", \"descripcion\": \"Guantes de entrenamiento\", \"precio\": 15, \"categoria\": \"accessory\", \"stock\": 8}\n";
+
+        // Act
+        ResultadoImportacion resultado = importacionProductosService.importar(archivo(ndjson), ImportacionProductosService.NDJSON, eventos::add);
+
+        // Assert
+        assertEquals(4, resultado.procesadas());
+        assertEquals(2, resultado.creadas());
+        assertEquals(1, resultado.actualizadas());
+        assertEquals(1, resultado.rechazadas());
+        assertEquals(3, resultado.rechazos().get(0).linea());
+        assertEquals(2, productoRepository.count());
+        Producto cuerda = productoRepository.findByNombre("Cuerda").orElseThrow();
+        assertEquals(7.5, cuerda.getPrecio());
+        assertEquals(12, cuerda.getStock());
+    }
+
+    /**
+     * Test: Importar un registro demasiado largo
+     * Verifica que el registro CSV o la línea NDJSON que supera max-largo-registro se rechaza con su línea
+     * y la importación sigue desde el siguiente salto de línea
+     */
+    @Test
+    void importar_conRegistroDemasiadoLargo_debeRechazarloYSeguir() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(importacionProductosService, "maxLargoRegistro", 150);
+        String largo = "x".repeat(300);
+        String csv = "nombre,descripcion,precio,categoria,stock\r\n"
+                + "Cuerda,\"" + largo + "\r\n"
+                + "Guantes,Guantes de entrenamiento,15,accessory,8\r\n";
+        String ndjson = "{\"nombre\": \"Banda\", \"descripcion\": \"" + largo + "\", \"precio\": 5, \"categoria\": \"accessory\", \"stock\": 10}\n"
+                + "{\"nombre\": \"Banda\", \"descripcion\": \"Banda elástica\", \"precio\": 5, \"categoria\": \"accessory\", \"stock\": 10}\r\n";
+
+        // Act
+        ResultadoImportacion resultadoCsv = importacionProductosService.importar(archivo(csv), ImportacionProductosService.CSV, eventos::add);
+        ResultadoImportacion resultadoNdjson = importacionProductosService.importar(archivo(ndjson), ImportacionProductosService.NDJSON, eventos::add);
+
+        // Assert
+        assertEquals(1, resultadoCsv.rechazadas());
+        assertEquals(2, resultadoCsv.rechazos().get(0).linea());
+        assertEquals("registro supera 150 caracteres", resultadoCsv.rechazos().get(0).motivo());
+        assertEquals(1, resultadoCsv.creadas());
+        assertEquals(1, resultadoNdjson.rechazadas());
+        assertEquals(1, resultadoNdjson.rechazos().get(0).linea());
+        assertEquals("línea supera 150 caracteres", resultadoNdjson.rechazos().get(0).motivo());
+        assertEquals(1, resultadoNdjson.creadas());
+        assertEquals("Banda elástica", productoRepository.findByNombre("Banda").orElseThrow().getDescripcion());
+        assertEquals(2, productoRepository.count());
+    }
+
+    /**
+     * Test: Limitar el detalle de rechazos
+     * Verifica que se cuentan todos los rechazos pero solo se detallan los primeros max-rechazos
+     */
+    @Test
+    void importar_conMuchosRechazos_debeLimitarElDetalle() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(importacionProductosService, "maxRechazos", 2);
+        StringBuilder csv = new StringBuilder("nombre,descripcion,precio,categoria,stock\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("Producto ").append(i).append(",,10,accessory,1\n");
+        }
+
+        // Act
+        ResultadoImportacion resultado = importacionProductosService.importar(archivo(csv.toString()), ImportacionProductosService.CSV, eventos::add);
+
+        // Assert
+        assertEquals(5, resultado.rechazadas());
+        assertEquals(2, resultado.rechazos().size());
+        assertEquals("Falta el campo descripcion", resultado.rechazos().get(0).motivo());
+        assertEquals(0, productoRepository.count());
+    }
+
+    /**
+     * Test: CSV sin columnas requeridas
+     * Verifica que lanza excepción antes de procesar filas
+     */
+    @Test
+    void importar_csvSinColumnasRequeridas_debeLanzarExcepcion() {
+        // Arrange
+        String csv = "nombre,precio\nMancuerna,19.99\n";
+
+        // Act & Assert
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> importacionProductosService.importar(archivo(csv), ImportacionProductosService.CSV, eventos::add));
+        assertTrue(ex.getMessage().contains("descripcion"));
+        assertEquals(0, productoRepository.count());
+    }
+}
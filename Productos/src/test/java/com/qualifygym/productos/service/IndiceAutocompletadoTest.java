@@ -0,0 +1,184 @@
+package com.qualifygym.productos.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoPopularidad;
+import com.qualifygym.productos.model.Sugerencia;
+import com.qualifygym.productos.repository.ProductoRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests unitarios para IndiceAutocompletado
+ *
+ * Verifican que las sugerencias salen por prefijo de cualquier palabra del nombre, ordenadas por
+ * ventas, y que altas, ediciones, bajas y ventas dejan el trie igual que reconstruirlo desde cero.
+ */
+class IndiceAutocompletadoTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @InjectMocks
+    private IndiceAutocompletado indice;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(indice, "maxSugerencias", 3);
+        when(productoRepository.findPopularidadDesde(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new ProductoPopularidad(1L, "Proteína Whey", 50L),
+                new ProductoPopularidad(2L, "Proteína Vegana", 80L),
+                new ProductoPopularidad(3L, "Creatina Monohidrato", 10L),
+                new ProductoPopularidad(4L, "Barra Proteica", 5L),
+                new ProductoPopularidad(5L, "Creatina", 10L)));
+        indice.reconstruir();
+    }
+
+    private static List<Long> ids(List<Sugerencia> sugerencias) {
+        return sugerencias.stream().map(Sugerencia::id).toList();
+    }
+
+    private static Producto producto(long id, String nombre, long vendidos) {
+        Producto producto = new Producto();
+        producto.setId(id);
+        producto.setNombre(nombre);
+        producto.setVendidos(vendidos);
+        return producto;
+    }
+
+    /**
+     * Test: Sugerir por prefijo
+     * Verifica que se ignoran mayúsculas y tildes, que se ordena por ventas (y a igual venta
+     * el nombre más corto) y que se respeta el límite
+     */
+    @Test
+    void sugerir_conPrefijo_debeOrdenarPorVentas() {
+        assertEquals(List.of(2L, 1L, 4L), ids(indice.sugerir("PROTE", 3)));
+        assertEquals(List.of(2L, 1L), ids(indice.sugerir("proteína", 3)));
+        assertEquals(List.of(5L, 3L), ids(indice.sugerir("crea", 3)));
+        assertEquals(List.of(2L), ids(indice.sugerir("p", 1)));
+        assertEquals("Proteína Vegana", indice.sugerir("p", 1).get(0).nombre());
+    }
+
+    /**
+     * Test: Palabras del medio y varias palabras
+     * Verifica que se sugiere al empezar por cualquier palabra y que las anteriores deben coincidir completas
+     */
+    @Test
+    void sugerir_conPalabraDelMedio_debeEncontrarProducto() {
+        assertEquals(List.of(1L), ids(indice.sugerir("whe", 3)));
+        assertEquals(List.of(3L), ids(indice.sugerir("creatina mono", 3)));
+        assertEquals(List.of(), ids(indice.sugerir("crea mono", 3)));
+        assertEquals(List.of(), ids(indice.sugerir("mancuerna", 3)));
+        assertEquals(List.of(), ids(indice.sugerir("  ", 3)));
+    }
+
+    /**
+     * Test: Ventas
+     * Verifica que un producto que vende más sube en las sugerencias sin reconstruir
+     */
+    @Test
+    void sumarVendidos_debeSubirElProducto() {
+        indice.sumarVendidos(4L, 100);
+
+        assertEquals(List.of(4L, 2L, 1L), ids(indice.sugerir("prote", 3)));
+        assertEquals(List.of(4L), ids(indice.sugerir("barra", 3)));
+    }
+
+    /**
+     * Test: Edición y baja
+     * Verifica que un producto renombrado deja de sugerirse con su nombre anterior y que una baja
+     * no deja nodos vacíos en el trie
+     */
+    @Test
+    void indexarYEliminar_debenMantenerElTrieAlDia() {
+        int nodosIniciales = indice.nodos();
+
+        indice.indexar(producto(1L, "Glutamina", 50L));
+        assertEquals(List.of(2L, 4L), ids(indice.sugerir("prote", 3)));
+        assertEquals(List.of(1L), ids(indice.sugerir("glu", 3)));
+
+        indice.indexar(producto(6L, "Proteína Isolatada", 0L));
+        indice.eliminar(6L);
+        indice.eliminar(1L);
+        indice.indexar(producto(1L, "Proteína Whey", 50L));
+
+        assertEquals(List.of(2L, 1L, 4L), ids(indice.sugerir("prote", 3)));
+        assertEquals(List.of(), ids(indice.sugerir("glu", 3)));
+        assertEquals(5, indice.tamano());
+        assertEquals(nodosIniciales, indice.nodos());
+    }
+
+    /**
+     * Test: Actualización incremental contra reconstrucción
+     * Con muchos cambios al azar, las sugerencias de cada prefijo deben coincidir con las de un
+     * índice reconstruido desde cero con el mismo catálogo
+     */
+    @Test
+    void cambiosIncrementales_debenCoincidirConReconstruir() {
+        // Arrange: nombres de pocas letras para que compartan prefijos y se dividan y unan nodos
+        Random random = new Random(7);
+        String[] palabras = { "pro", "prot", "proteina", "pre", "whey", "whe", "barra", "bar", "b" };
+        Map<Long, Producto> catalogo = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 2_000; i++) {
+            long id = 10 + random.nextInt(60);
+            int accion = random.nextInt(4);
+            if (accion == 0 && catalogo.containsKey(id)) {
+                indice.eliminar(id);
+                catalogo.remove(id);
+            } else if (accion == 1 && catalogo.containsKey(id)) {
+                long unidades = 1 + random.nextInt(5);
+                indice.sumarVendidos(id, unidades);
+                Producto p = catalogo.get(id);
+                p.setVendidos(p.getVendidos() + unidades);
+            } else {
+                String nombre = palabras[random.nextInt(palabras.length)] + " " + palabras[random.nextInt(palabras.length)];
+                long vendidos = catalogo.containsKey(id) ? catalogo.get(id).getVendidos() : random.nextInt(10);
+                Producto p = producto(id, nombre, vendidos);
+                indice.indexar(p);
+                catalogo.put(id, p);
+            }
+        }
+
+        IndiceAutocompletado reconstruido = new IndiceAutocompletado();
+        ReflectionTestUtils.setField(reconstruido, "maxSugerencias", 3);
+        ProductoRepository otroRepositorio = mock(ProductoRepository.class);
+        ReflectionTestUtils.setField(reconstruido, "productoRepository", otroRepositorio);
+        List<ProductoPopularidad> filas = new ArrayList<>(List.of(
+                new ProductoPopularidad(1L, "Proteína Whey", 50L),
+                new ProductoPopularidad(2L, "Proteína Vegana", 80L),
+                new ProductoPopularidad(3L, "Creatina Monohidrato", 10L),
+                new ProductoPopularidad(4L, "Barra Proteica", 5L),
+                new ProductoPopularidad(5L, "Creatina", 10L)));
+        catalogo.values().stream()
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .forEach(p -> filas.add(new ProductoPopularidad(p.getId(), p.getNombre(), p.getVendidos())));
+        when(otroRepositorio.findPopularidadDesde(eq(0L), any(Pageable.class))).thenReturn(filas);
+        reconstruido.reconstruir();
+
+        // Assert
+        assertEquals(reconstruido.tamano(), indice.tamano());
+        assertEquals(reconstruido.nodos(), indice.nodos());
+        for (String prefijo : List.of("p", "pr", "pro", "prot", "prote", "pre", "w", "whe", "whey", "b", "ba",
+                "bar", "barra", "pro w", "proteina whey", "whey b", "b b", "c")) {
+            assertEquals(ids(reconstruido.sugerir(prefijo, 3)), ids(indice.sugerir(prefijo, 3)), "Prefijo: " + prefijo);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.qualifygym.productos.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoAtributos;
+import com.qualifygym.productos.repository.ProductoRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Tests unitarios para IndiceFiltros
+ *
+ * Verifican la combinación de filtros, los conteos por faceta (cada uno sin su propio filtro)
+ * y que las ediciones y bajas mueven o quitan el producto de los bitsets.
+ */
+class IndiceFiltrosTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @InjectMocks
+    private IndiceFiltros indice;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(indice, "limitesPrecio", new double[] { 50, 10, 25 });
+        ReflectionTestUtils.setField(indice, "stockBajo", 5);
+        indice.init();
+        when(productoRepository.findAtributosDesde(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new ProductoAtributos(1L, "Proteína Whey", "supplement", 29.99, 100, 0L),
+                new ProductoAtributos(2L, "Creatina Monohidrato", "supplement", 19.99, 0, 0L),
+                new ProductoAtributos(3L, "Barra Proteica", "supplement", 2.50, 3, 0L),
+                new ProductoAtributos(4L, "Guantes de Entrenamiento", "accessory", 15.00, 20, 0L),
+                new ProductoAtributos(5L, "Shaker Proteína", "Accessory", 9.99, 50, 0L)));
+        indice.reconstruir();
+    }
+
+    private Producto producto(Long id, String nombre, String categoria, double precio, int stock, long version) {
+        Producto producto = new Producto();
+        producto.setId(id);
+        producto.setNombre(nombre);
+        producto.setCategoria(categoria);
+        producto.setPrecio(precio);
+        producto.setStock(stock);
+        producto.setVersion(version);
+        return producto;
+    }
+
+    /**
+     * Test: Sin filtros
+     * Verifica el total, el orden y las facetas sobre todo el catálogo
+     */
+    @Test
+    void filtrar_sinFiltros_debeRetornarTodoConFacetas() {
+        IndiceFiltros.Resultado resultado = indice.filtrar(null, null, null, false, null, 0, 10);
+
+        assertEquals(5, resultado.total());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), resultado.ids());
+        assertEquals(Map.of("accessory", 2, "supplement", 3), resultado.facetas().get("categorias"));
+        assertEquals(Map.of("agotado", 1, "bajo", 1, "disponible", 3), resultado.facetas().get("stock"));
+        assertEquals(Map.of("0-10", 2, "10-25", 2, "25-50", 1, "50+", 0), resultado.facetas().get("precios"));
+    }
+
+    /**
+     * Test: Filtros combinados
+     * Categoría, rango de precio con bordes inclusivos, stock y términos del nombre
+     */
+    @Test
+    void filtrar_conFiltrosCombinados_debeIntersectar() {
+        // Precio entre 9.99 y 29.99: incluye ambos bordes aunque caen dentro de un rango
+        assertEquals(List.of(1L, 2L, 4L, 5L), indice.filtrar(null, 9.99, 29.99, false, null, 0, 10).ids());
+        assertEquals(List.of(1L), indice.filtrar(List.of("SUPPLEMENT"), 9.99, 29.99, true, null, 0, 10).ids());
+        assertEquals(List.of(1L, 5L), indice.filtrar(null, null, null, true, "proteina", 0, 10).ids());
+        assertEquals(List.of(5L), indice.filtrar(null, null, null, false, "proteina shaker", 0, 10).ids());
+        assertEquals(0, indice.filtrar(List.of("ropa"), null, null, false, null, 0, 10).total());
+    }
+
+    /**
+     * Test: Facetas con filtros aplicados
+     * La faceta de categorías no se restringe por la categoría elegida, pero sí por los demás filtros
+     */
+    @Test
+    void filtrar_facetas_debenIgnorarSuPropioFiltro() {
+        IndiceFiltros.Resultado resultado = indice.filtrar(List.of("supplement"), null, null, true, null, 0, 10);
+
+        assertEquals(List.of(1L, 3L), resultado.ids());
+        assertEquals(Map.of("accessory", 2, "supplement", 2), resultado.facetas().get("categorias"));
+        assertEquals(Map.of("agotado", 1, "bajo", 1, "disponible", 1), resultado.facetas().get("stock"));
+        assertEquals(Map.of("0-10", 1, "10-25", 0, "25-50", 1, "50+", 0), resultado.facetas().get("precios"));
+    }
+
+    /**
+     * Test: Paginación
+     */
+    @Test
+    void filtrar_conPagina_debeSaltarResultados() {
+        IndiceFiltros.Resultado resultado = indice.filtrar(null, null, null, false, null, 2, 2);
+
+        assertEquals(5, resultado.total());
+        assertEquals(List.of(3L, 4L), resultado.ids());
+    }
+
+    /**
+     * Test: Edición y baja
+     * Verifica que el producto cambia de bitsets y que una versión vieja no pisa la nueva
+     */
+    @Test
+    void indexarYEliminar_debenActualizarBitsets() {
+        indice.indexar(producto(2L, "Creatina Monohidrato", "supplement", 59.90, 40, 2L));
+        indice.indexar(producto(2L, "Creatina Monohidrato", "supplement", 19.99, 0, 1L));
+        indice.eliminar(4L);
+
+        assertEquals(List.of(2L), indice.filtrar(null, 50.0, null, true, null, 0, 10).ids());
+        assertEquals(Map.of("accessory", 1, "supplement", 3),
+                indice.filtrar(null, null, null, false, null, 0, 10).facetas().get("categorias"));
+        assertEquals(4, indice.tamano());
+    }
+
+    /**
+     * Test: Versión indexada
+     * Verifica que refleja la última versión indexada y que un producto eliminado o desconocido no tiene versión
+     */
+    @Test
+    void version_debeRetornarLaUltimaVersionIndexada() {
+        indice.indexar(producto(1L, "Proteína Whey", "supplement", 29.99, 90, 3L));
+        indice.eliminar(4L);
+
+        assertEquals(OptionalLong.of(3L), indice.version(1L));
+        assertEquals(OptionalLong.of(0L), indice.version(2L));
+        assertTrue(indice.version(4L).isEmpty());
+        assertTrue(indice.version(99L).isEmpty());
+    }
+}
@@ -0,0 +1,142 @@
+package com.qualifygym.productos.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.qualifygym.productos.model.Producto;
+
+/**
+ * Benchmark JMH de la búsqueda de productos con 100 mil y 1 millón de productos
+ *
+ * Compara el camino SQL anterior (LIKE '%texto%' sobre una tabla H2 en memoria, que igual
+ * que MySQL no puede usar un índice B-tree y recorre la tabla completa) contra el índice de
+ * trigramas. Los números absolutos de MySQL serán peores (red, disco), pero la forma del
+ * recorrido es la misma. El índice devuelve los 100 más relevantes; el LIKE, todas las filas.
+ * indiceTrigramasConErrores mide la búsqueda tolerante a errores de tipeo, que el LIKE no tiene.
+ *
+ * No se ejecuta con los tests; para correrlo (con 1M conviene -Xmx4g):
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.qualifygym.productos.service.IndiceTrigramasBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IndiceTrigramasBenchmark {
+
+    private static final String[] MARCAS = { "Titan", "Iron", "Pulse", "Atlas", "Nova", "Vértice", "Andes", "Fénix" };
+    private static final String[] TIPOS = { "Proteína Whey", "Creatina", "Mancuernas", "Banda Elástica", "Mat de Yoga",
+            "Guantes", "Cuerda de Saltar", "Pesa Rusa", "Barra Proteica", "Shaker", "Cinturón Lumbar", "Rodillo" };
+    private static final String[] DETALLES = { "alta calidad", "uso profesional", "sabor chocolate", "antideslizante",
+            "acero inoxidable", "sin azúcar", "para entrenamiento en casa", "recuperación muscular" };
+    private static final String[] CONSULTAS = { "proteina", "mancuer", "pesa rusa", "titan creatina", "antidesliz" };
+    private static final String[] CONSULTAS_CON_ERRORES = { "protien", "mancuernsa", "pesa ruza", "titan cretina", "sahker" };
+
+    @Param({ "100000", "1000000" })
+    private int cantidad;
+
+    private Connection conexion;
+    private PreparedStatement like;
+    private IndiceTrigramas indice;
+    private int siguienteConsulta;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conexion = DriverManager.getConnection("jdbc:h2:mem:productos_" + cantidad);
+        try (Statement st = conexion.createStatement()) {
+            st.execute("create table productos (id bigint primary key, nombre varchar(200), descripcion varchar(1000))");
+        }
+
+        indice = new IndiceTrigramas();
+        ReflectionTestUtils.setField(indice, "maxResultados", 100);
+        ReflectionTestUtils.setField(indice, "indexarDescripcion", true);
+
+        Random random = new Random(42);
+        Producto producto = new Producto();
+        try (PreparedStatement insert = conexion.prepareStatement("insert into productos values (?, ?, ?)")) {
+            for (long id = 1; id <= cantidad; id++) {
+                producto.setId(id);
+                producto.setNombre(TIPOS[random.nextInt(TIPOS.length)] + " " + MARCAS[random.nextInt(MARCAS.length)]
+                        + " " + (random.nextInt(50) + 1));
+                producto.setDescripcion("Producto de " + DETALLES[random.nextInt(DETALLES.length)] + ", "
+                        + DETALLES[random.nextInt(DETALLES.length)]);
+                insert.setLong(1, id);
+                insert.setString(2, producto.getNombre());
+                insert.setString(3, producto.getDescripcion());
+                insert.addBatch();
+                if (id % 1000 == 0) {
+                    insert.executeBatch();
+                }
+                indice.indexar(producto);
+            }
+            insert.executeBatch();
+        }
+        // La consulta que generaba findByNombreContainingIgnoreCase
+        like = conexion.prepareStatement(
+                "select id, nombre, descripcion from productos where upper(nombre) like upper(?) escape '\\'");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conexion.close();
+    }
+
+    private String consulta() {
+        return CONSULTAS[siguienteConsulta++ % CONSULTAS.length];
+    }
+
+    @Benchmark
+    public List<Long> likeEnBaseDeDatos() throws SQLException {
+        like.setString(1, "%" + consulta() + "%");
+        List<Long> ids = new ArrayList<>();
+        try (ResultSet rs = like.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<Long> indiceTrigramas() {
+        return indice.buscar(consulta());
+    }
+
+    @Benchmark
+    public List<Long> indiceTrigramasConErrores() {
+        return indice.buscarAproximado(CONSULTAS_CON_ERRORES[siguienteConsulta++ % CONSULTAS_CON_ERRORES.length]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IndiceTrigramasBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,165 @@
+package com.qualifygym.productos.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ProductoTexto;
+import com.qualifygym.productos.repository.ProductoRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+/**
+ * Tests unitarios para IndiceTrigramas
+ *
+ * Verifican que la búsqueda ignora mayúsculas y tildes, rankea primero las coincidencias
+ * en el nombre, tolera errores de tipeo y que las altas, ediciones y bajas mantienen el índice al día.
+ */
+class IndiceTrigramasTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @InjectMocks
+    private IndiceTrigramas indice;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(indice, "maxResultados", 100);
+        ReflectionTestUtils.setField(indice, "indexarDescripcion", true);
+        when(productoRepository.findTextosDesde(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new ProductoTexto(1L, "Proteína Whey", "Proteína de suero de leche de alta calidad"),
+                new ProductoTexto(2L, "Creatina Monohidrato", "Creatina pura para aumentar fuerza"),
+                new ProductoTexto(3L, "Barra Proteica", "Snack con proteína y avena"),
+                new ProductoTexto(4L, "Creatina", "Polvo sin sabor")));
+        indice.reconstruir();
+    }
+
+    /**
+     * Test: Buscar ignorando mayúsculas y tildes
+     * Verifica que coinciden subcadenas del nombre y de la descripción
+     */
+    @Test
+    void buscar_sinTildes_debeEncontrarNombreYDescripcion() {
+        List<Long> resultado = indice.buscar("PROTEINA");
+
+        // Nombre que empieza con la consulta, luego la coincidencia solo en la descripción
+        assertEquals(List.of(1L, 3L), resultado);
+        assertEquals(List.of(3L), indice.buscar("avena"));
+        assertEquals(List.of(), indice.buscar("mancuerna"));
+    }
+
+    /**
+     * Test: Ranking por cobertura del nombre
+     * Verifica que el nombre más corto que contiene la consulta va primero
+     */
+    @Test
+    void buscar_conVariasCoincidencias_debeOrdenarPorRelevancia() {
+        assertEquals(List.of(4L, 2L), indice.buscar("creatina"));
+        assertEquals(List.of(4L), indice.buscar("creatina", 1));
+    }
+
+    /**
+     * Test: Consultas cortas
+     * Con menos de 3 caracteres el servicio debe usar la base de datos
+     */
+    @Test
+    void admite_conMenosDeTresCaracteres_debeRetornarFalse() {
+        assertTrue(indice.admite("whe"));
+        assertFalse(indice.admite("wh"));
+        assertFalse(indice.admite("  é "));
+    }
+
+    /**
+     * Test: Errores de tipeo
+     * Verifica que cada palabra puede tener una o dos ediciones según su largo, que el más
+     * parecido va primero y que todas las palabras de la consulta deben coincidir
+     */
+    @Test
+    void buscarAproximado_conErroresDeTipeo_debeEncontrarLosMasParecidos() {
+        assertEquals(List.of(4L, 2L), indice.buscarAproximado("cretina"));
+        assertEquals(List.of(1L), indice.buscarAproximado("PROTIEN"));
+        assertEquals(List.of(2L), indice.buscarAproximado("creatina monohidratp"));
+        assertEquals(List.of(4L), indice.buscarAproximado("cretina", 1));
+        assertEquals(List.of(), indice.buscarAproximado("cretina whey"));
+        assertEquals(List.of(), indice.buscarAproximado("mancuerna"));
+        // Menos de 4 letras: solo la palabra exacta
+        assertEquals(List.of(), indice.buscarAproximado("wey"));
+    }
+
+    /**
+     * Test: Distancia de edición acotada
+     * Verifica que el intercambio de letras vecinas cuenta como una edición y que se corta sobre el máximo
+     */
+    @Test
+    void distancia_debeContarEdicionesHastaElMaximo() {
+        assertEquals(0, IndiceTrigramas.distancia("whey", "whey", 1));
+        assertEquals(1, IndiceTrigramas.distancia("wehy", "whey", 1));
+        assertEquals(2, IndiceTrigramas.distancia("protien", "proteina", 2));
+        assertEquals(3, IndiceTrigramas.distancia("creatina", "glutamina", 2));
+        assertEquals(2, IndiceTrigramas.distancia("barra", "barra proteica", 1));
+    }
+
+    /**
+     * Test: Edición y baja de productos
+     * Sin transacción activa los cambios se aplican de inmediato
+     */
+    @Test
+    void indexarYEliminar_debenActualizarIndice() {
+        // Arrange
+        Producto editado = new Producto();
+        editado.setId(1L);
+        editado.setNombre("Caseína Nocturna");
+        editado.setDescripcion("Proteína de absorción lenta");
+
+        // Act
+        indice.indexar(editado);
+        indice.eliminar(3L);
+
+        // Assert
+        assertEquals(List.of(1L), indice.buscar("caseina"));
+        assertEquals(List.of(), indice.buscar("whey"));
+        assertEquals(List.of(1L), indice.buscar("proteina"));
+        assertEquals(List.of(1L), indice.buscarAproximado("caseina nocturan"));
+        assertEquals(List.of(), indice.buscarAproximado("protein whey"));
+        assertEquals(3, indice.tamano());
+    }
+
+    /**
+     * Test: Compactación
+     * Verifica que después de muchas bajas las búsquedas siguen siendo correctas
+     */
+    @Test
+    void eliminar_muchosProductos_debeCompactarSinPerderResultados() {
+        // Arrange
+        for (long id = 100; id < 3100; id++) {
+            Producto producto = new Producto();
+            producto.setId(id);
+            producto.setNombre("Mancuerna " + id);
+            producto.setDescripcion("Hierro fundido");
+            indice.indexar(producto);
+        }
+
+        // Act
+        for (long id = 100; id < 3000; id++) {
+            indice.eliminar(id);
+        }
+
+        // Assert
+        assertEquals(104, indice.tamano());
+        assertEquals(100, indice.buscar("mancuerna").size());
+        assertEquals(List.of(3000L), indice.buscar("mancuerna 3000"));
+        assertEquals(3000L, indice.buscarAproximado("mancurena 3000").get(0));
+        assertEquals(List.of(), indice.buscarAproximado("mancurena 2999"));
+        assertEquals(List.of(4L, 2L), indice.buscar("creatina"));
+    }
+}
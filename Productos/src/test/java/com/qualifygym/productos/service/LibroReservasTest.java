@@ -0,0 +1,143 @@
+package com.qualifygym.productos.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.qualifygym.productos.model.EstadoReserva;
+import com.qualifygym.productos.model.ReservaStock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests unitarios para LibroReservas
+ *
+ * Verifican que nunca se reserva más que el stock disponible, tampoco con muchos
+ * hilos compitiendo por las últimas unidades, y la carga desde las reservas guardadas.
+ */
+class LibroReservasTest {
+
+    private LibroReservas libro;
+
+    @BeforeEach
+    void setUp() {
+        libro = new LibroReservas();
+        ReflectionTestUtils.setField(libro, "cantidadFranjas", 4);
+        libro.init();
+    }
+
+    /**
+     * Test: Reservar hasta agotar
+     * Verifica que el stock disponible descuenta lo ya reservado
+     */
+    @Test
+    void reservar_sinStockDisponible_debeRechazar() {
+        assertTrue(libro.reservar(1L, 3, () -> 5));
+        assertFalse(libro.reservar(1L, 3, () -> 5));
+        assertTrue(libro.reservar(1L, 2, () -> 5));
+        assertEquals(5, libro.reservado(1L));
+
+        libro.liberar(1L, 3);
+        assertEquals(2, libro.reservado(1L));
+        assertTrue(libro.reservar(2L, 1, () -> 1));
+    }
+
+    /**
+     * Test: Retener un descuento de stock
+     * Verifica que retorna el mínimo a respetar (lo reservado por otros), que retiene solo las unidades
+     * que no venían de una reserva propia y que no retiene nada si el descuento no se admite
+     */
+    @Test
+    void retener_debeRetornarElMinimoYRetenerLasUnidadesAjenas() {
+        assertTrue(libro.reservar(1L, 4, () -> 10));
+
+        assertEquals(OptionalInt.of(3), libro.retener(1L, 3, 1, minimo -> true));
+        assertEquals(6, libro.reservado(1L));
+
+        assertTrue(libro.retener(1L, 2, 0, minimo -> false).isEmpty());
+        assertEquals(6, libro.reservado(1L));
+    }
+
+    /**
+     * Test: Retener descuentos de varios productos
+     * Verifica que pasa a cada producto lo reservado para él y retiene el descuento solo de los admitidos
+     */
+    @Test
+    void retener_varios_debeRetenerSoloLosAdmitidos() {
+        assertTrue(libro.reservar(1L, 4, () -> 10));
+        assertTrue(libro.reservar(2L, 6, () -> 10));
+        Map<Long, Integer> vistos = new HashMap<>();
+
+        Set<Long> retenidos = libro.retener(Map.of(1L, 3, 2L, 5, 3L, 2), (id, reservado) -> {
+            vistos.put(id, reservado);
+            return reservado < 5;
+        });
+
+        assertEquals(Set.of(1L, 3L), retenidos);
+        assertEquals(Map.of(1L, 4, 2L, 6, 3L, 0), vistos);
+        assertEquals(7, libro.reservado(1L));
+        assertEquals(6, libro.reservado(2L));
+        assertEquals(2, libro.reservado(3L));
+    }
+
+    /**
+     * Test: Competencia por las últimas unidades
+     * Con 10 unidades y 64 hilos, exactamente 10 reservas deben tener éxito
+     */
+    @Test
+    void reservar_concurrente_noDebeSobrevender() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger exitosas = new AtomicInteger();
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            futuros.add(executor.submit(() -> {
+                largada.await();
+                if (libro.reservar(7L, 1, () -> 10)) {
+                    exitosas.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(10, exitosas.get());
+        assertEquals(10, libro.reservado(7L));
+    }
+
+    /**
+     * Test: Carga al iniciar
+     * Verifica que se suman las reservas activas por producto
+     */
+    @Test
+    void cargar_debeSumarReservasPorProducto() {
+        libro.reservar(9L, 1, () -> 100);
+        Instant ahora = Instant.now();
+
+        libro.cargar(List.of(
+                new ReservaStock(1L, 3L, 2, EstadoReserva.ACTIVA, ahora, ahora.plusSeconds(60)),
+                new ReservaStock(2L, 3L, 4, EstadoReserva.ACTIVA, ahora, ahora.plusSeconds(60))));
+
+        assertEquals(6, libro.reservado(3L));
+        assertEquals(0, libro.reservado(9L));
+        assertEquals(6, libro.totalReservado());
+    }
+}
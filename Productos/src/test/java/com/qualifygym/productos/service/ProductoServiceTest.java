@@ -3,18 +3,40 @@ package com.qualifygym.productos.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.qualifygym.productos.model.CambioProducto;
+import com.qualifygym.productos.model.LoteProductos;
+import com.qualifygym.productos.model.PaginaProductos;
+import com.qualifygym.productos.model.ProductoAtributos;
+import com.qualifygym.productos.model.ProductoTexto;
 import com.qualifygym.productos.model.Producto;
+import com.qualifygym.productos.model.ResultadoFiltro;
+import com.qualifygym.productos.model.ResincronizacionProductos;
+import com.qualifygym.productos.model.Sugerencia;
+import com.qualifygym.productos.model.TokenProducto;
 import com.qualifygym.productos.repository.ProductoRepository;
+import com.qualifygym.productos.repository.TokenProductoRepository;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests unitarios para ProductoService
@@ -27,14 +49,44 @@ class ProductoServiceTest {
     @Mock
     private ProductoRepository productoRepository;
 
+    @Mock
+    private TokenProductoRepository tokenProductoRepository;
+
+    @Mock
+    private IndiceTrigramas indiceTrigramas;
+
+    @Mock
+    private IndiceFiltros indiceFiltros;
+
+    @Mock
+    private DifusorCambios difusorCambios;
+
+    @Mock
+    private IndiceAutocompletado indiceAutocompletado;
+
     @InjectMocks
     private ProductoService productoService;
 
     private Producto productoTest;
+    private LibroReservas libroReservas;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+
+        // Caché real (vacía en cada test) para verificar cuándo se consulta el repositorio
+        CacheCatalogo cacheCatalogo = new CacheCatalogo();
+        ReflectionTestUtils.setField(cacheCatalogo, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cacheCatalogo, "maxEntradas", 100);
+        cacheCatalogo.init();
+        ReflectionTestUtils.setField(productoService, "cacheCatalogo", cacheCatalogo);
+        // Libro de reservas real, para verificar que los descuentos respetan lo reservado
+        libroReservas = new LibroReservas();
+        ReflectionTestUtils.setField(libroReservas, "cantidadFranjas", 4);
+        libroReservas.init();
+        ReflectionTestUtils.setField(productoService, "libroReservas", libroReservas);
+        ReflectionTestUtils.setField(productoService, "maxIdsPorLote", 3);
+        ReflectionTestUtils.setField(productoService, "maxResultadosBusqueda", 100);
         
         productoTest = new Producto();
         productoTest.setId(1L);
@@ -95,6 +147,181 @@ class ProductoServiceTest {
         verify(productoRepository, times(1)).findById(id);
     }
 
+    @Test
+    void obtenerPorId_dosVeces_debeConsultarRepositorioUnaVez() {
+        // Arrange
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoTest));
+
+        // Act
+        productoService.obtenerPorId(1L);
+        Producto resultado = productoService.obtenerPorId(1L);
+
+        // Assert
+        assertEquals(productoTest, resultado);
+        verify(productoRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void obtenerPorId_alModificarElResultado_noDebeAlterarLaCache() {
+        // Arrange
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoTest));
+        Producto primero = productoService.obtenerPorId(1L);
+
+        // Act
+        primero.setStock(0);
+        productoTest.setNombre("Modificado en la sesión");
+        Producto segundo = productoService.obtenerPorId(1L);
+
+        // Assert
+        assertNotSame(primero, segundo);
+        assertEquals(100, segundo.getStock());
+        assertEquals("Proteína Whey", segundo.getNombre());
+        verify(productoRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void obtenerPorCategoria_alModificarElResultado_noDebeAlterarLaCache() {
+        // Arrange
+        when(productoRepository.findByCategoria("supplement")).thenReturn(List.of(productoTest));
+        productoService.obtenerPorCategoria("supplement").get(0).setPrecio(0.0);
+
+        // Act
+        List<Producto> resultado = productoService.obtenerPorCategoria("supplement");
+
+        // Assert
+        assertEquals(29.99, resultado.get(0).getPrecio());
+        assertThrows(UnsupportedOperationException.class, () -> resultado.add(new Producto()));
+        verify(productoRepository, times(1)).findByCategoria("supplement");
+    }
+
+    @Test
+    void obtenerPorIds_debeRetornarEnOrdenPedidoYConsultarSoloLosQueNoEstanEnCache() {
+        // Arrange
+        Producto otro = new Producto();
+        otro.setId(2L);
+        otro.setNombre("Creatina");
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoTest));
+        when(productoRepository.findAllById(List.of(2L, 9L))).thenReturn(List.of(otro));
+        productoService.obtenerPorId(1L);
+
+        // Act
+        LoteProductos resultado = productoService.obtenerPorIds(List.of(2L, 1L, 9L, 2L));
+
+        // Assert
+        assertEquals(List.of(otro, productoTest), resultado.productos());
+        assertEquals(List.of(9L), resultado.noEncontrados());
+        verify(productoRepository, times(1)).findAllById(List.of(2L, 9L));
+    }
+
+    @Test
+    void obtenerPorIds_conDemasiadosIds_debeLanzarExcepcion() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> productoService.obtenerPorIds(List.of(1L, 2L, 3L, 4L)));
+        verify(productoRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void filtrar_debeRetornarPaginaEnOrdenDelIndiceConFacetas() {
+        // Arrange
+        Producto otro = new Producto();
+        otro.setId(2L);
+        Map<String, Map<String, Integer>> facetas = Map.of("categorias", Map.of("supplement", 3));
+        when(indiceFiltros.construido()).thenReturn(true);
+        when(indiceFiltros.filtrar(List.of("supplement"), 10.0, null, true, "whey", 3L, 3))
+            .thenReturn(new IndiceFiltros.Resultado(5, List.of(2L, 1L), facetas));
+        when(productoRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(productoTest, otro));
+
+        // Act
+        ResultadoFiltro resultado = productoService.filtrar(List.of("supplement"), 10.0, null, true, "whey", 1, 3);
+
+        // Assert
+        assertEquals(5, resultado.total());
+        assertEquals(List.of(otro, productoTest), resultado.productos());
+        assertEquals(facetas, resultado.facetas());
+    }
+
+    @Test
+    void filtrar_conRangoDePrecioInvertido_debeLanzarExcepcion() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> productoService.filtrar(null, 50.0, 10.0, false, null, 0, 20));
+        verify(indiceFiltros, never()).filtrar(any(), any(), any(), anyBoolean(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void autocompletar_debeResponderDesdeElIndice() {
+        // Arrange
+        when(indiceAutocompletado.maxSugerencias()).thenReturn(10);
+        when(indiceAutocompletado.construido()).thenReturn(true);
+        when(indiceAutocompletado.sugerir("prot", 5)).thenReturn(List.of(new Sugerencia(1L, "Proteína Whey")));
+
+        // Act
+        List<Sugerencia> sugerencias = productoService.autocompletar("prot", 5);
+
+        // Assert
+        assertEquals(List.of(new Sugerencia(1L, "Proteína Whey")), sugerencias);
+        verifyNoInteractions(productoRepository);
+        assertThrows(IllegalArgumentException.class, () -> productoService.autocompletar("prot", 11));
+    }
+
+    @Test
+    void obtenerPagina_conCursor_debeContinuarDespuesDelUltimoProducto() {
+        // Arrange
+        Producto otro = new Producto();
+        otro.setId(7L);
+        otro.setPrecio(34.99);
+        Sort orden = Sort.by("precio").and(Sort.by("id"));
+        when(productoRepository.findBy(ScrollPosition.keyset(), orden, Limit.of(2)))
+            .thenReturn(Window.from(List.of(productoTest, otro), ScrollPosition::offset, true));
+        when(productoRepository.findBy(ScrollPosition.forward(Map.of("precio", 34.99, "id", 7L)), orden, Limit.of(2)))
+            .thenReturn(Window.from(List.of(), ScrollPosition::offset, false));
+
+        // Act
+        PaginaProductos primera = productoService.obtenerPagina(null, "precio", null, null, 2);
+        PaginaProductos segunda = productoService.obtenerPagina(null, "precio", null, primera.siguienteCursor(), 2);
+
+        // Assert
+        assertEquals(List.of(productoTest, otro), primera.productos());
+        assertNotNull(primera.siguienteCursor());
+        assertEquals(List.of(), segunda.productos());
+        assertNull(segunda.siguienteCursor());
+    }
+
+    @Test
+    void obtenerPagina_conCursorDeOtroOrden_debeLanzarExcepcion() {
+        // Arrange
+        Producto ultimo = new Producto();
+        ultimo.setId(3L);
+        ultimo.setNombre("Creatina");
+        when(productoRepository.findByCategoria(eq("supplement"), any(), any(), any()))
+            .thenReturn(Window.from(List.of(ultimo), ScrollPosition::offset, true));
+        String cursor = productoService.obtenerPagina("supplement", "nombre", "desc", null, 1).siguienteCursor();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> productoService.obtenerPagina("supplement", "nombre", "asc", cursor, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> productoService.obtenerPagina(null, "id", null, "no-es-un-cursor", 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> productoService.obtenerPagina(null, "stock", null, null, 1));
+    }
+
+    @Test
+    void actualizarStock_debeInvalidarCache() {
+        // Arrange
+        when(productoRepository.ajustarStock(1L, -5, 0)).thenReturn(1);
+        when(productoRepository.findAll()).thenReturn(List.of(productoTest));
+        productoService.obtenerTodos();
+
+        // Act
+        productoService.actualizarStock(1L, -5);
+        productoService.obtenerTodos();
+
+        // Assert
+        verify(productoRepository, times(2)).findAll();
+    }
+
     @Test
     void obtenerPorCategoria_debeRetornarListaDeProductos() {
         // Arrange
@@ -115,20 +342,99 @@ class ProductoServiceTest {
 
     @Test
     void buscarPorNombre_debeRetornarListaDeProductos() {
-        // Arrange
-        String nombre = "Proteína";
-        List<Producto> productos = new ArrayList<>();
-        productos.add(productoTest);
-        
-        when(productoRepository.findByNombreContainingIgnoreCase(nombre)).thenReturn(productos);
+        // Arrange: sin índice, se recorren por rango las palabras de la consulta más larga ("proteina")
+        // y se descartan los nombres sin una palabra que empiece con "wh"
+        String nombre = "Proteína wh";
+        Producto barra = new Producto();
+        barra.setId(2L);
+        barra.setNombre("Barra Proteína");
+
+        when(tokenProductoRepository.findPorPrefijoDesde(eq("proteina"), eq(""), eq(0L), any()))
+            .thenReturn(List.of(new TokenProducto("proteina", 1L), new TokenProducto("proteina", 2L)));
+        when(productoRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(barra, productoTest));
         
         // Act
         List<Producto> resultado = productoService.buscarPorNombre(nombre);
         
         // Assert
-        assertNotNull(resultado);
-        assertEquals(1, resultado.size());
-        verify(productoRepository, times(1)).findByNombreContainingIgnoreCase(nombre);
+        assertEquals(List.of(productoTest), resultado);
+        assertEquals(List.of(), productoService.buscarPorNombre(" ¿? "));
+        verify(tokenProductoRepository, times(1)).findPorPrefijoDesde(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void buscarPorNombre_conMasCoincidenciasQueElLote_debeSeguirDesdeElUltimoToken() {
+        // Arrange: lotes de 2; el primero llena el lote, así que se pide el siguiente desde ("pesa", 2)
+        ReflectionTestUtils.setField(productoService, "maxResultadosBusqueda", 2);
+        Producto pesa = new Producto();
+        pesa.setId(2L);
+        pesa.setNombre("Pesa rusa");
+        Producto pesas = new Producto();
+        pesas.setId(3L);
+        pesas.setNombre("Pesas");
+        when(tokenProductoRepository.findPorPrefijoDesde(eq("pes"), eq(""), eq(0L), any()))
+            .thenReturn(List.of(new TokenProducto("pesa", 1L), new TokenProducto("pesa", 2L)));
+        when(tokenProductoRepository.findPorPrefijoDesde(eq("pes"), eq("pesa"), eq(2L), any()))
+            .thenReturn(List.of(new TokenProducto("pesas", 3L)));
+        when(productoRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(productoTest, pesa));
+        when(productoRepository.findAllById(List.of(3L))).thenReturn(List.of(pesas));
+
+        // Act: "Proteína Whey" (id 1) no tiene ninguna palabra que empiece con "pes"
+        List<Producto> resultado = productoService.buscarPorNombre("pes");
+
+        // Assert
+        assertEquals(List.of(2L, 3L), resultado.stream().map(Producto::getId).toList());
+    }
+
+    @Test
+    void completarTokensBusqueda_debeGuardarLasPalabrasDeLosProductosSinTokens() {
+        // Arrange
+        when(productoRepository.findSinTokensDesde(eq(0L), any()))
+            .thenReturn(List.of(new ProductoTexto(7L, "Cinturón de Pesas", "Cuero")));
+
+        // Act
+        int completados = productoService.completarTokensBusqueda();
+
+        // Assert
+        assertEquals(1, completados);
+        verify(tokenProductoRepository).saveAll(List.of(new TokenProducto("cinturon", 7L),
+            new TokenProducto("de", 7L), new TokenProducto("pesas", 7L)));
+    }
+
+    @Test
+    void buscarPorNombre_conIndice_debeRetornarEnOrdenDeRelevancia() {
+        // Arrange
+        String nombre = "proteina";
+        Producto otro = new Producto();
+        otro.setId(2L);
+        otro.setNombre("Barra Proteica");
+
+        when(indiceTrigramas.admite(nombre)).thenReturn(true);
+        when(indiceTrigramas.buscar(nombre)).thenReturn(List.of(2L, 1L));
+        when(productoRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(productoTest, otro));
+
+        // Act
+        List<Producto> resultado = productoService.buscarPorNombre(nombre);
+
+        // Assert
+        assertEquals(List.of(2L, 1L), resultado.stream().map(Producto::getId).toList());
+        verify(tokenProductoRepository, never()).findPorPrefijoDesde(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void buscarPorNombre_sinCoincidenciaExacta_debeBuscarConErroresDeTipeo() {
+        // Arrange
+        String nombre = "protien";
+        when(indiceTrigramas.admite(nombre)).thenReturn(true);
+        when(indiceTrigramas.buscar(nombre)).thenReturn(List.of());
+        when(indiceTrigramas.buscarAproximado(nombre)).thenReturn(List.of(1L));
+        when(productoRepository.findAllById(List.of(1L))).thenReturn(List.of(productoTest));
+
+        // Act
+        List<Producto> resultado = productoService.buscarPorNombre(nombre);
+
+        // Assert
+        assertEquals(List.of(productoTest), resultado);
     }
 
     @Test
@@ -159,6 +465,8 @@ class ProductoServiceTest {
         assertEquals(imagen, resultado.getImagen());
         assertEquals(stock, resultado.getStock());
         verify(productoRepository, times(1)).save(any(Producto.class));
+        verify(tokenProductoRepository).saveAll(List.of(new TokenProducto("nuevo", 2L), new TokenProducto("producto", 2L)));
+        verify(indiceTrigramas, times(1)).indexar(resultado);
     }
 
     @Test
@@ -181,6 +489,37 @@ class ProductoServiceTest {
         assertNotNull(resultado);
         verify(productoRepository, times(1)).findById(id);
         verify(productoRepository, times(1)).save(any(Producto.class));
+        verify(tokenProductoRepository).eliminarPorProducto(id);
+        verify(tokenProductoRepository).saveAll(List.of(new TokenProducto("producto", id), new TokenProducto("actualizado", id)));
+    }
+
+    @Test
+    void actualizarProducto_conNuevoPrecio_debePublicarCambio() {
+        // Arrange
+        productoTest.setVersion(3L);
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoTest));
+        when(productoRepository.save(any(Producto.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        productoService.actualizarProducto(1L, null, null, 24.99, null, null, null);
+
+        // Assert
+        verify(difusorCambios).publicar(new CambioProducto(1L, 3L, 100, null, 24.99, 29.99));
+        // Sin cambio de nombre, las palabras de búsqueda no se tocan
+        verifyNoInteractions(tokenProductoRepository);
+    }
+
+    @Test
+    void actualizarProducto_sinCambiosDePrecioNiStock_noDebePublicar() {
+        // Arrange
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoTest));
+        when(productoRepository.save(any(Producto.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        productoService.actualizarProducto(1L, "Proteína Whey 2kg", null, null, null, null, null);
+
+        // Assert
+        verify(difusorCambios, never()).publicar(any(CambioProducto.class));
     }
 
     @Test
@@ -211,6 +550,8 @@ class ProductoServiceTest {
         
         // Assert
         verify(productoRepository, times(1)).deleteById(id);
+        verify(tokenProductoRepository).eliminarPorProducto(id);
+        verify(indiceTrigramas, times(1)).eliminar(id);
     }
 
     @Test
@@ -218,20 +559,122 @@ class ProductoServiceTest {
         // Arrange
         Long id = 1L;
         Integer cantidad = 10;
-        Integer stockInicial = productoTest.getStock();
         
-        when(productoRepository.findById(id)).thenReturn(Optional.of(productoTest));
-        when(productoRepository.save(any(Producto.class))).thenAnswer(invocation -> {
-            Producto producto = invocation.getArgument(0);
-            return producto;
-        });
+        when(productoRepository.ajustarStock(id, cantidad, 0)).thenReturn(1);
         
         // Act
         productoService.actualizarStock(id, cantidad);
         
         // Assert
-        verify(productoRepository, times(1)).findById(id);
-        verify(productoRepository, times(1)).save(any(Producto.class));
+        verify(productoRepository, times(1)).ajustarStock(id, cantidad, 0);
+        verify(productoRepository, never()).findById(id);
+        verify(productoRepository, never()).save(any(Producto.class));
+    }
+
+    @Test
+    void actualizarCategoria_conMonto_debeIndexarSoloLosCambiadosYPublicarUnaResincronizacion() {
+        // Arrange: el producto 2 quedaría con precio negativo y el UPDATE no lo modifica
+        ProductoAtributos whey = new ProductoAtributos(1L, "Proteína Whey", "supplement", 29.99, 95, 4L);
+        ProductoAtributos barra = new ProductoAtributos(2L, "Barra Proteica", "supplement", 5.0, 30, 2L);
+        ProductoAtributos wheyActualizado = new ProductoAtributos(1L, "Proteína Whey", "supplement", 19.99, 95, 5L);
+        when(productoRepository.bloquearAtributosPorCategoriaDesde(eq("supplement"), eq(0L), any()))
+            .thenReturn(List.of(whey, barra));
+        when(productoRepository.findAtributosPorCategoriaDesde(eq("supplement"), eq(0L), any()))
+            .thenReturn(List.of(wheyActualizado, barra));
+        when(productoRepository.ajustarPrecioPorCategoria("supplement", 1.0, -10.0)).thenReturn(1);
+        when(productoRepository.findAll()).thenReturn(List.of(productoTest));
+        productoService.obtenerTodos();
+
+        // Act
+        int actualizados = productoService.actualizarCategoria("supplement", null, -10.0, null);
+        productoService.obtenerTodos();
+
+        // Assert
+        assertEquals(1, actualizados);
+        verify(indiceFiltros, times(1)).indexarTodos(List.of(wheyActualizado));
+        verify(difusorCambios, times(1)).publicar(
+                new ResincronizacionProductos(ResincronizacionProductos.CATEGORIA, "supplement"));
+        verify(difusorCambios, never()).publicar(any(CambioProducto.class));
+        verify(productoRepository, times(2)).findAll();
+        verify(productoRepository, never()).ajustarStockPorCategoria(anyString(), anyInt(), any());
+    }
+
+    /**
+     * Test: Descuento masivo de stock con unidades reservadas
+     * Verifica que el UPDATE excluye los productos cuyo stock no cubriría lo reservado
+     */
+    @Test
+    void actualizarCategoria_conDescuentoDeStock_noDebeTomarUnidadesReservadas() {
+        // Arrange: del producto 1 hay 93 de 95 unidades reservadas; el producto 2 no tiene reservas
+        assertTrue(libroReservas.reservar(1L, 93, () -> 95));
+        ProductoAtributos whey = new ProductoAtributos(1L, "Proteína Whey", "supplement", 29.99, 95, 4L);
+        ProductoAtributos barra = new ProductoAtributos(2L, "Barra Proteica", "supplement", 5.0, 30, 2L);
+        ProductoAtributos barraActualizada = new ProductoAtributos(2L, "Barra Proteica", "supplement", 5.0, 25, 3L);
+        when(productoRepository.bloquearAtributosPorCategoriaDesde(eq("supplement"), eq(0L), any()))
+            .thenReturn(List.of(whey, barra));
+        when(productoRepository.ajustarStockPorCategoria("supplement", -5, List.of(1L))).thenReturn(1);
+        when(productoRepository.findAtributosPorCategoriaDesde(eq("supplement"), eq(0L), any()))
+            .thenReturn(List.of(whey, barraActualizada));
+
+        // Act
+        int actualizados = productoService.actualizarCategoria("supplement", null, null, -5);
+
+        // Assert: sin transacción la retención se libera de inmediato
+        assertEquals(1, actualizados);
+        verify(indiceFiltros, times(1)).indexarTodos(List.of(barraActualizada));
+        assertEquals(93, libroReservas.reservado(1L));
+        assertEquals(0, libroReservas.reservado(2L));
+    }
+
+    @Test
+    void actualizarCategoria_duranteElUpdate_noDebeTenerTomadaNingunaFranja() {
+        // Arrange: una reserva de otro producto (cualquier franja) no espera al UPDATE masivo
+        ProductoAtributos barra = new ProductoAtributos(2L, "Barra Proteica", "supplement", 5.0, 30, 2L);
+        when(productoRepository.bloquearAtributosPorCategoriaDesde(eq("supplement"), eq(0L), any()))
+            .thenReturn(List.of(barra));
+        when(productoRepository.ajustarStockPorCategoria("supplement", -5, List.of(0L))).thenAnswer(invocation -> {
+            for (long id = 1; id <= 4; id++) {
+                long productoId = id;
+                assertTrue(CompletableFuture.supplyAsync(() -> libroReservas.reservar(productoId, 1, () -> 10))
+                        .get(2, TimeUnit.SECONDS));
+            }
+            return 1;
+        });
+
+        // Act
+        int actualizados = productoService.actualizarCategoria("supplement", null, null, -5);
+
+        // Assert
+        assertEquals(1, actualizados);
+        assertEquals(1, libroReservas.reservado(2L));
+    }
+
+    @Test
+    void actualizarCategoria_sinUnAjusteValido_debeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> productoService.actualizarCategoria("supplement", -10.0, null, 5));
+        assertThrows(IllegalArgumentException.class, () -> productoService.actualizarCategoria("supplement", null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> productoService.actualizarCategoria("supplement", -100.0, null, null));
+        assertThrows(IllegalArgumentException.class, () -> productoService.actualizarCategoria("supplement", null, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> productoService.actualizarCategoria(" ", null, 5.0, null));
+
+        verify(productoRepository, never()).ajustarPrecioPorCategoria(anyString(), anyDouble(), anyDouble());
+        verify(productoRepository, never()).ajustarStockPorCategoria(anyString(), anyInt(), any());
+    }
+
+    @Test
+    void actualizarStock_debePublicarStockResultante() {
+        // Arrange
+        when(productoRepository.ajustarStock(1L, -5, 0)).thenReturn(1);
+        when(productoRepository.findAtributosById(1L))
+            .thenReturn(Optional.of(new ProductoAtributos(1L, "Proteína Whey", "supplement", 29.99, 95, 4L)));
+
+        // Act
+        productoService.actualizarStock(1L, -5);
+
+        // Assert
+        verify(difusorCambios).publicar(new CambioProducto(1L, 4L, 95, -5, 29.99, null));
+        // Un ajuste de inventario no es una venta: no cambia la popularidad
+        verify(indiceAutocompletado, never()).sumarVendidos(anyLong(), anyLong());
     }
 
     @Test
@@ -240,7 +683,8 @@ class ProductoServiceTest {
         Long id = 999L;
         Integer cantidad = 10;
         
-        when(productoRepository.findById(id)).thenReturn(Optional.empty());
+        when(productoRepository.ajustarStock(id, cantidad, 0)).thenReturn(0);
+        when(productoRepository.existsById(id)).thenReturn(false);
         
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -248,8 +692,110 @@ class ProductoServiceTest {
         });
         
         assertTrue(exception.getMessage().contains("Producto no encontrado"));
-        verify(productoRepository, times(1)).findById(id);
         verify(productoRepository, never()).save(any(Producto.class));
     }
-}
 
+    @Test
+    void actualizarStock_conStockInsuficiente_debeLanzarExcepcion() {
+        // Arrange
+        Long id = 1L;
+        Integer cantidad = -500;
+
+        when(productoRepository.ajustarStock(id, cantidad, 0)).thenReturn(0);
+        when(productoRepository.existsById(id)).thenReturn(true);
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            productoService.actualizarStock(id, cantidad);
+        });
+
+        assertTrue(exception.getMessage().contains("Stock insuficiente"));
+    }
+
+    @Test
+    void actualizarStock_conUnidadesReservadas_noDebeTomarlas() {
+        // Arrange: stock 5 con 3 unidades reservadas por un checkout; descontar 4 dejaría 1 < 3
+        assertTrue(libroReservas.reservar(1L, 3, () -> 5));
+        when(productoRepository.ajustarStock(1L, -4, 3)).thenReturn(0);
+        when(productoRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> productoService.actualizarStock(1L, -4));
+        verify(productoRepository, times(1)).ajustarStock(1L, -4, 3);
+        assertEquals(3, libroReservas.reservado(1L));
+        verify(difusorCambios, never()).publicar(any(CambioProducto.class));
+    }
+
+    @Test
+    void confirmarStock_debeExigirSoloLasReservasDeLosDemas() {
+        // Arrange: 2 unidades propias y 3 de otro checkout
+        assertTrue(libroReservas.reservar(1L, 2, () -> 5));
+        assertTrue(libroReservas.reservar(1L, 3, () -> 5));
+        when(productoRepository.venderStock(1L, 2, 3)).thenReturn(1);
+
+        // Act
+        productoService.confirmarStock(1L, 2);
+
+        // Assert: la reserva propia la suelta ReservaStockService después del commit
+        verify(productoRepository, times(1)).venderStock(1L, 2, 3);
+        verify(productoRepository, never()).ajustarStock(anyLong(), anyInt(), anyInt());
+        assertEquals(5, libroReservas.reservado(1L));
+        // Las unidades vendidas suben el producto en el autocompletado
+        verify(indiceAutocompletado).sumarVendidos(1L, 2);
+    }
+
+    @Test
+    void actualizarProducto_conStockMenorQueLoReservado_debeLanzarExcepcion() {
+        // Arrange
+        assertTrue(libroReservas.reservar(1L, 60, () -> 100));
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoTest));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+                () -> productoService.actualizarProducto(1L, null, null, null, null, null, 50));
+        verify(productoRepository, never()).saveAndFlush(any(Producto.class));
+        verify(productoRepository, never()).save(any(Producto.class));
+    }
+
+    @Test
+    void actualizarStock_duranteElUpdate_noDebeTenerTomadaLaFranja() {
+        // Arrange: el UPDATE corre después de soltar el lock; mientras tanto las unidades ya están retenidas
+        when(productoRepository.ajustarStock(1L, -5, 0)).thenAnswer(invocation -> {
+            assertEquals(5, libroReservas.reservado(1L));
+            boolean reservado = CompletableFuture.supplyAsync(() -> libroReservas.reservar(1L, 1, () -> 10))
+                    .get(2, TimeUnit.SECONDS);
+            assertTrue(reservado);
+            return 1;
+        });
+
+        // Act
+        productoService.actualizarStock(1L, -5);
+
+        // Assert: la retención se suelta al terminar (sin transacción, enseguida)
+        assertEquals(1, libroReservas.reservado(1L));
+    }
+
+    @Test
+    void actualizarStock_conUpdateFallido_debeLiberarLaRetencion() {
+        // Arrange
+        when(productoRepository.ajustarStock(1L, -5, 0)).thenThrow(new QueryTimeoutException("timeout"));
+
+        // Act & Assert
+        assertThrows(QueryTimeoutException.class, () -> productoService.actualizarStock(1L, -5));
+        assertEquals(0, libroReservas.reservado(1L));
+    }
+
+    @Test
+    void actualizarProducto_conGuardadoFallido_debeLiberarLaRetencion() {
+        // Arrange
+        assertTrue(libroReservas.reservar(1L, 10, () -> 100));
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoTest));
+        when(productoRepository.saveAndFlush(any(Producto.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Producto.class, 1L));
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> productoService.actualizarProducto(1L, null, null, null, null, null, 50));
+        assertEquals(10, libroReservas.reservado(1L));
+    }
+}
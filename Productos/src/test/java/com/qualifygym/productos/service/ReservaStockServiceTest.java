@@ -0,0 +1,208 @@
+package com.qualifygym.productos.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.qualifygym.productos.model.EstadoReserva;
+import com.qualifygym.productos.model.ReservaStock;
+import com.qualifygym.productos.repository.ProductoRepository;
+import com.qualifygym.productos.repository.ReservaStockRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tests unitarios para ReservaStockService
+ *
+ * Verifican que reservar retiene stock sin tocar la tabla productos, que confirmar
+ * descuenta el stock y que el barrido solo devuelve las reservas que realmente expiró.
+ */
+class ReservaStockServiceTest {
+
+    @Mock
+    private ReservaStockRepository reservaStockRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private ProductoService productoService;
+
+    @InjectMocks
+    private ReservaStockService reservaStockService;
+
+    private LibroReservas libroReservas;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        libroReservas = new LibroReservas();
+        ReflectionTestUtils.setField(libroReservas, "cantidadFranjas", 4);
+        libroReservas.init();
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(reservaStockService, "libroReservas", libroReservas);
+        ReflectionTestUtils.setField(reservaStockService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(reservaStockService, "ttlSegundos", 900L);
+        ReflectionTestUtils.setField(reservaStockService, "loteBarrido", 2);
+        reservaStockService.init();
+
+        when(reservaStockRepository.save(any(ReservaStock.class))).thenAnswer(invocation -> {
+            ReservaStock reserva = invocation.getArgument(0);
+            reserva.setId(10L);
+            return reserva;
+        });
+    }
+
+    private ReservaStock reserva(Long id, Long productoId, int cantidad) {
+        Instant ahora = Instant.now();
+        return new ReservaStock(id, productoId, cantidad, EstadoReserva.ACTIVA, ahora, ahora.plusSeconds(900));
+    }
+
+    /**
+     * Test: Reservar con stock disponible
+     * Verifica que se guarda una reserva activa con vencimiento y no se descuenta stock
+     */
+    @Test
+    void reservar_conStockDisponible_debeGuardarReservaActiva() {
+        // Arrange
+        when(productoRepository.findStockById(3L)).thenReturn(Optional.of(5));
+
+        // Act
+        ReservaStock resultado = reservaStockService.reservar(3L, 2);
+
+        // Assert
+        assertEquals(10L, resultado.getId());
+        assertEquals(EstadoReserva.ACTIVA, resultado.getEstado());
+        assertTrue(resultado.getExpiraEn().isAfter(resultado.getCreadaEn()));
+        assertEquals(2, libroReservas.reservado(3L));
+        verify(productoService, never()).confirmarStock(anyLong(), anyInt());
+    }
+
+    /**
+     * Test: Reservar más que lo disponible
+     * Las unidades ya reservadas no cuentan como disponibles
+     */
+    @Test
+    void reservar_conStockInsuficiente_debeLanzarExcepcion() {
+        // Arrange
+        when(productoRepository.findStockById(3L)).thenReturn(Optional.of(5));
+        reservaStockService.reservar(3L, 4);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> reservaStockService.reservar(3L, 2));
+        assertEquals(4, libroReservas.reservado(3L));
+        assertEquals(1.0, meterRegistry.get("productos.reservas.rechazadas").counter().count());
+    }
+
+    /**
+     * Test: Reservar un producto inexistente
+     */
+    @Test
+    void reservar_productoInexistente_debeLanzarExcepcion() {
+        // Arrange
+        when(productoRepository.findStockById(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> reservaStockService.reservar(99L, 1));
+        assertEquals("Producto no encontrado ID: 99", exception.getMessage());
+        verify(reservaStockRepository, never()).save(any());
+    }
+
+    /**
+     * Test: Confirmar una reserva activa
+     * Verifica que se descuenta el stock y se suelta la retención
+     */
+    @Test
+    void confirmar_reservaActiva_debeDescontarStock() {
+        // Arrange
+        when(productoRepository.findStockById(3L)).thenReturn(Optional.of(5));
+        reservaStockService.reservar(3L, 2);
+        when(reservaStockRepository.findById(10L)).thenReturn(Optional.of(reserva(10L, 3L, 2)));
+        when(reservaStockRepository.confirmarSiActiva(eq(10L), any(Instant.class))).thenReturn(1);
+
+        // Act
+        ReservaStock resultado = reservaStockService.confirmar(10L);
+
+        // Assert
+        assertEquals(EstadoReserva.CONFIRMADA, resultado.getEstado());
+        verify(productoService, times(1)).confirmarStock(3L, 2);
+        assertEquals(0, libroReservas.reservado(3L));
+    }
+
+    /**
+     * Test: Confirmar una reserva vencida
+     * No se debe tocar el stock
+     */
+    @Test
+    void confirmar_reservaVencida_debeLanzarExcepcion() {
+        // Arrange
+        when(reservaStockRepository.findById(10L)).thenReturn(Optional.of(reserva(10L, 3L, 2)));
+        when(reservaStockRepository.confirmarSiActiva(eq(10L), any(Instant.class))).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> reservaStockService.confirmar(10L));
+        verify(productoService, never()).confirmarStock(anyLong(), anyInt());
+    }
+
+    /**
+     * Test: Liberar una reserva activa
+     */
+    @Test
+    void liberar_reservaActiva_debeDevolverUnidades() {
+        // Arrange
+        when(productoRepository.findStockById(3L)).thenReturn(Optional.of(5));
+        reservaStockService.reservar(3L, 2);
+        when(reservaStockRepository.findById(10L)).thenReturn(Optional.of(reserva(10L, 3L, 2)));
+        when(reservaStockRepository.finalizarActivas(List.of(10L), EstadoReserva.LIBERADA)).thenReturn(1);
+
+        // Act
+        reservaStockService.liberar(10L);
+
+        // Assert
+        assertEquals(0, libroReservas.reservado(3L));
+    }
+
+    /**
+     * Test: Barrido con una reserva confirmada a último momento
+     * Solo se devuelven las unidades de las reservas que el UPDATE marcó como expiradas
+     */
+    @Test
+    void expirarVencidas_debeDevolverSoloLasExpiradas() {
+        // Arrange: dos reservas vencidas del mismo producto; la 2 se confirma antes del UPDATE
+        ReservaStock primera = reserva(1L, 3L, 2);
+        ReservaStock segunda = reserva(2L, 3L, 1);
+        libroReservas.cargar(List.of(primera, segunda));
+        when(reservaStockRepository.findVencidas(any(Instant.class), any()))
+                .thenReturn(List.of(primera, segunda))
+                .thenReturn(List.of());
+        when(reservaStockRepository.finalizarActivas(List.of(1L, 2L), EstadoReserva.EXPIRADA)).thenReturn(1);
+        ReservaStock primeraExpirada = reserva(1L, 3L, 2);
+        primeraExpirada.setEstado(EstadoReserva.EXPIRADA);
+        ReservaStock segundaConfirmada = reserva(2L, 3L, 1);
+        segundaConfirmada.setEstado(EstadoReserva.CONFIRMADA);
+        when(reservaStockRepository.findAllById(List.of(1L, 2L)))
+                .thenReturn(List.of(primeraExpirada, segundaConfirmada));
+
+        // Act
+        reservaStockService.expirarVencidas();
+
+        // Assert: el lote vino lleno, así que se pidió otro (vacío)
+        assertEquals(1, libroReservas.reservado(3L));
+        assertEquals(1.0, meterRegistry.get("productos.reservas.expiradas").counter().count());
+        verify(reservaStockRepository, times(2)).findVencidas(any(Instant.class), any());
+        verify(productoRepository, never()).ajustarStock(anyLong(), anyInt(), anyInt());
+    }
+}
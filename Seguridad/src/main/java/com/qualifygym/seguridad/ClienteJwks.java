@@ -0,0 +1,199 @@
+package com.qualifygym.seguridad;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Descarga y cachea el JWKS publicado por el servicio de Usuarios (/.well-known/jwks.json).
+ *
+ * Las llaves se guardan en un mapa inmutable por kid. Se vuelve a descargar cuando vence el
+ * max-age del Cache-Control o cuando llega un token con un kid desconocido (como mucho una vez
+ * cada refrescoMinMs, para que tokens con kid inventado no generen una descarga por petición).
+ * Si la descarga falla se siguen usando las llaves que ya se tenían.
+ *
+ * La descarga es asíncrona y hay como mucho una en curso: con el max-age vencido se sigue
+ * respondiendo con las llaves cacheadas mientras se refrescan en segundo plano, y solo esperan
+ * a la descarga (con un límite) las peticiones cuyo kid todavía no se conoce.
+ */
+public class ClienteJwks {
+
+    private static final Logger log = LoggerFactory.getLogger(ClienteJwks.class);
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final Duration TIMEOUT_DESCARGA = Duration.ofSeconds(3);
+
+    private final URI uri;
+    private final long refrescoMinMs;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ECParameterSpec p256;
+
+    private volatile Map<String, PublicKey> llaves = Map.of();
+    private volatile long vigenteHasta;
+    // Protegidos por el monitor de this (solo se toma para decidir si se descarga, nunca durante la descarga)
+    private long ultimoIntento;
+    private CompletableFuture<Void> enCurso;
+
+    public ClienteJwks(String uri, long refrescoMinMs) {
+        this.uri = URI.create(uri);
+        this.refrescoMinMs = refrescoMinMs;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        try {
+            AlgorithmParameters parametros = AlgorithmParameters.getInstance("EC");
+            parametros.init(new ECGenParameterSpec("secp256r1"));
+            this.p256 = parametros.getParameterSpec(ECParameterSpec.class);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Curva P-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Llave pública para un kid
+     * @return Llave pública, o null si el kid no está en el JWKS
+     */
+    public PublicKey buscar(String kid) {
+        PublicKey llave = llaves.get(kid);
+        long ahora = System.currentTimeMillis();
+        if (llave != null) {
+            if (ahora >= vigenteHasta) {
+                // Max-age vencido: se refresca en segundo plano y se responde con la llave cacheada
+                refrescar(ahora);
+            }
+            return llave;
+        }
+        CompletableFuture<Void> descarga = refrescar(ahora);
+        if (descarga != null) {
+            esperar(descarga);
+        }
+        return llaves.get(kid);
+    }
+
+    /**
+     * Inicia la descarga del JWKS si no hay una en curso y no se intentó hace menos de refrescoMinMs
+     * @return Descarga en curso (la nueva o la que ya estaba), o null si el refresco está limitado
+     */
+    CompletableFuture<Void> refrescar(long ahora) {
+        CompletableFuture<Void> descarga;
+        synchronized (this) {
+            if (enCurso != null) {
+                return enCurso;
+            }
+            if (ahora - ultimoIntento < refrescoMinMs) {
+                return null;
+            }
+            ultimoIntento = ahora;
+            descarga = new CompletableFuture<>();
+            enCurso = descarga;
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(TIMEOUT_DESCARGA)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    try {
+                        procesar(response, error, ahora);
+                    } finally {
+                        synchronized (this) {
+                            enCurso = null;
+                        }
+                        descarga.complete(null);
+                    }
+                });
+        return descarga;
+    }
+
+    private void procesar(HttpResponse<String> response, Throwable error, long ahora) {
+        if (error != null) {
+            log.warn("No se pudo descargar el JWKS desde {}: {}", uri, error.toString());
+            return;
+        }
+        if (response.statusCode() != 200) {
+            log.warn("JWKS respondió {} desde {}", response.statusCode(), uri);
+            return;
+        }
+        try {
+            cargar(response.body(), ahora + maxAgeMs(response.headers().firstValue("Cache-Control").orElse(null)));
+        } catch (IOException e) {
+            log.warn("JWKS inválido desde {}", uri, e);
+        }
+    }
+
+    private static void esperar(CompletableFuture<Void> descarga) {
+        try {
+            descarga.get(TIMEOUT_DESCARGA.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Se responde con las llaves que haya; la descarga sigue en segundo plano
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reemplaza las llaves con las del JWK Set recibido. Solo se aceptan llaves EC P-256.
+     * @param vigenteHasta - Momento (epoch millis) en que se debe volver a descargar
+     */
+    void cargar(String json, long vigenteHasta) throws IOException {
+        JsonNode keys = objectMapper.readTree(json).path("keys");
+        Map<String, PublicKey> nuevas = new HashMap<>();
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        for (JsonNode jwk : keys) {
+            if (!"EC".equals(jwk.path("kty").asText()) || !"P-256".equals(jwk.path("crv").asText())
+                    || !jwk.hasNonNull("kid")) {
+                continue;
+            }
+            try {
+                ECPoint punto = new ECPoint(
+                        new BigInteger(1, decoder.decode(jwk.path("x").asText())),
+                        new BigInteger(1, decoder.decode(jwk.path("y").asText())));
+                nuevas.put(jwk.get("kid").asText(),
+                        KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(punto, p256)));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                log.warn("Llave inválida en el JWKS (kid {}): {}", jwk.get("kid").asText(), e.getMessage());
+            }
+        }
+        llaves = Map.copyOf(nuevas);
+        this.vigenteHasta = vigenteHasta;
+    }
+
+    private long maxAgeMs(String cacheControl) {
+        if (cacheControl != null) {
+            Matcher m = MAX_AGE.matcher(cacheControl);
+            if (m.find()) {
+                return Long.parseLong(m.group(1)) * 1000;
+            }
+        }
+        return refrescoMinMs;
+    }
+}
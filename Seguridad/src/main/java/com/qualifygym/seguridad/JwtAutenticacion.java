@@ -0,0 +1,91 @@
+package com.qualifygym.seguridad;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Authentication inmutable construida a partir de un token ya verificado.
+ *
+ * Como no cambia después de construida, la misma instancia se reutiliza en todas las
+ * peticiones que traen el mismo token: un acierto en la caché no asigna objetos nuevos.
+ */
+public final class JwtAutenticacion implements Authentication {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UsuarioAutenticado usuario;
+    private final List<GrantedAuthority> authorities;
+    private final long expiraEn;
+
+    JwtAutenticacion(UsuarioAutenticado usuario, List<GrantedAuthority> authorities, long expiraEn) {
+        this.usuario = usuario;
+        this.authorities = authorities;
+        this.expiraEn = expiraEn;
+    }
+
+    public Long getUserId() {
+        return usuario.userId();
+    }
+
+    public String getRole() {
+        return usuario.role();
+    }
+
+    /**
+     * Momento de expiración del token (epoch millis)
+     */
+    public long getExpiraEn() {
+        return expiraEn;
+    }
+
+    boolean estaExpirado(long ahora) {
+        return ahora >= expiraEn;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public Object getCredentials() {
+        // El token no se guarda: ya fue verificado y no se vuelve a necesitar
+        return null;
+    }
+
+    @Override
+    public Object getDetails() {
+        return null;
+    }
+
+    @Override
+    public UsuarioAutenticado getPrincipal() {
+        return usuario;
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return true;
+    }
+
+    @Override
+    public void setAuthenticated(boolean isAuthenticated) {
+        if (isAuthenticated) {
+            return;
+        }
+        throw new IllegalArgumentException("JwtAutenticacion es inmutable");
+    }
+
+    @Override
+    public String getName() {
+        return usuario.username();
+    }
+
+    @Override
+    public String toString() {
+        return "JwtAutenticacion[" + usuario + "]";
+    }
+}
@@ -0,0 +1,41 @@
+package com.qualifygym.seguridad;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Filtro que autentica la petición con el token Bearer del header Authorization.
+ *
+ * Si el token es válido deja un JwtAutenticacion en el SecurityContext (userId y role
+ * disponibles desde el principal). Si falta o no es válido la petición sigue sin autenticar
+ * y son las reglas de authorizeHttpRequests las que deciden.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private final JwtVerificador verificador;
+
+    public JwtAuthenticationFilter(JwtVerificador verificador) {
+        this.verificador = verificador;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        JwtAutenticacion autenticacion = verificador.verificarEncabezado(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (autenticacion != null) {
+            SecurityContext contexto = SecurityContextHolder.createEmptyContext();
+            contexto.setAuthentication(autenticacion);
+            SecurityContextHolder.setContext(contexto);
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,162 @@
+package com.qualifygym.seguridad;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.SecretKey;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Verifica localmente los tokens emitidos por JwtService.generateToken del servicio de Usuarios,
+ * sin llamarlo por red.
+ *
+ * Los tokens firmados con ES256 traen un header 'kid' y se verifican con la llave pública
+ * correspondiente del JWKS de Usuarios (ClienteJwks). Los tokens sin 'kid' son los HMAC
+ * anteriores a la rotación de llaves y se verifican con jwt.secret hasta el instante de corte
+ * (jwt.hmac-legado.hasta); desde ahí se rechazan, también los que ya estaban en caché.
+ *
+ * La llave y el parser se construyen una sola vez. Los tokens ya verificados se guardan en una
+ * caché acotada indexada por el valor completo del header Authorization, de modo que una petición
+ * con un token conocido no asigna nada (ni siquiera el substring del token).
+ */
+public class JwtVerificador {
+
+    private static final String PREFIJO_BEARER = "Bearer ";
+
+    private final JwtParser parser;
+    private final long hmacLegadoHastaMs;
+    private final int maxEntradasCache;
+
+    private final Map<String, JwtAutenticacion> cache = new ConcurrentHashMap<>();
+
+    // Las authorities dependen solo del rol, se comparten entre todos los tokens
+    private final Map<String, List<GrantedAuthority>> authoritiesPorRol = new ConcurrentHashMap<>();
+
+    public JwtVerificador(String secret, int maxEntradasCache) {
+        this(secret, null, maxEntradasCache);
+    }
+
+    public JwtVerificador(String secret, ClienteJwks clienteJwks, int maxEntradasCache) {
+        this(secret, null, clienteJwks, maxEntradasCache);
+    }
+
+    /**
+     * @param secret - Secreto HMAC de los tokens sin 'kid', o null para rechazarlos
+     * @param hmacLegadoHasta - Instante desde el que se rechazan los tokens sin 'kid', o null para no cortarlos
+     * @param clienteJwks - Origen de las llaves públicas ES256, o null si no se usa JWKS
+     * @param maxEntradasCache - Máximo de tokens verificados en caché
+     */
+    public JwtVerificador(String secret, Instant hmacLegadoHasta, ClienteJwks clienteJwks, int maxEntradasCache) {
+        SecretKey llaveHmac = secret != null ? Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)) : null;
+        this.hmacLegadoHastaMs = hmacLegadoHasta != null ? hmacLegadoHasta.toEpochMilli() : Long.MAX_VALUE;
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        String kid = header.getKeyId();
+                        if (kid == null) {
+                            if (llaveHmac == null || System.currentTimeMillis() >= hmacLegadoHastaMs) {
+                                throw new JwtException("Token sin 'kid'");
+                            }
+                            return llaveHmac;
+                        }
+                        PublicKey llave = clienteJwks != null ? clienteJwks.buscar(kid) : null;
+                        if (llave == null) {
+                            throw new JwtException("Llave de firma desconocida: " + kid);
+                        }
+                        return llave;
+                    }
+                })
+                .build();
+        this.maxEntradasCache = maxEntradasCache;
+    }
+
+    /**
+     * Verifica el valor del header Authorization ("Bearer &lt;token&gt;")
+     * @param encabezado - Valor del header Authorization
+     * @return Authentication del usuario, o null si no hay token o no es válido
+     */
+    public JwtAutenticacion verificarEncabezado(String encabezado) {
+        if (encabezado == null || !encabezado.startsWith(PREFIJO_BEARER)) {
+            return null;
+        }
+        long ahora = System.currentTimeMillis();
+
+        JwtAutenticacion cacheado = cache.get(encabezado);
+        if (cacheado != null) {
+            if (!cacheado.estaExpirado(ahora)) {
+                return cacheado;
+            }
+            cache.remove(encabezado, cacheado);
+            return null;
+        }
+
+        JwtAutenticacion autenticacion;
+        try {
+            autenticacion = verificar(encabezado.substring(PREFIJO_BEARER.length()));
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        guardarEnCache(encabezado, autenticacion, ahora);
+        return autenticacion;
+    }
+
+    /**
+     * Verifica la firma y la expiración del token y construye la Authentication
+     * @throws JwtException si la firma es inválida o el token expiró
+     */
+    public JwtAutenticacion verificar(String token) {
+        Jws<Claims> jws = parser.parseSignedClaims(token);
+        Claims claims = jws.getPayload();
+        String role = claims.get("role", String.class);
+        UsuarioAutenticado usuario = new UsuarioAutenticado(
+                claims.getSubject(),
+                claims.get("userId", Long.class),
+                role);
+        long expiraEn = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        if (jws.getHeader().getKeyId() == null) {
+            // Un token HMAC deja de valer en el corte aunque su 'exp' sea posterior
+            expiraEn = Math.min(expiraEn, hmacLegadoHastaMs);
+        }
+        return new JwtAutenticacion(usuario, authorities(role), expiraEn);
+    }
+
+    private List<GrantedAuthority> authorities(String role) {
+        if (role == null) {
+            return List.of();
+        }
+        return authoritiesPorRol.computeIfAbsent(role,
+                r -> List.of(new SimpleGrantedAuthority("ROLE_" + r)));
+    }
+
+    /**
+     * Agrega un token a la caché respetando el límite de entradas.
+     * Si está llena se eliminan primero los tokens expirados; si aun así no hay espacio,
+     * el token simplemente no se cachea.
+     */
+    private void guardarEnCache(String encabezado, JwtAutenticacion autenticacion, long ahora) {
+        if (cache.size() >= maxEntradasCache) {
+            cache.values().removeIf(a -> a.estaExpirado(ahora));
+            if (cache.size() >= maxEntradasCache) {
+                return;
+            }
+        }
+        cache.put(encabezado, autenticacion);
+    }
+}
@@ -0,0 +1,70 @@
+package com.qualifygym.seguridad;
+
+import java.time.Instant;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Registra el verificador y el filtro JWT en los servicios que incluyen este módulo.
+ *
+ * Cada servicio agrega el filtro en su SeguridadConfig con addFilterBefore; por eso aquí
+ * se desactiva su registro automático como filtro de servlet (si no, correría dos veces).
+ *
+ * Los tokens HMAC anteriores (sin 'kid') se rechazan salvo que jwt.hmac-legado.aceptar=true;
+ * en ese caso jwt.secret y jwt.hmac-legado.hasta son obligatorios y el arranque falla sin ellos.
+ */
+@AutoConfiguration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class SeguridadJwtAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty("jwt.jwks-uri")
+    public ClienteJwks clienteJwks(
+            @Value("${jwt.jwks-uri}") String jwksUri,
+            @Value("${jwt.jwks.refresco-min-ms:30000}") long refrescoMinMs) {
+        return new ClienteJwks(jwksUri, refrescoMinMs);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JwtVerificador jwtVerificador(
+            @Value("${jwt.secret:}") String secret,
+            @Value("${jwt.hmac-legado.aceptar:false}") boolean aceptarHmacLegado,
+            @Value("${jwt.hmac-legado.hasta:}") String hmacLegadoHasta,
+            @Value("${jwt.cache.max-entradas:10000}") int maxEntradasCache,
+            ObjectProvider<ClienteJwks> clienteJwks) {
+        if (!aceptarHmacLegado) {
+            return new JwtVerificador(null, clienteJwks.getIfAvailable(), maxEntradasCache);
+        }
+        if (secret.isBlank()) {
+            throw new IllegalStateException("jwt.hmac-legado.aceptar=true requiere configurar jwt.secret");
+        }
+        if (hmacLegadoHasta.isBlank()) {
+            throw new IllegalStateException("jwt.hmac-legado.aceptar=true requiere configurar jwt.hmac-legado.hasta");
+        }
+        return new JwtVerificador(secret, Instant.parse(hmacLegadoHasta.trim()), clienteJwks.getIfAvailable(),
+                maxEntradasCache);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JwtAuthenticationFilter jwtAuthenticationFilter(JwtVerificador jwtVerificador) {
+        return new JwtAuthenticationFilter(jwtVerificador);
+    }
+
+    @Bean
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilterRegistration(
+            JwtAuthenticationFilter jwtAuthenticationFilter) {
+        FilterRegistrationBean<JwtAuthenticationFilter> registro = new FilterRegistrationBean<>(jwtAuthenticationFilter);
+        registro.setEnabled(false);
+        return registro;
+    }
+}
@@ -0,0 +1,8 @@
+package com.qualifygym.seguridad;
+
+/**
+ * Datos del usuario tomados de los claims del token JWT emitido por el servicio de Usuarios.
+ * Es el "principal" que queda en el SecurityContext.
+ */
+public record UsuarioAutenticado(String username, Long userId, String role) {
+}
@@ -0,0 +1,232 @@
+package com.qualifygym.seguridad;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Tests unitarios para ClienteJwks y la verificación ES256 de JwtVerificador
+ *
+ * Verifican que un token firmado con la llave publicada en el JWKS (según su 'kid') se
+ * acepta, que un kid desconocido se rechaza, y que las descargas del JWKS son una a la vez
+ * y no bloquean a quien ya tiene su llave en caché. También cubren el corte de los tokens HMAC anteriores.
+ */
+class ClienteJwksTest {
+
+    private static final String SECRETO_HMAC = "QualifyGymSecretKeyForJWTTokenGeneration2024";
+
+    private KeyPair par;
+    private ClienteJwks clienteJwks;
+    private JwtVerificador verificador;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generador = KeyPairGenerator.getInstance("EC");
+        generador.initialize(new ECGenParameterSpec("secp256r1"));
+        par = generador.generateKeyPair();
+
+        // URI sin servidor: las llaves se cargan directamente y no vencen durante el test
+        clienteJwks = new ClienteJwks("http://localhost:1/.well-known/jwks.json", 60000);
+        clienteJwks.cargar(jwks("llave-1", (ECPublicKey) par.getPublic()), Long.MAX_VALUE);
+        verificador = new JwtVerificador(null, clienteJwks, 100);
+    }
+
+    /**
+     * Test: Token ES256 con kid publicado
+     */
+    @Test
+    void verificarEncabezado_conKidPublicado_debeAutenticar() {
+        JwtAutenticacion auth = verificador.verificarEncabezado("Bearer " + token("llave-1"));
+
+        assertNotNull(auth);
+        assertEquals(7L, auth.getUserId());
+        assertEquals("Usuario", auth.getRole());
+    }
+
+    /**
+     * Test: Token ES256 con kid desconocido
+     * Verifica que se rechaza (el reintento de descarga falla y se mantienen las llaves conocidas)
+     */
+    @Test
+    void verificarEncabezado_conKidDesconocido_debeRetornarNull() {
+        assertNull(verificador.verificarEncabezado("Bearer " + token("otra-llave")));
+        assertNotNull(clienteJwks.buscar("llave-1"));
+    }
+
+    /**
+     * Test: Max-age vencido con la llave en caché
+     * Verifica que se responde con la llave cacheada sin esperar la descarga, que sigue en segundo plano
+     */
+    @Test
+    void buscar_conMaxAgeVencido_debeResponderSinEsperarLaDescarga() throws Exception {
+        // Arrange
+        AtomicInteger descargas = new AtomicInteger();
+        HttpServer servidor = servidorJwks(descargas, 1000);
+        try {
+            ClienteJwks cliente = new ClienteJwks(uri(servidor), 60000);
+            cliente.cargar(jwks("llave-1", (ECPublicKey) par.getPublic()), 0);
+
+            // Act
+            long inicio = System.nanoTime();
+            boolean encontrada = cliente.buscar("llave-1") != null;
+            long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+            // Assert
+            assertTrue(encontrada);
+            assertTrue(ms < 500, "buscar esperó " + ms + " ms a la descarga");
+            cliente.refrescar(System.currentTimeMillis()).get();
+            assertEquals(1, descargas.get());
+        } finally {
+            servidor.stop(0);
+        }
+    }
+
+    /**
+     * Test: Muchas peticiones concurrentes con un kid desconocido
+     * Verifica que comparten una sola descarga y que no se repite antes de refrescoMinMs
+     */
+    @Test
+    void buscar_conKidDesconocidoConcurrente_debeDescargarUnaSolaVez() throws Exception {
+        // Arrange
+        AtomicInteger descargas = new AtomicInteger();
+        HttpServer servidor = servidorJwks(descargas, 300);
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            ClienteJwks cliente = new ClienteJwks(uri(servidor), 60000);
+            Callable<Boolean> buscar = () -> cliente.buscar("llave-1") != null;
+
+            // Act
+            List<Future<Boolean>> resultados = hilos.invokeAll(List.of(buscar, buscar, buscar, buscar,
+                    buscar, buscar, buscar, buscar));
+            boolean otraEncontrada = cliente.buscar("kid-inventado") != null;
+
+            // Assert
+            for (Future<Boolean> resultado : resultados) {
+                assertTrue(resultado.get());
+            }
+            assertFalse(otraEncontrada);
+            assertEquals(1, descargas.get());
+        } finally {
+            hilos.shutdownNow();
+            servidor.stop(0);
+        }
+    }
+
+    /**
+     * Test: Token HMAC sin kid con el HMAC legado desactivado
+     */
+    @Test
+    void verificarEncabezado_conHmacLegadoDesactivado_debeRetornarNull() {
+        String hmac = JwtAuthenticationFilterTest.token(SECRETO_HMAC, 5000);
+
+        assertNull(verificador.verificarEncabezado("Bearer " + hmac));
+    }
+
+    /**
+     * Test: Token HMAC sin kid antes del corte
+     * Verifica que se acepta y que su expiración queda acotada al corte
+     */
+    @Test
+    void verificar_conHmacLegadoAntesDelCorte_debeAcotarExpiracion() {
+        // Arrange
+        Instant corte = Instant.now().plusMillis(1000);
+        JwtVerificador conCorte = new JwtVerificador(SECRETO_HMAC, corte, clienteJwks, 100);
+        String hmac = JwtAuthenticationFilterTest.token(SECRETO_HMAC, 5000);
+
+        // Act
+        JwtAutenticacion auth = conCorte.verificar(hmac);
+
+        // Assert
+        assertTrue(auth.estaExpirado(corte.toEpochMilli()));
+        assertFalse(auth.estaExpirado(corte.toEpochMilli() - 1));
+    }
+
+    /**
+     * Test: Token HMAC sin kid después del corte
+     */
+    @Test
+    void verificarEncabezado_conHmacLegadoDespuesDelCorte_debeRetornarNull() {
+        JwtVerificador conCorte = new JwtVerificador(SECRETO_HMAC, Instant.now().minusSeconds(1), clienteJwks, 100);
+        String hmac = JwtAuthenticationFilterTest.token(SECRETO_HMAC, 5000);
+
+        assertNull(conCorte.verificarEncabezado("Bearer " + hmac));
+    }
+
+    private String token(String kid) {
+        long ahora = System.currentTimeMillis();
+        return Jwts.builder()
+                .header().keyId(kid).and()
+                .claim("userId", 7L)
+                .claim("role", "Usuario")
+                .subject("testuser")
+                .issuedAt(new Date(ahora))
+                .expiration(new Date(ahora + 5000))
+                .signWith(par.getPrivate(), Jwts.SIG.ES256)
+                .compact();
+    }
+
+    /**
+     * Servidor HTTP local que publica el JWKS con la llave del test, tardando demoraMs en responder
+     */
+    private HttpServer servidorJwks(AtomicInteger descargas, long demoraMs) throws Exception {
+        byte[] cuerpo = jwks("llave-1", (ECPublicKey) par.getPublic()).getBytes(StandardCharsets.UTF_8);
+        HttpServer servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        servidor.setExecutor(Executors.newCachedThreadPool());
+        servidor.createContext("/.well-known/jwks.json", exchange -> {
+            descargas.incrementAndGet();
+            try {
+                Thread.sleep(demoraMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=300");
+            exchange.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream salida = exchange.getResponseBody()) {
+                salida.write(cuerpo);
+            }
+        });
+        servidor.start();
+        return servidor;
+    }
+
+    private static String uri(HttpServer servidor) {
+        return "http://localhost:" + servidor.getAddress().getPort() + "/.well-known/jwks.json";
+    }
+
+    private static String jwks(String kid, ECPublicKey llave) {
+        return "{\"keys\":[{\"kty\":\"EC\",\"crv\":\"P-256\",\"kid\":\"" + kid + "\",\"use\":\"sig\",\"alg\":\"ES256\","
+                + "\"x\":\"" + coordenada(llave.getW().getAffineX()) + "\","
+                + "\"y\":\"" + coordenada(llave.getW().getAffineY()) + "\"}]}";
+    }
+
+    private static String coordenada(BigInteger valor) {
+        byte[] bytes = valor.toByteArray();
+        byte[] resultado = new byte[32];
+        int largo = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - largo, resultado, 32 - largo, largo);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(resultado);
+    }
+}
@@ -0,0 +1,88 @@
+package com.qualifygym.seguridad;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+
+/**
+ * Benchmark JMH del costo por petición de JwtAuthenticationFilter.
+ *
+ * Escenarios: sin header, token ya verificado (acierto en caché) y token verificado
+ * en cada petición (caché desactivada). Ejecutar con -prof gc para ver las asignaciones.
+ *
+ * No se ejecuta con los tests; para correrlo:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.qualifygym.seguridad.JwtAuthenticationFilterBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "QualifyGymSecretKeyForJWTTokenGeneration2024";
+
+    @Param({ "sinToken", "cacheado", "sinCache" })
+    public String escenario;
+
+    private JwtAuthenticationFilter filtro;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        int maxEntradas = "sinCache".equals(escenario) ? 0 : 10_000;
+        filtro = new JwtAuthenticationFilter(new JwtVerificador(SECRET, maxEntradas));
+        request = new MockHttpServletRequest("GET", "/api/productos");
+        if (!"sinToken".equals(escenario)) {
+            request.addHeader("Authorization", "Bearer " + JwtAuthenticationFilterTest.token(SECRET, 3_600_000));
+        }
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> {
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void filtrar(Blackhole bh) throws ServletException, IOException {
+        // OncePerRequestFilter marca la petición con un atributo: se limpia para medir el filtro completo
+        request.clearAttributes();
+        filtro.doFilter(request, response, chain);
+        bh.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package com.qualifygym.seguridad;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Tests unitarios para JwtAuthenticationFilter y JwtVerificador
+ *
+ * Verifican que un token emitido con la misma llave que el servicio de Usuarios deja
+ * userId y role en el SecurityContext, y que un token inválido no autentica la petición.
+ */
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "QualifyGymSecretKeyForJWTTokenGeneration2024";
+
+    private final JwtVerificador verificador = new JwtVerificador(SECRET, 100);
+    private final JwtAuthenticationFilter filtro = new JwtAuthenticationFilter(verificador);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Test: Petición con token válido
+     * Verifica que el principal contiene userId y role, y la authority ROLE_<rol>
+     */
+    @Test
+    void doFilter_conTokenValido_debeAutenticar() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token(SECRET, 5000));
+
+        // Act
+        filtro.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(auth);
+        UsuarioAutenticado usuario = (UsuarioAutenticado) auth.getPrincipal();
+        assertEquals("testuser", usuario.username());
+        assertEquals(7L, usuario.userId());
+        assertEquals("Usuario", usuario.role());
+        assertEquals("ROLE_Usuario", auth.getAuthorities().iterator().next().getAuthority());
+    }
+
+    /**
+     * Test: Token firmado con otra llave
+     * Verifica que la petición continúa sin autenticar
+     */
+    @Test
+    void doFilter_conFirmaInvalida_noDebeAutenticar() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token("OtraLlaveSecretaDeAlMenosTreintaYDosBytes!!", 5000));
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        filtro.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(chain.getRequest());
+    }
+
+    /**
+     * Test: Token expirado
+     */
+    @Test
+    void verificarEncabezado_conTokenExpirado_debeRetornarNull() {
+        assertNull(verificador.verificarEncabezado("Bearer " + token(SECRET, -1000)));
+    }
+
+    /**
+     * Test: Mismo header verificado dos veces
+     * Verifica que la segunda vez se reutiliza la misma instancia desde la caché
+     */
+    @Test
+    void verificarEncabezado_conTokenRepetido_debeReutilizarInstancia() {
+        String encabezado = "Bearer " + token(SECRET, 5000);
+
+        JwtAutenticacion primera = verificador.verificarEncabezado(encabezado);
+        JwtAutenticacion segunda = verificador.verificarEncabezado(encabezado);
+
+        assertNotNull(primera);
+        assertSame(primera, segunda);
+    }
+
+    // Mismo formato que JwtService.generateToken del servicio de Usuarios
+    static String token(String secret, long duracionMs) {
+        long ahora = System.currentTimeMillis();
+        return Jwts.builder()
+                .claims(Map.of("userId", 7L, "role", "Usuario"))
+                .subject("testuser")
+                .issuedAt(new Date(ahora))
+                .expiration(new Date(ahora + duracionMs))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
@@ -0,0 +1,75 @@
+package com.qualifygym.usuarios.config;
+
+import java.util.Arrays;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Herramienta para elegir el costo de BCrypt según el hardware actual.
+ *
+ * Mide el tiempo de verificación para cada costo (cada punto duplica el trabajo) y retorna
+ * el mayor costo cuyo tiempo queda dentro del presupuesto en milisegundos. Nunca baja de
+ * COSTO_MINIMO aunque el hardware no alcance el objetivo.
+ *
+ * Uso desde línea de comandos (objetivo en ms, por defecto 250):
+ * java -cp target/classes:... com.qualifygym.usuarios.config.CalibradorBCrypt 250
+ */
+public final class CalibradorBCrypt {
+
+    public static final int COSTO_MINIMO = 10;
+    public static final int COSTO_MAXIMO = 16;
+
+    private static final int MUESTRAS = 5;
+
+    private CalibradorBCrypt() {
+    }
+
+    /**
+     * Retorna el mayor costo de BCrypt cuyo tiempo de verificación no supera el objetivo
+     * @param objetivoMs - Presupuesto de latencia por hash en milisegundos
+     */
+    public static int calibrar(long objetivoMs) {
+        return calibrar(objetivoMs, false);
+    }
+
+    private static int calibrar(long objetivoMs, boolean detalle) {
+        int elegido = COSTO_MINIMO;
+        for (int costo = COSTO_MINIMO; costo <= COSTO_MAXIMO; costo++) {
+            long ms = medirMs(costo);
+            if (detalle) {
+                System.out.println("costo " + costo + ": " + ms + " ms");
+            }
+            if (ms > objetivoMs) {
+                break;
+            }
+            elegido = costo;
+        }
+        return elegido;
+    }
+
+    /**
+     * Mide la mediana del tiempo de verificación de un hash con el costo indicado
+     */
+    public static long medirMs(int costo) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(costo);
+        String hash = encoder.encode("calibracion-qualifygym");
+        // Calentamiento para que el JIT no distorsione la primera medición
+        encoder.matches("calibracion-qualifygym", hash);
+
+        long[] tiempos = new long[MUESTRAS];
+        for (int i = 0; i < MUESTRAS; i++) {
+            long inicio = System.nanoTime();
+            encoder.matches("calibracion-qualifygym", hash);
+            tiempos[i] = (System.nanoTime() - inicio) / 1_000_000;
+        }
+        Arrays.sort(tiempos);
+        return tiempos[MUESTRAS / 2];
+    }
+
+    public static void main(String[] args) {
+        long objetivoMs = args.length > 0 ? Long.parseLong(args[0]) : 250;
+        int costo = calibrar(objetivoMs, true);
+        System.out.println("Costo recomendado para " + objetivoMs + " ms: " + costo);
+        System.out.println("seguridad.password.bcrypt-costo=" + costo);
+    }
+}
@@ -0,0 +1,109 @@
+package com.qualifygym.usuarios.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.qualifygym.datossinteticos.DatosSinteticos;
+import com.qualifygym.usuarios.model.Rol;
+import com.qualifygym.usuarios.repository.RoleRepository;
+import com.qualifygym.usuarios.service.IndiceIdsUsuarios;
+
+/**
+ * Genera los usuarios sintéticos del perfil "semilla" (ver application-semilla.properties y DatosSinteticos).
+ *
+ * Todos comparten la contraseña semilla.password, hasheada una sola vez: hashear cada usuario con
+ * BCrypt tomaría horas. Inserta por batch JDBC de semilla.tamano-lote filas, una transacción por
+ * lote. Si se interrumpe, al volver a iniciar continúa después del último usuario sintético guardado.
+ * Los roles los crea LoadDatabase, que corre antes.
+ */
+@Component
+@Profile("semilla")
+public class GeneradorDatos {
+
+    private static final String SQL_INSERTAR = "insert into usuarios (id, username, email, phone, password, rol_id, address) "
+            + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private IndiceIdsUsuarios indiceIdsUsuarios;
+
+    @Value("${semilla.random:42}")
+    private long semilla;
+
+    @Value("${semilla.id-base:1000000}")
+    private long idBase;
+
+    @Value("${semilla.usuarios:500000}")
+    private long usuarios;
+
+    @Value("${semilla.productos:1000000}")
+    private long productos;
+
+    @Value("${semilla.ordenes:5000000}")
+    private long ordenes;
+
+    @Value("${semilla.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @Value("${semilla.password:semilla123}")
+    private String password;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void generar() {
+        DatosSinteticos datos = new DatosSinteticos(semilla, idBase, usuarios, productos, ordenes);
+        Long ultimoId = jdbcTemplate.queryForObject("select max(id) from usuarios where id > ?", Long.class, idBase);
+        long desde = ultimoId != null ? ultimoId - idBase + 1 : 1;
+        if (desde > usuarios) {
+            System.out.println("ℹ Usuarios sintéticos ya generados. No se cargaron nuevos datos.");
+            return;
+        }
+
+        String hash = passwordEncoder.encode(password);
+        long rolUsuario = idRol("Usuario");
+        long rolEntrenador = idRol("Entrenador");
+        long inicio = System.currentTimeMillis();
+        List<Object[]> lote = new ArrayList<>(tamanoLote);
+        for (long n = desde; n <= usuarios; n++) {
+            DatosSinteticos.DatosUsuario u = datos.usuario(n);
+            long rol = "Entrenador".equals(u.rol()) ? rolEntrenador : rolUsuario;
+            lote.add(new Object[] { u.id(), u.username(), u.email(), u.phone(), hash, rol, u.address() });
+            if (lote.size() == tamanoLote || n == usuarios) {
+                transactionTemplate.executeWithoutResult(estado -> jdbcTemplate.batchUpdate(SQL_INSERTAR, lote));
+                lote.clear();
+                if (n % 100_000 < tamanoLote || n == usuarios) {
+                    System.out.println("Usuarios sintéticos: " + n + " de " + usuarios);
+                }
+            }
+        }
+        System.out.println("Usuarios sintéticos creados en " + (System.currentTimeMillis() - inicio) / 1000 + " s");
+
+        indiceIdsUsuarios.reconstruir();
+    }
+
+    private long idRol(String nombre) {
+        return roleRepository.findByNombre(nombre)
+                .map(Rol::getId)
+                .orElseThrow(() -> new IllegalStateException("No existe el rol " + nombre));
+    }
+}
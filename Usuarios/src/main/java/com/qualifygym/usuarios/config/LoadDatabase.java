@@ -9,13 +9,14 @@ import com.qualifygym.usuarios.model.Rol;
 import com.qualifygym.usuarios.model.Usuario;
 import com.qualifygym.usuarios.repository.RoleRepository;
 import com.qualifygym.usuarios.repository.UsuarioRepository;
+import com.qualifygym.usuarios.service.RegistroRoles;
 
 @Configuration
 public class LoadDatabase {
 
     @Bean
     CommandLineRunner initDatabase(RoleRepository roleRepo, UsuarioRepository usuarioRepo, 
-                                   PasswordEncoder encoder) {
+                                   PasswordEncoder encoder, RegistroRoles registroRoles) {
         return args -> {
             // Verificar y crear roles si no existen
             Rol admin = null;
@@ -63,6 +64,9 @@ public class LoadDatabase {
                     .orElse(null);
             }
 
+            // Los roles pudieron cambiar: publicar la nueva instantánea del registro
+            registroRoles.refrescar();
+
             // Crear usuarios iniciales solo si no existen
             if (usuarioRepo.count() == 0 && admin != null && usuario != null && entrenador != null) {
                 Usuario adminUser = new Usuario();
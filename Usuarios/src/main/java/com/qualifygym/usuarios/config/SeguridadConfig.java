@@ -1,17 +1,21 @@
 package com.qualifygym.usuarios.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import static org.springframework.security.config.Customizer.withDefaults;
 
 @Configuration
@@ -20,9 +24,28 @@ public class SeguridadConfig {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
+    @Value("${seguridad.password.bcrypt-costo:10}")
+    private int costoBCrypt;
+
+    // Si es > 0 se calibra el costo al iniciar para no superar este tiempo por hash
+    @Value("${seguridad.password.bcrypt-objetivo-ms:0}")
+    private long objetivoMsBCrypt;
+
+    /**
+     * Codificador versionado: los hashes nuevos se guardan como {bcrypt}$2a$<costo>$...
+     * Los hashes antiguos sin prefijo se siguen validando con BCrypt y, junto con los de
+     * costo menor al configurado, quedan marcados para re-hash (upgradeEncoding).
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int costo = objetivoMsBCrypt > 0 ? CalibradorBCrypt.calibrar(objetivoMsBCrypt) : costoBCrypt;
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(costo);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 
     @Bean
@@ -0,0 +1,60 @@
+package com.qualifygym.usuarios.controller;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.qualifygym.usuarios.service.AnilloLlaves;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@Tag(name = "JWKS", description = "Llaves públicas para verificar los tokens JWT emitidos por este servicio")
+public class JwksController {
+
+    @Autowired
+    private AnilloLlaves anilloLlaves;
+
+    // Debe ser menor que jwt.rotacion.intervalo-ms para que los verificadores vean la llave siguiente a tiempo
+    @Value("${jwt.jwks.max-age-s:3600}")
+    private long maxAgeSegundos;
+
+    @Operation(summary = "Obtener el JWKS", description = "Retorna las llaves públicas (activa, siguiente y retiradas aún vigentes) en formato JWK Set")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "JWK Set obtenido exitosamente", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "304", description = "El JWK Set no cambió (If-None-Match)", content = @Content)
+    })
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> jwks(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        AnilloLlaves.ConjuntoPublico conjunto = anilloLlaves.conjuntoPublico();
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSegundos, TimeUnit.SECONDS)
+                .cachePublic()
+                .staleIfError(1, TimeUnit.DAYS);
+
+        if (conjunto.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(conjunto.etag())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(conjunto.etag())
+                .body(conjunto.jwks());
+    }
+}
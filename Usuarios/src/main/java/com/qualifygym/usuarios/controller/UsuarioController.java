@@ -1,53 +1,99 @@
 package com.qualifygym.usuarios.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.qualifygym.usuarios.model.Usuario;
+import com.qualifygym.usuarios.model.UsuarioResumen;
 import com.qualifygym.usuarios.service.UsuarioService;
+import com.qualifygym.usuarios.service.ImportacionUsuariosService;
 import com.qualifygym.usuarios.service.JwtService;
+import com.qualifygym.usuarios.service.LimitadorLogin;
 
 import org.springframework.web.bind.annotation.RequestBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/api/v1/usuario")
 @Tag(name = "Usuarios", description = "API para la gestión de usuarios del sistema GymFit web")
 public class UsuarioController {
 
+    private static final int MAX_IDS_EXISTE = 10_000;
+    private static final int LIMITE_MAXIMO = 500;
+    private static final int LIMITE_POR_DEFECTO = 50;
+    private static final String HEADER_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+
     @Autowired
     private UsuarioService usuarioService;
 
     @Autowired
     private JwtService jwtService;
 
-    @Operation(summary = "Obtener todos los usuarios", description = "Retorna una lista de todos los usuarios registrados en el sistema")
+    @Autowired
+    private ImportacionUsuariosService importacionUsuariosService;
+
+    @Autowired
+    private LimitadorLogin limitadorLogin;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Operation(summary = "Obtener todos los usuarios", description = "Retorna una lista de todos los usuarios registrados en el sistema. Con cursor o limite retorna una página de usuarios resumidos (id, username, email, phone, rol) ordenados por id: para la página siguiente se envía como cursor el valor del header X-Siguiente-Cursor")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class))),
             @ApiResponse(responseCode = "204", description = "No hay usuarios registrados", content = @Content)
     })
     @GetMapping("/users")
-    public ResponseEntity<List<Usuario>> getUsuarios() {
-        List<Usuario> users = usuarioService.obtenerUsuarios();
-        return users.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(users);
+    public ResponseEntity<?> getUsuarios(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limite) {
+        // Sin parámetros de paginación se mantiene la lista completa para los clientes existentes
+        if (cursor == null && limite == null) {
+            List<Usuario> users = usuarioService.obtenerUsuarios();
+            return users.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(users);
+        }
+        int tamano = Math.max(1, Math.min(limite != null ? limite : LIMITE_POR_DEFECTO, LIMITE_MAXIMO));
+        List<UsuarioResumen> users = usuarioService.listarUsuarios(cursor, tamano);
+        if (users.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        // Página completa: puede haber más usuarios después del último id
+        if (users.size() == tamano) {
+            respuesta.header(HEADER_SIGUIENTE_CURSOR, String.valueOf(users.get(users.size() - 1).id()));
+        }
+        return respuesta.body(users);
     }
 
     @Operation(summary = "Obtener usuario por ID", description = "Retorna la información de un usuario específico por su ID")
@@ -120,6 +166,46 @@ public class UsuarioController {
         }
     }
 
+    @Operation(summary = "Importación masiva de usuarios", description = "Importa usuarios desde CSV (con encabezado username,password,email,phone,rolId,address) o NDJSON. Responde en NDJSON con el avance por lote, un evento por cada fila rechazada y un resumen final. Si no se indica rolId se asigna el rol 'Usuario'")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importación procesada (ver eventos de error por fila)", content = @Content(mediaType = "application/x-ndjson")),
+            @ApiResponse(responseCode = "415", description = "Formato no soportado", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Demasiadas importaciones en curso", content = @Content)
+    })
+    @PostMapping(value = "/users/import", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE })
+    public void importarUsuarios(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream cuerpo,
+            HttpServletResponse response) throws IOException {
+        ImportacionUsuariosService.Formato formato = contentType.startsWith("text/csv")
+                ? ImportacionUsuariosService.Formato.CSV
+                : ImportacionUsuariosService.Formato.NDJSON;
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        OutputStream salida = response.getOutputStream();
+
+        // Cada evento se escribe y se envía de inmediato para informar el avance
+        try {
+            importacionUsuariosService.importar(cuerpo, formato, evento -> {
+                try {
+                    salida.write(objectMapper.writeValueAsBytes(evento));
+                    salida.write('\n');
+                    salida.flush();
+                } catch (IOException e) {
+                    throw new RuntimeException("Cliente desconectado durante la importación", e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            // Rechazada antes del primer evento: todavía se puede responder con otro estado
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            salida.write(objectMapper.writeValueAsBytes(Map.of("error", e.getMessage())));
+        }
+    }
+
     @Operation(summary = "Actualizar usuario", description = "Actualiza la información de un usuario existente. Requiere autenticación con rol Administrador")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Usuario actualizado exitosamente", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class))),
@@ -168,12 +254,14 @@ public class UsuarioController {
             @ApiResponse(responseCode = "200", description = "Login exitoso", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Map.class))),
             @ApiResponse(responseCode = "400", description = "Faltan campos 'email' o 'password'", content = @Content),
             @ApiResponse(responseCode = "401", description = "Credenciales inválidas", content = @Content),
-            @ApiResponse(responseCode = "500", description = "Error interno del servidor", content = @Content)
+            @ApiResponse(responseCode = "429", description = "Demasiados intentos fallidos para el email o la IP, reintentar después de Retry-After", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Servicio saturado, reintentar en unos segundos", content = @Content)
     })
     @PostMapping("/login")
     public ResponseEntity<?> login(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Credenciales para inicio de sesión", required = true, content = @Content(mediaType = "application/json", examples = @io.swagger.v3.oas.annotations.media.ExampleObject(name = "Ejemplo de Login", value = "{\"email\": \"usuario@example.com\", \"password\": \"password123\"}", summary = "Ejemplo de credenciales válidas"), schema = @Schema(implementation = Map.class) //Esto es para que salga el schema en la documentación con los dos campos y no un objeto vacío                                                                                                                                                                                                                                                                                                                                                                                                                                                
-            )) @RequestBody Map<String, String> datos) {
+            )) @RequestBody Map<String, String> datos, HttpServletRequest request) {
         try {
             String email = datos.get("email");
             String password = datos.get("password");
@@ -185,36 +273,55 @@ public class UsuarioController {
                 return ResponseEntity.badRequest().body("El campo 'password' es requerido");
             }
 
-            boolean valido = usuarioService.validarCredenciales(email.trim(), password);
-            if (valido) {
-                // Obtener el usuario para generar el token
-                Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email.trim());
-                if (usuario != null) {
-                    // Generar token JWT
-                    String token = jwtService.generateToken(
-                            usuario.getUsername(),
-                            usuario.getId(),
-                            usuario.getRol().getNombre());
-
-                    // Retornar token y datos del usuario
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("token", token);
-                    response.put("message", "Login exitoso");
-                    response.put("usuario", Map.of(
-                            "id", usuario.getId(),
-                            "username", usuario.getUsername(),
-                            "email", usuario.getEmail(),
-                            "rol", usuario.getRol().getNombre()));
-                    return ResponseEntity.ok(response);
-                } else {
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .body(Map.of("error", "Error al obtener datos del usuario"));
-                }
+            // Se rechaza antes de gastar un BCrypt si el email (desde esta IP) o la IP acumulan
+            // demasiados fallos; si se permite, el intento ya queda contado
+            String ip = request.getRemoteAddr();
+            long espera = limitadorLogin.intentar(email.trim(), ip);
+            if (espera > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(espera))
+                        .body(Map.of("error", "Demasiados intentos fallidos. Intenta nuevamente en " + espera + " segundos."));
+            }
+
+            // Una sola consulta (usuario + rol); BCrypt corre en el pool de hashing
+            Optional<Usuario> autenticado;
+            try {
+                autenticado = usuarioService.autenticar(email.trim(), password);
+            } catch (RuntimeException e) {
+                // La contraseña no se llegó a verificar: el intento no cuenta como fallo
+                limitadorLogin.devolver(email.trim(), ip);
+                throw e;
+            }
+            if (autenticado.isPresent()) {
+                Usuario usuario = autenticado.get();
+                limitadorLogin.registrarExito(email.trim(), ip);
+                // Generar token JWT
+                String token = jwtService.generateToken(
+                        usuario.getUsername(),
+                        usuario.getId(),
+                        usuario.getRol().getNombre());
+
+                // Retornar token y datos del usuario
+                Map<String, Object> response = new HashMap<>();
+                response.put("token", token);
+                response.put("message", "Login exitoso");
+                response.put("usuario", Map.of(
+                        "id", usuario.getId(),
+                        "username", usuario.getUsername(),
+                        "email", usuario.getEmail(),
+                        "rol", usuario.getRol().getNombre()));
+                return ResponseEntity.ok(response);
             } else {
+                limitadorLogin.registrarFallo();
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Credenciales inválidas. Verifica tu email y contraseña."));
             }
 
+        } catch (RejectedExecutionException e) {
+            // Pool de hashing saturado: fallar rápido en vez de acumular hilos de Tomcat
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Servicio de autenticación saturado. Intenta nuevamente en unos segundos."));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error interno: " + e.getMessage()));
@@ -283,4 +390,21 @@ public class UsuarioController {
             return ResponseEntity.ok(false);
         }
     }
+
+    @Operation(summary = "Verificar si varios usuarios existen", description = "Recibe una lista de IDs y retorna, para cada uno, true si el usuario existe. Se responde desde un índice en memoria, sin consultar la base de datos")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Verificación exitosa", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "400", description = "Lista vacía o con más IDs de los permitidos", content = @Content)
+    })
+    @PostMapping("/users/existe")
+    public ResponseEntity<?> existenUsuarios(@RequestBody List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Debe enviar al menos un ID"));
+        }
+        if (ids.size() > MAX_IDS_EXISTE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Se permiten como máximo " + MAX_IDS_EXISTE + " IDs por petición"));
+        }
+        return ResponseEntity.ok(usuarioService.existenUsuarios(ids));
+    }
 }
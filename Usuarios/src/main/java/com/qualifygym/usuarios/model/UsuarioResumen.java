@@ -0,0 +1,16 @@
+package com.qualifygym.usuarios.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Vista resumida de un usuario para los listados: sin contraseña ni dirección y con
+ * solo el nombre del rol. Se construye directamente en la consulta JPQL (new ...).
+ */
+@Schema(description = "Resumen de un usuario para listados")
+public record UsuarioResumen(
+        @Schema(description = "Identificador único del usuario", example = "1") Long id,
+        @Schema(description = "Nombre de usuario", example = "Nicolas Vladimir") String username,
+        @Schema(description = "Email del usuario", example = "Nicolas@duocuc.cl") String email,
+        @Schema(description = "Número de teléfono del usuario", example = "+56912345678") String phone,
+        @Schema(description = "Nombre del rol del usuario", example = "Administrador") String rol) {
+}
@@ -1,5 +1,7 @@
 package com.qualifygym.usuarios.repository;
 
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -7,6 +9,7 @@ import com.qualifygym.usuarios.model.Rol;
 
 @Repository
 public interface RoleRepository extends JpaRepository<Rol, Long> {
-
+    // 'nombre' es UNIQUE, por lo que esta búsqueda usa el índice de la restricción
+    Optional<Rol> findByNombre(String nombre);
 }
 
@@ -1,11 +1,19 @@
 package com.qualifygym.usuarios.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.qualifygym.usuarios.model.Usuario;
+import com.qualifygym.usuarios.model.UsuarioResumen;
 
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
@@ -15,5 +23,32 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
     boolean existsByPhone(String phone);
+
+    // Carga usuario y rol en una sola consulta (login)
+    @Query("select u from Usuario u left join fetch u.rol where u.email = :email")
+    Optional<Usuario> findConRolByEmail(@Param("email") String email);
+
+    // Verificación de duplicados por lote (importación masiva)
+    @Query("select u.email from Usuario u where u.email in :emails")
+    List<String> findEmailsExistentes(@Param("emails") Collection<String> emails);
+
+    // Ids de los usuarios insertados por lote (importación masiva)
+    @Query("select u.id from Usuario u where u.email in :emails")
+    List<Long> findIdsPorEmails(@Param("emails") Collection<String> emails);
+
+    // Listado paginado por keyset: una consulta con join al rol, sin leer la contraseña
+    @Query("select new com.qualifygym.usuarios.model.UsuarioResumen(u.id, u.username, u.email, u.phone, r.nombre) "
+            + "from Usuario u left join u.rol r where u.id > :cursor order by u.id")
+    List<UsuarioResumen> findResumenDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    // Carga del índice de ids en memoria
+    @Query("select u.id from Usuario u")
+    List<Long> findAllIds();
+
+    // Re-hash: solo reemplaza si la contraseña no cambió mientras se calculaba el nuevo hash
+    @Modifying
+    @Transactional
+    @Query("update Usuario u set u.password = :nuevo where u.id = :id and u.password = :anterior")
+    int actualizarPasswordSiNoCambio(@Param("id") Long id, @Param("anterior") String anterior, @Param("nuevo") String nuevo);
 }
 
@@ -0,0 +1,349 @@
+package com.qualifygym.usuarios.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Anillo de llaves ES256 (P-256) para firmar los tokens JWT.
+ *
+ * En todo momento hay una llave activa (firma los tokens nuevos) y una siguiente que ya se
+ * publica en el JWKS pero todavía no firma: así los verificadores la conocen antes de verla
+ * en un token. Al rotar, la siguiente pasa a activa y la activa queda retirada; una llave
+ * retirada se sigue publicando hasta que expiran los tokens que alcanzó a firmar.
+ *
+ * Si jwt.llaves.directorio está configurado, las llaves se guardan ahí (una por archivo)
+ * para que un reinicio no invalide los tokens emitidos. Solo una instancia debe rotar.
+ * Cada archivo se escribe con permisos rw------- en un temporal que luego se mueve
+ * atómicamente a su lugar, para que nunca quede una llave privada legible o a medio escribir.
+ */
+@Service
+public class AnilloLlaves {
+
+    private static final Logger log = LoggerFactory.getLogger(AnilloLlaves.class);
+
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    @Value("${jwt.rotacion.intervalo-ms:86400000}") // 24 horas por defecto
+    private long intervaloRotacionMs;
+
+    @Value("${jwt.expiration:86400000}")
+    private long expiracionTokensMs;
+
+    @Value("${jwt.llaves.directorio:}")
+    private String directorio;
+
+    /**
+     * Llave de firma. creadaEn se renueva cuando pasa a activa (desde ahí corre el intervalo de
+     * rotación) y ordena las llaves al cargarlas; retiradaEn = 0 mientras no haya sido retirada.
+     */
+    public record LlaveFirma(String kid, KeyPair par, long creadaEn, long retiradaEn) {
+
+        public PrivateKey privada() {
+            return par.getPrivate();
+        }
+
+        public PublicKey publica() {
+            return par.getPublic();
+        }
+
+        LlaveFirma retirar(long ahora) {
+            return new LlaveFirma(kid, par, creadaEn, ahora);
+        }
+
+        LlaveFirma activar(long ahora) {
+            return new LlaveFirma(kid, par, ahora, 0L);
+        }
+    }
+
+    /**
+     * Conjunto de llaves públicas listo para servir: el JWKS y su ETag
+     */
+    public record ConjuntoPublico(Map<String, Object> jwks, String etag) {
+    }
+
+    private record Estado(LlaveFirma activa, LlaveFirma siguiente, List<LlaveFirma> retiradas,
+            Map<String, PublicKey> porKid, ConjuntoPublico conjunto) {
+    }
+
+    private volatile Estado estado;
+
+    @PostConstruct
+    void init() {
+        List<LlaveFirma> guardadas = cargarDeDirectorio();
+        long ahora = System.currentTimeMillis();
+
+        List<LlaveFirma> vigentes = new ArrayList<>();
+        List<LlaveFirma> retiradas = new ArrayList<>();
+        for (LlaveFirma llave : guardadas) {
+            (llave.retiradaEn() > 0 ? retiradas : vigentes).add(llave);
+        }
+        vigentes.sort(Comparator.comparingLong(LlaveFirma::creadaEn));
+        // Solo las dos más recientes siguen vigentes (activa y siguiente)
+        while (vigentes.size() > 2) {
+            LlaveFirma retirada = vigentes.remove(0).retirar(ahora);
+            retiradas.add(retirada);
+            guardar(retirada);
+        }
+
+        LlaveFirma activa = vigentes.isEmpty() ? nuevaLlave(ahora) : vigentes.get(0);
+        // La siguiente debe quedar después de la activa al ordenar por creadaEn en el próximo arranque
+        LlaveFirma siguiente = vigentes.size() < 2 ? nuevaLlave(Math.max(ahora, activa.creadaEn() + 1)) : vigentes.get(1);
+        publicar(activa, siguiente, retiradas, ahora);
+    }
+
+    /**
+     * Rota la llave activa cuando cumple el intervalo de rotación
+     */
+    @Scheduled(fixedDelayString = "${jwt.rotacion.revision-ms:60000}")
+    public void revisarRotacion() {
+        long ahora = System.currentTimeMillis();
+        if (ahora - estado.activa().creadaEn() >= intervaloRotacionMs) {
+            rotar();
+        }
+    }
+
+    /**
+     * La llave siguiente pasa a ser la activa, la activa queda retirada y se genera una nueva siguiente
+     */
+    public synchronized void rotar() {
+        long ahora = System.currentTimeMillis();
+        Estado actual = estado;
+
+        LlaveFirma retirada = actual.activa().retirar(ahora);
+        guardar(retirada);
+        List<LlaveFirma> retiradas = new ArrayList<>(actual.retiradas());
+        retiradas.add(retirada);
+
+        LlaveFirma activa = actual.siguiente().activar(ahora);
+        guardar(activa);
+        publicar(activa, nuevaLlave(ahora + 1), retiradas, ahora);
+    }
+
+    /**
+     * Llave con la que se firman los tokens nuevos
+     */
+    public LlaveFirma activa() {
+        return estado.activa();
+    }
+
+    /**
+     * Llave pública para verificar un token
+     * @param kid - Identificador de la llave (header 'kid' del token)
+     * @return Llave pública, o null si el kid no está publicado
+     */
+    public PublicKey llavePublica(String kid) {
+        return estado.porKid().get(kid);
+    }
+
+    public ConjuntoPublico conjuntoPublico() {
+        return estado.conjunto();
+    }
+
+    /**
+     * Arma y publica un estado nuevo, descartando las llaves retiradas cuyos tokens ya expiraron
+     */
+    private synchronized void publicar(LlaveFirma activa, LlaveFirma siguiente, List<LlaveFirma> retiradas,
+            long ahora) {
+        List<LlaveFirma> vigentesRetiradas = new ArrayList<>();
+        for (LlaveFirma llave : retiradas) {
+            if (llave.retiradaEn() + expiracionTokensMs > ahora) {
+                vigentesRetiradas.add(llave);
+            } else {
+                eliminar(llave);
+            }
+        }
+
+        List<LlaveFirma> publicadas = new ArrayList<>();
+        publicadas.add(activa);
+        publicadas.add(siguiente);
+        publicadas.addAll(vigentesRetiradas);
+
+        Map<String, PublicKey> porKid = new HashMap<>();
+        List<Map<String, Object>> keys = new ArrayList<>();
+        StringBuilder kids = new StringBuilder();
+        for (LlaveFirma llave : publicadas) {
+            porKid.put(llave.kid(), llave.publica());
+            keys.add(jwk(llave.kid(), (ECPublicKey) llave.publica()));
+            kids.append(llave.kid()).append('.');
+        }
+        String etag = "\"" + BASE64URL.encodeToString(sha256(kids.toString())) + "\"";
+
+        estado = new Estado(activa, siguiente, List.copyOf(vigentesRetiradas), Map.copyOf(porKid),
+                new ConjuntoPublico(Map.of("keys", List.copyOf(keys)), etag));
+    }
+
+    private LlaveFirma nuevaLlave(long ahora) {
+        try {
+            KeyPairGenerator generador = KeyPairGenerator.getInstance("EC");
+            generador.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair par = generador.generateKeyPair();
+            LlaveFirma llave = new LlaveFirma(thumbprint((ECPublicKey) par.getPublic()), par, ahora, 0L);
+            guardar(llave);
+            return llave;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo generar la llave de firma", e);
+        }
+    }
+
+    /**
+     * Representación JWK (RFC 7517) de una llave pública EC P-256
+     */
+    static Map<String, Object> jwk(String kid, ECPublicKey llave) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", "ES256");
+        jwk.put("x", BASE64URL.encodeToString(coordenada(llave.getW().getAffineX())));
+        jwk.put("y", BASE64URL.encodeToString(coordenada(llave.getW().getAffineY())));
+        return jwk;
+    }
+
+    /**
+     * El kid es el thumbprint JWK (RFC 7638) de la llave pública
+     */
+    private static String thumbprint(ECPublicKey llave) {
+        String canonico = "{\"crv\":\"P-256\",\"kty\":\"EC\",\"x\":\""
+                + BASE64URL.encodeToString(coordenada(llave.getW().getAffineX()))
+                + "\",\"y\":\"" + BASE64URL.encodeToString(coordenada(llave.getW().getAffineY())) + "\"}";
+        return BASE64URL.encodeToString(sha256(canonico));
+    }
+
+    // Coordenada de 32 bytes sin signo, como exige el JWK para P-256
+    private static byte[] coordenada(BigInteger valor) {
+        byte[] bytes = valor.toByteArray();
+        byte[] resultado = new byte[32];
+        int largo = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - largo, resultado, 32 - largo, largo);
+        return resultado;
+    }
+
+    private static byte[] sha256(String texto) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(texto.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private List<LlaveFirma> cargarDeDirectorio() {
+        List<LlaveFirma> llaves = new ArrayList<>();
+        if (directorio == null || directorio.isBlank()) {
+            return llaves;
+        }
+        Path dir = Path.of(directorio);
+        if (!Files.isDirectory(dir)) {
+            return llaves;
+        }
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(dir, "*.properties")) {
+            KeyFactory fabrica = KeyFactory.getInstance("EC");
+            Base64.Decoder decoder = Base64.getDecoder();
+            for (Path archivo : archivos) {
+                Properties props = new Properties();
+                try (InputStream in = Files.newInputStream(archivo)) {
+                    props.load(in);
+                }
+                PrivateKey privada = fabrica.generatePrivate(
+                        new PKCS8EncodedKeySpec(decoder.decode(props.getProperty("privada"))));
+                PublicKey publica = fabrica.generatePublic(
+                        new X509EncodedKeySpec(decoder.decode(props.getProperty("publica"))));
+                llaves.add(new LlaveFirma(props.getProperty("kid"), new KeyPair(publica, privada),
+                        Long.parseLong(props.getProperty("creadaEn")),
+                        Long.parseLong(props.getProperty("retiradaEn", "0"))));
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            throw new IllegalStateException("No se pudieron cargar las llaves de " + directorio, e);
+        }
+        return llaves;
+    }
+
+    private void guardar(LlaveFirma llave) {
+        if (directorio == null || directorio.isBlank()) {
+            return;
+        }
+        Properties props = new Properties();
+        Base64.Encoder encoder = Base64.getEncoder();
+        props.setProperty("kid", llave.kid());
+        props.setProperty("privada", encoder.encodeToString(llave.privada().getEncoded()));
+        props.setProperty("publica", encoder.encodeToString(llave.publica().getEncoded()));
+        props.setProperty("creadaEn", Long.toString(llave.creadaEn()));
+        props.setProperty("retiradaEn", Long.toString(llave.retiradaEn()));
+        Path temporal = null;
+        try {
+            Path dir = Files.createDirectories(Path.of(directorio));
+            temporal = Files.createTempFile(dir, llave.kid() + ".", ".tmp", soloDueno());
+            try (OutputStream out = Files.newOutputStream(temporal)) {
+                props.store(out, "Llave de firma JWT (ES256)");
+            }
+            Files.move(temporal, dir.resolve(llave.kid() + ".properties"),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            if (temporal != null) {
+                try {
+                    Files.deleteIfExists(temporal);
+                } catch (IOException ignorada) {
+                    e.addSuppressed(ignorada);
+                }
+            }
+            throw new IllegalStateException("No se pudo guardar la llave " + llave.kid(), e);
+        }
+    }
+
+    // rw------- donde el sistema de archivos lo soporta (createTempFile ya restringe el acceso en Windows)
+    private static FileAttribute<?>[] soloDueno() {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[0];
+        }
+        return new FileAttribute<?>[] {
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) };
+    }
+
+    private void eliminar(LlaveFirma llave) {
+        if (directorio == null || directorio.isBlank()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Path.of(directorio, llave.kid() + ".properties"));
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar la llave {}: {}", llave.kid(), e.getMessage());
+        }
+    }
+}
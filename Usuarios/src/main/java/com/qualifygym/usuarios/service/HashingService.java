@@ -0,0 +1,221 @@
+package com.qualifygym.usuarios.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Ejecuta las operaciones de BCrypt en un pool dedicado y acotado, fuera de los hilos de Tomcat.
+ *
+ * Cuando la cola está llena la tarea se rechaza de inmediato con RejectedExecutionException,
+ * que el controlador traduce a un 503 para que el cliente reintente en vez de quedar esperando.
+ *
+ * La importación masiva usa un segundo pool, más chico y con su propia cola acotada, para que
+ * un archivo grande no ocupe los hilos ni la cola de los logins.
+ */
+@Service
+public class HashingService {
+
+    private static final Logger log = LoggerFactory.getLogger(HashingService.class);
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${seguridad.hashing.hilos:0}") // 0 = un hilo por núcleo disponible
+    private int hilos;
+
+    @Value("${seguridad.hashing.cola-max:64}")
+    private int capacidadCola;
+
+    @Value("${seguridad.hashing.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${usuarios.importacion.hashing.hilos:2}")
+    private int hilosImportacion;
+
+    @Value("${usuarios.importacion.hashing.cola-max:32}")
+    private int capacidadColaImportacion;
+
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor executorImportacion;
+    private Timer latencia;
+    private Counter rechazos;
+    private Counter rehashes;
+
+    @PostConstruct
+    void init() {
+        int tamanoPool = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(tamanoPool, tamanoPool, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), new HilosHashing("hashing-"), new ThreadPoolExecutor.AbortPolicy());
+        // Con la cola llena el hilo de la importación calcula el hash él mismo: se frena en vez de rechazar filas
+        executorImportacion = new ThreadPoolExecutor(hilosImportacion, hilosImportacion, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadColaImportacion), new HilosHashing("hashing-importacion-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        Gauge.builder("usuarios.hashing.cola", executor, e -> e.getQueue().size())
+                .description("Tareas de hashing esperando en la cola")
+                .register(meterRegistry);
+        Gauge.builder("usuarios.hashing.activos", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hilos de hashing ocupados")
+                .register(meterRegistry);
+        Gauge.builder("usuarios.hashing.importacion.cola", executorImportacion, e -> e.getQueue().size())
+                .description("Hashes de la importación masiva esperando en la cola")
+                .register(meterRegistry);
+        latencia = Timer.builder("usuarios.hashing.latencia")
+                .description("Tiempo de cómputo de BCrypt")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        rechazos = Counter.builder("usuarios.hashing.rechazos")
+                .description("Tareas rechazadas por cola llena o tiempo de espera agotado")
+                .register(meterRegistry);
+        rehashes = Counter.builder("usuarios.hashing.rehash")
+                .description("Contraseñas re-hasheadas en segundo plano")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        executorImportacion.shutdown();
+    }
+
+    /**
+     * Compara una contraseña en texto plano contra su hash usando el pool de hashing
+     * @throws RejectedExecutionException si la cola está llena o se agota el tiempo de espera
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return ejecutar(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Calcula un hash nuevo en segundo plano y entrega el resultado al callback.
+     * Es trabajo de baja prioridad: si la cola ya está a media capacidad no se encola,
+     * para no competir con los logins (se reintentará en el siguiente login).
+     * @return true si la tarea fue encolada
+     */
+    public boolean encodeEnSegundoPlano(String rawPassword, Consumer<String> alTerminar) {
+        if (executor.getQueue().size() * 2 >= capacidadCola) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    long inicio = System.nanoTime();
+                    String hash = passwordEncoder.encode(rawPassword);
+                    latencia.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                    alTerminar.accept(hash);
+                    rehashes.increment();
+                } catch (RuntimeException e) {
+                    // No es crítico: el hash se volverá a actualizar en el siguiente login
+                    log.warn("No se pudo re-hashear la contraseña", e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Calcula los hashes de un lote de la importación masiva en el pool de importación
+     * @param rawPasswords - Contraseñas en texto plano
+     * @return Los hashes, en el mismo orden
+     */
+    public List<String> encodeTodos(List<String> rawPasswords) {
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        for (String rawPassword : rawPasswords) {
+            futures.add(executorImportacion.submit(medir(() -> passwordEncoder.encode(rawPassword))));
+        }
+        List<String> hashes = new ArrayList<>(futures.size());
+        try {
+            for (Future<String> future : futures) {
+                hashes.add(future.get());
+            }
+            return hashes;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Importación interrumpida", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Error al procesar contraseñas: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private <T> Callable<T> medir(Callable<T> operacion) {
+        return () -> {
+            long inicio = System.nanoTime();
+            try {
+                return operacion.call();
+            } finally {
+                latencia.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private <T> T ejecutar(Callable<T> operacion) {
+        Future<T> future;
+        try {
+            future = executor.submit(medir(operacion));
+        } catch (RejectedExecutionException e) {
+            rechazos.increment();
+            throw e;
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rechazos.increment();
+            throw new RejectedExecutionException("Tiempo de espera agotado en el pool de hashing", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrumpido esperando el pool de hashing", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error al procesar la contraseña: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static class HilosHashing implements ThreadFactory {
+        private final String prefijo;
+        private final AtomicInteger contador = new AtomicInteger();
+
+        HilosHashing(String prefijo) {
+            this.prefijo = prefijo;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefijo + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.qualifygym.usuarios.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qualifygym.usuarios.model.Rol;
+import com.qualifygym.usuarios.repository.UsuarioRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Importación masiva de usuarios desde CSV o NDJSON.
+ *
+ * El archivo se lee línea a línea y se procesa por lotes: validación de campos,
+ * verificación de emails duplicados con una sola consulta por lote, hash de contraseñas
+ * en el pool de importación de HashingService y un INSERT por lotes JDBC dentro de una
+ * transacción por lote. En memoria solo vive el lote actual, sin importar el tamaño del archivo.
+ * Como máximo corren usuarios.importacion.max-concurrentes importaciones a la vez.
+ *
+ * El email es único en la tabla: si otro registro lo toma entre la verificación y el INSERT,
+ * el lote se reintenta fila por fila y solo esa fila se rechaza. Un lote que falla por otro
+ * error de base de datos se informa como error de cada una de sus filas y la importación sigue.
+ *
+ * El avance y los errores por fila se informan como eventos (un Map por evento)
+ * para que el controlador los envíe al cliente a medida que ocurren.
+ */
+@Service
+public class ImportacionUsuariosService {
+
+    public enum Formato { CSV, NDJSON }
+
+    private static final String SQL_INSERT =
+            "insert into usuarios (username, email, phone, password, rol_id, address) values (?, ?, ?, ?, ?, ?)";
+
+    private static final String ROL_POR_DEFECTO = "Usuario";
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private RegistroRoles registroRoles;
+
+    @Autowired
+    private IndiceIdsUsuarios indiceIdsUsuarios;
+
+    @Autowired
+    private HashingService hashingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${usuarios.importacion.tamano-lote:500}")
+    private int tamanoLote;
+
+    @Value("${usuarios.importacion.max-concurrentes:2}")
+    private int maxConcurrentes;
+
+    private Semaphore importaciones;
+
+    private record Fila(int linea, String username, String password, String email, String phone, Long rolId,
+            String address) {
+    }
+
+    private record Insercion(Fila fila, String hash, Rol rol) {
+    }
+
+    @PostConstruct
+    void init() {
+        importaciones = new Semaphore(maxConcurrentes);
+    }
+
+    /**
+     * Importa usuarios desde el flujo de entrada
+     * @param entrada - Contenido CSV (con encabezado) o NDJSON
+     * @param formato - Formato del contenido
+     * @param eventos - Recibe eventos de progreso, de error por fila y el resumen final
+     * @return Resumen de la importación
+     * @throws IllegalStateException si ya hay usuarios.importacion.max-concurrentes importaciones en curso
+     *                               (antes del primer evento)
+     */
+    public Map<String, Object> importar(InputStream entrada, Formato formato, Consumer<Map<String, Object>> eventos)
+            throws IOException {
+        if (!importaciones.tryAcquire()) {
+            throw new IllegalStateException("Hay " + maxConcurrentes + " importaciones en curso, intente más tarde");
+        }
+        try {
+            return importarLineas(entrada, formato, eventos);
+        } finally {
+            importaciones.release();
+        }
+    }
+
+    private Map<String, Object> importarLineas(InputStream entrada, Formato formato,
+            Consumer<Map<String, Object>> eventos) throws IOException {
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        int numeroLinea = 0;
+        String[] encabezado = null;
+        int procesadas = 0;
+        int insertadas = 0;
+        int rechazadas = 0;
+
+        List<Fila> lote = new ArrayList<>(tamanoLote);
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            numeroLinea++;
+            if (linea.isBlank()) {
+                continue;
+            }
+            if (formato == Formato.CSV && encabezado == null) {
+                encabezado = separarCsv(linea).toArray(new String[0]);
+                continue;
+            }
+
+            procesadas++;
+            try {
+                lote.add(formato == Formato.CSV ? filaDesdeCsv(numeroLinea, encabezado, linea)
+                        : filaDesdeJson(numeroLinea, linea));
+            } catch (RuntimeException e) {
+                rechazadas++;
+                eventos.accept(error(numeroLinea, null, e.getMessage()));
+            }
+
+            if (lote.size() >= tamanoLote) {
+                int ok = procesarLote(lote, eventos);
+                insertadas += ok;
+                rechazadas += lote.size() - ok;
+                lote.clear();
+                eventos.accept(progreso("progreso", procesadas, insertadas, rechazadas));
+            }
+        }
+        if (!lote.isEmpty()) {
+            int ok = procesarLote(lote, eventos);
+            insertadas += ok;
+            rechazadas += lote.size() - ok;
+        }
+
+        Map<String, Object> resumen = progreso("resumen", procesadas, insertadas, rechazadas);
+        eventos.accept(resumen);
+        return resumen;
+    }
+
+    /**
+     * Procesa un lote: descarta duplicados, hashea en paralelo e inserta por lotes JDBC
+     * @return cantidad de filas insertadas
+     */
+    private int procesarLote(List<Fila> lote, Consumer<Map<String, Object>> eventos) {
+        Set<String> emails = new HashSet<>();
+        for (Fila fila : lote) {
+            emails.add(fila.email());
+        }
+        Set<String> existentes = new HashSet<>(usuarioRepository.findEmailsExistentes(emails));
+
+        List<Rol> roles = new ArrayList<>(lote.size());
+        Set<String> vistosEnLote = new HashSet<>();
+        List<Fila> validas = new ArrayList<>(lote.size());
+        for (Fila fila : lote) {
+            if (existentes.contains(fila.email()) || !vistosEnLote.add(fila.email())) {
+                eventos.accept(error(fila.linea(), fila.email(), "El email ya está registrado: " + fila.email()));
+                continue;
+            }
+            Rol rol = fila.rolId() != null
+                    ? registroRoles.buscarPorId(fila.rolId()).orElse(null)
+                    : registroRoles.buscarPorNombre(ROL_POR_DEFECTO).orElse(null);
+            if (rol == null) {
+                eventos.accept(error(fila.linea(), fila.email(), "Rol no encontrado ID:" + fila.rolId()));
+                continue;
+            }
+            roles.add(rol);
+            validas.add(fila);
+        }
+        if (validas.isEmpty()) {
+            return 0;
+        }
+
+        List<String> passwords = new ArrayList<>(validas.size());
+        for (Fila fila : validas) {
+            passwords.add(fila.password());
+        }
+        List<String> hashes = hashingService.encodeTodos(passwords);
+        List<Insercion> inserciones = new ArrayList<>(validas.size());
+        for (int i = 0; i < validas.size(); i++) {
+            inserciones.add(new Insercion(validas.get(i), hashes.get(i), roles.get(i)));
+        }
+
+        List<Insercion> insertadas;
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(SQL_INSERT, inserciones,
+                    inserciones.size(), ImportacionUsuariosService::asignarParametros));
+            insertadas = inserciones;
+        } catch (DuplicateKeyException e) {
+            // Otro registro tomó alguno de los emails después de la verificación: se busca cuál, fila por fila
+            insertadas = insertarPorFila(inserciones, eventos);
+        } catch (DataAccessException e) {
+            String motivo = "Error al guardar el lote: " + e.getMostSpecificCause().getMessage();
+            for (Insercion insercion : inserciones) {
+                eventos.accept(error(insercion.fila().linea(), insercion.fila().email(), motivo));
+            }
+            return 0;
+        }
+        if (insertadas.isEmpty()) {
+            return 0;
+        }
+
+        // El batch JDBC no retorna los ids generados: se leen por email para el índice en memoria
+        List<String> emailsInsertados = new ArrayList<>(insertadas.size());
+        for (Insercion insercion : insertadas) {
+            emailsInsertados.add(insercion.fila().email());
+        }
+        indiceIdsUsuarios.agregarTodos(usuarioRepository.findIdsPorEmails(emailsInsertados));
+        return insertadas.size();
+    }
+
+    /**
+     * Inserta las filas de un lote de a una, cada una en su transacción, para rechazar solo las
+     * que chocan con el índice único del email
+     * @return Las filas insertadas
+     */
+    private List<Insercion> insertarPorFila(List<Insercion> inserciones, Consumer<Map<String, Object>> eventos) {
+        List<Insercion> insertadas = new ArrayList<>(inserciones.size());
+        for (Insercion insercion : inserciones) {
+            Fila fila = insercion.fila();
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.update(SQL_INSERT, ps -> asignarParametros(ps, insercion)));
+                insertadas.add(insercion);
+            } catch (DuplicateKeyException e) {
+                eventos.accept(error(fila.linea(), fila.email(), "El email ya está registrado: " + fila.email()));
+            } catch (DataAccessException e) {
+                eventos.accept(error(fila.linea(), fila.email(),
+                        "Error al guardar la fila: " + e.getMostSpecificCause().getMessage()));
+            }
+        }
+        return insertadas;
+    }
+
+    private static void asignarParametros(PreparedStatement ps, Insercion insercion) throws SQLException {
+        Fila fila = insercion.fila();
+        ps.setString(1, fila.username());
+        ps.setString(2, fila.email());
+        ps.setString(3, fila.phone());
+        ps.setString(4, insercion.hash());
+        ps.setLong(5, insercion.rol().getId());
+        if (fila.address() != null) {
+            ps.setString(6, fila.address());
+        } else {
+            ps.setNull(6, Types.VARCHAR);
+        }
+    }
+
+    private Fila filaDesdeCsv(int linea, String[] encabezado, String contenido) {
+        List<String> valores = separarCsv(contenido);
+        Map<String, String> campos = new HashMap<>();
+        for (int i = 0; i < encabezado.length && i < valores.size(); i++) {
+            campos.put(encabezado[i].trim(), valores.get(i));
+        }
+        return validar(linea, campos.get("username"), campos.get("password"), campos.get("email"),
+                campos.get("phone"), campos.get("rolId"), campos.get("address"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Fila filaDesdeJson(int linea, String contenido) {
+        Map<String, Object> campos;
+        try {
+            campos = objectMapper.readValue(contenido, Map.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("JSON inválido: " + e.getOriginalMessage());
+        }
+        return validar(linea, texto(campos.get("username")), texto(campos.get("password")), texto(campos.get("email")),
+                texto(campos.get("phone")), texto(campos.get("rolId")), texto(campos.get("address")));
+    }
+
+    private static Fila validar(int linea, String username, String password, String email, String phone, String rolId,
+            String address) {
+        if (vacio(username) || vacio(password) || vacio(email) || vacio(phone)) {
+            throw new RuntimeException("Faltan campos requeridos: username, password, email, phone");
+        }
+        Long rol;
+        try {
+            rol = vacio(rolId) ? null : Long.valueOf(rolId.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("rolId inválido: " + rolId);
+        }
+        return new Fila(linea, username.trim(), password, email.trim(), phone.trim(), rol,
+                vacio(address) ? null : address.trim());
+    }
+
+    /**
+     * Separa una línea CSV respetando comillas dobles ("a,b" y "" como comilla escapada)
+     */
+    static List<String> separarCsv(String linea) {
+        List<String> valores = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                valores.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        valores.add(actual.toString());
+        return valores;
+    }
+
+    private static String texto(Object valor) {
+        return valor != null ? valor.toString() : null;
+    }
+
+    private static boolean vacio(String valor) {
+        return valor == null || valor.trim().isEmpty();
+    }
+
+    private static Map<String, Object> progreso(String tipo, int procesadas, int insertadas, int rechazadas) {
+        Map<String, Object> evento = new LinkedHashMap<>();
+        evento.put("tipo", tipo);
+        evento.put("procesadas", procesadas);
+        evento.put("insertadas", insertadas);
+        evento.put("rechazadas", rechazadas);
+        return evento;
+    }
+
+    private static Map<String, Object> error(int linea, String email, String mensaje) {
+        Map<String, Object> evento = new LinkedHashMap<>();
+        evento.put("tipo", "error");
+        evento.put("linea", linea);
+        if (email != null) {
+            evento.put("email", email);
+        }
+        evento.put("error", mensaje);
+        return evento;
+    }
+}
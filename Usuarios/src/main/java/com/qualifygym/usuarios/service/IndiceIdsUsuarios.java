@@ -0,0 +1,129 @@
+package com.qualifygym.usuarios.service;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.qualifygym.usuarios.repository.UsuarioRepository;
+
+/**
+ * Índice en memoria de los ids de usuarios existentes, como un bitmap (un bit por id).
+ *
+ * Se construye al iniciar con una sola consulta de ids y se mantiene al día cuando
+ * UsuarioService crea o elimina usuarios (y en la importación masiva). Los cambios se
+ * aplican después del commit, para no marcar ids de transacciones que hicieron rollback.
+ * Un id que no cabe en el bitmap (mayor a Integer.MAX_VALUE) se consulta en la base de datos.
+ */
+@Service
+public class IndiceIdsUsuarios {
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet ids = new BitSet();
+    private volatile boolean construido;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        reconstruir();
+    }
+
+    /**
+     * Recarga todos los ids desde la base de datos
+     */
+    public void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            List<Long> existentes = usuarioRepository.findAllIds();
+            ids.clear();
+            for (Long id : existentes) {
+                if (cabe(id)) {
+                    ids.set(id.intValue());
+                }
+            }
+            construido = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean existe(Long id) {
+        if (id == null || id < 0) {
+            return false;
+        }
+        if (!cabe(id)) {
+            return usuarioRepository.existsById(id);
+        }
+        asegurarConstruido();
+        lock.readLock().lock();
+        try {
+            return ids.get(id.intValue());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registra un usuario creado (después del commit si hay una transacción activa)
+     */
+    public void agregar(Long id) {
+        despuesDelCommit(() -> marcar(List.of(id), true));
+    }
+
+    public void agregarTodos(Collection<Long> nuevos) {
+        despuesDelCommit(() -> marcar(nuevos, true));
+    }
+
+    /**
+     * Quita un usuario eliminado (después del commit si hay una transacción activa)
+     */
+    public void eliminar(Long id) {
+        despuesDelCommit(() -> marcar(List.of(id), false));
+    }
+
+    private void marcar(Collection<Long> cambios, boolean valor) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : cambios) {
+                if (id != null && id >= 0 && cabe(id)) {
+                    ids.set(id.intValue(), valor);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void asegurarConstruido() {
+        if (!construido) {
+            reconstruir();
+        }
+    }
+
+    private static boolean cabe(Long id) {
+        return id <= Integer.MAX_VALUE;
+    }
+
+    private static void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
@@ -1,29 +1,107 @@
 package com.qualifygym.usuarios.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret:QualifyGymSecretKeyForJWTTokenGeneration2024}")
+    @Autowired
+    private AnilloLlaves anilloLlaves;
+
+    // Secreto HMAC de los tokens emitidos antes de firmar con ES256 (sin header 'kid')
+    @Value("${jwt.secret:}")
     private String secret;
 
+    @Value("${jwt.hmac-legado.aceptar:false}")
+    private boolean aceptarHmacLegado;
+
+    // Instante ISO-8601 (p. ej. 2025-06-30T00:00:00Z) desde el que se rechazan los tokens HMAC
+    @Value("${jwt.hmac-legado.hasta:}")
+    private String hmacLegadoHasta;
+
     @Value("${jwt.expiration:86400000}") // 24 horas por defecto
     private Long expiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    @Value("${jwt.cache.max-entradas:10000}")
+    private int maxEntradasCache;
+
+    // La llave y el parser son inmutables y thread-safe: se construyen una sola vez.
+    // llaveHmacLegado es null si los tokens HMAC no se aceptan
+    private SecretKey llaveHmacLegado;
+    private long hmacLegadoHastaMs;
+    private JwtParser parser;
+
+    // Tokens ya verificados, indexados por el digest SHA-256 del token
+    private final Map<String, TokenVerificado> cacheVerificados = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    });
+
+    @PostConstruct
+    void init() {
+        if (aceptarHmacLegado) {
+            if (secret == null || secret.isBlank()) {
+                throw new IllegalStateException("jwt.hmac-legado.aceptar=true requiere configurar jwt.secret");
+            }
+            if (hmacLegadoHasta == null || hmacLegadoHasta.isBlank()) {
+                throw new IllegalStateException("jwt.hmac-legado.aceptar=true requiere configurar jwt.hmac-legado.hasta");
+            }
+            this.llaveHmacLegado = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+            this.hmacLegadoHastaMs = Instant.parse(hmacLegadoHasta.trim()).toEpochMilli();
+        }
+        // La llave de verificación se elige por el header 'kid' del token
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return llaveVerificacion(header.getKeyId());
+                    }
+                })
+                .build();
+    }
+
+    private Key llaveVerificacion(String kid) {
+        if (kid == null) {
+            if (llaveHmacLegado != null && System.currentTimeMillis() < hmacLegadoHastaMs) {
+                return llaveHmacLegado;
+            }
+            throw new JwtException("Token sin 'kid'");
+        }
+        PublicKey llave = anilloLlaves.llavePublica(kid);
+        if (llave == null) {
+            throw new JwtException("Llave de firma desconocida: " + kid);
+        }
+        return llave;
     }
 
     /**
@@ -41,44 +119,106 @@ public class JwtService {
     }
 
     /**
-     * Crea un token JWT con los claims especificados
+     * Crea un token JWT con los claims especificados, firmado con la llave activa (ES256)
      */
     private String createToken(Map<String, Object> claims, String subject) {
+        long ahora = System.currentTimeMillis();
+        AnilloLlaves.LlaveFirma llave = anilloLlaves.activa();
         return Jwts.builder()
+                .header().keyId(llave.kid()).and()
                 .claims(claims)
                 .subject(subject)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .issuedAt(new Date(ahora))
+                .expiration(new Date(ahora + expiration))
+                .signWith(llave.privada(), Jwts.SIG.ES256)
                 .compact();
     }
 
+    /**
+     * Verifica el token una sola vez y retorna una vista inmutable de sus claims.
+     * Los tokens ya verificados se sirven desde una caché acotada hasta que pasa su 'exp'.
+     * @param token - Token a verificar
+     * @return Token verificado
+     * @throws io.jsonwebtoken.JwtException si la firma es inválida o el token expiró
+     */
+    public TokenVerificado verificar(String token) {
+        long ahora = System.currentTimeMillis();
+        String digest = digest(token);
+
+        TokenVerificado cacheado = cacheVerificados.get(digest);
+        if (cacheado != null) {
+            if (!cacheado.estaExpirado(ahora)) {
+                return cacheado;
+            }
+            // Expirado: se descarta y se deja que el parser lance ExpiredJwtException
+            cacheVerificados.remove(digest, cacheado);
+        }
+
+        Jws<Claims> jws = parser.parseSignedClaims(token);
+        Claims claims = jws.getPayload();
+        long expiraEn = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        if (jws.getHeader().getKeyId() == null) {
+            // Un token HMAC deja de valer en el corte aunque su 'exp' sea posterior (también en la caché)
+            expiraEn = Math.min(expiraEn, hmacLegadoHastaMs);
+        }
+        TokenVerificado verificado = new TokenVerificado(
+                claims.getSubject(),
+                claims.get("userId", Long.class),
+                claims.get("role", String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L,
+                expiraEn);
+
+        guardarEnCache(digest, verificado, ahora);
+        return verificado;
+    }
+
+    /**
+     * Agrega un token a la caché respetando el límite de entradas.
+     * Si está llena se eliminan primero los tokens expirados; si aun así no hay espacio,
+     * el token simplemente no se cachea.
+     */
+    private void guardarEnCache(String digest, TokenVerificado verificado, long ahora) {
+        if (cacheVerificados.size() >= maxEntradasCache) {
+            cacheVerificados.values().removeIf(t -> t.estaExpirado(ahora));
+            if (cacheVerificados.size() >= maxEntradasCache) {
+                return;
+            }
+        }
+        cacheVerificados.put(digest, verificado);
+    }
+
+    private static String digest(String token) {
+        MessageDigest md = SHA256.get();
+        byte[] hash = md.digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    }
+
     /**
      * Extrae el username del token
      */
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verificar(token).subject();
     }
 
     /**
      * Extrae el ID del usuario del token
      */
     public Long extractUserId(String token) {
-        return extractClaim(token, claims -> claims.get("userId", Long.class));
+        return verificar(token).userId();
     }
 
     /**
      * Extrae el rol del usuario del token
      */
     public String extractRole(String token) {
-        return extractClaim(token, claims -> claims.get("role", String.class));
+        return verificar(token).role();
     }
 
     /**
      * Extrae la fecha de expiración del token
      */
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return verificar(token).getExpiracion();
     }
 
     /**
@@ -93,18 +233,7 @@ public class JwtService {
      * Extrae todos los claims del token
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    /**
-     * Verifica si el token ha expirado
-     */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     /**
@@ -114,8 +243,7 @@ public class JwtService {
      * @return true si el token es válido
      */
     public Boolean validateToken(String token, String username) {
-        final String tokenUsername = extractUsername(token);
-        return (tokenUsername.equals(username) && !isTokenExpired(token));
+        final TokenVerificado verificado = verificar(token);
+        return (verificado.subject().equals(username) && !verificado.estaExpirado(System.currentTimeMillis()));
     }
 }
-
@@ -0,0 +1,247 @@
+package com.qualifygym.usuarios.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Limita los intentos de login fallidos por email y por IP del cliente, antes de gastar un BCrypt.
+ *
+ * El límite por email se cuenta por par email + IP: los fallos de una IP no bloquean al dueño
+ * del email cuando entra desde otra. El límite por IP sigue acotando cuántos emails puede probar
+ * una misma IP.
+ *
+ * La verificación y el conteo son una sola operación bajo el lock de la franja: cada intento
+ * permitido se cuenta como fallo antes de verificar la contraseña y se devuelve si resulta
+ * exitoso, así que peticiones concurrentes no pueden pasar todas antes de que se registre
+ * el primer fallo.
+ *
+ * Cada clave cuenta sus fallos en una ventana deslizante aproximada: se guardan los contadores de
+ * la ventana fija actual y de la anterior, y la anterior pesa según cuánto de ella sigue dentro de
+ * la ventana deslizante. Son dos enteros por clave, sin guardar cada intento.
+ *
+ * Las claves se reparten en franjas, cada una con su propio lock y un LinkedHashMap en orden de
+ * acceso con capacidad fija: al llenarse se descarta la clave usada hace más tiempo, así que la
+ * memoria queda acotada aunque lleguen millones de emails o IPs distintos.
+ */
+@Service
+public class LimitadorLogin {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${seguridad.login.max-fallos-email:5}")
+    private int maxFallosEmail;
+
+    @Value("${seguridad.login.max-fallos-ip:50}")
+    private int maxFallosIp;
+
+    @Value("${seguridad.login.ventana-s:300}")
+    private long ventanaSegundos;
+
+    @Value("${seguridad.login.max-entradas:100000}")
+    private int maxEntradas;
+
+    @Value("${seguridad.login.franjas:64}")
+    private int cantidadFranjas;
+
+    private long ventanaMs;
+    private Franja[] franjasPar;
+    private Franja[] franjasIp;
+    private Counter bloqueosEmail;
+    private Counter bloqueosIp;
+    private Counter fallos;
+
+    private static final class Ventana {
+        long inicio;
+        int actual;
+        int anterior;
+    }
+
+    private static final class Franja {
+        private final Map<String, Ventana> ventanas;
+
+        Franja(int capacidad) {
+            this.ventanas = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Ventana> eldest) {
+                    return size() > capacidad;
+                }
+            };
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        ventanaMs = ventanaSegundos * 1000;
+        // Cada tipo de clave usa la mitad del límite de memoria
+        int capacidadFranja = Math.max(1, maxEntradas / 2 / cantidadFranjas);
+        franjasPar = nuevasFranjas(capacidadFranja);
+        franjasIp = nuevasFranjas(capacidadFranja);
+
+        bloqueosEmail = Counter.builder("usuarios.login.bloqueos")
+                .tag("clave", "email")
+                .description("Intentos de login rechazados por exceso de fallos")
+                .register(meterRegistry);
+        bloqueosIp = Counter.builder("usuarios.login.bloqueos")
+                .tag("clave", "ip")
+                .description("Intentos de login rechazados por exceso de fallos")
+                .register(meterRegistry);
+        fallos = Counter.builder("usuarios.login.fallos")
+                .description("Intentos de login con credenciales inválidas")
+                .register(meterRegistry);
+        Gauge.builder("usuarios.login.claves", this, LimitadorLogin::claves)
+                .description("Pares email + IP e IPs con fallos recientes en memoria")
+                .register(meterRegistry);
+    }
+
+    private Franja[] nuevasFranjas(int capacidad) {
+        Franja[] franjas = new Franja[cantidadFranjas];
+        for (int i = 0; i < franjas.length; i++) {
+            franjas[i] = new Franja(capacidad);
+        }
+        return franjas;
+    }
+
+    /**
+     * Verifica si se permite un intento de login y, si se permite, lo cuenta como fallo
+     * hasta que se llame a registrarExito o devolver
+     * @param email - Email del intento
+     * @param ip - IP del cliente
+     * @return 0 si se permite; si no, los segundos que el cliente debe esperar
+     */
+    public long intentar(String email, String ip) {
+        long ahora = System.currentTimeMillis();
+        long esperaIp = reservar(franjasIp, ip, maxFallosIp, ahora);
+        if (esperaIp > 0) {
+            bloqueosIp.increment();
+            return esperaIp;
+        }
+        long esperaPar = reservar(franjasPar, par(email, ip), maxFallosEmail, ahora);
+        if (esperaPar > 0) {
+            liberar(franjasIp, ip, ahora);
+            bloqueosEmail.increment();
+        }
+        return esperaPar;
+    }
+
+    /**
+     * Registra en las métricas un intento con credenciales inválidas (ya se contó en intentar)
+     */
+    public void registrarFallo() {
+        fallos.increment();
+    }
+
+    /**
+     * Un login exitoso limpia los fallos del email desde esa IP y no cuenta contra la IP
+     * (sus fallos anteriores se mantienen, porque puede ser compartida)
+     */
+    public void registrarExito(String email, String ip) {
+        liberar(franjasIp, ip, System.currentTimeMillis());
+        String clave = par(email, ip);
+        if (clave == null) {
+            return;
+        }
+        Franja franja = franja(franjasPar, clave);
+        synchronized (franja) {
+            franja.ventanas.remove(clave);
+        }
+    }
+
+    /**
+     * Devuelve un intento permitido que no llegó a verificar la contraseña (por ejemplo, con el
+     * pool de hashing saturado)
+     */
+    public void devolver(String email, String ip) {
+        long ahora = System.currentTimeMillis();
+        liberar(franjasIp, ip, ahora);
+        liberar(franjasPar, par(email, ip), ahora);
+    }
+
+    // Verifica el límite y cuenta el intento bajo el mismo lock
+    private long reservar(Franja[] franjas, String clave, int maximo, long ahora) {
+        if (clave == null) {
+            return 0;
+        }
+        Franja franja = franja(franjas, clave);
+        synchronized (franja) {
+            Ventana ventana = franja.ventanas.get(clave);
+            if (ventana == null) {
+                ventana = new Ventana();
+                ventana.inicio = ahora - ahora % ventanaMs;
+                franja.ventanas.put(clave, ventana);
+            }
+            avanzar(ventana, ahora);
+            long transcurrido = ahora - ventana.inicio;
+            double pesoAnterior = (double) (ventanaMs - transcurrido) / ventanaMs;
+            double estimado = ventana.anterior * pesoAnterior + ventana.actual;
+            if (estimado < maximo) {
+                ventana.actual++;
+                return 0;
+            }
+            // Al cerrar la ventana actual los fallos de la anterior dejan de contar
+            return Math.max(1, (ventanaMs - transcurrido + 999) / 1000);
+        }
+    }
+
+    private void liberar(Franja[] franjas, String clave, long ahora) {
+        if (clave == null) {
+            return;
+        }
+        Franja franja = franja(franjas, clave);
+        synchronized (franja) {
+            Ventana ventana = franja.ventanas.get(clave);
+            if (ventana == null) {
+                return;
+            }
+            avanzar(ventana, ahora);
+            if (ventana.actual > 0) {
+                ventana.actual--;
+            } else if (ventana.anterior > 0) {
+                ventana.anterior--;
+            }
+        }
+    }
+
+    // Mueve la ventana fija al período que contiene 'ahora'
+    private void avanzar(Ventana ventana, long ahora) {
+        long inicioActual = ahora - ahora % ventanaMs;
+        if (inicioActual == ventana.inicio) {
+            return;
+        }
+        ventana.anterior = inicioActual - ventana.inicio == ventanaMs ? ventana.actual : 0;
+        ventana.actual = 0;
+        ventana.inicio = inicioActual;
+    }
+
+    private Franja franja(Franja[] franjas, String clave) {
+        int h = clave.hashCode();
+        h ^= (h >>> 16);
+        return franjas[Math.floorMod(h, franjas.length)];
+    }
+
+    private static String par(String email, String ip) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) + "|" + ip : null;
+    }
+
+    private double claves() {
+        int total = 0;
+        for (Franja[] franjas : new Franja[][] { franjasPar, franjasIp }) {
+            for (Franja franja : franjas) {
+                synchronized (franja) {
+                    total += franja.ventanas.size();
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,88 @@
+package com.qualifygym.usuarios.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.qualifygym.usuarios.model.Rol;
+import com.qualifygym.usuarios.repository.RoleRepository;
+
+/**
+ * Registro en memoria de los roles del sistema.
+ *
+ * Los roles casi nunca cambian, así que se cargan una vez y se publican como una
+ * instantánea inmutable con búsqueda por nombre y por id. Quien escriba roles debe
+ * llamar a refrescar(). Si un rol no está en la instantánea se consulta a la base de
+ * datos por índice (findByNombre / findById) y se recarga el registro.
+ */
+@Service
+public class RegistroRoles {
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private volatile Instantanea instantanea;
+
+    private record Instantanea(Map<String, Rol> porNombre, Map<Long, Rol> porId) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        refrescar();
+    }
+
+    /**
+     * Recarga todos los roles desde la base de datos
+     */
+    public synchronized void refrescar() {
+        List<Rol> roles = roleRepository.findAll();
+        Map<String, Rol> porNombre = new HashMap<>();
+        Map<Long, Rol> porId = new HashMap<>();
+        for (Rol rol : roles) {
+            Rol copia = copia(rol);
+            porNombre.put(copia.getNombre(), copia);
+            porId.put(copia.getId(), copia);
+        }
+        instantanea = new Instantanea(Map.copyOf(porNombre), Map.copyOf(porId));
+    }
+
+    public Optional<Rol> buscarPorNombre(String nombre) {
+        Rol rol = instantanea().porNombre().get(nombre);
+        if (rol != null) {
+            return Optional.of(rol);
+        }
+        Optional<Rol> desdeBd = roleRepository.findByNombre(nombre);
+        desdeBd.ifPresent(r -> refrescar());
+        return desdeBd.map(RegistroRoles::copia);
+    }
+
+    public Optional<Rol> buscarPorId(Long id) {
+        Rol rol = instantanea().porId().get(id);
+        if (rol != null) {
+            return Optional.of(rol);
+        }
+        Optional<Rol> desdeBd = roleRepository.findById(id);
+        desdeBd.ifPresent(r -> refrescar());
+        return desdeBd.map(RegistroRoles::copia);
+    }
+
+    private Instantanea instantanea() {
+        Instantanea actual = instantanea;
+        if (actual == null) {
+            refrescar();
+            actual = instantanea;
+        }
+        return actual;
+    }
+
+    // Copia desacoplada de la sesión JPA: sin la colección lazy de usuarios
+    private static Rol copia(Rol rol) {
+        return new Rol(rol.getId(), rol.getNombre(), null);
+    }
+}
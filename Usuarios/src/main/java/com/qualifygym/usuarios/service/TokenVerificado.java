@@ -0,0 +1,19 @@
+package com.qualifygym.usuarios.service;
+
+import java.util.Date;
+
+/**
+ * Vista inmutable de un token JWT ya verificado.
+ * Se obtiene una sola vez por token (firma + parseo) y se reutiliza para leer
+ * cualquier claim sin volver a parsear.
+ */
+public record TokenVerificado(String subject, Long userId, String role, long emitidoEn, long expiraEn) {
+
+    public Date getExpiracion() {
+        return new Date(expiraEn);
+    }
+
+    public boolean estaExpirado(long ahora) {
+        return expiraEn <= ahora;
+    }
+}
@@ -1,15 +1,19 @@
 package com.qualifygym.usuarios.service;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import com.qualifygym.usuarios.model.Rol;
 import com.qualifygym.usuarios.model.Usuario;
-import com.qualifygym.usuarios.repository.RoleRepository;
+import com.qualifygym.usuarios.model.UsuarioResumen;
 import com.qualifygym.usuarios.repository.UsuarioRepository;
 
 import jakarta.transaction.Transactional;
@@ -19,7 +23,7 @@ import jakarta.transaction.Transactional;
 public class UsuarioService {
 
     @Autowired
-    private RoleRepository roleRepository;
+    private RegistroRoles registroRoles;
 
     @Autowired
     private UsuarioRepository usuarioRepository;
@@ -27,10 +31,27 @@ public class UsuarioService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private HashingService hashingService;
+
+    @Autowired
+    private IndiceIdsUsuarios indiceIdsUsuarios;
+
     public List<Usuario> obtenerUsuarios() {
         return usuarioRepository.findAll();
     }
 
+    /**
+     * Lista usuarios resumidos ordenados por id, a partir de un cursor (keyset).
+     * El costo de cada página es el mismo sin importar cuántos usuarios haya antes del cursor.
+     * @param cursor - Último id de la página anterior (null o 0 para la primera página)
+     * @param limite - Cantidad máxima de usuarios a retornar
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public List<UsuarioResumen> listarUsuarios(Long cursor, int limite) {
+        return usuarioRepository.findResumenDesde(cursor != null ? cursor : 0L, PageRequest.of(0, limite));
+    }
+
     public Usuario obtenerUsuarioPorId(Long id) {
         return usuarioRepository.findById(id).orElse(null);
     }
@@ -40,7 +61,7 @@ public class UsuarioService {
     }
 
     public Usuario crearUsuario(String username, String password, String email, String phone, Long roleId, String address) {
-        Rol rol = roleRepository.findById(roleId)
+        Rol rol = registroRoles.buscarPorId(roleId)
                 .orElseThrow(() -> new RuntimeException("Rol no encontrado ID:" + roleId));
 
         Usuario nuevo = new Usuario();
@@ -50,7 +71,15 @@ public class UsuarioService {
         nuevo.setPhone(phone);
         nuevo.setRol(rol);
         nuevo.setAddress(address);
-        return usuarioRepository.save(nuevo);
+        Usuario guardado;
+        try {
+            guardado = usuarioRepository.save(nuevo);
+        } catch (org.springframework.dao.DataIntegrityViolationException e) {
+            // El índice único de email rechaza el duplicado
+            throw new RuntimeException("El email ya está registrado: " + email);
+        }
+        indiceIdsUsuarios.agregar(guardado.getId());
+        return guardado;
     }
 
     public Usuario actualizarUsuario(Long id, String username, String password, String email, String phone, Long roleId) {
@@ -74,7 +103,7 @@ public class UsuarioService {
             existente.setPhone(phone.trim());
         }
         if (roleId != null) {
-            Rol rol = roleRepository.findById(roleId)
+            Rol rol = registroRoles.buscarPorId(roleId)
                     .orElseThrow(() -> new RuntimeException("Rol no encontrado ID:" + roleId));
             existente.setRol(rol);
         }
@@ -87,6 +116,21 @@ public class UsuarioService {
 
     public void eliminarUsuario(Long id) {
         usuarioRepository.deleteById(id);
+        indiceIdsUsuarios.eliminar(id);
+    }
+
+    /**
+     * Verifica la existencia de varios usuarios a la vez usando el índice de ids en memoria
+     * @param ids - IDs a verificar
+     * @return Mapa id -> existe, en el mismo orden recibido
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Map<Long, Boolean> existenUsuarios(Collection<Long> ids) {
+        Map<Long, Boolean> resultado = new LinkedHashMap<>();
+        for (Long id : ids) {
+            resultado.put(id, indiceIdsUsuarios.existe(id));
+        }
+        return resultado;
     }
 
     public Optional<Usuario> buscarPorUsername(String username) {
@@ -94,8 +138,31 @@ public class UsuarioService {
     }
 
     public boolean validarCredenciales(String email, String rawPassword) {
-        Optional<Usuario> opt = usuarioRepository.findByEmail(email);
-        return opt.isPresent() && passwordEncoder.matches(rawPassword, opt.get().getPassword());
+        return autenticar(email, rawPassword).isPresent();
+    }
+
+    /**
+     * Autentica a un usuario: carga usuario y rol en una sola consulta y compara la contraseña
+     * en el pool de hashing. No abre transacción para no retener una conexión mientras corre BCrypt.
+     * Si el hash guardado está desactualizado (sin versión o con un costo menor al configurado)
+     * se re-hashea en segundo plano, sin demorar la respuesta.
+     * @return el usuario (con su rol cargado) si las credenciales son válidas
+     * @throws java.util.concurrent.RejectedExecutionException si el pool de hashing está saturado
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Optional<Usuario> autenticar(String email, String rawPassword) {
+        Optional<Usuario> opt = usuarioRepository.findConRolByEmail(email);
+        if (opt.isEmpty() || !hashingService.matches(rawPassword, opt.get().getPassword())) {
+            return Optional.empty();
+        }
+
+        Usuario usuario = opt.get();
+        String hashActual = usuario.getPassword();
+        if (passwordEncoder.upgradeEncoding(hashActual)) {
+            hashingService.encodeEnSegundoPlano(rawPassword,
+                    nuevoHash -> usuarioRepository.actualizarPasswordSiNoCambio(usuario.getId(), hashActual, nuevoHash));
+        }
+        return opt;
     }
 
     /**
@@ -119,9 +186,7 @@ public class UsuarioService {
         }
 
         // Buscar el rol "Usuario" por defecto
-        Rol rolUsuario = roleRepository.findAll().stream()
-                .filter(rol -> "Usuario".equals(rol.getNombre()))
-                .findFirst()
+        Rol rolUsuario = registroRoles.buscarPorNombre("Usuario")
                 .orElseThrow(() -> new RuntimeException("Rol 'Usuario' no encontrado en el sistema"));
 
         Usuario nuevo = new Usuario();
@@ -133,7 +198,9 @@ public class UsuarioService {
         nuevo.setRol(rolUsuario);
         
         try {
-            return usuarioRepository.save(nuevo);
+            Usuario guardado = usuarioRepository.save(nuevo);
+            indiceIdsUsuarios.agregar(guardado.getId());
+            return guardado;
         } catch (org.springframework.dao.DataIntegrityViolationException e) {
             // Manejar errores de integridad de base de datos
             String errorMsg = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
@@ -0,0 +1,66 @@
+package com.qualifygym.usuarios.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.hamcrest.Matchers.containsString;
+
+import com.qualifygym.usuarios.service.AnilloLlaves;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests de integración para JwksController
+ *
+ * Verifican que el JWKS se sirve con Cache-Control y ETag, y que un If-None-Match
+ * vigente responde 304 sin cuerpo.
+ */
+@WebMvcTest(JwksController.class)
+@AutoConfigureMockMvc(addFilters = false) // Desactiva la seguridad para los tests
+class JwksControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AnilloLlaves anilloLlaves;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> jwk = Map.of("kty", "EC", "crv", "P-256", "kid", "abc", "x", "x", "y", "y");
+        when(anilloLlaves.conjuntoPublico())
+                .thenReturn(new AnilloLlaves.ConjuntoPublico(Map.of("keys", List.of(jwk)), "\"v1\""));
+    }
+
+    /**
+     * Test: GET /.well-known/jwks.json
+     * Verifica que retorna las llaves con cabeceras de caché
+     */
+    @Test
+    void jwks_debeRetornarLlavesConCabecerasDeCache() throws Exception {
+        mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(header().string("Cache-Control", containsString("max-age=3600")))
+                .andExpect(jsonPath("$.keys[0].kid").value("abc"));
+    }
+
+    /**
+     * Test: GET /.well-known/jwks.json con If-None-Match vigente
+     * Verifica que retorna 304
+     */
+    @Test
+    void jwks_conEtagVigente_debeRetornar304() throws Exception {
+        mockMvc.perform(get("/.well-known/jwks.json").header("If-None-Match", "\"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+}
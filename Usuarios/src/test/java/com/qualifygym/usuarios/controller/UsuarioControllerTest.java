@@ -6,8 +6,11 @@ import static org.mockito.Mockito.*;
 
 import com.qualifygym.usuarios.model.Rol;
 import com.qualifygym.usuarios.model.Usuario;
+import com.qualifygym.usuarios.model.UsuarioResumen;
 import com.qualifygym.usuarios.service.UsuarioService;
 import com.qualifygym.usuarios.service.JwtService;
+import com.qualifygym.usuarios.service.ImportacionUsuariosService;
+import com.qualifygym.usuarios.service.LimitadorLogin;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,7 +21,12 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -42,6 +50,12 @@ class UsuarioControllerTest {
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private ImportacionUsuariosService importacionUsuariosService;
+
+    @MockBean
+    private LimitadorLogin limitadorLogin;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -70,7 +84,7 @@ class UsuarioControllerTest {
 
     /**
      * Test: GET /users - Listar todos los usuarios
-     * Verifica que el endpoint retorna una lista de usuarios con status 200
+     * Verifica que sin parámetros de paginación se retorna la lista completa con status 200
      */
     @Test
     void getUsuarios_deberiaRetornarListaYStatus200() throws Exception {
@@ -90,6 +104,71 @@ class UsuarioControllerTest {
                .andExpect(jsonPath("$[0].phone").value("123456789"));
         
         verify(usuarioService, times(1)).obtenerUsuarios();
+        verify(usuarioService, never()).listarUsuarios(any(), anyInt());
+    }
+
+    /**
+     * Test: GET /users - Primera página
+     * Verifica que con limite se retorna una página de usuarios resumidos con status 200
+     */
+    @Test
+    void getUsuarios_conLimite_deberiaRetornarPaginaResumida() throws Exception {
+        // Arrange
+        List<UsuarioResumen> usuarios = new ArrayList<>();
+        usuarios.add(new UsuarioResumen(1L, "testuser", "test@test.com", "123456789", "Administrador"));
+        
+        when(usuarioService.listarUsuarios(null, 50)).thenReturn(usuarios);
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/usuario/users")
+               .param("limite", "50")
+               .contentType(MediaType.APPLICATION_JSON))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$[0].id").value(1L))
+               .andExpect(jsonPath("$[0].username").value("testuser"))
+               .andExpect(jsonPath("$[0].email").value("test@test.com"))
+               .andExpect(jsonPath("$[0].phone").value("123456789"))
+               .andExpect(jsonPath("$[0].rol").value("Administrador"))
+               .andExpect(jsonPath("$[0].password").doesNotExist())
+               .andExpect(header().doesNotExist("X-Siguiente-Cursor"));
+        
+        verify(usuarioService, never()).obtenerUsuarios();
+    }
+
+    /**
+     * Test: GET /users - Página completa
+     * Verifica que se informa el cursor de la página siguiente (último id)
+     */
+    @Test
+    void getUsuarios_conPaginaCompleta_deberiaRetornarSiguienteCursor() throws Exception {
+        // Arrange
+        List<UsuarioResumen> usuarios = List.of(
+                new UsuarioResumen(11L, "ana", "ana@test.com", "111", "Usuario"),
+                new UsuarioResumen(12L, "beto", "beto@test.com", "222", "Usuario"));
+        when(usuarioService.listarUsuarios(10L, 2)).thenReturn(usuarios);
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/usuario/users")
+               .param("cursor", "10")
+               .param("limite", "2"))
+               .andExpect(status().isOk())
+               .andExpect(header().string("X-Siguiente-Cursor", "12"));
+    }
+
+    /**
+     * Test: GET /users - Límite mayor al máximo
+     * Verifica que el tamaño de página se acota a 500
+     */
+    @Test
+    void getUsuarios_conLimiteExcesivo_deberiaAcotarLimite() throws Exception {
+        // Arrange
+        when(usuarioService.listarUsuarios(null, 500)).thenReturn(new ArrayList<>());
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/usuario/users").param("limite", "100000"))
+               .andExpect(status().isNoContent());
+        
+        verify(usuarioService, times(1)).listarUsuarios(null, 500);
     }
 
     /**
@@ -341,8 +420,7 @@ class UsuarioControllerTest {
         usuarioLogin.setEmail("test@test.com");
         usuarioLogin.setRol(rolAdmin);
         
-        when(usuarioService.validarCredenciales("test@test.com", "password123")).thenReturn(true);
-        when(usuarioService.obtenerUsuarioPorEmail("test@test.com")).thenReturn(usuarioLogin);
+        when(usuarioService.autenticar("test@test.com", "password123")).thenReturn(Optional.of(usuarioLogin));
         when(jwtService.generateToken(anyString(), anyLong(), anyString())).thenReturn("test-token");
         
         // Act & Assert
@@ -354,8 +432,8 @@ class UsuarioControllerTest {
                .andExpect(jsonPath("$.token").exists())
                .andExpect(jsonPath("$.usuario").exists());
         
-        verify(usuarioService, times(1)).validarCredenciales("test@test.com", "password123");
-        verify(usuarioService, times(1)).obtenerUsuarioPorEmail("test@test.com");
+        verify(usuarioService, times(1)).autenticar("test@test.com", "password123");
+        verify(usuarioService, never()).obtenerUsuarioPorEmail(anyString());
         verify(jwtService, times(1)).generateToken(anyString(), anyLong(), anyString());
     }
 
@@ -373,7 +451,7 @@ class UsuarioControllerTest {
             }
             """;
         
-        when(usuarioService.validarCredenciales("test@test.com", "passwordIncorrecto")).thenReturn(false);
+        when(usuarioService.autenticar("test@test.com", "passwordIncorrecto")).thenReturn(Optional.empty());
         
         // Act & Assert
         mockMvc.perform(post("/api/v1/usuario/login")
@@ -382,7 +460,66 @@ class UsuarioControllerTest {
                .andExpect(status().isUnauthorized())
                .andExpect(jsonPath("$.error").value("Credenciales inválidas. Verifica tu email y contraseña."));
         
-        verify(usuarioService, times(1)).validarCredenciales("test@test.com", "passwordIncorrecto");
+        verify(usuarioService, times(1)).autenticar("test@test.com", "passwordIncorrecto");
+        verify(limitadorLogin, times(1)).intentar(eq("test@test.com"), anyString());
+        verify(limitadorLogin, times(1)).registrarFallo();
+    }
+
+    /**
+     * Test: POST /login - Demasiados intentos fallidos
+     * Verifica que el endpoint responde 429 con Retry-After sin validar la contraseña
+     */
+    @Test
+    void login_conDemasiadosFallos_deberiaRetornarStatus429() throws Exception {
+        // Arrange
+        String requestBody = """
+            {
+                "email": "test@test.com",
+                "password": "password123"
+            }
+            """;
+        
+        when(limitadorLogin.intentar(eq("test@test.com"), anyString())).thenReturn(120L);
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/usuario/login")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content(requestBody))
+               .andExpect(status().isTooManyRequests())
+               .andExpect(header().string("Retry-After", "120"))
+               .andExpect(jsonPath("$.error").exists());
+        
+        verify(usuarioService, never()).autenticar(anyString(), anyString());
+    }
+
+    /**
+     * Test: POST /login - Pool de hashing saturado
+     * Verifica que el endpoint responde 503 con Retry-After cuando la cola de BCrypt está llena
+     */
+    @Test
+    void login_conPoolDeHashingSaturado_deberiaRetornarStatus503() throws Exception {
+        // Arrange
+        String requestBody = """
+            {
+                "email": "test@test.com",
+                "password": "password123"
+            }
+            """;
+        
+        when(usuarioService.autenticar("test@test.com", "password123"))
+                .thenThrow(new RejectedExecutionException("cola llena"));
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/usuario/login")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content(requestBody))
+               .andExpect(status().isServiceUnavailable())
+               .andExpect(header().string("Retry-After", "1"))
+               .andExpect(jsonPath("$.error").exists());
+        
+        verify(jwtService, never()).generateToken(anyString(), anyLong(), anyString());
+        // La contraseña no se verificó: el intento no cuenta como fallo
+        verify(limitadorLogin, times(1)).devolver(eq("test@test.com"), anyString());
     }
 
     /**
@@ -405,7 +542,7 @@ class UsuarioControllerTest {
                .andExpect(status().isBadRequest())
                .andExpect(content().string(org.hamcrest.Matchers.containsString("El campo 'password' es requerido")));
         
-        verify(usuarioService, never()).validarCredenciales(anyString(), anyString());
+        verify(usuarioService, never()).autenticar(anyString(), anyString());
     }
 
     /**
@@ -428,5 +565,85 @@ class UsuarioControllerTest {
         verify(usuarioService, times(1)).obtenerUsuarioPorEmail(email);
     }
 
+    /**
+     * Test: POST /users/import - Importación masiva CSV
+     * Verifica que los eventos del servicio se envían como NDJSON
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void importarUsuarios_conCsv_deberiaRetornarEventosNdjson() throws Exception {
+        // Arrange
+        String csv = "username,password,email,phone\nana,clave123,ana@test.com,111\n";
+        doAnswer(invocation -> {
+            Consumer<Map<String, Object>> eventos = invocation.getArgument(2);
+            eventos.accept(Map.of("tipo", "resumen", "insertadas", 1));
+            return Map.of();
+        }).when(importacionUsuariosService).importar(any(), eq(ImportacionUsuariosService.Formato.CSV), any());
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/usuario/users/import")
+               .contentType("text/csv")
+               .content(csv))
+               .andExpect(status().isOk())
+               .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+               .andExpect(content().string(org.hamcrest.Matchers.containsString("\"tipo\":\"resumen\"")));
+        
+        verify(importacionUsuariosService, times(1)).importar(any(), eq(ImportacionUsuariosService.Formato.CSV), any());
+    }
+
+    /**
+     * Test: POST /users/import - Límite de importaciones alcanzado
+     * Verifica que retorna 503 con un JSON de error cuando el servicio rechaza la importación
+     */
+    @Test
+    void importarUsuarios_conLimiteAlcanzado_deberiaRetornar503() throws Exception {
+        // Arrange
+        when(importacionUsuariosService.importar(any(), any(), any()))
+                .thenThrow(new IllegalStateException("Hay 2 importaciones en curso, intente más tarde"));
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/usuario/users/import")
+               .contentType("text/csv")
+               .content("username,password,email,phone\n"))
+               .andExpect(status().isServiceUnavailable())
+               .andExpect(jsonPath("$.error").value("Hay 2 importaciones en curso, intente más tarde"));
+    }
+
+    /**
+     * Test: POST /users/existe - Verificar varios usuarios
+     * Verifica que retorna un mapa id -> existe
+     */
+    @Test
+    void existenUsuarios_conListaDeIds_deberiaRetornarMapa() throws Exception {
+        // Arrange
+        Map<Long, Boolean> respuesta = new LinkedHashMap<>();
+        respuesta.put(1L, true);
+        respuesta.put(99L, false);
+        when(usuarioService.existenUsuarios(anyList())).thenReturn(respuesta);
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/usuario/users/existe")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("[1, 99]"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.1").value(true))
+               .andExpect(jsonPath("$.99").value(false));
+        
+        verify(usuarioService, times(1)).existenUsuarios(List.of(1L, 99L));
+    }
 
+    /**
+     * Test: POST /users/existe - Lista vacía
+     * Verifica que retorna status 400
+     */
+    @Test
+    void existenUsuarios_conListaVacia_deberiaRetornarStatus400() throws Exception {
+        mockMvc.perform(post("/api/v1/usuario/users/existe")
+               .contentType(MediaType.APPLICATION_JSON)
+               .content("[]"))
+               .andExpect(status().isBadRequest())
+               .andExpect(jsonPath("$.error").exists());
+        
+        verify(usuarioService, never()).existenUsuarios(anyList());
+    }
 }
@@ -0,0 +1,286 @@
+package com.qualifygym.usuarios.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Tests unitarios para AnilloLlaves y la firma ES256 de JwtService
+ *
+ * Verifican que los tokens llevan el 'kid' de la llave activa, que siguen validando
+ * durante la ventana de solapamiento tras una rotación y que el JWKS publica la llave siguiente.
+ * También cubren los tokens HMAC anteriores (rechazados por defecto y aceptados solo hasta el corte)
+ * y los permisos de las llaves guardadas en disco.
+ */
+class AnilloLlavesTest {
+
+    private static final String SECRETO_HMAC = "SecretoDePruebaParaTokensHmacAnteriores2024";
+
+    private AnilloLlaves anilloLlaves;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        anilloLlaves = nuevoAnillo(86400000L);
+
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "anilloLlaves", anilloLlaves);
+        ReflectionTestUtils.setField(jwtService, "expiration", 86400000L);
+        ReflectionTestUtils.setField(jwtService, "maxEntradasCache", 100);
+        jwtService.init();
+    }
+
+    private static AnilloLlaves nuevoAnillo(long expiracionTokensMs) {
+        AnilloLlaves anillo = new AnilloLlaves();
+        ReflectionTestUtils.setField(anillo, "intervaloRotacionMs", 86400000L);
+        ReflectionTestUtils.setField(anillo, "expiracionTokensMs", expiracionTokensMs);
+        ReflectionTestUtils.setField(anillo, "directorio", "");
+        anillo.init();
+        return anillo;
+    }
+
+    /**
+     * Test: Token firmado con la llave activa
+     * Verifica que el header lleva el kid y que la firma valida con la llave pública publicada
+     */
+    @Test
+    void generateToken_debeFirmarConKidDeLlaveActiva() {
+        // Act
+        String token = jwtService.generateToken("testuser", 1L, "Usuario");
+
+        // Assert
+        String kid = Jwts.parser()
+                .verifyWith(anilloLlaves.llavePublica(anilloLlaves.activa().kid()))
+                .build()
+                .parseSignedClaims(token)
+                .getHeader()
+                .getKeyId();
+        assertEquals(anilloLlaves.activa().kid(), kid);
+        assertEquals(1L, jwtService.extractUserId(token));
+    }
+
+    /**
+     * Test: Rotación de llaves
+     * Verifica que un token firmado antes de rotar sigue siendo válido y que la llave
+     * siguiente (ya publicada) pasa a ser la activa
+     */
+    @Test
+    void rotar_debeMantenerValidosLosTokensAnteriores() {
+        // Arrange
+        String token = jwtService.generateToken("testuser", 1L, "Usuario");
+        String kidAnterior = anilloLlaves.activa().kid();
+        String kidSiguiente = kidsPublicados().get(1);
+
+        // Act
+        anilloLlaves.rotar();
+
+        // Assert
+        assertEquals(kidSiguiente, anilloLlaves.activa().kid());
+        assertTrue(kidsPublicados().contains(kidAnterior));
+        assertEquals(3, kidsPublicados().size());
+        assertTrue(jwtService.validateToken(token, "testuser"));
+    }
+
+    /**
+     * Test: Intervalo de rotación tras rotar
+     * Verifica que la llave promovida cuenta el intervalo desde que pasa a activa y no vuelve a rotar enseguida
+     */
+    @Test
+    void revisarRotacion_despuesDeRotar_noDebeRotarDeNuevo() throws Exception {
+        // Arrange: la llave siguiente se creó hace más de un intervalo
+        AnilloLlaves anillo = new AnilloLlaves();
+        ReflectionTestUtils.setField(anillo, "intervaloRotacionMs", 200L);
+        ReflectionTestUtils.setField(anillo, "expiracionTokensMs", 86400000L);
+        ReflectionTestUtils.setField(anillo, "directorio", "");
+        anillo.init();
+        Thread.sleep(250);
+        anillo.revisarRotacion();
+        String kidActiva = anillo.activa().kid();
+
+        // Act
+        anillo.revisarRotacion();
+
+        // Assert
+        assertEquals(kidActiva, anillo.activa().kid());
+    }
+
+    /**
+     * Test: Llave retirada cuyos tokens ya expiraron
+     * Verifica que se deja de publicar y que los tokens firmados con ella se rechazan
+     */
+    @Test
+    void rotar_conTokensExpirados_debeDescartarLlaveRetirada() {
+        // Arrange
+        AnilloLlaves anillo = nuevoAnillo(0L);
+        String kidAnterior = anillo.activa().kid();
+
+        // Act
+        anillo.rotar();
+        anillo.rotar();
+
+        // Assert
+        assertNull(anillo.llavePublica(kidAnterior));
+        assertEquals(2, ((List<?>) anillo.conjuntoPublico().jwks().get("keys")).size());
+    }
+
+    /**
+     * Test: Token con kid desconocido
+     */
+    @Test
+    void verificar_conKidDesconocido_debeLanzarExcepcion() {
+        String token = jwtService.generateToken("testuser", 1L, "Usuario");
+        ReflectionTestUtils.setField(jwtService, "anilloLlaves", nuevoAnillo(86400000L));
+
+        assertThrows(JwtException.class, () -> jwtService.verificar(token));
+    }
+
+    /**
+     * Test: Formato JWK de la llave pública
+     * Verifica que las coordenadas x e y tienen 32 bytes (P-256)
+     */
+    @Test
+    void conjuntoPublico_debeTenerCoordenadasDe32Bytes() {
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> keys = (List<Map<String, Object>>) anilloLlaves.conjuntoPublico().jwks().get("keys");
+
+        for (Map<String, Object> jwk : keys) {
+            assertEquals("EC", jwk.get("kty"));
+            assertEquals("ES256", jwk.get("alg"));
+            assertEquals(32, Base64.getUrlDecoder().decode((String) jwk.get("x")).length);
+            assertEquals(32, Base64.getUrlDecoder().decode((String) jwk.get("y")).length);
+        }
+    }
+
+    /**
+     * Test: Token HMAC anterior a la rotación de llaves
+     * Verifica que se acepta antes del corte configurado y que su expiración queda acotada al corte
+     */
+    @Test
+    void verificar_conTokenHmacAntesDelCorte_debeAceptarloHastaElCorte() {
+        // Arrange
+        Instant corte = Instant.now().plusSeconds(3600);
+        JwtService servicio = servicioConHmacLegado(corte.toString());
+
+        // Act
+        TokenVerificado verificado = servicio.verificar(tokenHmac());
+
+        // Assert
+        assertEquals("testuser", verificado.subject());
+        assertEquals(corte.toEpochMilli(), verificado.expiraEn());
+    }
+
+    /**
+     * Test: Token HMAC después del corte
+     */
+    @Test
+    void verificar_conTokenHmacDespuesDelCorte_debeLanzarExcepcion() {
+        JwtService servicio = servicioConHmacLegado(Instant.now().minusSeconds(1).toString());
+
+        assertThrows(JwtException.class, () -> servicio.verificar(tokenHmac()));
+    }
+
+    /**
+     * Test: Token HMAC con la configuración por defecto
+     */
+    @Test
+    void verificar_conTokenHmacPorDefecto_debeLanzarExcepcion() {
+        assertThrows(JwtException.class, () -> jwtService.verificar(tokenHmac()));
+    }
+
+    /**
+     * Test: Tokens HMAC aceptados sin secreto configurado
+     * Verifica que el servicio no arranca
+     */
+    @Test
+    void init_conHmacLegadoSinSecreto_debeLanzarIllegalStateException() {
+        JwtService servicio = new JwtService();
+        ReflectionTestUtils.setField(servicio, "anilloLlaves", anilloLlaves);
+        ReflectionTestUtils.setField(servicio, "secret", "");
+        ReflectionTestUtils.setField(servicio, "aceptarHmacLegado", true);
+        ReflectionTestUtils.setField(servicio, "hmacLegadoHasta", Instant.now().plusSeconds(3600).toString());
+
+        assertThrows(IllegalStateException.class, servicio::init);
+    }
+
+    /**
+     * Test: Llaves persistidas en disco
+     * Verifica que el archivo de cada llave solo es legible por el dueño, que no quedan temporales
+     * y que un anillo nuevo carga las mismas llaves
+     */
+    @Test
+    void init_conDirectorio_debeGuardarLlavesSoloParaElDueno(@TempDir Path directorio) throws Exception {
+        // Arrange
+        AnilloLlaves anillo = new AnilloLlaves();
+        ReflectionTestUtils.setField(anillo, "intervaloRotacionMs", 86400000L);
+        ReflectionTestUtils.setField(anillo, "expiracionTokensMs", 86400000L);
+        ReflectionTestUtils.setField(anillo, "directorio", directorio.toString());
+
+        // Act
+        anillo.init();
+
+        // Assert
+        List<Path> archivos;
+        try (Stream<Path> listado = Files.list(directorio)) {
+            archivos = listado.toList();
+        }
+        assertEquals(2, archivos.size());
+        for (Path archivo : archivos) {
+            assertTrue(archivo.toString().endsWith(".properties"));
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(archivo)));
+            }
+        }
+        AnilloLlaves recargado = new AnilloLlaves();
+        ReflectionTestUtils.setField(recargado, "intervaloRotacionMs", 86400000L);
+        ReflectionTestUtils.setField(recargado, "expiracionTokensMs", 86400000L);
+        ReflectionTestUtils.setField(recargado, "directorio", directorio.toString());
+        recargado.init();
+        assertEquals(anillo.activa().kid(), recargado.activa().kid());
+    }
+
+    private JwtService servicioConHmacLegado(String hasta) {
+        JwtService servicio = new JwtService();
+        ReflectionTestUtils.setField(servicio, "anilloLlaves", anilloLlaves);
+        ReflectionTestUtils.setField(servicio, "secret", SECRETO_HMAC);
+        ReflectionTestUtils.setField(servicio, "aceptarHmacLegado", true);
+        ReflectionTestUtils.setField(servicio, "hmacLegadoHasta", hasta);
+        ReflectionTestUtils.setField(servicio, "expiration", 86400000L);
+        ReflectionTestUtils.setField(servicio, "maxEntradasCache", 100);
+        servicio.init();
+        return servicio;
+    }
+
+    private static String tokenHmac() {
+        return Jwts.builder()
+                .subject("testuser")
+                .claim("userId", 1L)
+                .expiration(new Date(System.currentTimeMillis() + 86400000L))
+                .signWith(Keys.hmacShaKeyFor(SECRETO_HMAC.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> kidsPublicados() {
+        List<Map<String, Object>> keys = (List<Map<String, Object>>) anilloLlaves.conjuntoPublico().jwks().get("keys");
+        return keys.stream().map(k -> (String) k.get("kid")).toList();
+    }
+}
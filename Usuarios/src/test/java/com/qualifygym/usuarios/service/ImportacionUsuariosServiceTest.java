@@ -0,0 +1,253 @@
+package com.qualifygym.usuarios.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qualifygym.usuarios.model.Rol;
+import com.qualifygym.usuarios.repository.UsuarioRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Tests unitarios para ImportacionUsuariosService
+ *
+ * Verifican el procesamiento por lotes: rechazo de filas inválidas y de emails
+ * duplicados (en la base de datos, dentro del mismo archivo o por el índice único),
+ * inserción por lotes JDBC, errores de base de datos por lote y el límite de importaciones simultáneas.
+ */
+class ImportacionUsuariosServiceTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private RegistroRoles registroRoles;
+
+    @Mock
+    private IndiceIdsUsuarios indiceIdsUsuarios;
+
+    @Mock
+    private HashingService hashingService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private ImportacionUsuariosService importacionService;
+
+    private final List<Map<String, Object>> eventos = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(importacionService, "tamanoLote", 100);
+        ReflectionTestUtils.setField(importacionService, "maxConcurrentes", 1);
+        importacionService.init();
+
+        when(registroRoles.buscarPorNombre("Usuario")).thenReturn(Optional.of(new Rol(2L, "Usuario", null)));
+        when(hashingService.encodeTodos(anyList())).thenAnswer(invocation -> {
+            List<String> passwords = invocation.getArgument(0);
+            return passwords.stream().map(p -> "hash").toList();
+        });
+        when(usuarioRepository.findEmailsExistentes(anyCollection())).thenReturn(List.of("existe@test.com"));
+        // Ejecutar el callback transaccional directamente
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> accion = invocation.getArgument(0);
+            accion.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    /**
+     * Test: Importar CSV con filas válidas e inválidas
+     * Verifica que solo se insertan las filas válidas y se informa un error por cada rechazo
+     */
+    @Test
+    void importar_conCsvMixto_debeInsertarSoloFilasValidas() throws Exception {
+        // Arrange
+        String csv = """
+                username,password,email,phone,rolId,address
+                ana,clave123,ana@test.com,111,,"Calle 1, depto 2"
+                beto,clave123,existe@test.com,222,,
+                ana2,clave123,ana@test.com,333,,
+                carla,,carla@test.com,444,,
+                """;
+
+        // Act
+        Map<String, Object> resumen = importacionService.importar(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                ImportacionUsuariosService.Formato.CSV, eventos::add);
+
+        // Assert
+        assertEquals(4, resumen.get("procesadas"));
+        assertEquals(1, resumen.get("insertadas"));
+        assertEquals(3, resumen.get("rechazadas"));
+        assertEquals(3, eventos.stream().filter(e -> "error".equals(e.get("tipo"))).count());
+        verify(usuarioRepository, times(1)).findEmailsExistentes(anyCollection());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList(), eq(1), any());
+        verify(hashingService, times(1)).encodeTodos(List.of("clave123"));
+        verify(indiceIdsUsuarios, times(1)).agregarTodos(anyList());
+    }
+
+    /**
+     * Test: Importar NDJSON
+     * Verifica que cada línea JSON se procesa como una fila
+     */
+    @Test
+    void importar_conNdjson_debeInsertarFilas() throws Exception {
+        // Arrange
+        String ndjson = """
+                {"username":"ana","password":"clave123","email":"ana@test.com","phone":"111"}
+                {"username":"beto","password":"clave456","email":"beto@test.com","phone":"222","rolId":2}
+                """;
+        when(registroRoles.buscarPorId(2L)).thenReturn(Optional.of(new Rol(2L, "Usuario", null)));
+
+        // Act
+        Map<String, Object> resumen = importacionService.importar(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                ImportacionUsuariosService.Formato.NDJSON, eventos::add);
+
+        // Assert
+        assertEquals(2, resumen.get("insertadas"));
+        assertEquals(0, resumen.get("rechazadas"));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList(), eq(2), any());
+    }
+
+    /**
+     * Test: Email tomado por otro registro entre la verificación y el INSERT
+     * Verifica que el lote se reintenta fila por fila y solo se rechaza la fila duplicada
+     */
+    @Test
+    void importar_conEmailDuplicadoEnIndice_debeRechazarSoloEsaFila() throws Exception {
+        // Arrange
+        String ndjson = """
+                {"username":"ana","password":"clave123","email":"ana@test.com","phone":"111"}
+                {"username":"beto","password":"clave456","email":"beto@test.com","phone":"222"}
+                """;
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any()))
+                .thenThrow(new DuplicateKeyException("Duplicate entry 'beto@test.com'"));
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenReturn(1)
+                .thenThrow(new DuplicateKeyException("Duplicate entry 'beto@test.com'"));
+
+        // Act
+        Map<String, Object> resumen = importacionService.importar(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                ImportacionUsuariosService.Formato.NDJSON, eventos::add);
+
+        // Assert
+        assertEquals(1, resumen.get("insertadas"));
+        assertEquals(1, resumen.get("rechazadas"));
+        Map<String, Object> error = eventos.stream().filter(e -> "error".equals(e.get("tipo"))).findFirst().orElseThrow();
+        assertEquals("beto@test.com", error.get("email"));
+        assertEquals("El email ya está registrado: beto@test.com", error.get("error"));
+        verify(usuarioRepository).findIdsPorEmails(List.of("ana@test.com"));
+    }
+
+    /**
+     * Test: Error de base de datos al guardar un lote
+     * Verifica que cada fila del lote se informa como error y la importación termina con su resumen
+     */
+    @Test
+    void importar_conErrorDeBaseDeDatos_debeInformarErrorPorFila() throws Exception {
+        // Arrange
+        String ndjson = """
+                {"username":"ana","password":"clave123","email":"ana@test.com","phone":"111"}
+                {"username":"beto","password":"clave456","email":"beto@test.com","phone":"222"}
+                """;
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any()))
+                .thenThrow(new DataAccessResourceFailureException("Conexión perdida"));
+
+        // Act
+        Map<String, Object> resumen = importacionService.importar(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                ImportacionUsuariosService.Formato.NDJSON, eventos::add);
+
+        // Assert
+        assertEquals(0, resumen.get("insertadas"));
+        assertEquals(2, resumen.get("rechazadas"));
+        assertEquals(2, eventos.stream()
+                .filter(e -> "error".equals(e.get("tipo")))
+                .filter(e -> "Error al guardar el lote: Conexión perdida".equals(e.get("error")))
+                .count());
+        verify(indiceIdsUsuarios, never()).agregarTodos(anyList());
+    }
+
+    /**
+     * Test: Importación rechazada por el límite de importaciones simultáneas
+     * Verifica que se lanza IllegalStateException sin emitir eventos mientras otra importación está en curso
+     */
+    @Test
+    void importar_conLimiteAlcanzado_debeLanzarIllegalStateException() throws Exception {
+        // Arrange: la primera importación queda bloqueada en el hashing
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(hashingService.encodeTodos(anyList())).thenAnswer(invocation -> {
+            enCurso.countDown();
+            liberar.await();
+            return List.of("hash");
+        });
+        String ndjson = "{\"username\":\"ana\",\"password\":\"clave123\",\"email\":\"ana@test.com\",\"phone\":\"111\"}\n";
+        ExecutorService hilo = Executors.newSingleThreadExecutor();
+        try {
+            Future<Map<String, Object>> primera = hilo.submit(() -> importacionService.importar(
+                    new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                    ImportacionUsuariosService.Formato.NDJSON, e -> { }));
+            enCurso.await();
+
+            // Act & Assert
+            assertThrows(IllegalStateException.class, () -> importacionService.importar(
+                    new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                    ImportacionUsuariosService.Formato.NDJSON, eventos::add));
+            assertTrue(eventos.isEmpty());
+
+            liberar.countDown();
+            assertEquals(1, primera.get().get("insertadas"));
+        } finally {
+            liberar.countDown();
+            hilo.shutdownNow();
+        }
+    }
+
+    /**
+     * Test: Separar líneas CSV con comillas
+     */
+    @Test
+    void separarCsv_conComillas_debeRespetarComasInternas() {
+        List<String> valores = ImportacionUsuariosService.separarCsv("a,\"b, c\",\"d \"\"e\"\"\"");
+
+        assertEquals(List.of("a", "b, c", "d \"e\""), valores);
+    }
+}
@@ -0,0 +1,80 @@
+package com.qualifygym.usuarios.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.qualifygym.usuarios.repository.UsuarioRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+/**
+ * Tests unitarios para IndiceIdsUsuarios
+ *
+ * Verifican que la existencia se responde desde el bitmap cargado al iniciar y que
+ * las altas y bajas lo mantienen al día sin volver a consultar la base de datos.
+ */
+class IndiceIdsUsuariosTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @InjectMocks
+    private IndiceIdsUsuarios indice;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(usuarioRepository.findAllIds()).thenReturn(List.of(1L, 2L, 5L));
+        indice.reconstruir();
+    }
+
+    /**
+     * Test: Consultar ids cargados
+     * Verifica que no se consulta la base de datos por id
+     */
+    @Test
+    void existe_conIdsCargados_debeResponderDesdeMemoria() {
+        assertTrue(indice.existe(1L));
+        assertTrue(indice.existe(5L));
+        assertFalse(indice.existe(3L));
+        assertFalse(indice.existe(null));
+        verify(usuarioRepository, times(1)).findAllIds();
+        verify(usuarioRepository, never()).existsById(anyLong());
+    }
+
+    /**
+     * Test: Alta y baja de usuarios
+     * Sin transacción activa los cambios se aplican de inmediato
+     */
+    @Test
+    void agregarYEliminar_debenActualizarIndice() {
+        // Act
+        indice.agregar(10L);
+        indice.eliminar(1L);
+        indice.agregarTodos(List.of(11L, 12L));
+
+        // Assert
+        assertTrue(indice.existe(10L));
+        assertTrue(indice.existe(12L));
+        assertFalse(indice.existe(1L));
+    }
+
+    /**
+     * Test: Id fuera del rango del bitmap
+     * Verifica que se consulta la base de datos
+     */
+    @Test
+    void existe_conIdMayorAIntMax_debeConsultarBaseDeDatos() {
+        long idGrande = Integer.MAX_VALUE + 1L;
+        when(usuarioRepository.existsById(idGrande)).thenReturn(true);
+
+        assertTrue(indice.existe(idGrande));
+        verify(usuarioRepository, times(1)).existsById(idGrande);
+    }
+}
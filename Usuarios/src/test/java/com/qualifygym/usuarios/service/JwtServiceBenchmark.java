@@ -0,0 +1,117 @@
+package com.qualifygym.usuarios.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Benchmark JMH de la validación de tokens en JwtService
+ *
+ * Compara la implementación anterior (reconstruir llave y parser en cada llamada y
+ * parsear el token dos veces en validateToken) contra la actual (llave y parser
+ * cacheados, un solo parseo y caché de tokens verificados).
+ *
+ * No se ejecuta con los tests; para correrlo:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.qualifygym.usuarios.service.JwtServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "QualifyGymSecretKeyForJWTTokenGeneration2024";
+
+    private JwtService jwtService;
+    private JwtService jwtServiceSinCache;
+    private String token;
+    private String tokenHmac;
+
+    @Setup
+    public void setUp() {
+        jwtService = nuevoServicio(10_000);
+        // Con 0 entradas la caché nunca guarda nada: mide solo el parser reutilizado
+        jwtServiceSinCache = nuevoServicio(0);
+        token = jwtService.generateToken("admin", 1L, "Administrador");
+        // La implementación anterior firmaba con HMAC
+        tokenHmac = Jwts.builder()
+                .subject("admin")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 86400000L))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    private static JwtService nuevoServicio(int maxEntradasCache) {
+        AnilloLlaves anillo = new AnilloLlaves();
+        ReflectionTestUtils.setField(anillo, "intervaloRotacionMs", 86400000L);
+        ReflectionTestUtils.setField(anillo, "expiracionTokensMs", 86400000L);
+        ReflectionTestUtils.setField(anillo, "directorio", "");
+        anillo.init();
+
+        JwtService servicio = new JwtService();
+        ReflectionTestUtils.setField(servicio, "anilloLlaves", anillo);
+        ReflectionTestUtils.setField(servicio, "expiration", 86400000L);
+        ReflectionTestUtils.setField(servicio, "maxEntradasCache", maxEntradasCache);
+        servicio.init();
+        return servicio;
+    }
+
+    /**
+     * Implementación anterior: llave y parser nuevos por llamada, dos parseos por validación
+     */
+    @Benchmark
+    public boolean validarAnterior() {
+        String username = anteriorExtraerClaims(tokenHmac).getSubject();
+        Date expiracion = anteriorExtraerClaims(tokenHmac).getExpiration();
+        return username.equals("admin") && !expiracion.before(new Date());
+    }
+
+    @Benchmark
+    public boolean validarParserCacheado() {
+        return jwtServiceSinCache.validateToken(token, "admin");
+    }
+
+    @Benchmark
+    public boolean validarConCacheDeTokens() {
+        return jwtService.validateToken(token, "admin");
+    }
+
+    private static Claims anteriorExtraerClaims(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,169 @@
+package com.qualifygym.usuarios.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests unitarios para LimitadorLogin
+ *
+ * Verifican el bloqueo por email (desde una IP) y por IP al superar el máximo de fallos, que
+ * los fallos de una IP no bloquean al email desde otra, que la verificación y el conteo son
+ * atómicos, el desbloqueo tras un login exitoso y que la memoria queda acotada por la capacidad
+ * de las franjas.
+ */
+class LimitadorLoginTest {
+
+    private LimitadorLogin limitador;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limitador = nuevoLimitador(100000);
+    }
+
+    private LimitadorLogin nuevoLimitador(int maxEntradas) {
+        LimitadorLogin nuevo = new LimitadorLogin();
+        ReflectionTestUtils.setField(nuevo, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(nuevo, "maxFallosEmail", 3);
+        ReflectionTestUtils.setField(nuevo, "maxFallosIp", 5);
+        ReflectionTestUtils.setField(nuevo, "ventanaSegundos", 300L);
+        ReflectionTestUtils.setField(nuevo, "maxEntradas", maxEntradas);
+        ReflectionTestUtils.setField(nuevo, "cantidadFranjas", 4);
+        nuevo.init();
+        return nuevo;
+    }
+
+    /**
+     * Test: Fallos repetidos para un email desde una IP
+     * Verifica que al llegar al máximo se bloquea (sin distinguir mayúsculas) y se cuenta el bloqueo
+     */
+    @Test
+    void intentar_conFallosPorEmail_debeBloquear() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limitador.intentar("ana@test.com", "10.0.0.1"));
+        }
+
+        // Act
+        long espera = limitador.intentar("ANA@test.com", "10.0.0.1");
+
+        // Assert
+        assertTrue(espera > 0 && espera <= 300);
+        assertEquals(0, limitador.intentar("beto@test.com", "10.0.0.1"));
+        assertEquals(1.0, meterRegistry.get("usuarios.login.bloqueos").tag("clave", "email").counter().count());
+    }
+
+    /**
+     * Test: Fallos de un atacante contra el email de otro usuario
+     * Verifica que el dueño del email puede seguir intentando desde su propia IP
+     */
+    @Test
+    void intentar_conFallosDesdeOtraIp_noDebeBloquearAlDueno() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            limitador.intentar("ana@test.com", "10.0.0.66");
+        }
+
+        // Act & Assert
+        assertTrue(limitador.intentar("ana@test.com", "10.0.0.66") > 0);
+        assertEquals(0, limitador.intentar("ana@test.com", "10.0.0.1"));
+    }
+
+    /**
+     * Test: Fallos repetidos desde una IP con emails distintos
+     */
+    @Test
+    void intentar_conFallosPorIp_debeBloquear() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            limitador.intentar("usuario" + i + "@test.com", "10.0.0.1");
+        }
+
+        // Act & Assert
+        assertTrue(limitador.intentar("otro@test.com", "10.0.0.1") > 0);
+        assertEquals(0, limitador.intentar("otro@test.com", "10.0.0.2"));
+    }
+
+    /**
+     * Test: Intentos concurrentes para el mismo email e IP
+     * Verifica que la verificación y el conteo son atómicos: pasan exactamente maxFallosEmail
+     */
+    @Test
+    void intentar_concurrente_debePermitirSoloElMaximo() throws Exception {
+        // Arrange
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        List<Callable<Long>> intentos = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            intentos.add(() -> limitador.intentar("ana@test.com", "10.0.0.1"));
+        }
+
+        // Act
+        int permitidos = 0;
+        try {
+            for (Future<Long> resultado : hilos.invokeAll(intentos)) {
+                if (resultado.get() == 0) {
+                    permitidos++;
+                }
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        // Assert
+        assertEquals(3, permitidos);
+    }
+
+    /**
+     * Test: Login exitoso
+     * Verifica que se limpian los fallos del email desde esa IP y que el intento no cuenta contra la IP
+     */
+    @Test
+    void registrarExito_debeLimpiarFallosDelEmail() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            limitador.intentar("ana@test.com", "10.0.0.1");
+        }
+        limitador.intentar("ana@test.com", "10.0.0.1");
+
+        // Act
+        limitador.registrarExito("ana@test.com", "10.0.0.1");
+
+        // Assert: a la IP le quedan 2 fallos de 5, así que caben 3 intentos más
+        assertEquals(0, limitador.intentar("ana@test.com", "10.0.0.1"));
+        assertEquals(0, limitador.intentar("beto@test.com", "10.0.0.1"));
+        assertEquals(0, limitador.intentar("carla@test.com", "10.0.0.1"));
+        assertTrue(limitador.intentar("dora@test.com", "10.0.0.1") > 0);
+    }
+
+    /**
+     * Test: Límite de memoria
+     * Verifica que las claves en memoria no superan la capacidad configurada
+     */
+    @Test
+    void registrarFallo_conMuchasClaves_debeMantenerMemoriaAcotada() {
+        // Arrange: 8 entradas = 4 por tipo de clave = 1 por franja (registro propio para el gauge)
+        meterRegistry = new SimpleMeterRegistry();
+        LimitadorLogin acotado = nuevoLimitador(8);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            acotado.intentar("usuario" + i + "@test.com", "10.0." + (i / 250) + "." + (i % 250));
+        }
+
+        // Assert
+        assertTrue(meterRegistry.get("usuarios.login.claves").gauge().value() <= 8);
+    }
+}
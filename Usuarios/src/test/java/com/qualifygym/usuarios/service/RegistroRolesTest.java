@@ -0,0 +1,95 @@
+package com.qualifygym.usuarios.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.qualifygym.usuarios.model.Rol;
+import com.qualifygym.usuarios.repository.RoleRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tests unitarios para RegistroRoles
+ *
+ * Verifican que los roles se resuelven desde la instantánea en memoria sin volver
+ * a consultar la base de datos, y que un rol desconocido se busca por índice.
+ */
+class RegistroRolesTest {
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @InjectMocks
+    private RegistroRoles registroRoles;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(roleRepository.findAll()).thenReturn(List.of(
+                new Rol(1L, "Administrador", null),
+                new Rol(2L, "Usuario", null)));
+        registroRoles.refrescar();
+    }
+
+    /**
+     * Test: Buscar roles cargados
+     * Verifica que las búsquedas por nombre e id no consultan la base de datos
+     */
+    @Test
+    void buscar_conRolCargado_noDebeConsultarBaseDeDatos() {
+        // Act
+        Optional<Rol> porNombre = registroRoles.buscarPorNombre("Usuario");
+        Optional<Rol> porId = registroRoles.buscarPorId(1L);
+
+        // Assert
+        assertEquals(2L, porNombre.get().getId());
+        assertEquals("Administrador", porId.get().getNombre());
+        verify(roleRepository, times(1)).findAll();
+        verify(roleRepository, never()).findByNombre(anyString());
+        verify(roleRepository, never()).findById(anyLong());
+    }
+
+    /**
+     * Test: Buscar rol creado después de la carga
+     * Verifica que se usa findByNombre como respaldo y se recarga el registro
+     */
+    @Test
+    void buscarPorNombre_conRolNuevo_debeUsarFindByNombreYRefrescar() {
+        // Arrange
+        Rol entrenador = new Rol(3L, "Entrenador", null);
+        when(roleRepository.findByNombre("Entrenador")).thenReturn(Optional.of(entrenador));
+
+        // Act
+        Optional<Rol> resultado = registroRoles.buscarPorNombre("Entrenador");
+
+        // Assert
+        assertTrue(resultado.isPresent());
+        assertEquals(3L, resultado.get().getId());
+        verify(roleRepository, times(1)).findByNombre("Entrenador");
+        verify(roleRepository, times(2)).findAll();
+    }
+
+    /**
+     * Test: Buscar rol inexistente
+     * Verifica que se retorna vacío sin recargar el registro
+     */
+    @Test
+    void buscarPorId_conRolInexistente_debeRetornarVacio() {
+        // Arrange
+        when(roleRepository.findById(99L)).thenReturn(Optional.empty());
+
+        // Act
+        Optional<Rol> resultado = registroRoles.buscarPorId(99L);
+
+        // Assert
+        assertFalse(resultado.isPresent());
+        verify(roleRepository, times(1)).findAll();
+    }
+}
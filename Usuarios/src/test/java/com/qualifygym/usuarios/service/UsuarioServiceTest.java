@@ -5,18 +5,23 @@ import static org.mockito.Mockito.*;
 
 import com.qualifygym.usuarios.model.Rol;
 import com.qualifygym.usuarios.model.Usuario;
+import com.qualifygym.usuarios.model.UsuarioResumen;
 import com.qualifygym.usuarios.repository.UsuarioRepository;
-import com.qualifygym.usuarios.repository.RoleRepository;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import java.util.Optional;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * Tests unitarios para UsuarioService
@@ -31,11 +36,17 @@ class UsuarioServiceTest {
     private UsuarioRepository usuarioRepository;
 
     @Mock
-    private RoleRepository roleRepository;
+    private RegistroRoles registroRoles;
 
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private HashingService hashingService;
+
+    @Mock
+    private IndiceIdsUsuarios indiceIdsUsuarios;
+
     @InjectMocks
     private UsuarioService usuarioService;
 
@@ -90,6 +101,25 @@ class UsuarioServiceTest {
         verify(usuarioRepository, times(1)).findAll();
     }
 
+    /**
+     * Test: Listar usuarios sin cursor
+     * Verifica que la primera página parte desde el id 0 con el límite pedido
+     */
+    @Test
+    void listarUsuarios_sinCursor_debeConsultarDesdeElInicio() {
+        // Arrange
+        List<UsuarioResumen> pagina = List.of(new UsuarioResumen(1L, "testuser", "test@test.com", "123456789", "Administrador"));
+        when(usuarioRepository.findResumenDesde(eq(0L), any(Pageable.class))).thenReturn(pagina);
+        
+        // Act
+        List<UsuarioResumen> resultado = usuarioService.listarUsuarios(null, 50);
+        
+        // Assert
+        assertEquals(pagina, resultado);
+        verify(usuarioRepository, times(1)).findResumenDesde(0L, PageRequest.of(0, 50));
+        verify(usuarioRepository, never()).findAll();
+    }
+
     /**
      * Test: Obtener usuario por ID existente
      * Verifica que el servicio retorna el usuario cuando existe
@@ -139,7 +169,7 @@ class UsuarioServiceTest {
         // Arrange
         Long roleIdInexistente = 999L;
         when(usuarioRepository.existsByUsername(anyString())).thenReturn(false);
-        when(roleRepository.findById(roleIdInexistente)).thenReturn(Optional.empty());
+        when(registroRoles.buscarPorId(roleIdInexistente)).thenReturn(Optional.empty());
         
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -147,7 +177,7 @@ class UsuarioServiceTest {
         });
         
         assertTrue(exception.getMessage().contains("Rol no encontrado"));
-        verify(roleRepository, times(1)).findById(roleIdInexistente);
+        verify(registroRoles, times(1)).buscarPorId(roleIdInexistente);
         verify(usuarioRepository, never()).save(any(Usuario.class));
     }
 
@@ -170,7 +200,7 @@ class UsuarioServiceTest {
         
         when(usuarioRepository.findById(id)).thenReturn(Optional.of(usuarioTest));
         when(usuarioRepository.existsByUsername(nuevoUsername)).thenReturn(false);
-        when(roleRepository.findById(nuevoRoleId)).thenReturn(Optional.of(nuevoRol));
+        when(registroRoles.buscarPorId(nuevoRoleId)).thenReturn(Optional.of(nuevoRol));
         when(usuarioRepository.save(any(Usuario.class))).thenReturn(usuarioTest);
         
         // Act
@@ -217,6 +247,25 @@ class UsuarioServiceTest {
         
         // Assert
         verify(usuarioRepository, times(1)).deleteById(id);
+        verify(indiceIdsUsuarios, times(1)).eliminar(id);
+    }
+
+    /**
+     * Test: Verificar existencia de varios usuarios
+     * Verifica que se responde desde el índice en memoria, sin consultar el repositorio
+     */
+    @Test
+    void existenUsuarios_debeUsarIndiceEnMemoria() {
+        // Arrange
+        when(indiceIdsUsuarios.existe(1L)).thenReturn(true);
+        when(indiceIdsUsuarios.existe(2L)).thenReturn(false);
+
+        // Act
+        Map<Long, Boolean> resultado = usuarioService.existenUsuarios(List.of(1L, 2L));
+
+        // Assert
+        assertEquals(Map.of(1L, true, 2L, false), resultado);
+        verifyNoInteractions(usuarioRepository);
     }
 
     /**
@@ -268,16 +317,16 @@ class UsuarioServiceTest {
         String encodedPassword = "encodedPassword";
         
         usuarioTest.setPassword(encodedPassword);
-        when(usuarioRepository.findByEmail(email)).thenReturn(Optional.of(usuarioTest));
-        when(passwordEncoder.matches(password, encodedPassword)).thenReturn(true);
+        when(usuarioRepository.findConRolByEmail(email)).thenReturn(Optional.of(usuarioTest));
+        when(hashingService.matches(password, encodedPassword)).thenReturn(true);
         
         // Act
         boolean resultado = usuarioService.validarCredenciales(email, password);
         
         // Assert
         assertTrue(resultado);
-        verify(usuarioRepository, times(1)).findByEmail(email);
-        verify(passwordEncoder, times(1)).matches(password, encodedPassword);
+        verify(usuarioRepository, times(1)).findConRolByEmail(email);
+        verify(hashingService, times(1)).matches(password, encodedPassword);
     }
 
     /**
@@ -292,16 +341,16 @@ class UsuarioServiceTest {
         String encodedPassword = "encodedPassword";
         
         usuarioTest.setPassword(encodedPassword);
-        when(usuarioRepository.findByEmail(email)).thenReturn(Optional.of(usuarioTest));
-        when(passwordEncoder.matches(password, encodedPassword)).thenReturn(false);
+        when(usuarioRepository.findConRolByEmail(email)).thenReturn(Optional.of(usuarioTest));
+        when(hashingService.matches(password, encodedPassword)).thenReturn(false);
         
         // Act
         boolean resultado = usuarioService.validarCredenciales(email, password);
         
         // Assert
         assertFalse(resultado);
-        verify(usuarioRepository, times(1)).findByEmail(email);
-        verify(passwordEncoder, times(1)).matches(password, encodedPassword);
+        verify(usuarioRepository, times(1)).findConRolByEmail(email);
+        verify(hashingService, times(1)).matches(password, encodedPassword);
     }
 
     /**
@@ -314,15 +363,64 @@ class UsuarioServiceTest {
         String email = "noexiste@test.com";
         String password = "password123";
         
-        when(usuarioRepository.findByEmail(email)).thenReturn(Optional.empty());
+        when(usuarioRepository.findConRolByEmail(email)).thenReturn(Optional.empty());
         
         // Act
         boolean resultado = usuarioService.validarCredenciales(email, password);
         
         // Assert
         assertFalse(resultado);
-        verify(usuarioRepository, times(1)).findByEmail(email);
-        verify(passwordEncoder, never()).matches(anyString(), anyString());
+        verify(usuarioRepository, times(1)).findConRolByEmail(email);
+        verify(hashingService, never()).matches(anyString(), anyString());
+    }
+
+    /**
+     * Test: Autenticar con credenciales correctas
+     * Verifica que se retorna el usuario con su rol usando una sola consulta
+     */
+    @Test
+    void autenticar_conCredencialesCorrectas_debeRetornarUsuarioConRol() {
+        // Arrange
+        String email = "test@test.com";
+        String password = "password123";
+        when(usuarioRepository.findConRolByEmail(email)).thenReturn(Optional.of(usuarioTest));
+        when(hashingService.matches(password, "encodedPassword")).thenReturn(true);
+        
+        // Act
+        Optional<Usuario> resultado = usuarioService.autenticar(email, password);
+        
+        // Assert
+        assertTrue(resultado.isPresent());
+        assertEquals("Administrador", resultado.get().getRol().getNombre());
+        verify(usuarioRepository, times(1)).findConRolByEmail(email);
+        verify(usuarioRepository, never()).findByEmail(anyString());
+        verify(hashingService, never()).encodeEnSegundoPlano(anyString(), any());
+    }
+
+    /**
+     * Test: Autenticar con un hash desactualizado
+     * Verifica que la contraseña se re-hashea en segundo plano y se guarda solo si no cambió
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void autenticar_conHashDesactualizado_debeRehashearEnSegundoPlano() {
+        // Arrange
+        String email = "test@test.com";
+        String password = "password123";
+        when(usuarioRepository.findConRolByEmail(email)).thenReturn(Optional.of(usuarioTest));
+        when(hashingService.matches(password, "encodedPassword")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("encodedPassword")).thenReturn(true);
+        
+        // Act
+        Optional<Usuario> resultado = usuarioService.autenticar(email, password);
+        
+        // Assert: se encola el re-hash y al terminar se actualiza condicionado al hash anterior
+        assertTrue(resultado.isPresent());
+        ArgumentCaptor<Consumer<String>> callback = ArgumentCaptor.forClass(Consumer.class);
+        verify(hashingService, times(1)).encodeEnSegundoPlano(eq(password), callback.capture());
+        
+        callback.getValue().accept("{bcrypt}nuevoHash");
+        verify(usuarioRepository, times(1)).actualizarPasswordSiNoCambio(1L, "encodedPassword", "{bcrypt}nuevoHash");
     }
 
     /**